@@ -0,0 +1,54 @@
+package com.gynaid.backend.controller;
+
+import com.gynaid.backend.entity.PhiReencryptionCheckpoint;
+import com.gynaid.backend.service.FieldLevelEncryptionService;
+import com.gynaid.backend.service.PhiBlindIndexService;
+import com.gynaid.backend.service.PhiReencryptionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/encryption")
+@PreAuthorize("hasRole('ADMIN')")
+@RequiredArgsConstructor
+public class AdminEncryptionController {
+
+    private final FieldLevelEncryptionService encryptionService;
+    private final PhiReencryptionService reencryptionService;
+    private final PhiBlindIndexService blindIndexService;
+
+    @GetMapping
+    public ResponseEntity<FieldLevelEncryptionService.EncryptionStats> getEncryptionStats() {
+        return ResponseEntity.ok(encryptionService.getEncryptionStats());
+    }
+
+    /**
+     * Start using a new data key; existing values are re-encrypted in the background
+     */
+    @PostMapping("/rotate")
+    public ResponseEntity<Map<String, Object>> rotateDataKey() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("activeDataKeyId", encryptionService.rotateDataKey());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/reencryption")
+    public ResponseEntity<List<PhiReencryptionCheckpoint>> getReencryptionProgress() {
+        return ResponseEntity.ok(reencryptionService.getProgress());
+    }
+
+    /**
+     * Recompute the PHI blind index from all medical histories and medication records
+     */
+    @PostMapping("/blind-index/rebuild")
+    public ResponseEntity<Integer> rebuildBlindIndex() {
+        return ResponseEntity.ok(blindIndexService.rebuild());
+    }
+}
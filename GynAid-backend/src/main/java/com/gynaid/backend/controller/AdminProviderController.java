@@ -1,14 +1,18 @@
 package com.gynaid.backend.controller;
 
+import com.gynaid.backend.dto.CursorPage;
 import com.gynaid.backend.entity.HealthcareProvider;
 import com.gynaid.backend.entity.ProviderSubscription;
 import com.gynaid.backend.service.AdminProviderService;
+import com.gynaid.backend.service.ProviderEarningsService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -18,6 +22,7 @@ import java.util.List;
 public class AdminProviderController {
 
     private final AdminProviderService adminProviderService;
+    private final ProviderEarningsService providerEarningsService;
 
     // Provider Management
     @PostMapping
@@ -43,6 +48,16 @@ public class AdminProviderController {
         return ResponseEntity.ok(providers);
     }
 
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<HealthcareProvider>> getProvidersByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) HealthcareProvider.VerificationStatus status,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        CursorPage<HealthcareProvider> providers = adminProviderService.getProvidersPage(cursor, size, status, includeTotal);
+        return ResponseEntity.ok(providers);
+    }
+
     @PutMapping("/{id}/verify")
     public ResponseEntity<HealthcareProvider> verifyProvider(@PathVariable Long id) {
         HealthcareProvider provider = adminProviderService.verifyProvider(id);
@@ -103,6 +118,20 @@ public class AdminProviderController {
         return ResponseEntity.ok(report);
     }
 
+    @GetMapping("/payouts")
+    public ResponseEntity<List<ProviderEarningsService.EarningsSummary>> getPayoutRun(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(providerEarningsService.getPayoutRun(from, to));
+    }
+
+    @PostMapping("/payouts/rebuild")
+    public ResponseEntity<Integer> rebuildEarnings(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(providerEarningsService.rebuild(from, to));
+    }
+
     @GetMapping("/analytics/providers")
     public ResponseEntity<ProviderAnalytics> getProviderAnalytics() {
         ProviderAnalytics analytics = adminProviderService.getProviderAnalytics();
@@ -0,0 +1,24 @@
+package com.gynaid.backend.controller;
+
+import com.gynaid.backend.service.PhoneNumberNormalizationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/users")
+@PreAuthorize("hasRole('ADMIN')")
+@RequiredArgsConstructor
+public class AdminUserController {
+
+    private final PhoneNumberNormalizationService phoneNumberNormalizationService;
+
+    /**
+     * Rewrite stored user phone numbers to the canonical +256 form
+     */
+    @PostMapping("/phone-numbers/normalize")
+    public ResponseEntity<PhoneNumberNormalizationService.NormalizationResult> normalizePhoneNumbers() {
+        return ResponseEntity.ok(phoneNumberNormalizationService.normalizeUserPhoneNumbers());
+    }
+}
@@ -1,9 +1,12 @@
 package com.gynaid.backend.controller;
 
+import com.gynaid.backend.dto.CursorPage;
 import com.gynaid.backend.entity.Appointment;
 import com.gynaid.backend.entity.AppointmentAuditTrail;
+import com.gynaid.backend.entity.HealthcareProvider;
 import com.gynaid.backend.entity.User;
 import com.gynaid.backend.service.AppointmentService;
+import com.gynaid.backend.service.ProviderAvailabilityService;
 import com.gynaid.backend.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -28,6 +31,7 @@ public class AppointmentController {
 
     private final AppointmentService appointmentService;
     private final UserService userService;
+    private final ProviderAvailabilityService providerAvailabilityService;
 
     // CLIENT ENDPOINTS
     @PostMapping("/book")
@@ -99,6 +103,63 @@ public class AppointmentController {
         }
     }
 
+    @GetMapping("/my-appointments/cursor")
+    @PreAuthorize("hasRole('CLIENT')")
+    public ResponseEntity<Map<String, Object>> getMyAppointmentsByCursor(
+            Authentication authentication,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Appointment.AppointmentStatus status,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        
+        try {
+            User client = userService.findByEmail(authentication.getName())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+            
+            CursorPage<Appointment> page =
+                appointmentService.getClientAppointmentsPage(client, status, cursor, size, includeTotal);
+            
+            return new ResponseEntity<>(toCursorResponse(page), HttpStatus.OK);
+            
+        } catch (Exception e) {
+            log.error("Error getting client appointments by cursor", e);
+            Map<String, Object> error = new HashMap<>();
+            error.put("message", "Failed to get appointments: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @GetMapping("/availability/search")
+    @PreAuthorize("hasAnyRole('CLIENT', 'ADMIN')")
+    public ResponseEntity<Map<String, Object>> searchAvailableSlots(
+            @RequestParam(required = false) String district,
+            @RequestParam(required = false) HealthcareProvider.Specialization specialization,
+            @RequestParam(required = false) String dateFrom,
+            @RequestParam(required = false) String dateTo,
+            @RequestParam(defaultValue = "10") int limit) {
+        
+        try {
+            LocalDateTime from = dateFrom != null ? LocalDateTime.parse(dateFrom) : LocalDateTime.now();
+            LocalDateTime to = dateTo != null ? LocalDateTime.parse(dateTo) : from.plusDays(7);
+            
+            List<ProviderAvailabilityService.AvailableSlot> slots =
+                providerAvailabilityService.findEarliestSlots(district, specialization, from, to, limit);
+            
+            Map<String, Object> result = new HashMap<>();
+            result.put("slots", slots);
+            result.put("count", slots.size());
+            
+            return ResponseEntity.ok(result);
+            
+        } catch (Exception e) {
+            log.error("Error searching available slots", e);
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Availability search failed: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
     @PostMapping("/{appointmentId}/cancel")
     @PreAuthorize("hasRole('CLIENT')")
     public ResponseEntity<Map<String, Object>> cancelAppointment(
@@ -191,6 +252,32 @@ public class AppointmentController {
         }
     }
 
+    @GetMapping("/provider/cursor")
+    @PreAuthorize("hasRole('PROVIDER')")
+    public ResponseEntity<Map<String, Object>> getProviderAppointmentsByCursor(
+            Authentication authentication,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Appointment.AppointmentStatus status,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        
+        try {
+            User provider = userService.findByEmail(authentication.getName())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+            
+            CursorPage<Appointment> page =
+                appointmentService.getProviderAppointmentsPage(provider, status, cursor, size, includeTotal);
+            
+            return new ResponseEntity<>(toCursorResponse(page), HttpStatus.OK);
+            
+        } catch (Exception e) {
+            log.error("Error getting provider appointments by cursor", e);
+            Map<String, Object> error = new HashMap<>();
+            error.put("message", "Failed to get appointments: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
     @PostMapping("/{appointmentId}/approve")
     @PreAuthorize("hasRole('PROVIDER')")
     public ResponseEntity<Map<String, Object>> approveAppointment(
@@ -340,6 +427,33 @@ public class AppointmentController {
         }
     }
 
+    @GetMapping("/admin/all/cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getAllAppointmentsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) Appointment.AppointmentStatus status,
+            @RequestParam(required = false) String dateFrom,
+            @RequestParam(required = false) String dateTo,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        
+        try {
+            LocalDateTime from = dateFrom != null ? LocalDateTime.parse(dateFrom) : null;
+            LocalDateTime to = dateTo != null ? LocalDateTime.parse(dateTo) : null;
+            
+            CursorPage<Appointment> page =
+                appointmentService.getAllAppointmentsPage(status, from, to, cursor, size, includeTotal);
+            
+            return new ResponseEntity<>(toCursorResponse(page), HttpStatus.OK);
+            
+        } catch (Exception e) {
+            log.error("Error getting all appointments by cursor", e);
+            Map<String, Object> error = new HashMap<>();
+            error.put("message", "Failed to get appointments: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
     @GetMapping("/{appointmentId}/audit-trail")
     @PreAuthorize("hasAnyRole('ADMIN', 'PROVIDER')")
     public ResponseEntity<List<AppointmentAuditTrail>> getAuditTrail(@PathVariable Long appointmentId) {
@@ -382,6 +496,17 @@ public class AppointmentController {
         }
     }
 
+    private Map<String, Object> toCursorResponse(CursorPage<Appointment> page) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("appointments", page.getItems());
+        result.put("nextCursor", page.getNextCursor());
+        result.put("hasNext", page.isHasNext());
+        if (page.getTotalElements() != null) {
+            result.put("totalElements", page.getTotalElements());
+        }
+        return result;
+    }
+
     // DTOs
     @lombok.Data
     public static class BookAppointmentRequest {
@@ -1,6 +1,7 @@
 package com.gynaid.backend.controller;
 
 import com.gynaid.backend.entity.Consultation;
+import com.gynaid.backend.entity.User;
 import com.gynaid.backend.service.ConsultationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -79,7 +80,7 @@ public class ConsultationController {
                 serviceRequest.setPaymentMethod(Consultation.PaymentMethod.valueOf(paymentMethodStr));
             }
             
-            ConsultationService.PaymentResponse response = consultationService.processPayment(consultationId, serviceRequest, authentication.getName());
+            ConsultationService.PaymentResponse response = consultationService.processPayment(consultationId, serviceRequest, (User) authentication.getPrincipal());
             
             Map<String, Object> result = new HashMap<>();
             result.put("success", response.isSuccess());
@@ -0,0 +1,78 @@
+package com.gynaid.backend.controller;
+
+import com.gynaid.backend.service.ConsultationSessionHub;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/consultations/rooms")
+@RequiredArgsConstructor
+@Slf4j
+public class ConsultationSessionController {
+
+    private final ConsultationSessionHub sessionHub;
+
+    /**
+     * Subscribe to presence, signalling and state events for a consultation room
+     */
+    @GetMapping(value = "/{roomId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter joinRoom(@PathVariable String roomId, Authentication authentication) {
+        return sessionHub.join(roomId, authentication.getName());
+    }
+
+    /**
+     * Relay a WebRTC signalling message to the other participants
+     */
+    @PostMapping("/{roomId}/signal")
+    public ResponseEntity<Map<String, Object>> signal(
+            @PathVariable String roomId,
+            @RequestBody SignalRequest request,
+            Authentication authentication) {
+        
+        try {
+            sessionHub.relaySignal(roomId, authentication.getName(), request.getType(), request.getPayload());
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            log.error("Error relaying signal for room {}", roomId, e);
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Signalling failed: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @GetMapping("/{roomId}/participants")
+    public ResponseEntity<Map<String, Object>> getParticipants(@PathVariable String roomId, Authentication authentication) {
+        Map<String, String> participants = sessionHub.getParticipants(roomId);
+        if (!participants.containsKey(authentication.getName())) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Join the consultation room to see its participants");
+            return ResponseEntity.badRequest().body(error);
+        }
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("roomId", roomId);
+        response.put("participants", participants);
+        return ResponseEntity.ok(response);
+    }
+
+    // DTOs
+    @lombok.Data
+    public static class SignalRequest {
+        private String type;    // OFFER, ANSWER, ICE_CANDIDATE
+        private Object payload; // SDP or ICE candidate as sent by the browser
+    }
+}
@@ -0,0 +1,68 @@
+package com.gynaid.backend.controller;
+
+import com.gynaid.backend.entity.User;
+import com.gynaid.backend.service.FeatureFlagService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api")
+@RequiredArgsConstructor
+@Slf4j
+public class FeatureFlagController {
+
+    private final FeatureFlagService featureFlagService;
+
+    /**
+     * Pre-compiled flag snapshot for offline evaluation by the mobile and desktop clients
+     */
+    @GetMapping("/feature-flags/snapshot")
+    public ResponseEntity<FeatureFlagService.ClientFlagSnapshot> getClientSnapshot(Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        return ResponseEntity.ok(featureFlagService.getClientSnapshot(String.valueOf(user.getId())));
+    }
+
+    @GetMapping("/admin/feature-flags")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, FeatureFlagService.FeatureFlag>> getAllFlags() {
+        return ResponseEntity.ok(featureFlagService.getAllFlags());
+    }
+
+    /**
+     * Exposure metrics of every flag, merged across all nodes
+     */
+    @GetMapping("/admin/feature-flags/metrics")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<FeatureFlagService.FlagMetricsReport>> getAllFlagMetrics() {
+        return ResponseEntity.ok(featureFlagService.getAllFlagMetrics());
+    }
+
+    /**
+     * Exposure metrics of one flag, merged across all nodes
+     */
+    @GetMapping("/admin/feature-flags/{flagName}/metrics")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getFlagMetrics(@PathVariable String flagName) {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("metrics", featureFlagService.getFlagMetrics(flagName));
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            log.error("Error reading metrics for feature flag {}", flagName, e);
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Failed to read flag metrics: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+}
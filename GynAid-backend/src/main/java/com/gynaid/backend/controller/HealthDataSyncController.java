@@ -0,0 +1,48 @@
+package com.gynaid.backend.controller;
+
+import com.gynaid.backend.dto.ApiResponse;
+import com.gynaid.backend.dto.client.HealthSyncDto;
+import com.gynaid.backend.service.HealthDataSyncService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/client/health-sync")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "*")
+public class HealthDataSyncController {
+
+    private final HealthDataSyncService healthDataSyncService;
+
+    /**
+     * Store a batch of offline health records; re-sending a batch is safe
+     */
+    @PostMapping
+    @PreAuthorize("hasRole('CLIENT')")
+    public ResponseEntity<ApiResponse<HealthSyncDto.SyncResult>> sync(
+            @RequestBody HealthSyncDto batch,
+            Authentication auth) {
+        try {
+            HealthSyncDto.SyncResult result = healthDataSyncService.sync(auth.getName(), batch);
+            return ResponseEntity.ok(ApiResponse.<HealthSyncDto.SyncResult>builder()
+                    .success(true)
+                    .data(result)
+                    .message("Health records synced")
+                    .build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (DataIntegrityViolationException e) {
+            // The same records were synced concurrently, e.g. a retry overlapping the first attempt
+            log.warn("Concurrent health sync for {} rolled back", auth.getName());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error("Batch is already being synced, retry to get its results"));
+        }
+    }
+}
@@ -5,6 +5,8 @@ import com.gynaid.backend.dto.ProviderLocationDto;
 import com.gynaid.backend.entity.*;
 import com.gynaid.backend.repository.*;
 import com.gynaid.backend.service.LocationService;
+import com.gynaid.backend.service.ProviderDashboardStatsService;
+import com.gynaid.backend.service.ProviderEarningsService;
 import com.gynaid.backend.util.LocationUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -13,14 +15,13 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -33,9 +34,8 @@ public class ProviderController {
 
     private final ProviderRepository providerRepository;
     private final LocationService locationService;
-    private final ConsultationRepository consultationRepository;
-    private final AppointmentRepository appointmentRepository;
-    private final PaymentRepository paymentRepository;
+    private final ProviderDashboardStatsService dashboardStatsService;
+    private final ProviderEarningsService earningsService;
 
     /**
      * Search providers with advanced filtering and pagination
@@ -310,34 +310,20 @@ public class ProviderController {
             Provider provider = providerRepository.findByUser(user)
                 .orElseThrow(() -> new RuntimeException("Provider not found for user: " + user.getId()));
             
-            // Calculate provider statistics
-            LocalDateTime startOfMonth = LocalDateTime.now().withDayOfMonth(1).withHour(0).withMinute(0);
+            // Pre-aggregated counters, kept current by status and payment events
+            ProviderDashboardStatsService.ProviderDashboardStats stats = dashboardStatsService.getStats(user.getId());
             
-            // Count total consultations for this provider
-            int totalConsultations = consultationRepository.findByProviderIdOrderByScheduledDateTimeAsc(user.getId())
-                .size();
-            
-            // Count pending appointment requests
-            Pageable pageable = PageRequest.of(0, 1); // Just get count
-            int pendingAppointments = (int) appointmentRepository.findByProviderAndStatus(user,
-                Appointment.AppointmentStatus.PENDING, pageable).getTotalElements();
-            
-            // Calculate monthly earnings from completed consultations with payments
-            BigDecimal monthlyEarnings = paymentRepository.getTotalRevenueSince(startOfMonth);
-            if (monthlyEarnings == null) {
-                monthlyEarnings = BigDecimal.ZERO;
-            }
-            
-            // Subtract platform fees (10%)
-            BigDecimal platformFee = monthlyEarnings.multiply(new BigDecimal("0.10"));
-            BigDecimal providerShare = monthlyEarnings.subtract(platformFee);
+            // Provider's own share this month, from the daily earnings rollup
+            ProviderEarningsService.EarningsSummary earnings = earningsService.getMonthToDate(user.getId());
             
             Map<String, Object> dashboard = new HashMap<>();
             dashboard.put("provider", convertToProviderProfile(provider));
             dashboard.put("statistics", Map.of(
-                "totalConsultations", totalConsultations,
-                "pendingRequests", pendingAppointments,
-                "monthlyEarnings", providerShare.doubleValue(),
+                "totalConsultations", stats.getTotalConsultations(),
+                "pendingRequests", stats.getPendingRequests(),
+                "monthlyEarnings", earnings.getProviderShare().doubleValue(),
+                "consultationsByStatus", stats.getConsultationsByStatus(),
+                "appointmentsByStatus", stats.getAppointmentsByStatus(),
                 "averageRating", user.getPracticeInfo() != null ?
                     user.getPracticeInfo().getRating() : 0.0
             ));
@@ -350,6 +336,33 @@ public class ProviderController {
         }
     }
 
+    /**
+     * Payout statement for the authenticated provider: daily earnings and totals in [from, to)
+     */
+    @GetMapping("/earnings")
+    @PreAuthorize("hasRole('PROVIDER')")
+    public ResponseEntity<Map<String, Object>> getProviderEarnings(
+            Authentication authentication,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            User user = (User) authentication.getPrincipal();
+            ProviderEarningsService.PayoutStatement statement = earningsService.getPayoutStatement(user.getId(), from, to);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("summary", statement.getSummary());
+            response.put("days", statement.getDays());
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            log.error("Error getting provider earnings", e);
+            Map<String, Object> error = new HashMap<>();
+            error.put("message", "Failed to get earnings: " + e.getMessage());
+            error.put("success", false);
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
     // Helper methods
     private Sort getSort(String sortBy) {
         return switch (sortBy.toLowerCase()) {
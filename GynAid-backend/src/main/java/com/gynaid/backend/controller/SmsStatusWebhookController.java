@@ -0,0 +1,42 @@
+package com.gynaid.backend.controller;
+
+import com.gynaid.backend.service.sms.SmsDispatchService;
+import com.gynaid.backend.service.sms.SmsSender;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Twilio delivery status callbacks for messages sent through SmsDispatchService
+ */
+@RestController
+@RequestMapping("/api/webhooks/twilio")
+@RequiredArgsConstructor
+@Slf4j
+public class SmsStatusWebhookController {
+
+    private final SmsDispatchService smsDispatchService;
+    private final SmsSender smsSender;
+
+    @PostMapping("/sms-status/{correlationId}")
+    public ResponseEntity<Void> handleStatusCallback(
+            @PathVariable String correlationId,
+            @RequestParam Map<String, String> params,
+            @RequestHeader(value = "X-Twilio-Signature", required = false) String signature) {
+
+        String url = smsDispatchService.statusCallbackUrl(correlationId);
+        if (url == null || !smsSender.isValidCallback(url, params, signature)) {
+            log.warn("Rejected SMS status callback for {}", correlationId);
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        boolean recorded = smsDispatchService.recordDeliveryStatus(correlationId, params.get("MessageSid"),
+            params.get("MessageStatus"), params.get("ErrorCode"));
+        log.debug("SMS status {} for {}{}", params.get("MessageStatus"), correlationId, recorded ? "" : " ignored");
+        return ResponseEntity.noContent().build();
+    }
+}
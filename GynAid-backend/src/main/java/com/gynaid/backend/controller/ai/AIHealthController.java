@@ -3,6 +3,8 @@ package com.gynaid.backend.controller.ai;
 import com.gynaid.backend.entity.ai.HealthInsight;
 import com.gynaid.backend.entity.ai.SymptomAnalysis;
 import com.gynaid.backend.service.ai.AIHealthAssistantService;
+import com.gynaid.backend.service.ai.HealthContext;
+import com.gynaid.backend.service.ai.HealthContextLoader;
 import com.gynaid.backend.service.ai.PredictiveAnalyticsService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -19,6 +21,7 @@ public class AIHealthController {
     
     private final AIHealthAssistantService aiHealthAssistantService;
     private final PredictiveAnalyticsService predictiveAnalyticsService;
+    private final HealthContextLoader healthContextLoader;
     
     @PostMapping("/analyze-symptoms")
     public ResponseEntity<SymptomAnalysis> analyzeSymptoms(
@@ -42,8 +45,9 @@ public class AIHealthController {
     
     @GetMapping("/predict/next-period/{userId}")
     public ResponseEntity<Map<String, Object>> predictNextPeriod(@PathVariable Long userId) {
-        LocalDate prediction = predictiveAnalyticsService.predictNextPeriod(userId);
-        double regularityScore = predictiveAnalyticsService.calculateCycleRegularityScore(userId);
+        HealthContext context = healthContextLoader.load(userId);
+        LocalDate prediction = predictiveAnalyticsService.predictNextPeriod(context);
+        double regularityScore = predictiveAnalyticsService.calculateCycleRegularityScore(context);
         
         return ResponseEntity.ok(Map.of(
             "nextPeriodDate", prediction != null ? prediction.toString() : null,
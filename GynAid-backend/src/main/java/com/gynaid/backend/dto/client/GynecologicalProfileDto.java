@@ -31,6 +31,9 @@ public class GynecologicalProfileDto {
     private ExerciseFrequency exerciseFrequency;
     private Integer stressLevel;
     private List<CycleEntryDto> recentCycles;
+    private Integer trackedCycles;
+    private Double meanCycleLength;
+    private Double cycleLengthStdDev;
     
     @Data
     @Builder
@@ -0,0 +1,84 @@
+package com.gynaid.backend.dto.client;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Batch of health records collected offline by the mobile app
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HealthSyncDto {
+
+    private List<RecordDto> records;
+
+    public enum RecordType {
+        CYCLE, VITALS, SYMPTOM
+    }
+
+    public enum RecordStatus {
+        ACCEPTED, DUPLICATE, REJECTED
+    }
+
+    /**
+     * One record; only the fields of its type are read
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RecordDto {
+        private String clientId;
+        private RecordType type;
+        private LocalDateTime recordedAt;
+
+        // CYCLE
+        private LocalDate startDate;
+        private LocalDate endDate;
+        private String flowIntensity;
+        private List<String> symptoms;
+        private String moodNotes;
+        private Integer painLevel;
+        private String notes;
+
+        // VITALS
+        private Double heightCm;
+        private Double weightKg;
+        private Integer bloodPressureSystolic;
+        private Integer bloodPressureDiastolic;
+        private Integer heartRate;
+        private String bloodType;
+
+        // SYMPTOM
+        private String description;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SyncResult {
+        private int accepted;
+        private int duplicates;
+        private int rejected;
+        private List<RecordResult> results;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RecordResult {
+        private String clientId;
+        private RecordStatus status;
+        private List<String> errors;
+    }
+}
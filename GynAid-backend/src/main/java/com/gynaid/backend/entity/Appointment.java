@@ -15,7 +15,12 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "appointments")
+@Table(name = "appointments", indexes = {
+    @Index(name = "idx_appointments_provider_status_start", columnList = "provider_id, status, start_time"),
+    @Index(name = "idx_appointments_client_start", columnList = "client_id, start_time"),
+    @Index(name = "idx_appointments_status_start", columnList = "status, start_time"),
+    @Index(name = "idx_appointments_start_time", columnList = "start_time")
+})
 public class Appointment {
 
     @Id
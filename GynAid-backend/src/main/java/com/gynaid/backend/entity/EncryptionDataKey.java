@@ -0,0 +1,40 @@
+package com.gynaid.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * PHI data encryption key, stored wrapped (AES-GCM) by a master key version
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "encryption_data_keys")
+public class EncryptionDataKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "wrapped_key", nullable = false, length = 255)
+    private String wrappedKey;
+
+    @Column(name = "master_key_version", nullable = false, length = 50)
+    private String masterKeyVersion;
+
+    @Column(name = "active", nullable = false)
+    private boolean active;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "retired_at")
+    private LocalDateTime retiredAt;
+}
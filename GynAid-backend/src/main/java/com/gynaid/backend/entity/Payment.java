@@ -61,6 +61,18 @@ public class Payment {
     @Builder.Default
     private Boolean webhookSignatureVerified = false;
 
+    // When the payment first succeeded; earnings are booked on this day
+    @Column(name = "paid_at")
+    private LocalDateTime paidAt;
+
+    // Amount actually refunded, which may be less than amount for partial refunds
+    @Column(name = "refunded_amount", precision = 10, scale = 2)
+    private BigDecimal refundedAmount;
+
+    // Refunds are booked as reversals on this day
+    @Column(name = "refunded_at")
+    private LocalDateTime refundedAt;
+
     @CreationTimestamp
     private LocalDateTime createdAt;
 
@@ -77,6 +89,9 @@ public class Payment {
     // Helper methods for payment processing
     public void markSucceeded() {
         this.status = PaymentStatus.SUCCEEDED;
+        if (this.paidAt == null) {
+            this.paidAt = LocalDateTime.now();
+        }
     }
 
     public void markFailed() {
@@ -84,7 +99,14 @@ public class Payment {
     }
 
     public void refund() {
+        refund(this.amount);
+    }
+
+    public void refund(BigDecimal refundAmount) {
         this.status = PaymentStatus.REFUNDED;
+        this.refundedAmount = refundAmount == null || refundAmount.compareTo(this.amount) > 0
+            ? this.amount : refundAmount;
+        this.refundedAt = LocalDateTime.now();
     }
 
     // Calculate provider share (typically 85% of total amount)
@@ -0,0 +1,46 @@
+package com.gynaid.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of the background re-encryption of one PHI table to the active data key
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "phi_reencryption_checkpoints")
+public class PhiReencryptionCheckpoint {
+
+    @Id
+    @Column(name = "table_name", length = 100)
+    private String tableName;
+
+    @Column(name = "target_key_id", nullable = false)
+    private Long targetKeyId;
+
+    @Column(name = "last_id", nullable = false)
+    private Long lastId;
+
+    @Column(name = "rows_scanned", nullable = false)
+    private long rowsScanned;
+
+    @Column(name = "values_rewritten", nullable = false)
+    private long valuesRewritten;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,47 @@
+package com.gynaid.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One pre-aggregated dashboard counter for a provider, e.g. CONSULTATION:SCHEDULED
+ * or APPOINTMENT:PENDING.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "provider_dashboard_counters",
+       uniqueConstraints = @UniqueConstraint(name = "uk_dashboard_counter_provider_key",
+                                             columnNames = {"provider_id", "counter_key"}))
+public class ProviderDashboardCounter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // User id of the provider, matching Consultation.provider and Appointment.provider
+    @Column(name = "provider_id", nullable = false)
+    private Long providerId;
+
+    @Column(name = "counter_key", nullable = false, length = 64)
+    private String counterKey;
+
+    @Column(name = "count_value", nullable = false)
+    @Builder.Default
+    private Long countValue = 0L;
+
+    @Column(name = "amount_value", precision = 14, scale = 2, nullable = false)
+    @Builder.Default
+    private BigDecimal amountValue = BigDecimal.ZERO;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,61 @@
+package com.gynaid.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Net earnings of one provider for one day. Refunds are booked on the day they happen,
+ * so the amounts are net of refunds processed that day.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "provider_earnings_daily",
+       uniqueConstraints = @UniqueConstraint(name = "uk_earnings_daily_provider_date",
+                                             columnNames = {"provider_id", "earnings_date"}),
+       indexes = @Index(name = "idx_earnings_daily_date_provider", columnList = "earnings_date, provider_id"))
+public class ProviderEarningsDaily {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // User id of the provider, matching Appointment.provider
+    @Column(name = "provider_id", nullable = false)
+    private Long providerId;
+
+    @Column(name = "earnings_date", nullable = false)
+    private LocalDate earningsDate;
+
+    @Column(name = "gross_amount", precision = 14, scale = 2, nullable = false)
+    @Builder.Default
+    private BigDecimal grossAmount = BigDecimal.ZERO;
+
+    @Column(name = "provider_share", precision = 14, scale = 2, nullable = false)
+    @Builder.Default
+    private BigDecimal providerShare = BigDecimal.ZERO;
+
+    @Column(name = "platform_fee", precision = 14, scale = 2, nullable = false)
+    @Builder.Default
+    private BigDecimal platformFee = BigDecimal.ZERO;
+
+    @Column(name = "payment_count", nullable = false)
+    @Builder.Default
+    private Long paymentCount = 0L;
+
+    @Column(name = "refund_count", nullable = false)
+    @Builder.Default
+    private Long refundCount = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
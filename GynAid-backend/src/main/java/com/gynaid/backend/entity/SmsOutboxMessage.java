@@ -0,0 +1,98 @@
+package com.gynaid.backend.entity;
+
+import com.gynaid.backend.util.UgandaPhoneNumber;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One outbound SMS in the persistent queue. Written and claimed by SmsDispatchService
+ * through JDBC; the phone number is stored as its E.164 digits.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "sms_outbox",
+       uniqueConstraints = @UniqueConstraint(name = "uk_sms_outbox_correlation", columnNames = "correlation_id"))
+public class SmsOutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "correlation_id", nullable = false, length = 36)
+    private String correlationId;
+
+    @Column(name = "phone_number", nullable = false)
+    private Long phoneNumber;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "carrier", nullable = false)
+    private UgandaPhoneNumber.Carrier carrier;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "lane", nullable = false)
+    private Lane lane;
+
+    @Column(name = "template", nullable = false)
+    private String template;
+
+    @Column(name = "body", columnDefinition = "TEXT", nullable = false)
+    private String body;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    @Builder.Default
+    private Status status = Status.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    @Column(name = "provider_sid")
+    private String providerSid;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    /**
+     * Dispatch lanes in priority order; a lower lane is only served when no higher lane
+     * has a message its carrier can take
+     */
+    public enum Lane {
+        PRIORITY,
+        STANDARD,
+        BULK
+    }
+
+    public enum Status {
+        PENDING,
+        SENDING,
+        SENT,
+        DELIVERED,
+        UNDELIVERED,
+        FAILED,
+        EXPIRED
+    }
+}
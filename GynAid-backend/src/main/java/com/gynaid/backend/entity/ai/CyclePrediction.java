@@ -0,0 +1,57 @@
+package com.gynaid.backend.entity.ai;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Precomputed next period, fertile window and regularity of one gynecological profile.
+ * Written by CyclePredictionService, either in the nightly batch or on first read after
+ * the profile's cycles changed.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "cycle_predictions",
+       uniqueConstraints = @UniqueConstraint(name = "uk_cycle_predictions_profile",
+                                             columnNames = "gynecological_profile_id"))
+public class CyclePrediction {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "gynecological_profile_id", nullable = false)
+    private Long gynecologicalProfileId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "next_period_date")
+    private LocalDate nextPeriodDate;
+
+    @Column(name = "ovulation_date")
+    private LocalDate ovulationDate;
+
+    @Column(name = "fertile_window_start")
+    private LocalDate fertileWindowStart;
+
+    @Column(name = "fertile_window_end")
+    private LocalDate fertileWindowEnd;
+
+    @Column(name = "regularity_score", nullable = false)
+    private double regularityScore;
+
+    @Column(name = "cycles_tracked", nullable = false)
+    private int cyclesTracked;
+
+    @Column(name = "computed_at", nullable = false)
+    private LocalDateTime computedAt;
+}
@@ -56,6 +56,25 @@ public class SmartNotification {
     @Builder.Default
     private Boolean isSent = false;
     
+    @Enumerated(EnumType.STRING)
+    // Null for notifications created before delivery channels existed
+    @Column(name = "channel")
+    @Builder.Default
+    private DeliveryChannel channel = DeliveryChannel.PUSH;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    @Builder.Default
+    private DeliveryStatus status = DeliveryStatus.PENDING;
+    
+    // Hours since the epoch of scheduledFor, see NotificationDispatchService
+    @Column(name = "dispatch_bucket")
+    private Long dispatchBucket;
+    
+    @Column(name = "attempts", nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+    
     public enum NotificationType {
         PERIOD_REMINDER, FERTILITY_WINDOW, MEDICATION_REMINDER,
         APPOINTMENT_REMINDER, HEALTH_TIP, EMERGENCY_ALERT, MOH_UPDATE
@@ -64,4 +83,12 @@ public class SmartNotification {
     public enum Priority {
         LOW, MEDIUM, HIGH, URGENT
     }
+    
+    public enum DeliveryChannel {
+        SMS, EMAIL, PUSH
+    }
+    
+    public enum DeliveryStatus {
+        PENDING, SENT, FAILED
+    }
 }
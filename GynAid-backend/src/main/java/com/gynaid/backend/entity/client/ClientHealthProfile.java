@@ -1,10 +1,13 @@
 package com.gynaid.backend.entity.client;
 
 import com.gynaid.backend.entity.User;
+import com.gynaid.backend.entity.phi.PhiString;
+import com.gynaid.backend.entity.phi.PhiStringConverter;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
@@ -24,14 +27,20 @@ public class ClientHealthProfile {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
     
-    @Column(name = "emergency_contact_name")
-    private String emergencyContactName;
+    @Column(name = "emergency_contact_name", length = 1024)
+    @Convert(converter = PhiStringConverter.class)
+    @EqualsAndHashCode.Exclude
+    private PhiString emergencyContactName;
     
-    @Column(name = "emergency_contact_phone")
-    private String emergencyContactPhone;
+    @Column(name = "emergency_contact_phone", length = 1024)
+    @Convert(converter = PhiStringConverter.class)
+    @EqualsAndHashCode.Exclude
+    private PhiString emergencyContactPhone;
     
-    @Column(name = "emergency_contact_relationship")
-    private String emergencyContactRelationship;
+    @Column(name = "emergency_contact_relationship", length = 1024)
+    @Convert(converter = PhiStringConverter.class)
+    @EqualsAndHashCode.Exclude
+    private PhiString emergencyContactRelationship;
     
     @Column(name = "profile_completion_percentage")
     @Builder.Default
@@ -58,4 +67,29 @@ public class ClientHealthProfile {
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
     }
+
+    // PHI accessors: decrypted on first read, encrypted on flush
+    public String getEmergencyContactName() {
+        return PhiString.reveal(emergencyContactName);
+    }
+
+    public void setEmergencyContactName(String emergencyContactName) {
+        this.emergencyContactName = PhiString.of(emergencyContactName);
+    }
+
+    public String getEmergencyContactPhone() {
+        return PhiString.reveal(emergencyContactPhone);
+    }
+
+    public void setEmergencyContactPhone(String emergencyContactPhone) {
+        this.emergencyContactPhone = PhiString.of(emergencyContactPhone);
+    }
+
+    public String getEmergencyContactRelationship() {
+        return PhiString.reveal(emergencyContactRelationship);
+    }
+
+    public void setEmergencyContactRelationship(String emergencyContactRelationship) {
+        this.emergencyContactRelationship = PhiString.of(emergencyContactRelationship);
+    }
 }
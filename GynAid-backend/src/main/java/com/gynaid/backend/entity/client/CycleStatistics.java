@@ -0,0 +1,204 @@
+package com.gynaid.backend.entity.client;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.Transient;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.StringJoiner;
+
+/**
+ * Rolling statistics over the cycles of a gynecological profile.
+ *
+ * Updated once per recorded cycle so that analytics never load the cycle collection:
+ * Welford's running mean and M2 over all cycle lengths, an EWMA of the length and the
+ * length and pain level of the last RECENT_CAPACITY cycles, newest first. Cycles must be
+ * added in start date order; see accepts.
+ *
+ * The columns are written only by CycleStatisticsService, never by JPA.
+ */
+@Embeddable
+@Getter
+@NoArgsConstructor
+public class CycleStatistics {
+
+    public static final int RECENT_CAPACITY = 12;
+    public static final double EWMA_ALPHA = 0.2;
+
+    private static final int UNKNOWN = -1;
+
+    @Column(name = "cycle_stats_entries", insertable = false, updatable = false)
+    private Integer entries;
+
+    @Column(name = "cycle_stats_length_count", insertable = false, updatable = false)
+    private Integer lengthCount;
+
+    @Column(name = "cycle_stats_mean_length", insertable = false, updatable = false)
+    private Double meanLength;
+
+    @Column(name = "cycle_stats_m2", insertable = false, updatable = false)
+    private Double m2;
+
+    @Column(name = "cycle_stats_ewma_length", insertable = false, updatable = false)
+    private Double ewmaLength;
+
+    @Column(name = "cycle_stats_last_start_date", insertable = false, updatable = false)
+    private LocalDate lastStartDate;
+
+    // "length/pain" pairs newest first, either part empty when unknown
+    @Column(name = "cycle_stats_recent", insertable = false, updatable = false)
+    private String recent;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private int[] recentLengths;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private int[] recentPainLevels;
+
+    public CycleStatistics(Integer entries, Integer lengthCount, Double meanLength, Double m2,
+                           Double ewmaLength, LocalDate lastStartDate, String recent) {
+        this.entries = entries;
+        this.lengthCount = lengthCount;
+        this.meanLength = meanLength;
+        this.m2 = m2;
+        this.ewmaLength = ewmaLength;
+        this.lastStartDate = lastStartDate;
+        this.recent = recent;
+    }
+
+    public static CycleStatistics empty() {
+        return new CycleStatistics(0, 0, 0.0, 0.0, null, null, "");
+    }
+
+    /**
+     * False until the statistics have been built from the profile's cycles
+     */
+    public boolean isBuilt() {
+        return entries != null;
+    }
+
+    /**
+     * True when a cycle starting on the given date can be added incrementally
+     */
+    public boolean accepts(LocalDate startDate) {
+        return lastStartDate == null || !startDate.isBefore(lastStartDate);
+    }
+
+    public void add(LocalDate startDate, Integer cycleLength, Integer painLevel) {
+        decodeRecent();
+        entries = entries + 1;
+        if (cycleLength != null && cycleLength > 0) {
+            lengthCount = lengthCount + 1;
+            double delta = cycleLength - meanLength;
+            meanLength = meanLength + delta / lengthCount;
+            m2 = m2 + delta * (cycleLength - meanLength);
+            ewmaLength = ewmaLength == null ? cycleLength : ewmaLength + EWMA_ALPHA * (cycleLength - ewmaLength);
+        }
+        if (startDate != null && (lastStartDate == null || startDate.isAfter(lastStartDate))) {
+            lastStartDate = startDate;
+        }
+
+        int size = Math.min(recentLengths.length + 1, RECENT_CAPACITY);
+        int[] lengths = new int[size];
+        int[] pain = new int[size];
+        lengths[0] = cycleLength != null && cycleLength > 0 ? cycleLength : UNKNOWN;
+        pain[0] = painLevel != null ? painLevel : UNKNOWN;
+        System.arraycopy(recentLengths, 0, lengths, 1, size - 1);
+        System.arraycopy(recentPainLevels, 0, pain, 1, size - 1);
+        recentLengths = lengths;
+        recentPainLevels = pain;
+        recent = encodeRecent();
+    }
+
+    public int getEntries() {
+        return entries != null ? entries : 0;
+    }
+
+    public int getLengthCount() {
+        return lengthCount != null ? lengthCount : 0;
+    }
+
+    /**
+     * Mean cycle length over all cycles, or the default when no length is known
+     */
+    public double meanLength(double defaultLength) {
+        return getLengthCount() > 0 ? meanLength : defaultLength;
+    }
+
+    /**
+     * Population standard deviation of all cycle lengths
+     */
+    public double standardDeviation() {
+        return getLengthCount() > 0 ? Math.sqrt(m2 / lengthCount) : 0.0;
+    }
+
+    public double ewmaLength(double defaultLength) {
+        return ewmaLength != null ? ewmaLength : defaultLength;
+    }
+
+    /**
+     * Known cycle lengths among the most recent cycles, newest first
+     */
+    public int[] recentLengths(int from, int to) {
+        decodeRecent();
+        return known(recentLengths, from, to);
+    }
+
+    /**
+     * Known pain levels among the most recent cycles, newest first
+     */
+    public int[] recentPainLevels(int from, int to) {
+        decodeRecent();
+        return known(recentPainLevels, from, to);
+    }
+
+    private static int[] known(int[] values, int from, int to) {
+        int end = Math.min(to, values.length);
+        int[] result = new int[Math.max(end - from, 0)];
+        int count = 0;
+        for (int i = from; i < end; i++) {
+            if (values[i] != UNKNOWN) {
+                result[count++] = values[i];
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    private void decodeRecent() {
+        if (recentLengths != null) {
+            return;
+        }
+        if (recent == null || recent.isEmpty()) {
+            recentLengths = new int[0];
+            recentPainLevels = new int[0];
+            return;
+        }
+        String[] pairs = recent.split(",");
+        recentLengths = new int[pairs.length];
+        recentPainLevels = new int[pairs.length];
+        for (int i = 0; i < pairs.length; i++) {
+            int slash = pairs[i].indexOf('/');
+            recentLengths[i] = parse(pairs[i], 0, slash);
+            recentPainLevels[i] = parse(pairs[i], slash + 1, pairs[i].length());
+        }
+    }
+
+    private String encodeRecent() {
+        StringJoiner joiner = new StringJoiner(",");
+        for (int i = 0; i < recentLengths.length; i++) {
+            joiner.add((recentLengths[i] != UNKNOWN ? String.valueOf(recentLengths[i]) : "") + "/"
+                    + (recentPainLevels[i] != UNKNOWN ? String.valueOf(recentPainLevels[i]) : ""));
+        }
+        return joiner.toString();
+    }
+
+    private static int parse(String pair, int start, int end) {
+        return start < end ? Integer.parseInt(pair, start, end, 10) : UNKNOWN;
+    }
+}
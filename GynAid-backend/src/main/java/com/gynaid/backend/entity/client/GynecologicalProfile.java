@@ -81,6 +81,9 @@ public class GynecologicalProfile {
     @Column(name = "stress_level", columnDefinition = "INTEGER CHECK (stress_level >= 1 AND stress_level <= 10)")
     private Integer stressLevel;
     
+    @Embedded
+    private CycleStatistics cycleStatistics;
+    
     @Column(name = "created_at")
     @Builder.Default
     private LocalDateTime createdAt = LocalDateTime.now();
@@ -1,13 +1,18 @@
 package com.gynaid.backend.entity.client;
 
+import com.gynaid.backend.entity.phi.PhiBlindIndexListener;
+import com.gynaid.backend.entity.phi.PhiString;
+import com.gynaid.backend.entity.phi.PhiStringConverter;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
+@EntityListeners(PhiBlindIndexListener.class)
 @Table(name = "medical_histories")
 @Data
 @Builder
@@ -24,22 +29,34 @@ public class MedicalHistory {
     private ClientHealthProfile healthProfile;
     
     @Column(name = "chronic_conditions", columnDefinition = "TEXT")
-    private String chronicConditions;
+    @Convert(converter = PhiStringConverter.class)
+    @EqualsAndHashCode.Exclude
+    private PhiString chronicConditions;
     
     @Column(name = "allergies", columnDefinition = "TEXT")
-    private String allergies;
+    @Convert(converter = PhiStringConverter.class)
+    @EqualsAndHashCode.Exclude
+    private PhiString allergies;
     
     @Column(name = "current_medications", columnDefinition = "TEXT")
-    private String currentMedications;
+    @Convert(converter = PhiStringConverter.class)
+    @EqualsAndHashCode.Exclude
+    private PhiString currentMedications;
     
     @Column(name = "family_history", columnDefinition = "TEXT")
-    private String familyHistory;
+    @Convert(converter = PhiStringConverter.class)
+    @EqualsAndHashCode.Exclude
+    private PhiString familyHistory;
     
     @Column(name = "previous_surgeries", columnDefinition = "TEXT")
-    private String previousSurgeries;
+    @Convert(converter = PhiStringConverter.class)
+    @EqualsAndHashCode.Exclude
+    private PhiString previousSurgeries;
     
     @Column(name = "reproductive_health_issues", columnDefinition = "TEXT")
-    private String reproductiveHealthIssues;
+    @Convert(converter = PhiStringConverter.class)
+    @EqualsAndHashCode.Exclude
+    private PhiString reproductiveHealthIssues;
     
     @Enumerated(EnumType.STRING)
     @Column(name = "hiv_status")
@@ -52,7 +69,9 @@ public class MedicalHistory {
     private String lastMammogramDate;
     
     @Column(name = "vaccination_history", columnDefinition = "TEXT")
-    private String vaccinationHistory;
+    @Convert(converter = PhiStringConverter.class)
+    @EqualsAndHashCode.Exclude
+    private PhiString vaccinationHistory;
     
     @Enumerated(EnumType.STRING)
     @Column(name = "disclosure_preference")
@@ -60,7 +79,9 @@ public class MedicalHistory {
     private DisclosurePreference disclosurePreference = DisclosurePreference.PRIVATE;
     
     @Column(name = "additional_notes", columnDefinition = "TEXT")
-    private String additionalNotes;
+    @Convert(converter = PhiStringConverter.class)
+    @EqualsAndHashCode.Exclude
+    private PhiString additionalNotes;
     
     @Column(name = "created_at")
     @Builder.Default
@@ -82,4 +103,69 @@ public class MedicalHistory {
     public enum DisclosurePreference {
         PRIVATE, SHARE_WITH_PROVIDERS, SHARE_FOR_RESEARCH, PUBLIC
     }
+
+    // PHI accessors: decrypted on first read, encrypted on flush
+    public String getChronicConditions() {
+        return PhiString.reveal(chronicConditions);
+    }
+
+    public void setChronicConditions(String chronicConditions) {
+        this.chronicConditions = PhiString.of(chronicConditions);
+    }
+
+    public String getAllergies() {
+        return PhiString.reveal(allergies);
+    }
+
+    public void setAllergies(String allergies) {
+        this.allergies = PhiString.of(allergies);
+    }
+
+    public String getCurrentMedications() {
+        return PhiString.reveal(currentMedications);
+    }
+
+    public void setCurrentMedications(String currentMedications) {
+        this.currentMedications = PhiString.of(currentMedications);
+    }
+
+    public String getFamilyHistory() {
+        return PhiString.reveal(familyHistory);
+    }
+
+    public void setFamilyHistory(String familyHistory) {
+        this.familyHistory = PhiString.of(familyHistory);
+    }
+
+    public String getPreviousSurgeries() {
+        return PhiString.reveal(previousSurgeries);
+    }
+
+    public void setPreviousSurgeries(String previousSurgeries) {
+        this.previousSurgeries = PhiString.of(previousSurgeries);
+    }
+
+    public String getReproductiveHealthIssues() {
+        return PhiString.reveal(reproductiveHealthIssues);
+    }
+
+    public void setReproductiveHealthIssues(String reproductiveHealthIssues) {
+        this.reproductiveHealthIssues = PhiString.of(reproductiveHealthIssues);
+    }
+
+    public String getVaccinationHistory() {
+        return PhiString.reveal(vaccinationHistory);
+    }
+
+    public void setVaccinationHistory(String vaccinationHistory) {
+        this.vaccinationHistory = PhiString.of(vaccinationHistory);
+    }
+
+    public String getAdditionalNotes() {
+        return PhiString.reveal(additionalNotes);
+    }
+
+    public void setAdditionalNotes(String additionalNotes) {
+        this.additionalNotes = PhiString.of(additionalNotes);
+    }
 }
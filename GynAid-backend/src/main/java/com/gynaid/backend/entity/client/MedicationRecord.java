@@ -1,9 +1,13 @@
 package com.gynaid.backend.entity.client;
 
+import com.gynaid.backend.entity.phi.PhiBlindIndexListener;
+import com.gynaid.backend.entity.phi.PhiString;
+import com.gynaid.backend.entity.phi.PhiStringConverter;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
@@ -16,6 +20,7 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@EntityListeners(PhiBlindIndexListener.class)
 @Table(name = "medication_records")
 public class MedicationRecord {
 
@@ -27,11 +32,15 @@ public class MedicationRecord {
     @JoinColumn(name = "medical_history_id", nullable = false)
     private MedicalHistory medicalHistory;
 
-    @Column(name = "medication_name", nullable = false)
-    private String medicationName;
+    @Column(name = "medication_name", nullable = false, length = 1024)
+    @Convert(converter = PhiStringConverter.class)
+    @EqualsAndHashCode.Exclude
+    private PhiString medicationName;
 
-    @Column(name = "dosage")
-    private String dosage; // e.g., "10mg", "500mg twice daily"
+    @Column(name = "dosage", length = 1024)
+    @Convert(converter = PhiStringConverter.class)
+    @EqualsAndHashCode.Exclude
+    private PhiString dosage; // e.g., "10mg", "500mg twice daily"
 
     @Column(name = "frequency")
     private String frequency; // e.g., "Once daily", "Twice daily", "As needed"
@@ -45,12 +54,37 @@ public class MedicationRecord {
     @Column(name = "prescribed_by")
     private String prescribedBy; // Doctor name
 
-    @Column(name = "reason")
-    private String reason; // Why taking this medication
+    @Column(name = "reason", length = 1024)
+    @Convert(converter = PhiStringConverter.class)
+    @EqualsAndHashCode.Exclude
+    private PhiString reason; // Why taking this medication
 
     @Column(name = "is_active")
     @Builder.Default
     private Boolean isActive = true;
-}
 
+    // PHI accessors: decrypted on first read, encrypted on flush
+    public String getMedicationName() {
+        return PhiString.reveal(medicationName);
+    }
+
+    public void setMedicationName(String medicationName) {
+        this.medicationName = PhiString.of(medicationName);
+    }
+
+    public String getDosage() {
+        return PhiString.reveal(dosage);
+    }
 
+    public void setDosage(String dosage) {
+        this.dosage = PhiString.of(dosage);
+    }
+
+    public String getReason() {
+        return PhiString.reveal(reason);
+    }
+
+    public void setReason(String reason) {
+        this.reason = PhiString.of(reason);
+    }
+}
@@ -0,0 +1,30 @@
+package com.gynaid.backend.entity.phi;
+
+import com.gynaid.backend.service.PhiBlindIndexService;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Queues blind index maintenance for entities with searchable PHI fields
+ */
+public class PhiBlindIndexListener {
+
+    private final ObjectProvider<PhiBlindIndexService> indexService;
+
+    public PhiBlindIndexListener(ObjectProvider<PhiBlindIndexService> indexService) {
+        this.indexService = indexService;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Object entity) {
+        indexService.getObject().enqueue(entity, false);
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        indexService.getObject().enqueue(entity, true);
+    }
+}
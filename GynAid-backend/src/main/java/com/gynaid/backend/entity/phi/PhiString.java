@@ -0,0 +1,82 @@
+package com.gynaid.backend.entity.phi;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * PHI text column value that is stored encrypted and decrypted lazily.
+ *
+ * Values loaded from the database keep only their ciphertext until reveal() is first
+ * called; the plaintext is then memoized on the instance, i.e. once per entity in the
+ * persistence context. New values keep their plaintext and are encrypted once, on the
+ * first flush. Entities that are read but whose PHI is never accessed, such as rows
+ * in list endpoints, never pay for decryption. toString never exposes the plaintext.
+ *
+ * Equality is identity: comparing values by content would decrypt them, and the
+ * ciphertext is only assigned at flush so it cannot back a stable hashCode. Hibernate
+ * dirty-checks the instance loaded from the column, so untouched values are never
+ * rewritten. Entities exclude PhiString fields from their equals/hashCode.
+ */
+public final class PhiString {
+
+    private volatile String ciphertext;
+    private volatile String plaintext;
+    private final UnaryOperator<String> decryptor;
+
+    private PhiString(String ciphertext, String plaintext, UnaryOperator<String> decryptor) {
+        this.ciphertext = ciphertext;
+        this.plaintext = plaintext;
+        this.decryptor = decryptor;
+    }
+
+    /**
+     * New value from plaintext; null stays null
+     */
+    public static PhiString of(String plaintext) {
+        return plaintext != null ? new PhiString(null, plaintext, null) : null;
+    }
+
+    /**
+     * Plaintext of a possibly null value
+     */
+    public static String reveal(PhiString value) {
+        return value != null ? value.reveal() : null;
+    }
+
+    static PhiString fromColumn(String ciphertext, UnaryOperator<String> decryptor) {
+        return new PhiString(ciphertext, null, decryptor);
+    }
+
+    public String reveal() {
+        String value = plaintext;
+        if (value == null) {
+            value = decryptor.apply(ciphertext);
+            plaintext = value;
+        }
+        return value;
+    }
+
+    /**
+     * Blank check without decrypting; blank values are stored unencrypted
+     */
+    public boolean isBlank() {
+        String value = plaintext;
+        if (value != null) {
+            return value.isBlank();
+        }
+        return ciphertext == null || ciphertext.isBlank();
+    }
+
+    String toColumn(UnaryOperator<String> encryptor) {
+        String value = ciphertext;
+        if (value == null) {
+            value = encryptor.apply(plaintext);
+            ciphertext = value;
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "[PHI]";
+    }
+}
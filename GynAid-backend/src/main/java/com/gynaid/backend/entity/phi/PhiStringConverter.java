@@ -0,0 +1,35 @@
+package com.gynaid.backend.entity.phi;
+
+import com.gynaid.backend.service.FieldLevelEncryptionService;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.hibernate.annotations.Immutable;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Stores PhiString attributes as envelope-encrypted text. Decryption is deferred to
+ * PhiString.reveal(); the encryption service is resolved lazily because converters
+ * are created while the entity manager factory, which the service depends on, starts.
+ */
+@Converter
+@Immutable
+public class PhiStringConverter implements AttributeConverter<PhiString, String> {
+
+    private final ObjectProvider<FieldLevelEncryptionService> encryptionService;
+
+    public PhiStringConverter(ObjectProvider<FieldLevelEncryptionService> encryptionService) {
+        this.encryptionService = encryptionService;
+    }
+
+    @Override
+    public String convertToDatabaseColumn(PhiString value) {
+        return value != null ? value.toColumn(plaintext -> encryptionService.getObject().encryptValue(plaintext)) : null;
+    }
+
+    @Override
+    public PhiString convertToEntityAttribute(String column) {
+        return column != null
+            ? PhiString.fromColumn(column, ciphertext -> encryptionService.getObject().decryptValue(ciphertext))
+            : null;
+    }
+}
@@ -0,0 +1,13 @@
+package com.gynaid.backend.event;
+
+/**
+ * Published when a consultation session changes state (started, ended, cancelled,
+ * rescheduled). Delivered to connected participants only after the change commits;
+ * terminal events also close the session room.
+ */
+public record ConsultationSessionChangedEvent(String roomId,
+                                              String type,
+                                              String userEmail,
+                                              Object payload,
+                                              boolean terminal) {
+}
@@ -0,0 +1,18 @@
+package com.gynaid.backend.event;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Published when a payment to a provider succeeds or is refunded. Amounts are always
+ * positive; refund marks the reversal of a previously succeeded payment, for the
+ * refunded portion only.
+ */
+public record ProviderEarningsChangedEvent(Long providerId,
+                                           Long paymentId,
+                                           BigDecimal grossAmount,
+                                           BigDecimal providerShare,
+                                           BigDecimal platformFee,
+                                           boolean refund,
+                                           LocalDateTime occurredAt) {
+}
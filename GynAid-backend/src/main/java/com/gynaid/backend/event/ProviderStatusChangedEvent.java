@@ -0,0 +1,30 @@
+package com.gynaid.backend.event;
+
+import com.gynaid.backend.entity.Appointment;
+import com.gynaid.backend.entity.Consultation;
+
+/**
+ * Published when a consultation or appointment owned by a provider changes status.
+ * fromStatus is null for a newly created record.
+ */
+public record ProviderStatusChangedEvent(Long providerId, Subject subject, String fromStatus, String toStatus) {
+
+    public enum Subject {
+        CONSULTATION,
+        APPOINTMENT
+    }
+
+    public static ProviderStatusChangedEvent consultation(Long providerId,
+                                                          Consultation.ConsultationStatus from,
+                                                          Consultation.ConsultationStatus to) {
+        return new ProviderStatusChangedEvent(providerId, Subject.CONSULTATION,
+            from != null ? from.name() : null, to.name());
+    }
+
+    public static ProviderStatusChangedEvent appointment(Long providerId,
+                                                         Appointment.AppointmentStatus from,
+                                                         Appointment.AppointmentStatus to) {
+        return new ProviderStatusChangedEvent(providerId, Subject.APPOINTMENT,
+            from != null ? from.name() : null, to.name());
+    }
+}
@@ -5,11 +5,14 @@ import com.gynaid.backend.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -50,6 +53,92 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
      */
     Page<Appointment> findByStatusAndStartTimeBetween(Appointment.AppointmentStatus status, LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
 
+    /**
+     * Find appointments starting in the half-open range [from, to)
+     */
+    @Query(value = "SELECT a FROM Appointment a WHERE a.startTime >= :from AND a.startTime < :to",
+           countQuery = "SELECT COUNT(a) FROM Appointment a WHERE a.startTime >= :from AND a.startTime < :to")
+    Page<Appointment> findByStartTimeInRange(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to, Pageable pageable);
+
+    @Query("SELECT a FROM Appointment a WHERE a.startTime >= :from AND a.startTime < :to ORDER BY a.startTime ASC")
+    List<Appointment> findByStartTimeInRange(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Find appointments by status starting in the half-open range [from, to)
+     */
+    @Query(value = "SELECT a FROM Appointment a WHERE a.status = :status AND a.startTime >= :from AND a.startTime < :to",
+           countQuery = "SELECT COUNT(a) FROM Appointment a WHERE a.status = :status AND a.startTime >= :from AND a.startTime < :to")
+    Page<Appointment> findByStatusAndStartTimeInRange(@Param("status") Appointment.AppointmentStatus status,
+                                                      @Param("from") LocalDateTime from,
+                                                      @Param("to") LocalDateTime to,
+                                                      Pageable pageable);
+
+    /**
+     * Keyset pages ordered by (startTime DESC, id DESC). Pass the last row of the previous
+     * page as the key; the Pageable only carries the page size (always page 0, no sort).
+     */
+    @Query("SELECT a FROM Appointment a WHERE a.client = :client " +
+           "AND (a.startTime < :startTime OR (a.startTime = :startTime AND a.id < :id)) " +
+           "ORDER BY a.startTime DESC, a.id DESC")
+    List<Appointment> findByClientBefore(@Param("client") User client,
+                                         @Param("startTime") LocalDateTime startTime,
+                                         @Param("id") Long id,
+                                         Pageable pageable);
+
+    @Query("SELECT a FROM Appointment a WHERE a.client = :client AND a.status = :status " +
+           "AND (a.startTime < :startTime OR (a.startTime = :startTime AND a.id < :id)) " +
+           "ORDER BY a.startTime DESC, a.id DESC")
+    List<Appointment> findByClientAndStatusBefore(@Param("client") User client,
+                                                  @Param("status") Appointment.AppointmentStatus status,
+                                                  @Param("startTime") LocalDateTime startTime,
+                                                  @Param("id") Long id,
+                                                  Pageable pageable);
+
+    @Query("SELECT a FROM Appointment a WHERE a.provider = :provider " +
+           "AND (a.startTime < :startTime OR (a.startTime = :startTime AND a.id < :id)) " +
+           "ORDER BY a.startTime DESC, a.id DESC")
+    List<Appointment> findByProviderBefore(@Param("provider") User provider,
+                                           @Param("startTime") LocalDateTime startTime,
+                                           @Param("id") Long id,
+                                           Pageable pageable);
+
+    @Query("SELECT a FROM Appointment a WHERE a.provider = :provider AND a.status = :status " +
+           "AND (a.startTime < :startTime OR (a.startTime = :startTime AND a.id < :id)) " +
+           "ORDER BY a.startTime DESC, a.id DESC")
+    List<Appointment> findByProviderAndStatusBefore(@Param("provider") User provider,
+                                                    @Param("status") Appointment.AppointmentStatus status,
+                                                    @Param("startTime") LocalDateTime startTime,
+                                                    @Param("id") Long id,
+                                                    Pageable pageable);
+
+    @Query("SELECT a FROM Appointment a WHERE (:status IS NULL OR a.status = :status) " +
+           "AND a.startTime >= :from AND a.startTime < :to " +
+           "AND (a.startTime < :startTime OR (a.startTime = :startTime AND a.id < :id)) " +
+           "ORDER BY a.startTime DESC, a.id DESC")
+    List<Appointment> findAllBefore(@Param("status") Appointment.AppointmentStatus status,
+                                    @Param("from") LocalDateTime from,
+                                    @Param("to") LocalDateTime to,
+                                    @Param("startTime") LocalDateTime startTime,
+                                    @Param("id") Long id,
+                                    Pageable pageable);
+
+    /**
+     * Counts backing optional listing totals
+     */
+    long countByClient(User client);
+
+    long countByClientAndStatus(User client, Appointment.AppointmentStatus status);
+
+    long countByProvider(User provider);
+
+    long countByProviderAndStatus(User provider, Appointment.AppointmentStatus status);
+
+    @Query("SELECT COUNT(a) FROM Appointment a WHERE (:status IS NULL OR a.status = :status) " +
+           "AND a.startTime >= :from AND a.startTime < :to")
+    long countByStatusInRange(@Param("status") Appointment.AppointmentStatus status,
+                              @Param("from") LocalDateTime from,
+                              @Param("to") LocalDateTime to);
+
     /**
      * Get appointment statistics for admin dashboard
      */
@@ -63,10 +152,13 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     long getCancelledAppointmentsSince(@Param("fromDate") LocalDateTime fromDate);
 
     /**
-     * Find appointments for a specific date (for scheduling)
+     * Find appointments for a specific date (for scheduling).
+     * Uses a [midnight, next midnight) range so the start_time index stays usable.
      */
-    @Query("SELECT a FROM Appointment a WHERE DATE(a.startTime) = DATE(:date)")
-    List<Appointment> findByDate(@Param("date") LocalDateTime date);
+    default List<Appointment> findByDate(LocalDateTime date) {
+        LocalDateTime dayStart = date.toLocalDate().atStartOfDay();
+        return findByStartTimeInRange(dayStart, dayStart.plusDays(1));
+    }
 
     /**
      * Find upcoming appointments for a provider
@@ -74,6 +166,17 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     @Query("SELECT a FROM Appointment a WHERE a.provider = :provider AND a.startTime > :now ORDER BY a.startTime ASC")
     List<Appointment> findUpcomingAppointmentsForProvider(@Param("provider") User provider, @Param("now") LocalDateTime now);
 
+    /**
+     * Busy intervals for a set of providers overlapping a time window (bulk slot search)
+     */
+    @Query("SELECT a.provider.id AS providerId, a.startTime AS startTime, a.endTime AS endTime " +
+           "FROM Appointment a WHERE a.provider.id IN :providerIds AND a.status IN :statuses " +
+           "AND a.startTime < :to AND a.endTime > :from")
+    List<BusyInterval> findBusyIntervalsForProviders(@Param("providerIds") Collection<Long> providerIds,
+                                                     @Param("statuses") Collection<Appointment.AppointmentStatus> statuses,
+                                                     @Param("from") LocalDateTime from,
+                                                     @Param("to") LocalDateTime to);
+
     /**
      * Find appointments by payment status
      */
@@ -88,4 +191,49 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
 
     @Query("SELECT AVG(SIZE(a.payments)) FROM Appointment a WHERE a.provider = :provider AND a.status = 'COMPLETED' AND a.createdAt >= :fromDate")
     Double getAveragePaymentsPerAppointment(@Param("provider") User provider, @Param("fromDate") LocalDateTime fromDate);
+
+    /**
+     * Pending appointments starting before the horizon (never approved in time)
+     */
+    @Query("SELECT a.id AS id, a.startTime AS startTime FROM Appointment a " +
+           "WHERE a.status = 'PENDING' AND a.startTime < :startBefore ORDER BY a.startTime")
+    List<StaleRow> findStalePendingDeadlines(@Param("startBefore") LocalDateTime startBefore, Pageable pageable);
+
+    /**
+     * Batched cancellation of pending appointments whose start time has passed
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE Appointment a SET a.status = :cancelled, a.updatedAt = :now " +
+           "WHERE a.id IN :ids AND a.status = 'PENDING' AND a.startTime < :now")
+    int cancelStalePending(@Param("ids") Collection<Long> ids,
+                           @Param("cancelled") Appointment.AppointmentStatus cancelled,
+                           @Param("now") LocalDateTime now);
+
+    /**
+     * Appointment counts per provider and status, used to reconcile dashboard counters
+     */
+    @Query("SELECT a.provider.id AS providerId, a.status AS status, COUNT(a) AS total " +
+           "FROM Appointment a GROUP BY a.provider.id, a.status")
+    List<StatusCountRow> countGroupedByProviderAndStatus();
+
+    interface StatusCountRow {
+        Long getProviderId();
+        Appointment.AppointmentStatus getStatus();
+        Long getTotal();
+    }
+
+    interface StaleRow {
+        Long getId();
+        LocalDateTime getStartTime();
+    }
+
+    /**
+     * Projection of an occupied provider interval
+     */
+    interface BusyInterval {
+        Long getProviderId();
+        LocalDateTime getStartTime();
+        LocalDateTime getEndTime();
+    }
 }
\ No newline at end of file
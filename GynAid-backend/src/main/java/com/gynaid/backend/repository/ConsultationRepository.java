@@ -1,13 +1,18 @@
 package com.gynaid.backend.repository;
 
 import com.gynaid.backend.entity.Consultation;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ConsultationRepository extends JpaRepository<Consultation, Long> {
@@ -25,4 +30,100 @@ public interface ConsultationRepository extends JpaRepository<Consultation, Long
     Double getTotalAppFeeRevenue(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
     
     Integer countByPaymentStatus(Consultation.PaymentStatus status);
-}
+
+    /**
+     * Participant ids for access checks, read from the consultation row alone
+     */
+    @Query("SELECT c.id AS consultationId, c.client.id AS clientId, c.provider.id AS providerId " +
+           "FROM Consultation c WHERE c.id = :id")
+    Optional<ParticipantIdsRow> findParticipantsById(@Param("id") Long id);
+
+    /**
+     * Participant ids and emails of a session room, in one query and without loading entities
+     */
+    @Query("SELECT c.id AS consultationId, cl.id AS clientId, cl.email AS clientEmail, " +
+           "p.id AS providerId, p.email AS providerEmail " +
+           "FROM Consultation c JOIN c.client cl LEFT JOIN c.provider p WHERE c.roomId = :roomId")
+    Optional<ParticipantsRow> findParticipantsByRoomId(@Param("roomId") String roomId);
+
+    /**
+     * Unpaid consultations whose payment window or scheduled time falls before the horizon
+     */
+    @Query("SELECT c.id AS id, c.createdAt AS createdAt, c.scheduledDateTime AS scheduledDateTime FROM Consultation c " +
+           "WHERE c.status = 'PENDING_PAYMENT' AND (c.createdAt < :createdBefore OR c.scheduledDateTime < :scheduledBefore) " +
+           "ORDER BY c.id")
+    List<DeadlineRow> findPendingPaymentDeadlines(@Param("createdBefore") LocalDateTime createdBefore,
+                                                  @Param("scheduledBefore") LocalDateTime scheduledBefore,
+                                                  Pageable pageable);
+
+    /**
+     * Scheduled consultations that were never started and are due before the horizon
+     */
+    @Query("SELECT c.id AS id, c.createdAt AS createdAt, c.scheduledDateTime AS scheduledDateTime FROM Consultation c " +
+           "WHERE c.status = 'SCHEDULED' AND c.startTime IS NULL AND c.scheduledDateTime < :scheduledBefore " +
+           "ORDER BY c.scheduledDateTime")
+    List<DeadlineRow> findNoShowDeadlines(@Param("scheduledBefore") LocalDateTime scheduledBefore, Pageable pageable);
+
+    /**
+     * Batched expiry of unpaid consultations. The conditions are re-checked so rows
+     * paid or rescheduled after the deadline was loaded are left alone.
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE Consultation c SET c.status = :cancelled, c.endTime = :now, c.updatedAt = :now " +
+           "WHERE c.id IN :ids AND c.status = 'PENDING_PAYMENT' " +
+           "AND (c.createdAt < :createdBefore OR c.scheduledDateTime < :now)")
+    int expirePendingPayments(@Param("ids") Collection<Long> ids,
+                              @Param("cancelled") Consultation.ConsultationStatus cancelled,
+                              @Param("createdBefore") LocalDateTime createdBefore,
+                              @Param("now") LocalDateTime now);
+
+    /**
+     * Batched no-show marking for scheduled consultations that were never started
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE Consultation c SET c.status = :noShow, c.endTime = :now, c.updatedAt = :now " +
+           "WHERE c.id IN :ids AND c.status = 'SCHEDULED' AND c.startTime IS NULL " +
+           "AND c.scheduledDateTime < :scheduledBefore")
+    int markNoShows(@Param("ids") Collection<Long> ids,
+                    @Param("noShow") Consultation.ConsultationStatus noShow,
+                    @Param("scheduledBefore") LocalDateTime scheduledBefore,
+                    @Param("now") LocalDateTime now);
+
+    /**
+     * Consultation counts per provider and status, used to reconcile dashboard counters
+     */
+    @Query("SELECT c.provider.id AS providerId, c.status AS status, COUNT(c) AS total " +
+           "FROM Consultation c GROUP BY c.provider.id, c.status")
+    List<StatusCountRow> countGroupedByProviderAndStatus();
+
+    interface StatusCountRow {
+        Long getProviderId();
+        Consultation.ConsultationStatus getStatus();
+        Long getTotal();
+    }
+
+    interface ParticipantIdsRow {
+        Long getConsultationId();
+        Long getClientId();
+        Long getProviderId();
+    }
+
+    interface ParticipantsRow {
+        Long getConsultationId();
+        Long getClientId();
+        String getClientEmail();
+        Long getProviderId();
+        String getProviderEmail();
+    }
+
+    /**
+     * Projection used by the state sweeper to compute deadlines without loading entities
+     */
+    interface DeadlineRow {
+        Long getId();
+        LocalDateTime getCreatedAt();
+        LocalDateTime getScheduledDateTime();
+    }
+}
\ No newline at end of file
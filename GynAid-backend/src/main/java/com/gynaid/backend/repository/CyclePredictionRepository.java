@@ -0,0 +1,25 @@
+package com.gynaid.backend.repository;
+
+import com.gynaid.backend.entity.ai.CyclePrediction;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface CyclePredictionRepository extends JpaRepository<CyclePrediction, Long> {
+
+    Optional<CyclePrediction> findByGynecologicalProfileId(Long gynecologicalProfileId);
+
+    /**
+     * Drop a profile's prediction so the next read recomputes it
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CyclePrediction p WHERE p.gynecologicalProfileId = :profileId")
+    int deleteByProfileId(@Param("profileId") Long profileId);
+}
@@ -0,0 +1,26 @@
+package com.gynaid.backend.repository;
+
+import com.gynaid.backend.entity.EncryptionDataKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EncryptionDataKeyRepository extends JpaRepository<EncryptionDataKey, Long> {
+
+    Optional<EncryptionDataKey> findFirstByActiveTrueOrderByIdDesc();
+
+    List<EncryptionDataKey> findByMasterKeyVersionNot(String masterKeyVersion);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE EncryptionDataKey k SET k.active = false, k.retiredAt = :now WHERE k.active = true AND k.id <> :keepId")
+    int retireAllExcept(@Param("keepId") Long keepId, @Param("now") LocalDateTime now);
+}
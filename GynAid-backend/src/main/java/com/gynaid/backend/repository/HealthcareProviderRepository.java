@@ -66,6 +66,12 @@ public interface HealthcareProviderRepository extends JpaRepository<HealthcarePr
     Page<HealthcareProvider> findByVerificationStatus(HealthcareProvider.VerificationStatus status, Pageable pageable);
     
     Integer countByVerificationStatus(HealthcareProvider.VerificationStatus status);
+
+    // Keyset pagination for admin listings (ordered by id)
+    List<HealthcareProvider> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    List<HealthcareProvider> findByVerificationStatusAndIdGreaterThanOrderByIdAsc(
+        HealthcareProvider.VerificationStatus status, Long id, Pageable pageable);
     
     @Query("SELECT COUNT(p) FROM HealthcareProvider p WHERE p.scope = :scope")
     Long countByScope(@Param("scope") HealthcareProvider.GeographicScope scope);
@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -73,6 +74,53 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     @Query("SELECT p FROM Payment p JOIN p.appointment a WHERE a.provider.id = :providerId")
     List<Payment> findPaymentsForProvider(@Param("providerId") Long providerId);
 
+    /**
+     * Payments per provider and the day they succeeded, including those later refunded,
+     * used to rebuild the earnings rollup
+     */
+    @Query("SELECT a.provider.id AS providerId, CAST(COALESCE(p.paidAt, p.createdAt) AS LocalDate) AS day, " +
+           "SUM(p.amount) AS grossAmount, " +
+           "SUM(COALESCE(p.providerShare, p.amount - COALESCE(p.platformFee, 0))) AS providerShare, " +
+           "SUM(COALESCE(p.platformFee, 0)) AS platformFee, COUNT(p) AS payments " +
+           "FROM Payment p JOIN p.appointment a " +
+           "WHERE p.status IN ('SUCCEEDED', 'REFUNDED') " +
+           "AND COALESCE(p.paidAt, p.createdAt) >= :from AND COALESCE(p.paidAt, p.createdAt) < :to " +
+           "GROUP BY a.provider.id, CAST(COALESCE(p.paidAt, p.createdAt) AS LocalDate)")
+    List<DailyEarningsRow> sumDailyProviderEarnings(@Param("from") LocalDateTime from,
+                                                    @Param("to") LocalDateTime to);
+
+    interface DailyEarningsRow {
+        Long getProviderId();
+        LocalDate getDay();
+        BigDecimal getGrossAmount();
+        BigDecimal getProviderShare();
+        BigDecimal getPlatformFee();
+        Long getPayments();
+    }
+
+    /**
+     * Refunds processed in [from, to), used to rebuild the reversals in the earnings rollup.
+     * Refunds recorded before refund tracking fall back to the full amount and last update.
+     */
+    @Query("SELECT a.provider.id AS providerId, COALESCE(p.refundedAt, p.updatedAt) AS refundedAt, " +
+           "p.amount AS amount, COALESCE(p.refundedAmount, p.amount) AS refundedAmount, " +
+           "COALESCE(p.providerShare, p.amount - COALESCE(p.platformFee, 0)) AS providerShare, " +
+           "COALESCE(p.platformFee, 0) AS platformFee " +
+           "FROM Payment p JOIN p.appointment a " +
+           "WHERE p.status = 'REFUNDED' " +
+           "AND COALESCE(p.refundedAt, p.updatedAt) >= :from AND COALESCE(p.refundedAt, p.updatedAt) < :to")
+    List<RefundRow> findRefundsForEarnings(@Param("from") LocalDateTime from,
+                                           @Param("to") LocalDateTime to);
+
+    interface RefundRow {
+        Long getProviderId();
+        LocalDateTime getRefundedAt();
+        BigDecimal getAmount();
+        BigDecimal getRefundedAmount();
+        BigDecimal getProviderShare();
+        BigDecimal getPlatformFee();
+    }
+
     /**
      * Find failed payments for retry logic
      */
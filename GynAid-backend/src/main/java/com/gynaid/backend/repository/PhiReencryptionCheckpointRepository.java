@@ -0,0 +1,9 @@
+package com.gynaid.backend.repository;
+
+import com.gynaid.backend.entity.PhiReencryptionCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PhiReencryptionCheckpointRepository extends JpaRepository<PhiReencryptionCheckpoint, String> {
+}
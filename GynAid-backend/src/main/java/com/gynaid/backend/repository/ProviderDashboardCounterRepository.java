@@ -0,0 +1,50 @@
+package com.gynaid.backend.repository;
+
+import com.gynaid.backend.entity.ProviderDashboardCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProviderDashboardCounterRepository extends JpaRepository<ProviderDashboardCounter, Long> {
+
+    /**
+     * All counters of a provider; served from the (provider_id, counter_key) unique index
+     */
+    List<ProviderDashboardCounter> findByProviderId(Long providerId);
+
+    /**
+     * Atomically add to a counter. Returns 0 when the counter row does not exist yet.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ProviderDashboardCounter c SET c.countValue = c.countValue + :countDelta, " +
+           "c.amountValue = c.amountValue + :amountDelta, c.updatedAt = :now " +
+           "WHERE c.providerId = :providerId AND c.counterKey = :counterKey")
+    int increment(@Param("providerId") Long providerId,
+                  @Param("counterKey") String counterKey,
+                  @Param("countDelta") long countDelta,
+                  @Param("amountDelta") BigDecimal amountDelta,
+                  @Param("now") LocalDateTime now);
+
+    /**
+     * Overwrite a counter with a reconciled value. Returns 0 when the row does not exist yet.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ProviderDashboardCounter c SET c.countValue = :countValue, " +
+           "c.amountValue = :amountValue, c.updatedAt = :now " +
+           "WHERE c.providerId = :providerId AND c.counterKey = :counterKey")
+    int overwrite(@Param("providerId") Long providerId,
+                  @Param("counterKey") String counterKey,
+                  @Param("countValue") long countValue,
+                  @Param("amountValue") BigDecimal amountValue,
+                  @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,100 @@
+package com.gynaid.backend.repository;
+
+import com.gynaid.backend.entity.ProviderEarningsDaily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProviderEarningsDailyRepository extends JpaRepository<ProviderEarningsDaily, Long> {
+
+    /**
+     * Atomically add to a provider's day bucket. Returns 0 when the bucket does not exist yet.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ProviderEarningsDaily e SET e.grossAmount = e.grossAmount + :gross, " +
+           "e.providerShare = e.providerShare + :share, e.platformFee = e.platformFee + :fee, " +
+           "e.paymentCount = e.paymentCount + :payments, e.refundCount = e.refundCount + :refunds, " +
+           "e.updatedAt = :now " +
+           "WHERE e.providerId = :providerId AND e.earningsDate = :day")
+    int increment(@Param("providerId") Long providerId,
+                  @Param("day") LocalDate day,
+                  @Param("gross") BigDecimal gross,
+                  @Param("share") BigDecimal share,
+                  @Param("fee") BigDecimal fee,
+                  @Param("payments") long payments,
+                  @Param("refunds") long refunds,
+                  @Param("now") LocalDateTime now);
+
+    /**
+     * Create an empty bucket unless one exists. Runs in its own transaction so that losing
+     * the race to a concurrent insert, which fails the unique key, only rolls back this
+     * statement; the caller then increments the bucket the winner created.
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "INSERT INTO provider_earnings_daily (provider_id, earnings_date, gross_amount, provider_share, " +
+                   "platform_fee, payment_count, refund_count, updated_at) " +
+                   "SELECT :providerId, :day, 0, 0, 0, 0, 0, :now WHERE NOT EXISTS (" +
+                   "SELECT 1 FROM provider_earnings_daily WHERE provider_id = :providerId AND earnings_date = :day)",
+           nativeQuery = true)
+    int createBucket(@Param("providerId") Long providerId,
+                     @Param("day") LocalDate day,
+                     @Param("now") LocalDateTime now);
+
+    /**
+     * Daily buckets of one provider in [from, to), for payout statements
+     */
+    @Query("SELECT e FROM ProviderEarningsDaily e WHERE e.providerId = :providerId " +
+           "AND e.earningsDate >= :from AND e.earningsDate < :to ORDER BY e.earningsDate ASC")
+    List<ProviderEarningsDaily> findRange(@Param("providerId") Long providerId,
+                                          @Param("from") LocalDate from,
+                                          @Param("to") LocalDate to);
+
+    /**
+     * Totals of one provider in [from, to); a range scan of the (provider_id, earnings_date) index
+     */
+    @Query("SELECT e.providerId AS providerId, SUM(e.grossAmount) AS grossAmount, " +
+           "SUM(e.providerShare) AS providerShare, SUM(e.platformFee) AS platformFee, " +
+           "SUM(e.paymentCount) AS paymentCount, SUM(e.refundCount) AS refundCount " +
+           "FROM ProviderEarningsDaily e WHERE e.providerId = :providerId " +
+           "AND e.earningsDate >= :from AND e.earningsDate < :to GROUP BY e.providerId")
+    List<EarningsTotals> sumForProvider(@Param("providerId") Long providerId,
+                                        @Param("from") LocalDate from,
+                                        @Param("to") LocalDate to);
+
+    /**
+     * Totals of every provider in [from, to), for the platform payout run
+     */
+    @Query("SELECT e.providerId AS providerId, SUM(e.grossAmount) AS grossAmount, " +
+           "SUM(e.providerShare) AS providerShare, SUM(e.platformFee) AS platformFee, " +
+           "SUM(e.paymentCount) AS paymentCount, SUM(e.refundCount) AS refundCount " +
+           "FROM ProviderEarningsDaily e WHERE e.earningsDate >= :from AND e.earningsDate < :to " +
+           "GROUP BY e.providerId ORDER BY e.providerId")
+    List<EarningsTotals> sumByProvider(@Param("from") LocalDate from,
+                                       @Param("to") LocalDate to);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ProviderEarningsDaily e WHERE e.earningsDate >= :from AND e.earningsDate < :to")
+    int deleteRange(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    interface EarningsTotals {
+        Long getProviderId();
+        BigDecimal getGrossAmount();
+        BigDecimal getProviderShare();
+        BigDecimal getPlatformFee();
+        Long getPaymentCount();
+        Long getRefundCount();
+    }
+}
@@ -0,0 +1,36 @@
+package com.gynaid.backend.repository;
+
+import com.gynaid.backend.entity.ai.SmartNotification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SmartNotificationRepository extends JpaRepository<SmartNotification, Long> {
+
+    /**
+     * A user's notifications in the given status that are due by the given time, oldest first
+     */
+    @Query("SELECT n FROM SmartNotification n WHERE n.user.id = :userId AND n.status = :status " +
+           "AND n.scheduledFor <= :dueBy ORDER BY n.scheduledFor")
+    List<SmartNotification> findDueByUser(@Param("userId") Long userId,
+                                          @Param("status") SmartNotification.DeliveryStatus status,
+                                          @Param("dueBy") LocalDateTime dueBy);
+
+    /**
+     * Type and time of a user's notifications scheduled from the given time on, used to
+     * avoid storing the same generated reminder twice
+     */
+    @Query("SELECT n.notificationType AS notificationType, n.scheduledFor AS scheduledFor FROM SmartNotification n " +
+           "WHERE n.user.id = :userId AND n.scheduledFor >= :from")
+    List<ScheduledKey> findScheduledKeys(@Param("userId") Long userId, @Param("from") LocalDateTime from);
+
+    interface ScheduledKey {
+        SmartNotification.NotificationType getNotificationType();
+        LocalDateTime getScheduledFor();
+    }
+}
@@ -1,6 +1,7 @@
 package com.gynaid.backend.repository.client;
 
 import com.gynaid.backend.entity.client.ClientHealthProfile;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import java.util.Optional;
@@ -11,4 +12,13 @@ public interface ClientHealthProfileRepository extends JpaRepository<ClientHealt
     Optional<ClientHealthProfile> findByUserId(Long userId);
     
     boolean existsByUserId(Long userId);
+    
+    /**
+     * Health profile with its user and one-to-one profiles fetched in a single query. The
+     * user's provider-side one-to-ones are mapped by the other table and cannot be proxied,
+     * so they are joined too instead of being selected one by one after the load.
+     */
+    @EntityGraph(attributePaths = {"user", "user.currentLocation", "user.providerVerification", "user.practiceInfo",
+        "gynecologicalProfile", "medicalVitals", "medicalHistory"})
+    Optional<ClientHealthProfile> findForHealthContextByUserId(Long userId);
 }
@@ -0,0 +1,12 @@
+package com.gynaid.backend.repository.client;
+
+import com.gynaid.backend.entity.client.MenstruationCycle;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface MenstruationCycleRepository extends JpaRepository<MenstruationCycle, Long> {
+    
+    List<MenstruationCycle> findTop6ByGynecologicalProfileIdOrderByStartDateDesc(Long gynecologicalProfileId);
+}
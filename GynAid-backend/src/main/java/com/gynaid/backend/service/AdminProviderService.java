@@ -1,10 +1,12 @@
 package com.gynaid.backend.service;
 
 import com.gynaid.backend.controller.AdminProviderController.*;
+import com.gynaid.backend.dto.CursorPage;
 import com.gynaid.backend.entity.HealthcareProvider;
 import com.gynaid.backend.entity.ProviderSubscription;
 import com.gynaid.backend.repository.HealthcareProviderRepository;
 import com.gynaid.backend.repository.ProviderSubscriptionRepository;
+import com.gynaid.backend.util.PageCursor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -25,6 +27,7 @@ public class AdminProviderService {
 
     private final HealthcareProviderRepository providerRepository;
     private final ProviderSubscriptionRepository subscriptionRepository;
+    private final ListingCountCache listingCountCache;
 
     // Provider Management
     @Transactional
@@ -88,6 +91,40 @@ public class AdminProviderService {
         return providerRepository.findAll(pageable);
     }
 
+    /**
+     * Keyset page of providers ordered by id; avoids OFFSET scans on deep pages
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<HealthcareProvider> getProvidersPage(String cursor, int size,
+                                                           HealthcareProvider.VerificationStatus status,
+                                                           boolean includeTotal) {
+        size = CursorPage.clampSize(size);
+        PageCursor after = PageCursor.decode(cursor);
+        long lastId = after != null ? after.getId() : 0L;
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<HealthcareProvider> rows = status != null
+            ? providerRepository.findByVerificationStatusAndIdGreaterThanOrderByIdAsc(status, lastId, limit)
+            : providerRepository.findByIdGreaterThanOrderByIdAsc(lastId, limit);
+
+        boolean hasNext = rows.size() > size;
+        List<HealthcareProvider> items = hasNext ? rows.subList(0, size) : rows;
+
+        Long total = null;
+        if (includeTotal) {
+            total = listingCountCache.get("providers:" + status,
+                () -> status != null
+                    ? providerRepository.countByVerificationStatus(status)
+                    : providerRepository.count());
+        }
+
+        return CursorPage.<HealthcareProvider>builder()
+            .items(items)
+            .nextCursor(hasNext ? PageCursor.encode(items.get(items.size() - 1).getId()) : null)
+            .hasNext(hasNext)
+            .totalElements(total)
+            .build();
+    }
+
     @Transactional
     public HealthcareProvider verifyProvider(Long id) {
         HealthcareProvider provider = providerRepository.findById(id)
@@ -1,12 +1,16 @@
 package com.gynaid.backend.service;
 
+import com.gynaid.backend.dto.CursorPage;
 import com.gynaid.backend.entity.Appointment;
 import com.gynaid.backend.entity.AppointmentAuditTrail;
 import com.gynaid.backend.entity.User;
+import com.gynaid.backend.event.ProviderStatusChangedEvent;
 import com.gynaid.backend.repository.AppointmentRepository;
 import com.gynaid.backend.repository.AppointmentAuditTrailRepository;
+import com.gynaid.backend.util.PageCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -25,7 +29,13 @@ import java.util.Optional;
 @Slf4j
 public class AppointmentService {
 
+    // Upper bound used as the keyset for the first page; far beyond any bookable date
+    private static final LocalDateTime KEYSET_MAX_TIME = LocalDateTime.of(9999, 12, 31, 23, 59);
+    private static final LocalDateTime KEYSET_MIN_TIME = LocalDateTime.of(1900, 1, 1, 0, 0);
+
     private final AppointmentRepository appointmentRepository;
+    private final ListingCountCache listingCountCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     // Add missing createAuditTrailEntry method
     private void createAuditTrailEntry(Appointment appointment, User user, AppointmentAuditTrail.AuditAction action,
@@ -58,7 +68,7 @@ public class AppointmentService {
             .paymentStatus(Appointment.PaymentStatus.UNPAID)
             .build();
         
-        Appointment saved = appointmentRepository.save(appointment);
+        Appointment saved = saveTransition(appointment, null);
         log.info("Appointment booked successfully with ID: {}", saved.getId());
         
         return saved;
@@ -85,6 +95,123 @@ public class AppointmentService {
             .build();
     }
 
+    /**
+     * Keyset page of a client's appointments strictly after (lastStartTime, lastId) in
+     * (startTime DESC, id DESC) order. Pass nulls for the first page. Unlike the offset
+     * variant this never scans skipped rows and issues no COUNT query.
+     */
+    @Transactional(readOnly = true)
+    public List<Appointment> getClientAppointmentsAfter(User client, Appointment.AppointmentStatus status,
+                                                        LocalDateTime lastStartTime, Long lastId, int size) {
+        LocalDateTime startKey = lastStartTime != null ? lastStartTime : KEYSET_MAX_TIME;
+        Long idKey = lastId != null ? lastId : Long.MAX_VALUE;
+        Pageable limit = PageRequest.of(0, size);
+        
+        return status != null
+            ? appointmentRepository.findByClientAndStatusBefore(client, status, startKey, idKey, limit)
+            : appointmentRepository.findByClientBefore(client, startKey, idKey, limit);
+    }
+
+    /**
+     * Keyset page of a provider's appointments, see {@link #getClientAppointmentsAfter}
+     */
+    @Transactional(readOnly = true)
+    public List<Appointment> getProviderAppointmentsAfter(User provider, Appointment.AppointmentStatus status,
+                                                          LocalDateTime lastStartTime, Long lastId, int size) {
+        LocalDateTime startKey = lastStartTime != null ? lastStartTime : KEYSET_MAX_TIME;
+        Long idKey = lastId != null ? lastId : Long.MAX_VALUE;
+        Pageable limit = PageRequest.of(0, size);
+        
+        return status != null
+            ? appointmentRepository.findByProviderAndStatusBefore(provider, status, startKey, idKey, limit)
+            : appointmentRepository.findByProviderBefore(provider, startKey, idKey, limit);
+    }
+
+    /**
+     * Cursor page of a client's appointments, newest first. The total is only counted
+     * (and cached) when includeTotal is set.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Appointment> getClientAppointmentsPage(User client, Appointment.AppointmentStatus status,
+                                                             String cursor, int size, boolean includeTotal) {
+        size = CursorPage.clampSize(size);
+        PageCursor after = PageCursor.decode(cursor);
+        List<Appointment> rows = getClientAppointmentsAfter(client, status,
+            after != null ? after.getSortKeyAsTime() : null, after != null ? after.getId() : null, size + 1);
+        
+        Long total = null;
+        if (includeTotal) {
+            total = listingCountCache.get("appointments:client:" + client.getId() + ":" + status,
+                () -> status != null
+                    ? appointmentRepository.countByClientAndStatus(client, status)
+                    : appointmentRepository.countByClient(client));
+        }
+        return toCursorPage(rows, size, total);
+    }
+
+    /**
+     * Cursor page of a provider's appointments, newest first
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Appointment> getProviderAppointmentsPage(User provider, Appointment.AppointmentStatus status,
+                                                               String cursor, int size, boolean includeTotal) {
+        size = CursorPage.clampSize(size);
+        PageCursor after = PageCursor.decode(cursor);
+        List<Appointment> rows = getProviderAppointmentsAfter(provider, status,
+            after != null ? after.getSortKeyAsTime() : null, after != null ? after.getId() : null, size + 1);
+        
+        Long total = null;
+        if (includeTotal) {
+            total = listingCountCache.get("appointments:provider:" + provider.getId() + ":" + status,
+                () -> status != null
+                    ? appointmentRepository.countByProviderAndStatus(provider, status)
+                    : appointmentRepository.countByProvider(provider));
+        }
+        return toCursorPage(rows, size, total);
+    }
+
+    /**
+     * Cursor page of all appointments for the admin listing, newest first
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Appointment> getAllAppointmentsPage(Appointment.AppointmentStatus status, LocalDateTime from,
+                                                          LocalDateTime to, String cursor, int size,
+                                                          boolean includeTotal) {
+        size = CursorPage.clampSize(size);
+        PageCursor after = PageCursor.decode(cursor);
+        LocalDateTime rangeFrom = from != null ? from : KEYSET_MIN_TIME;
+        LocalDateTime rangeTo = to != null ? to : KEYSET_MAX_TIME;
+        List<Appointment> rows = appointmentRepository.findAllBefore(status, rangeFrom, rangeTo,
+            after != null ? after.getSortKeyAsTime() : KEYSET_MAX_TIME,
+            after != null ? after.getId() : Long.MAX_VALUE,
+            PageRequest.of(0, size + 1));
+        
+        Long total = null;
+        if (includeTotal) {
+            total = listingCountCache.get("appointments:all:" + status + ":" + rangeFrom + ":" + rangeTo,
+                () -> appointmentRepository.countByStatusInRange(status, rangeFrom, rangeTo));
+        }
+        return toCursorPage(rows, size, total);
+    }
+
+    // Rows are fetched with size + 1 so the extra row tells us whether a next page exists
+    private CursorPage<Appointment> toCursorPage(List<Appointment> rows, int size, Long total) {
+        boolean hasNext = rows.size() > size;
+        List<Appointment> items = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            Appointment last = items.get(items.size() - 1);
+            nextCursor = PageCursor.encode(last.getStartTime(), last.getId());
+        }
+        
+        return CursorPage.<Appointment>builder()
+            .items(items)
+            .nextCursor(nextCursor)
+            .hasNext(hasNext)
+            .totalElements(total)
+            .build();
+    }
+
     /**
      * Provider approves an appointment
      */
@@ -100,7 +227,7 @@ public class AppointmentService {
             throw new RuntimeException("Unauthorized: You can only manage your own appointments");
         }
         
-        String previousStatus = appointment.getStatus().name();
+        Appointment.AppointmentStatus previousStatus = appointment.getStatus();
         
         // Update appointment status
         appointment.setStatus(Appointment.AppointmentStatus.APPROVED);
@@ -108,11 +235,11 @@ public class AppointmentService {
             appointment.setProviderNotes(notes);
         }
         
-        Appointment approved = appointmentRepository.save(appointment);
+        Appointment approved = saveTransition(appointment, previousStatus);
         
         // Add audit trail entry
         createAuditTrailEntry(appointment, provider, AppointmentAuditTrail.AuditAction.APPROVED,
-                          "Appointment approved by provider", previousStatus, Appointment.AppointmentStatus.APPROVED.name());
+                          "Appointment approved by provider", previousStatus.name(), Appointment.AppointmentStatus.APPROVED.name());
         
         log.info("Appointment {} approved successfully", appointmentId);
         return approved;
@@ -133,7 +260,7 @@ public class AppointmentService {
             throw new RuntimeException("Unauthorized: You can only manage your own appointments");
         }
         
-        String previousStatus = appointment.getStatus().name();
+        Appointment.AppointmentStatus previousStatus = appointment.getStatus();
         
         // Update appointment status
         appointment.setStatus(Appointment.AppointmentStatus.DECLINED);
@@ -141,12 +268,12 @@ public class AppointmentService {
             appointment.setProviderNotes("Declined: " + reason);
         }
         
-        Appointment declined = appointmentRepository.save(appointment);
+        Appointment declined = saveTransition(appointment, previousStatus);
         
         // Add audit trail entry
         createAuditTrailEntry(appointment, provider, AppointmentAuditTrail.AuditAction.DECLINED,
                           "Appointment declined by provider: " + reason,
-                          previousStatus, Appointment.AppointmentStatus.DECLINED.name());
+                          previousStatus.name(), Appointment.AppointmentStatus.DECLINED.name());
         
         log.info("Appointment {} declined successfully", appointmentId);
         return declined;
@@ -166,8 +293,9 @@ public class AppointmentService {
             throw new RuntimeException("Unauthorized: Cannot cancel someone else's appointment");
         }
         
+        Appointment.AppointmentStatus previousStatus = appointment.getStatus();
         appointment.cancel(reason);
-        return appointmentRepository.save(appointment);
+        return saveTransition(appointment, previousStatus);
     }
 
     @Transactional
@@ -224,8 +352,9 @@ public class AppointmentService {
             throw new RuntimeException("Unauthorized: Cannot approve someone else's appointment");
         }
         
+        Appointment.AppointmentStatus previousStatus = appointment.getStatus();
         appointment.approve();
-        return appointmentRepository.save(appointment);
+        return saveTransition(appointment, previousStatus);
     }
 
     @Transactional
@@ -239,10 +368,11 @@ public class AppointmentService {
             throw new RuntimeException("Unauthorized: Cannot decline someone else's appointment");
         }
         
+        Appointment.AppointmentStatus previousStatus = appointment.getStatus();
         appointment.decline();
         appointment.addAuditEntry("DECLINED", "Appointment declined: " + reason);
         
-        return appointmentRepository.save(appointment);
+        return saveTransition(appointment, previousStatus);
     }
 
     @Transactional
@@ -256,10 +386,11 @@ public class AppointmentService {
             throw new RuntimeException("Unauthorized: Cannot complete someone else's appointment");
         }
         
+        Appointment.AppointmentStatus previousStatus = appointment.getStatus();
         appointment.complete();
         appointment.setProviderNotes(providerNotes);
         
-        return appointmentRepository.save(appointment);
+        return saveTransition(appointment, previousStatus);
     }
 
     @Transactional
@@ -273,8 +404,9 @@ public class AppointmentService {
             throw new RuntimeException("Unauthorized: Cannot mark no-show for someone else's appointment");
         }
         
+        Appointment.AppointmentStatus previousStatus = appointment.getStatus();
         appointment.markNoShow();
-        return appointmentRepository.save(appointment);
+        return saveTransition(appointment, previousStatus);
     }
 
     @Transactional(readOnly = true)
@@ -285,11 +417,11 @@ public class AppointmentService {
         Page<Appointment> appointments;
         
         if (status != null && from != null && to != null) {
-            appointments = appointmentRepository.findByStatusAndStartTimeBetween(status, from, to, pageable);
+            appointments = appointmentRepository.findByStatusAndStartTimeInRange(status, from, to, pageable);
         } else if (status != null) {
             appointments = appointmentRepository.findByStatus(status, pageable);
         } else if (from != null && to != null) {
-            appointments = appointmentRepository.findByStartTimeBetween(from, to, pageable);
+            appointments = appointmentRepository.findByStartTimeInRange(from, to, pageable);
         } else {
             appointments = appointmentRepository.findAll(pageable);
         }
@@ -319,10 +451,23 @@ public class AppointmentService {
         Appointment appointment = appointmentRepository.findById(appointmentId)
             .orElseThrow(() -> new RuntimeException("Appointment not found"));
         
+        Appointment.AppointmentStatus previousStatus = appointment.getStatus();
         appointment.setStatus(newStatus);
         appointment.addAuditEntry("ADMIN_OVERRIDE", "Admin override: " + reason);
         
-        return appointmentRepository.save(appointment);
+        return saveTransition(appointment, previousStatus);
+    }
+
+    /**
+     * Save an appointment and publish its status change for the provider dashboard counters
+     */
+    private Appointment saveTransition(Appointment appointment, Appointment.AppointmentStatus previousStatus) {
+        Appointment saved = appointmentRepository.save(appointment);
+        if (saved.getStatus() != previousStatus) {
+            eventPublisher.publishEvent(ProviderStatusChangedEvent.appointment(
+                saved.getProvider().getId(), previousStatus, saved.getStatus()));
+        }
+        return saved;
     }
 
     // Request/Response DTOs
@@ -0,0 +1,81 @@
+package com.gynaid.backend.service;
+
+import com.gynaid.backend.repository.ConsultationRepository;
+import lombok.Builder;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Authorization-aware consultation loader.
+ *
+ * Resolves the client and provider ids of a consultation with a single projection query
+ * instead of loading the entity and lazily fetching both users, and checks ownership
+ * against the authenticated user's id. Participants never change after booking, so the
+ * mapping is cached until the session ends or is cancelled.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ConsultationAccessService {
+
+    private static final int MAX_CACHED_CONSULTATIONS = 10_000;
+
+    private final ConsultationRepository consultationRepository;
+
+    private final Map<Long, ConsultationParticipants> participantsCache = new ConcurrentHashMap<>();
+
+    public ConsultationParticipants getParticipants(Long consultationId) {
+        ConsultationParticipants cached = participantsCache.get(consultationId);
+        if (cached != null) {
+            return cached;
+        }
+
+        ConsultationParticipants participants = consultationRepository.findParticipantsById(consultationId)
+            .map(row -> ConsultationParticipants.builder()
+                .consultationId(row.getConsultationId())
+                .clientId(row.getClientId())
+                .providerId(row.getProviderId())
+                .build())
+            .orElseThrow(() -> new RuntimeException("Consultation not found"));
+
+        if (participantsCache.size() >= MAX_CACHED_CONSULTATIONS) {
+            participantsCache.clear();
+        }
+        participantsCache.put(consultationId, participants);
+        return participants;
+    }
+
+    /**
+     * Drop the cached participants once a session is over
+     */
+    public void evict(Long consultationId) {
+        participantsCache.remove(consultationId);
+    }
+
+    @Data
+    @Builder
+    public static class ConsultationParticipants {
+        private Long consultationId;
+        private Long clientId;
+        private Long providerId;
+
+        public boolean isClient(Long userId) {
+            return userId != null && Objects.equals(clientId, userId);
+        }
+
+        public boolean isProvider(Long userId) {
+            return userId != null && Objects.equals(providerId, userId);
+        }
+
+        public boolean isParticipant(Long userId) {
+            return isClient(userId) || isProvider(userId);
+        }
+
+    }
+}
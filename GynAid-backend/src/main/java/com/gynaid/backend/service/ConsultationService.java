@@ -3,11 +3,14 @@ package com.gynaid.backend.service;
 import com.gynaid.backend.entity.Consultation;
 import com.gynaid.backend.entity.HealthcareProvider;
 import com.gynaid.backend.entity.User;
+import com.gynaid.backend.event.ConsultationSessionChangedEvent;
+import com.gynaid.backend.event.ProviderStatusChangedEvent;
 import com.gynaid.backend.repository.ConsultationRepository;
 import com.gynaid.backend.repository.HealthcareProviderRepository;
 import com.gynaid.backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,6 +28,8 @@ public class ConsultationService {
     private final ConsultationRepository consultationRepository;
     private final HealthcareProviderRepository providerRepository;
     private final UserRepository userRepository;
+    private final ConsultationAccessService consultationAccessService;
+    private final ApplicationEventPublisher eventPublisher;
 
     private static final BigDecimal APP_FEE_PERCENTAGE = new BigDecimal("0.10"); // 10%
 
@@ -57,6 +62,7 @@ public class ConsultationService {
                 .build();
 
             Consultation saved = consultationRepository.save(consultation);
+            publishStatusChange(saved, null);
 
             return BookingResponse.builder()
                 .consultationId(saved.getId())
@@ -77,16 +83,18 @@ public class ConsultationService {
     }
 
     @Transactional
-    public PaymentResponse processPayment(Long consultationId, PaymentRequest request, String userEmail) {
+    public PaymentResponse processPayment(Long consultationId, PaymentRequest request, User user) {
+        Consultation consultation = null;
         try {
-            Consultation consultation = consultationRepository.findById(consultationId)
-                .orElseThrow(() -> new RuntimeException("Consultation not found"));
-
             // Verify user owns this consultation
-            if (!consultation.getClient().getEmail().equals(userEmail)) {
+            if (!consultationAccessService.getParticipants(consultationId).isClient(user.getId())) {
                 throw new RuntimeException("Unauthorized access to consultation");
             }
 
+            consultation = consultationRepository.findById(consultationId)
+                .orElseThrow(() -> new RuntimeException("Consultation not found"));
+
+            Consultation.ConsultationStatus previousStatus = consultation.getStatus();
             consultation.setPaymentMethod(request.getPaymentMethod());
             consultation.setPaymentStatus(Consultation.PaymentStatus.PROCESSING);
             consultationRepository.save(consultation);
@@ -100,6 +108,7 @@ public class ConsultationService {
             consultation.setPaymentDateTime(java.time.LocalDateTime.now());
             consultation.setStatus(Consultation.ConsultationStatus.SCHEDULED);
             consultationRepository.save(consultation);
+            publishStatusChange(consultation, previousStatus);
 
             log.info("Payment processed successfully for consultation: {}, transaction: {}", consultationId, transactionId);
 
@@ -113,9 +122,8 @@ public class ConsultationService {
         } catch (Exception e) {
             log.error("Failed to process payment for consultation: {}", consultationId, e);
             
-            // Update consultation status to failed if it exists
+            // Only a consultation loaded after the ownership check is marked failed
             try {
-                Consultation consultation = consultationRepository.findById(consultationId).orElse(null);
                 if (consultation != null) {
                     consultation.setPaymentStatus(Consultation.PaymentStatus.FAILED);
                     consultationRepository.save(consultation);
@@ -159,18 +167,20 @@ public class ConsultationService {
      * Start consultation session
      */
     @Transactional
-    public Consultation startConsultationSession(Long consultationId, String userEmail) {
-        log.info("Starting consultation session: {} for user: {}", consultationId, userEmail);
+    public Consultation startConsultationSession(Long consultationId, User user) {
+        log.info("Starting consultation session: {} for user: {}", consultationId, user.getEmail());
         
-        Consultation consultation = consultationRepository.findById(consultationId)
-            .orElseThrow(() -> new RuntimeException("Consultation not found"));
+        ConsultationAccessService.ConsultationParticipants participants =
+            consultationAccessService.getParticipants(consultationId);
         
         // Verify user has access to this consultation
-        if (!consultation.getClient().getEmail().equals(userEmail) &&
-            !consultation.getProvider().getEmail().equals(userEmail)) {
+        if (!participants.isParticipant(user.getId())) {
             throw new RuntimeException("Unauthorized access to consultation session");
         }
         
+        Consultation consultation = consultationRepository.findById(consultationId)
+            .orElseThrow(() -> new RuntimeException("Consultation not found"));
+        
         // Check if consultation is in the right status
         if (consultation.getStatus() != Consultation.ConsultationStatus.SCHEDULED &&
             consultation.getStatus() != Consultation.ConsultationStatus.IN_PROGRESS) {
@@ -184,10 +194,13 @@ public class ConsultationService {
         }
         
         // Update status to in progress
+        Consultation.ConsultationStatus previousStatus = consultation.getStatus();
         consultation.setStatus(Consultation.ConsultationStatus.IN_PROGRESS);
         consultation.setActualStartTime(LocalDateTime.now());
         
         Consultation updated = consultationRepository.save(consultation);
+        publishStatusChange(updated, previousStatus);
+        publishSessionEvent(updated.getRoomId(), "SESSION_STARTED", user.getEmail(), updated.getStatus(), false);
         
         log.info("Consultation session started successfully: {}", consultationId);
         return updated;
@@ -197,28 +210,34 @@ public class ConsultationService {
      * End consultation session
      */
     @Transactional
-    public Consultation endConsultationSession(Long consultationId, String userEmail, String notes) {
-        log.info("Ending consultation session: {} for user: {}", consultationId, userEmail);
+    public Consultation endConsultationSession(Long consultationId, User user, String notes) {
+        log.info("Ending consultation session: {} for user: {}", consultationId, user.getEmail());
         
-        Consultation consultation = consultationRepository.findById(consultationId)
-            .orElseThrow(() -> new RuntimeException("Consultation not found"));
+        ConsultationAccessService.ConsultationParticipants participants =
+            consultationAccessService.getParticipants(consultationId);
         
         // Verify user has access to this consultation
-        if (!consultation.getClient().getEmail().equals(userEmail) &&
-            !consultation.getProvider().getEmail().equals(userEmail)) {
+        if (!participants.isParticipant(user.getId())) {
             throw new RuntimeException("Unauthorized access to consultation session");
         }
         
+        Consultation consultation = consultationRepository.findById(consultationId)
+            .orElseThrow(() -> new RuntimeException("Consultation not found"));
+        
         // Update status to completed
+        Consultation.ConsultationStatus previousStatus = consultation.getStatus();
         consultation.setStatus(Consultation.ConsultationStatus.COMPLETED);
         consultation.setActualEndTime(LocalDateTime.now());
         
         // Add provider notes if provided by provider
-        if (notes != null && consultation.getProvider().getEmail().equals(userEmail)) {
+        if (notes != null && participants.isProvider(user.getId())) {
             consultation.setProviderNotes(notes);
         }
         
         Consultation updated = consultationRepository.save(consultation);
+        publishStatusChange(updated, previousStatus);
+        consultationAccessService.evict(consultationId);
+        publishSessionEvent(updated.getRoomId(), "SESSION_ENDED", user.getEmail(), updated.getStatus(), true);
         
         log.info("Consultation session ended successfully: {}", consultationId);
         return updated;
@@ -228,26 +247,28 @@ public class ConsultationService {
      * Add consultation notes
      */
     @Transactional
-    public void addConsultationNotes(Long consultationId, String userEmail, String notes, boolean isProvider) {
-        log.info("Adding consultation notes for session: {} by user: {}", consultationId, userEmail);
+    public void addConsultationNotes(Long consultationId, User user, String notes, boolean isProvider) {
+        log.info("Adding consultation notes for session: {} by user: {}", consultationId, user.getEmail());
         
-        Consultation consultation = consultationRepository.findById(consultationId)
-            .orElseThrow(() -> new RuntimeException("Consultation not found"));
+        ConsultationAccessService.ConsultationParticipants participants =
+            consultationAccessService.getParticipants(consultationId);
         
         // Verify user has access to this consultation
-        if (!consultation.getClient().getEmail().equals(userEmail) &&
-            !consultation.getProvider().getEmail().equals(userEmail)) {
+        if (!participants.isParticipant(user.getId())) {
             throw new RuntimeException("Unauthorized access to consultation session");
         }
         
+        Consultation consultation = consultationRepository.findById(consultationId)
+            .orElseThrow(() -> new RuntimeException("Consultation not found"));
+        
         // Add notes based on who is adding them
         if (isProvider) {
-            if (!consultation.getProvider().getEmail().equals(userEmail)) {
+            if (!participants.isProvider(user.getId())) {
                 throw new RuntimeException("Only providers can add provider notes");
             }
             consultation.setProviderNotes(notes);
         } else {
-            if (!consultation.getClient().getEmail().equals(userEmail)) {
+            if (!participants.isClient(user.getId())) {
                 throw new RuntimeException("Only clients can add client notes");
             }
             consultation.setClientNotes(notes);
@@ -315,17 +336,19 @@ public class ConsultationService {
     // Session Management Methods
     
     @Transactional
-    public SessionStartResponse startConsultationSessionWithResponse(Long consultationId, String userEmail) {
+    public SessionStartResponse startConsultationSessionWithResponse(Long consultationId, User user) {
         try {
-            Consultation consultation = consultationRepository.findById(consultationId)
-                .orElseThrow(() -> new RuntimeException("Consultation not found"));
+            ConsultationAccessService.ConsultationParticipants participants =
+                consultationAccessService.getParticipants(consultationId);
             
             // Verify user has permission to start session
-            if (!consultation.getClient().getEmail().equals(userEmail) && 
-                !consultation.getProvider().getEmail().equals(userEmail)) {
+            if (!participants.isParticipant(user.getId())) {
                 throw new RuntimeException("Unauthorized to start this consultation");
             }
             
+            Consultation consultation = consultationRepository.findById(consultationId)
+                .orElseThrow(() -> new RuntimeException("Consultation not found"));
+            
             // Check if session can start
             if (!consultation.canStart()) {
                 return SessionStartResponse.builder()
@@ -336,8 +359,11 @@ public class ConsultationService {
             }
             
             // Start the session
+            Consultation.ConsultationStatus previousStatus = consultation.getStatus();
             consultation.startSession();
             consultationRepository.save(consultation);
+            publishStatusChange(consultation, previousStatus);
+            publishSessionEvent(consultation.getRoomId(), "SESSION_STARTED", user.getEmail(), consultation.getStatus(), false);
             
             log.info("Consultation session started: {}, room: {}", consultationId, consultation.getRoomId());
             
@@ -359,17 +385,19 @@ public class ConsultationService {
     }
     
     @Transactional
-    public SessionEndResponse endConsultationSession(Long consultationId, String userEmail, String notes, Integer rating) {
+    public SessionEndResponse endConsultationSession(Long consultationId, User user, String notes, Integer rating) {
         try {
-            Consultation consultation = consultationRepository.findById(consultationId)
-                .orElseThrow(() -> new RuntimeException("Consultation not found"));
+            ConsultationAccessService.ConsultationParticipants participants =
+                consultationAccessService.getParticipants(consultationId);
             
             // Verify user has permission to end session
-            if (!consultation.getClient().getEmail().equals(userEmail) && 
-                !consultation.getProvider().getEmail().equals(userEmail)) {
+            if (!participants.isParticipant(user.getId())) {
                 throw new RuntimeException("Unauthorized to end this consultation");
             }
             
+            Consultation consultation = consultationRepository.findById(consultationId)
+                .orElseThrow(() -> new RuntimeException("Consultation not found"));
+            
             if (!consultation.canEnd()) {
                 return SessionEndResponse.builder()
                     .success(false)
@@ -379,25 +407,29 @@ public class ConsultationService {
             
             // Add notes if provided
             if (notes != null && !notes.trim().isEmpty()) {
-                if (consultation.getClient().getEmail().equals(userEmail)) {
+                if (participants.isClient(user.getId())) {
                     consultation.addClientNotes(notes);
-                } else if (consultation.getProvider().getEmail().equals(userEmail)) {
+                } else if (participants.isProvider(user.getId())) {
                     consultation.addProviderNotes(notes);
                 }
             }
             
             // Add rating if provided
             if (rating != null && rating >= 1 && rating <= 5) {
-                if (consultation.getClient().getEmail().equals(userEmail)) {
+                if (participants.isClient(user.getId())) {
                     consultation.setClientRating(rating);
-                } else if (consultation.getProvider().getEmail().equals(userEmail)) {
+                } else if (participants.isProvider(user.getId())) {
                     consultation.setProviderRating(rating);
                 }
             }
             
             // End the session
+            Consultation.ConsultationStatus previousStatus = consultation.getStatus();
             consultation.endSession();
             consultationRepository.save(consultation);
+            publishStatusChange(consultation, previousStatus);
+            consultationAccessService.evict(consultationId);
+            publishSessionEvent(consultation.getRoomId(), "SESSION_ENDED", user.getEmail(), consultation.getStatus(), true);
             
             log.info("Consultation session ended: {}, duration: {} minutes", consultationId, consultation.getDurationMinutes());
             
@@ -418,17 +450,19 @@ public class ConsultationService {
     }
     
     @Transactional
-    public CancelConsultationResponse cancelConsultation(Long consultationId, String userEmail, String reason) {
+    public CancelConsultationResponse cancelConsultation(Long consultationId, User user, String reason) {
         try {
-            Consultation consultation = consultationRepository.findById(consultationId)
-                .orElseThrow(() -> new RuntimeException("Consultation not found"));
+            ConsultationAccessService.ConsultationParticipants participants =
+                consultationAccessService.getParticipants(consultationId);
             
             // Verify user can cancel
-            if (!consultation.getClient().getEmail().equals(userEmail) && 
-                !consultation.getProvider().getEmail().equals(userEmail)) {
+            if (!participants.isParticipant(user.getId())) {
                 throw new RuntimeException("Unauthorized to cancel this consultation");
             }
             
+            Consultation consultation = consultationRepository.findById(consultationId)
+                .orElseThrow(() -> new RuntimeException("Consultation not found"));
+            
             // Check if consultation can be cancelled
             if (consultation.getStatus() == Consultation.ConsultationStatus.ACTIVE ||
                 consultation.getStatus() == Consultation.ConsultationStatus.ENDED) {
@@ -439,8 +473,12 @@ public class ConsultationService {
             }
             
             // Cancel the consultation
+            Consultation.ConsultationStatus previousStatus = consultation.getStatus();
             consultation.cancelSession(reason);
             consultationRepository.save(consultation);
+            publishStatusChange(consultation, previousStatus);
+            consultationAccessService.evict(consultationId);
+            publishSessionEvent(consultation.getRoomId(), "SESSION_CANCELLED", user.getEmail(), reason, true);
             
             log.info("Consultation cancelled: {}, reason: {}", consultationId, reason);
             
@@ -460,16 +498,16 @@ public class ConsultationService {
     }
     
     @Transactional
-    public RescheduleConsultationResponse rescheduleConsultation(Long consultationId, String userEmail, LocalDateTime newDateTime) {
+    public RescheduleConsultationResponse rescheduleConsultation(Long consultationId, User user, LocalDateTime newDateTime) {
         try {
-            Consultation consultation = consultationRepository.findById(consultationId)
-                .orElseThrow(() -> new RuntimeException("Consultation not found"));
-            
             // Verify user can reschedule
-            if (!consultation.getClient().getEmail().equals(userEmail)) {
+            if (!consultationAccessService.getParticipants(consultationId).isClient(user.getId())) {
                 throw new RuntimeException("Only clients can reschedule consultations");
             }
             
+            Consultation consultation = consultationRepository.findById(consultationId)
+                .orElseThrow(() -> new RuntimeException("Consultation not found"));
+            
             // Check if consultation can be rescheduled
             if (consultation.getStatus() == Consultation.ConsultationStatus.ACTIVE ||
                 consultation.getStatus() == Consultation.ConsultationStatus.ENDED) {
@@ -490,6 +528,7 @@ public class ConsultationService {
             // Update the scheduled time
             consultation.setScheduledDateTime(newDateTime);
             consultationRepository.save(consultation);
+            publishSessionEvent(consultation.getRoomId(), "SESSION_RESCHEDULED", user.getEmail(), newDateTime, false);
             
             log.info("Consultation rescheduled: {} to {}", consultationId, newDateTime);
             
@@ -508,6 +547,22 @@ public class ConsultationService {
         }
     }
     
+    private void publishStatusChange(Consultation consultation, Consultation.ConsultationStatus previousStatus) {
+        if (consultation.getStatus() != previousStatus) {
+            eventPublisher.publishEvent(ProviderStatusChangedEvent.consultation(
+                consultation.getProvider().getId(), previousStatus, consultation.getStatus()));
+        }
+    }
+
+    /**
+     * Session events reach participants after commit, so a rolled back change is never announced
+     */
+    private void publishSessionEvent(String roomId, String type, String userEmail, Object payload, boolean terminal) {
+        if (roomId != null) {
+            eventPublisher.publishEvent(new ConsultationSessionChangedEvent(roomId, type, userEmail, payload, terminal));
+        }
+    }
+
     private String generateSessionUrl(String roomId) {
         // Generate session URL based on video provider
         return "https://video.gynaid.com/room/" + roomId;
@@ -0,0 +1,291 @@
+package com.gynaid.backend.service;
+
+import com.gynaid.backend.event.ConsultationSessionChangedEvent;
+import com.gynaid.backend.repository.ConsultationRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.Builder;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process real-time hub for consultation sessions, keyed by Consultation.roomId.
+ *
+ * Participants subscribe over SSE and post WebRTC signalling messages, which are relayed
+ * to the other participants in the room. Session state changes (started, ended,
+ * rescheduled, cancelled) are pushed to the room as they happen.
+ *
+ * Every connection owns a bounded send queue drained by its own virtual thread, so a
+ * slow client never blocks the publisher. A client whose queue overflows is evicted.
+ *
+ * Joining, leaving and dropping an empty room all happen inside rooms.compute for the
+ * room, so the capacity check is atomic and a joiner can never land in a room that is
+ * concurrently being removed. Session state changes arrive as events after the
+ * consultation change commits.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ConsultationSessionHub {
+
+    private static final long EMITTER_TIMEOUT_MILLIS = TimeUnit.HOURS.toMillis(3);
+    private static final int SEND_QUEUE_CAPACITY = 256;
+    private static final int MAX_CONNECTIONS_PER_ROOM = 8;
+    private static final long HEARTBEAT_SECONDS = 20;
+
+    private final ConsultationRepository consultationRepository;
+
+    private final Map<String, Map<String, Connection>> rooms = new ConcurrentHashMap<>();
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    /**
+     * Join a room as one of the consultation's participants and start streaming events
+     */
+    public SseEmitter join(String roomId, String userEmail) {
+        ConsultationRepository.ParticipantsRow participants = consultationRepository.findParticipantsByRoomId(roomId)
+            .orElseThrow(() -> new RuntimeException("Consultation room not found"));
+        String role = role(participants, userEmail);
+        if (role == null) {
+            throw new RuntimeException("Unauthorized access to consultation session");
+        }
+
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MILLIS);
+        Connection connection = new Connection(UUID.randomUUID().toString(), roomId, userEmail, role, emitter);
+        rooms.compute(roomId, (id, room) -> {
+            Map<String, Connection> members = room != null ? room : new ConcurrentHashMap<>();
+            if (members.size() >= MAX_CONNECTIONS_PER_ROOM) {
+                throw new RuntimeException("Consultation room is full");
+            }
+            members.put(connection.id, connection);
+            return members;
+        });
+        openConnections.incrementAndGet();
+
+        emitter.onCompletion(() -> close(connection, null));
+        emitter.onTimeout(() -> close(connection, "timeout"));
+        emitter.onError(e -> close(connection, "error"));
+
+        connection.sender = Thread.ofVirtual()
+            .name("consultation-session-" + connection.id)
+            .start(() -> drain(connection));
+
+        log.info("Participant {} joined consultation room {} as {}", userEmail, roomId, role);
+        broadcast(roomId, SessionEvent.builder().type("PARTICIPANT_JOINED").from(userEmail).payload(role).build());
+        return emitter;
+    }
+
+    /**
+     * Relay a WebRTC signalling message (offer, answer, ICE candidate) to the rest of the room
+     */
+    public void relaySignal(String roomId, String senderEmail, String type, Object payload) {
+        Map<String, Connection> room = rooms.get(roomId);
+        if (room == null || room.values().stream().noneMatch(c -> c.userEmail.equals(senderEmail))) {
+            throw new RuntimeException("Join the consultation room before signalling");
+        }
+
+        SessionEvent event = SessionEvent.builder().type("SIGNAL_" + type).from(senderEmail).payload(payload).build();
+        for (Connection connection : room.values()) {
+            if (!connection.userEmail.equals(senderEmail)) {
+                enqueue(connection, event);
+            }
+        }
+    }
+
+    /**
+     * Push a session state change to everyone in the room
+     */
+    public void broadcast(String roomId, SessionEvent event) {
+        if (roomId == null) {
+            return;
+        }
+        Map<String, Connection> room = rooms.get(roomId);
+        if (room == null) {
+            return;
+        }
+        for (Connection connection : room.values()) {
+            enqueue(connection, event);
+        }
+    }
+
+    /**
+     * Broadcast a terminal event and disconnect everyone in the room
+     */
+    public void closeRoom(String roomId, SessionEvent event) {
+        if (roomId == null) {
+            return;
+        }
+        // Mark the connections first: a sender parked in poll wakes up for the event itself
+        // and stops right after delivering it
+        Map<String, Connection> room = rooms.get(roomId);
+        if (room != null) {
+            room.values().forEach(c -> c.closeAfter = event);
+        }
+        broadcast(roomId, event);
+    }
+
+    /**
+     * Deliver a committed session state change to the room
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSessionChanged(ConsultationSessionChangedEvent event) {
+        SessionEvent sessionEvent = SessionEvent.builder()
+            .type(event.type())
+            .from(event.userEmail())
+            .payload(event.payload())
+            .build();
+        if (event.terminal()) {
+            closeRoom(event.roomId(), sessionEvent);
+        } else {
+            broadcast(event.roomId(), sessionEvent);
+        }
+    }
+
+    /**
+     * Open connections across all rooms
+     */
+    public int getOpenConnectionCount() {
+        return openConnections.get();
+    }
+
+    /**
+     * Connections held by room membership; equal to getOpenConnectionCount() unless a
+     * connection was lost from its room
+     */
+    public int getRoomConnectionCount() {
+        return rooms.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * Connected participants of a room as email to role (CLIENT or PROVIDER)
+     */
+    public Map<String, String> getParticipants(String roomId) {
+        Map<String, Connection> room = rooms.get(roomId);
+        if (room == null) {
+            return Map.of();
+        }
+        Map<String, String> present = new HashMap<>();
+        room.values().forEach(c -> present.put(c.userEmail, c.role));
+        return present;
+    }
+
+    private void enqueue(Connection connection, SessionEvent event) {
+        if (!connection.queue.offer(event)) {
+            log.warn("Evicting slow consumer {} from consultation room {}", connection.userEmail, connection.roomId);
+            close(connection, "slow consumer");
+        }
+    }
+
+    private void drain(Connection connection) {
+        try {
+            while (!connection.closed.get()) {
+                SessionEvent event = connection.queue.poll(HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+                if (event == null) {
+                    connection.emitter.send(SseEmitter.event().comment("heartbeat"));
+                    continue;
+                }
+                connection.emitter.send(SseEmitter.event().name(event.getType()).data(event));
+                if (event == connection.closeAfter) {
+                    break;
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Consultation session connection {} dropped: {}", connection.id, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close(connection, null);
+        }
+    }
+
+    private void close(Connection connection, String reason) {
+        if (!connection.closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        rooms.computeIfPresent(connection.roomId, (id, room) -> {
+            room.remove(connection.id);
+            return room.isEmpty() ? null : room;
+        });
+        openConnections.decrementAndGet();
+
+        try {
+            connection.emitter.complete();
+        } catch (Exception ignored) {
+            // Emitter already completed by the container
+        }
+        if (connection.sender != null && connection.sender != Thread.currentThread()) {
+            connection.sender.interrupt();
+        }
+
+        if (reason != null) {
+            log.info("Participant {} left consultation room {}: {}", connection.userEmail, connection.roomId, reason);
+        }
+        broadcast(connection.roomId, SessionEvent.builder()
+            .type("PARTICIPANT_LEFT")
+            .from(connection.userEmail)
+            .payload(reason)
+            .build());
+    }
+
+    private String role(ConsultationRepository.ParticipantsRow participants, String userEmail) {
+        if (userEmail.equals(participants.getClientEmail())) {
+            return "CLIENT";
+        }
+        if (userEmail.equals(participants.getProviderEmail())) {
+            return "PROVIDER";
+        }
+        return null;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rooms.values().forEach(room -> List.copyOf(room.values()).forEach(c -> close(c, "shutdown")));
+    }
+
+    private static class Connection {
+        private final String id;
+        private final String roomId;
+        private final String userEmail;
+        private final String role;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SessionEvent> queue = new ArrayBlockingQueue<>(SEND_QUEUE_CAPACITY);
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // Terminal event after which the sender disconnects
+        private volatile SessionEvent closeAfter;
+        private volatile Thread sender;
+
+        Connection(String id, String roomId, String userEmail, String role, SseEmitter emitter) {
+            this.id = id;
+            this.roomId = roomId;
+            this.userEmail = userEmail;
+            this.role = role;
+            this.emitter = emitter;
+        }
+    }
+
+    @Data
+    @Builder
+    public static class SessionEvent {
+        private String type;
+        private String from;
+        private Object payload;
+        @Builder.Default
+        private LocalDateTime timestamp = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,124 @@
+package com.gynaid.backend.service;
+
+import com.gynaid.backend.entity.client.CycleStatistics;
+import com.gynaid.backend.entity.client.GynecologicalProfile;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Maintains the rolling CycleStatistics stored on gynecological_profiles.
+ *
+ * Recording a cycle locks the profile row, applies the new cycles to the stored
+ * statistics and writes them back, so concurrent cycle entries and syncs do not lose
+ * updates. Statistics are rebuilt from menstruation_cycles when they have never been
+ * built (profiles created before the columns existed) or when a cycle arrives that
+ * starts before the latest one, since the EWMA and recent window depend on order.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CycleStatisticsService {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Statistics of the profile, built from its cycles the first time they are needed
+     */
+    @Transactional
+    public CycleStatistics getStatistics(GynecologicalProfile profile) {
+        CycleStatistics statistics = profile.getCycleStatistics();
+        if (statistics == null || !statistics.isBuilt()) {
+            statistics = rebuildLocked(profile.getId(), lock(profile.getId()));
+            profile.setCycleStatistics(statistics);
+        }
+        return statistics;
+    }
+
+    /**
+     * Apply cycles that have already been stored for the profile
+     */
+    @Transactional
+    public CycleStatistics record(Long gynecologicalProfileId, List<CycleSample> cycles) {
+        CycleStatistics statistics = lock(gynecologicalProfileId);
+        if (!statistics.isBuilt() || cycles.stream().anyMatch(cycle -> !statistics.accepts(cycle.startDate()))) {
+            return rebuildLocked(gynecologicalProfileId, statistics);
+        }
+
+        cycles.stream()
+                .sorted(Comparator.comparing(CycleSample::startDate))
+                .forEach(cycle -> statistics.add(cycle.startDate(), cycle.cycleLength(), cycle.painLevel()));
+        save(gynecologicalProfileId, statistics);
+        return statistics;
+    }
+
+    /**
+     * Recompute the profile's statistics from all of its cycles
+     */
+    @Transactional
+    public CycleStatistics rebuild(Long gynecologicalProfileId) {
+        return rebuildLocked(gynecologicalProfileId, lock(gynecologicalProfileId));
+    }
+
+    /**
+     * Statistics from the cycle_stats_* columns of a gynecological_profiles row
+     */
+    public static CycleStatistics readStatistics(ResultSet rs) throws SQLException {
+        Date lastStartDate = rs.getDate("cycle_stats_last_start_date");
+        return new CycleStatistics(
+                rs.getObject("cycle_stats_entries", Integer.class),
+                rs.getObject("cycle_stats_length_count", Integer.class),
+                rs.getObject("cycle_stats_mean_length", Double.class),
+                rs.getObject("cycle_stats_m2", Double.class),
+                rs.getObject("cycle_stats_ewma_length", Double.class),
+                lastStartDate != null ? lastStartDate.toLocalDate() : null,
+                rs.getString("cycle_stats_recent"));
+    }
+
+    private CycleStatistics rebuildLocked(Long gynecologicalProfileId, CycleStatistics current) {
+        CycleStatistics statistics = CycleStatistics.empty();
+        jdbcTemplate.query("SELECT start_date, cycle_length, pain_level FROM menstruation_cycles "
+                        + "WHERE gynecological_profile_id = ? ORDER BY start_date, id",
+                rs -> {
+                    Date startDate = rs.getDate("start_date");
+                    statistics.add(startDate != null ? startDate.toLocalDate() : null,
+                            rs.getObject("cycle_length", Integer.class), rs.getObject("pain_level", Integer.class));
+                },
+                gynecologicalProfileId);
+        save(gynecologicalProfileId, statistics);
+        log.debug("Rebuilt cycle statistics for profile {} from {} cycles{}", gynecologicalProfileId,
+                  statistics.getEntries(), current.isBuilt() ? " after an out of order entry" : "");
+        return statistics;
+    }
+
+    private CycleStatistics lock(Long gynecologicalProfileId) {
+        return jdbcTemplate.queryForObject("SELECT cycle_stats_entries, cycle_stats_length_count, "
+                        + "cycle_stats_mean_length, cycle_stats_m2, cycle_stats_ewma_length, "
+                        + "cycle_stats_last_start_date, cycle_stats_recent FROM gynecological_profiles "
+                        + "WHERE id = ? FOR UPDATE",
+                (rs, rowNum) -> readStatistics(rs),
+                gynecologicalProfileId);
+    }
+
+    private void save(Long gynecologicalProfileId, CycleStatistics statistics) {
+        jdbcTemplate.update("UPDATE gynecological_profiles SET cycle_stats_entries = ?, cycle_stats_length_count = ?, "
+                        + "cycle_stats_mean_length = ?, cycle_stats_m2 = ?, cycle_stats_ewma_length = ?, "
+                        + "cycle_stats_last_start_date = ?, cycle_stats_recent = ? WHERE id = ?",
+                statistics.getEntries(), statistics.getLengthCount(), statistics.getMeanLength(),
+                statistics.getM2(), statistics.getEwmaLength(),
+                statistics.getLastStartDate() != null ? Date.valueOf(statistics.getLastStartDate()) : null,
+                statistics.getRecent(), gynecologicalProfileId);
+    }
+
+    public record CycleSample(LocalDate startDate, Integer cycleLength, Integer painLevel) {
+    }
+}
@@ -1,53 +1,33 @@
 package com.gynaid.backend.service;
 
+import com.gynaid.backend.service.mail.MailDispatchService;
+import com.gynaid.backend.service.mail.MailTemplateRenderer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.MailException;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Enterprise-grade email service for GynAid
- * Supports both plain text and HTML emails with proper error handling
+ * Sends HTML emails over pooled SMTP connections, with bulk sends fanned out by
+ * MailDispatchService
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class EmailService {
 
-    private final JavaMailSender mailSender;
-    
-    @Value("${spring.mail.username}")
-    private String fromEmail;
-    
-    @Value("${app.email.from-name:GynAid}")
-    private String fromName;
+    private final MailDispatchService mailDispatchService;
+    private final MailTemplateRenderer mailTemplateRenderer;
 
     /**
      * Send a simple email message
      */
     public void sendEmail(EmailVerificationService.EmailMessage message) {
-        try {
-            SimpleMailMessage email = new SimpleMailMessage();
-            email.setFrom(fromEmail);
-            email.setTo(message.getTo());
-            email.setSubject(message.getSubject());
-            email.setText(message.getHtmlContent()); // Using HTML content as text for now
-            
-            mailSender.send(email);
-            
-            log.info("Email sent successfully to: {}", message.getTo());
-            
-        } catch (MailException e) {
-            log.error("Failed to send email to: {}", message.getTo(), e);
-            throw new RuntimeException("Failed to send email", e);
-        }
+        // The content is a rendered template, so it goes out as HTML
+        sendHtmlEmail(message.getTo(), message.getSubject(), message.getHtmlContent());
     }
 
     /**
@@ -55,44 +35,38 @@ public class EmailService {
      */
     public void sendHtmlEmail(String to, String subject, String htmlContent) {
         try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            
-            helper.setFrom(fromEmail, fromName);
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(htmlContent, true); // true = isHtml
-            
-            mailSender.send(message);
+            mailDispatchService.send(to, subject, htmlContent);
             
             log.info("HTML email sent successfully to: {}", to);
             
-        } catch (MessagingException | java.io.UnsupportedEncodingException e) {
+        } catch (RuntimeException e) {
             log.error("Failed to send HTML email to: {}", to, e);
             throw new RuntimeException("Failed to send HTML email", e);
         }
     }
 
     /**
-     * Send email with multiple recipients
+     * Send email with multiple recipients, one message per recipient.
+     * Returns the bulk job id whose per-recipient status MailDispatchService tracks.
      */
-    public void sendBulkEmail(String[] to, String subject, String htmlContent) {
+    public String sendBulkEmail(String[] to, String subject, String htmlContent) {
         try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+            String jobId = mailDispatchService.submitBulk(to, subject, htmlContent);
             
-            helper.setFrom(fromEmail, fromName);
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(htmlContent, true);
+            log.info("Bulk email queued for {} recipients", to.length);
+            return jobId;
             
-            mailSender.send(message);
-            
-            log.info("Bulk email sent successfully to {} recipients", to.length);
-            
-        } catch (MessagingException | java.io.UnsupportedEncodingException e) {
-            log.error("Failed to send bulk email", e);
+        } catch (RuntimeException e) {
+            log.error("Failed to queue bulk email", e);
             throw new RuntimeException("Failed to send bulk email", e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Render a Thymeleaf template once for the locale and send it to every recipient
+     */
+    public String sendBulkTemplateEmail(String[] to, String subject, String template, Locale locale,
+                                        Map<String, Object> variables) {
+        return sendBulkEmail(to, subject, mailTemplateRenderer.render(template, locale, variables));
+    }
+}
@@ -5,16 +5,15 @@ import com.gynaid.backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
 
 import java.security.SecureRandom;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 /**
@@ -27,7 +26,7 @@ import java.util.regex.Pattern;
 public class EmailVerificationService {
 
     private final UserRepository userRepository;
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final VerificationCodeStore verificationCodeStore;
     private final EmailService emailService;
     private final TemplateEngine templateEngine;
 
@@ -62,15 +61,6 @@ public class EmailVerificationService {
                     .build();
             }
 
-            // Check rate limiting
-            if (isRateLimited(email)) {
-                return VerificationResult.builder()
-                    .success(false)
-                    .error("Too many verification attempts. Please wait before requesting again.")
-                    .retryAfterMinutes(resendDelayMinutes)
-                    .build();
-            }
-
             // Check if user exists
             User user = userRepository.findByEmail(email).orElse(null);
             if (user == null) {
@@ -84,30 +74,27 @@ public class EmailVerificationService {
             String verificationCode = generateSecureCode();
             String verificationToken = generateSecureToken();
 
-            // Store verification data in Redis with expiry
-            String verificationKey = EMAIL_VERIFICATION_PREFIX + email;
-            VerificationData verificationData = new VerificationData();
-            verificationData.setEmail(email);
-            verificationData.setCode(verificationCode);
-            verificationData.setToken(verificationToken);
-            verificationData.setUserId(user.getId());
-            verificationData.setAttempts(0);
-            verificationData.setCreatedAt(LocalDateTime.now());
-            verificationData.setExpiresAt(LocalDateTime.now().plusMinutes(emailVerificationExpiryMinutes));
-
-            redisTemplate.opsForValue().set(
-                verificationKey,
-                verificationData,
-                emailVerificationExpiryMinutes,
-                TimeUnit.MINUTES
-            );
-
-            // Track rate limiting
-            String rateLimitKey = EMAIL_RATE_LIMIT_PREFIX + email;
-            redisTemplate.opsForValue().set(rateLimitKey, "1", resendDelayMinutes, TimeUnit.MINUTES);
-
-            // Send email
-            sendVerificationEmail(user, verificationCode);
+            // Store the code and set the resend block in one atomic call
+            String verificationKey = verificationKey(email);
+            String rateLimitKey = rateLimitKey(email);
+            long retryAfterSeconds = verificationCodeStore.issue(verificationKey, rateLimitKey, verificationCode,
+                Duration.ofMinutes(emailVerificationExpiryMinutes), Duration.ofMinutes(resendDelayMinutes),
+                Map.of("token", verificationToken, "userId", String.valueOf(user.getId())));
+            if (retryAfterSeconds > 0) {
+                return VerificationResult.builder()
+                    .success(false)
+                    .error("Too many verification attempts. Please wait before requesting again.")
+                    .retryAfterMinutes((int) Math.max(1, (retryAfterSeconds + 59) / 60))
+                    .build();
+            }
+
+            // Send email, releasing the code if it could not go out so the user can retry
+            try {
+                sendVerificationEmail(user, verificationCode);
+            } catch (RuntimeException e) {
+                verificationCodeStore.discard(verificationKey, rateLimitKey);
+                throw e;
+            }
 
             log.info("Email verification sent to user: {} (ID: {})", email, user.getId());
 
@@ -132,70 +119,48 @@ public class EmailVerificationService {
     @Transactional
     public VerificationResult verifyEmailCode(String email, String code) {
         try {
-            String verificationKey = EMAIL_VERIFICATION_PREFIX + email;
-            VerificationData verificationData = (VerificationData) redisTemplate.opsForValue().get(verificationKey);
-
-            if (verificationData == null) {
-                return VerificationResult.builder()
-                    .success(false)
-                    .error("Verification code not found or expired")
-                    .errorCode("CODE_NOT_FOUND")
-                    .build();
+            VerificationCodeStore.Outcome outcome = verificationCodeStore.verify(
+                verificationKey(email), code, maxVerificationAttempts);
+
+            switch (outcome.status()) {
+                case NOT_FOUND:
+                    return VerificationResult.builder()
+                        .success(false)
+                        .error("Verification code not found or expired")
+                        .errorCode("CODE_NOT_FOUND")
+                        .build();
+                case MAX_ATTEMPTS:
+                    return VerificationResult.builder()
+                        .success(false)
+                        .error("Too many verification attempts")
+                        .errorCode("MAX_ATTEMPTS_REACHED")
+                        .build();
+                case INVALID:
+                    return VerificationResult.builder()
+                        .success(false)
+                        .error("Invalid verification code")
+                        .errorCode("INVALID_CODE")
+                        .remainingAttempts(Math.max(0, maxVerificationAttempts - outcome.attempts()))
+                        .build();
+                default:
+                    break;
             }
 
-            // Check if code is expired
-            if (LocalDateTime.now().isAfter(verificationData.getExpiresAt())) {
-                redisTemplate.delete(verificationKey);
-                return VerificationResult.builder()
-                    .success(false)
-                    .error("Verification code has expired")
-                    .errorCode("CODE_EXPIRED")
-                    .build();
-            }
+            // Success - the code was removed by the same call, update user verification status
+            User user = userRepository.findById(Long.valueOf(outcome.fields().get("userId")))
+                .orElseThrow(() -> new RuntimeException("User not found"));
 
-            // Check attempt count
-            if (verificationData.getAttempts() >= maxVerificationAttempts) {
-                return VerificationResult.builder()
-                    .success(false)
-                    .error("Too many verification attempts")
-                    .errorCode("MAX_ATTEMPTS_REACHED")
-                    .build();
-            }
-
-            // Verify code
-            if (!verificationData.getCode().equals(code)) {
-                // Increment attempts
-                verificationData.setAttempts(verificationData.getAttempts() + 1);
-                redisTemplate.opsForValue().set(verificationKey, verificationData, 
-                    (int) ChronoUnit.MINUTES.between(LocalDateTime.now(), verificationData.getExpiresAt()),
-                    TimeUnit.MINUTES);
-
-                return VerificationResult.builder()
-                    .success(false)
-                    .error("Invalid verification code")
-                    .errorCode("INVALID_CODE")
-                    .remainingAttempts(maxVerificationAttempts - verificationData.getAttempts())
-                    .build();
-            } else {
-                // Success - update user verification status
-                User user = userRepository.findById(verificationData.getUserId())
-                    .orElseThrow(() -> new RuntimeException("User not found"));
+            user.setEmailVerified(true);
+            user.setEmailVerifiedAt(LocalDateTime.now());
+            userRepository.save(user);
 
-                user.setEmailVerified(true);
-                user.setEmailVerifiedAt(LocalDateTime.now());
-                userRepository.save(user);
+            log.info("Email verification completed for user: {} (ID: {})", email, user.getId());
 
-                // Clean up verification data
-                redisTemplate.delete(verificationKey);
-
-                log.info("Email verification completed for user: {} (ID: {})", email, user.getId());
-
-                return VerificationResult.builder()
-                    .success(true)
-                    .message("Email verified successfully")
-                    .token(verificationData.getToken())
-                    .build();
-            }
+            return VerificationResult.builder()
+                .success(true)
+                .message("Email verified successfully")
+                .token(outcome.fields().get("token"))
+                .build();
 
         } catch (Exception e) {
             log.error("Error verifying email code for: {}", email, e);
@@ -255,12 +220,12 @@ public class EmailVerificationService {
         return EMAIL_PATTERN.matcher(email.trim()).matches();
     }
 
-    /**
-     * Check rate limiting for email verification
-     */
-    private boolean isRateLimited(String email) {
-        String rateLimitKey = EMAIL_RATE_LIMIT_PREFIX + email;
-        return Boolean.TRUE.equals(redisTemplate.hasKey(rateLimitKey));
+    private static String verificationKey(String email) {
+        return EMAIL_VERIFICATION_PREFIX + "{" + email + "}";
+    }
+
+    private static String rateLimitKey(String email) {
+        return EMAIL_RATE_LIMIT_PREFIX + "{" + email + "}";
     }
 
     /**
@@ -273,32 +238,6 @@ public class EmailVerificationService {
     }
 
     // Data classes
-    public static class VerificationData {
-        private String email;
-        private String code;
-        private String token;
-        private Long userId;
-        private int attempts;
-        private LocalDateTime createdAt;
-        private LocalDateTime expiresAt;
-
-        // Getters and setters
-        public String getEmail() { return email; }
-        public void setEmail(String email) { this.email = email; }
-        public String getCode() { return code; }
-        public void setCode(String code) { this.code = code; }
-        public String getToken() { return token; }
-        public void setToken(String token) { this.token = token; }
-        public Long getUserId() { return userId; }
-        public void setUserId(Long userId) { this.userId = userId; }
-        public int getAttempts() { return attempts; }
-        public void setAttempts(int attempts) { this.attempts = attempts; }
-        public LocalDateTime getCreatedAt() { return createdAt; }
-        public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
-        public LocalDateTime getExpiresAt() { return expiresAt; }
-        public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
-    }
-
     public static class VerificationResult {
         private boolean success;
         private String message;
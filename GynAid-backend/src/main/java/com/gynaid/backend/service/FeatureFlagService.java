@@ -1,20 +1,48 @@
 package com.gynaid.backend.service;
 
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gynaid.backend.util.LogLinearHistogram;
+import jakarta.annotation.PostConstruct;
+import lombok.Builder;
+import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.SecureRandom;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Enterprise-grade Feature Flag Service with gradual rollout management
  * Supports multiple rollout strategies and real-time flag updates
+ *
+ * All flags live in an immutable snapshot that is replaced atomically whenever flags
+ * change, so isEnabled is a lock-free map lookup that never touches Redis. Flags are
+ * stored in Redis as JSON in one hash; writers bump a version key and publish on a
+ * channel. Every node reloads on the pub/sub message and also polls the version key
+ * in case a message was missed.
+ *
+ * Exposures are counted in-process with LongAdders per flag and variant, together with
+ * a log-linear histogram of evaluation latency, and flushed every few seconds to a
+ * per-node Redis hash with one pipelined batch of HINCRBYs. Reports merge all nodes.
+ *
+ * Percentage and rollout group bucketing use MurmurHash3 of the user id with a per-flag
+ * seed (see FlagTargeting), so clients evaluating the snapshot offline get the same result.
  */
 @Slf4j
 @Service
@@ -22,19 +50,34 @@ import java.util.concurrent.TimeUnit;
 public class FeatureFlagService {
 
     private final RedisTemplate<String, Object> redisTemplate;
-    private final Map<String, FeatureFlag> flags = new HashMap<>();
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ObjectMapper objectMapper;
     
     @Value("${app.feature-flags.poll-interval:60}")
     private long pollIntervalSeconds;
 
-    private static final String FEATURE_FLAG_PREFIX = "feature_flag:";
+    private static final String FEATURE_FLAGS_KEY = "feature_flags";
+    private static final String FEATURE_FLAGS_VERSION_KEY = "feature_flags:version";
+    private static final String FEATURE_FLAGS_CHANNEL = "feature_flags:updates";
     private static final String FLAG_METRICS_PREFIX = "flag_metrics:";
+    private static final String FLAG_METRICS_NODES_KEY = "flag_metrics:nodes";
+    private static final long FLAG_METRICS_TTL_SECONDS = TimeUnit.HOURS.toSeconds(24);
+    private static final String VARIANT_ON = "on";
+    private static final String VARIANT_OFF = "off";
+    private static final String LATENCY_FIELD_PREFIX = "lat:";
     private static final String ROLLOUT_HISTORY_PREFIX = "rollout_history:";
     private static final SecureRandom secureRandom = new SecureRandom();
 
+    private final Object refreshLock = new Object();
+    private volatile FlagSnapshot snapshot = new FlagSnapshot(Map.of(), -1);
+    private Map<String, FeatureFlag> defaultFlags = Map.of();
+    private final Map<String, FlagMetrics> metrics = new ConcurrentHashMap<>();
+    private final String nodeId = UUID.randomUUID().toString();
+
     /**
      * Initialize feature flags
      */
+    @PostConstruct
     public void initializeFlags() {
         // Load default flags
         loadDefaultFlags();
@@ -42,28 +85,24 @@ public class FeatureFlagService {
         // Start flag polling for real-time updates
         startFlagPolling();
         
-        log.info("Feature flag service initialized with {} flags", flags.size());
+        log.info("Feature flag service initialized with {} flags, version poll every {}s",
+                 snapshot.flags().size(), pollIntervalSeconds);
     }
 
     /**
      * Check if feature flag is enabled for user
      */
     public boolean isEnabled(String flagName, String userId, FlagContext context) {
-        FeatureFlag flag = getFlag(flagName);
-        if (flag == null || !flag.isEnabled()) {
+        long start = System.nanoTime();
+        FeatureFlag flag = snapshot.flags().get(flagName);
+        if (flag == null) {
             return false;
         }
 
         // Check rollout strategy
-        return evaluateRolloutStrategy(flag, userId, context);
-    }
-
-    private FeatureFlag getFlag(String flagName) {
-        return flags.computeIfAbsent(flagName, name -> {
-            // Try to load from Redis
-            FeatureFlag redisFlag = (FeatureFlag) redisTemplate.opsForValue().get(FEATURE_FLAG_PREFIX + name);
-            return redisFlag != null ? redisFlag : getDefaultFlag(name);
-        });
+        boolean enabled = flag.isEnabled() && evaluateRolloutStrategy(flag, userId, context);
+        metricsFor(flagName).record(enabled, System.nanoTime() - start);
+        return enabled;
     }
 
     private boolean evaluateRolloutStrategy(FeatureFlag flag, String userId, FlagContext context) {
@@ -75,100 +114,371 @@ public class FeatureFlagService {
             case NONE:
                 return false;
             case PERCENTAGE:
-                return evaluatePercentageRollout(flag.getPercentage(), userId);
+                return userId != null && FlagTargeting.inPercentage(userId, flag.bucketSeed, flag.getPercentage());
             case USER_IDS:
-                return flag.getTargetUserIds().contains(userId);
+                return userId != null && flag.getTargetUserIds().contains(userId);
             case ROLLOUT_GROUPS:
-                return evaluateRolloutGroups(flag, context);
+                return evaluateRolloutGroups(flag, userId, context);
             default:
                 return false;
         }
     }
 
-    private boolean evaluatePercentageRollout(double percentage, String userId) {
-        int hash = Math.abs(userId.hashCode()) % 100;
-        return hash < percentage;
-    }
-
-    private boolean evaluateRolloutGroups(FeatureFlag flag, FlagContext context) {
-        // Implementation for rollout groups based on user attributes
-        return false;
-    }
-
-    private FeatureFlag getDefaultFlag(String name) {
-        return FeatureFlag.builder()
-            .name(name)
-            .enabled(false)
-            .strategy(RolloutStrategy.NONE)
-            .build();
+    private boolean evaluateRolloutGroups(FeatureFlag flag, String userId, FlagContext context) {
+        String bucketKey = userId != null ? userId : (context != null ? context.getUserId() : null);
+        return FlagTargeting.matches(flag.compiledGroups, context, bucketKey, flag.bucketSeed);
     }
 
     private void loadDefaultFlags() {
         // Load default feature flags
-        flags.put("advanced_analytics", FeatureFlag.builder()
+        Map<String, FeatureFlag> defaults = new HashMap<>();
+        defaults.put("advanced_analytics", FeatureFlag.builder()
             .name("advanced_analytics")
             .enabled(true)
             .strategy(RolloutStrategy.PERCENTAGE)
             .percentage(10.0)
-            .build());
+            .build()
+            .frozen());
             
-        flags.put("ai_health_assistant", FeatureFlag.builder()
+        defaults.put("ai_health_assistant", FeatureFlag.builder()
             .name("ai_health_assistant")
             .enabled(true)
             .strategy(RolloutStrategy.USER_IDS)
             .targetUserIds(new HashSet<>(Arrays.asList("user1", "user2")))
-            .build());
+            .build()
+            .frozen());
             
-        flags.put("voice_integration", FeatureFlag.builder()
+        defaults.put("voice_integration", FeatureFlag.builder()
             .name("voice_integration")
             .enabled(false)
             .strategy(RolloutStrategy.NONE)
-            .build());
+            .build()
+            .frozen());
+
+        defaultFlags = Map.copyOf(defaults);
+        snapshot = new FlagSnapshot(defaultFlags, -1);
     }
 
     private void startFlagPolling() {
-        // Start background thread for polling Redis for flag updates
-        // Implementation would involve @Scheduled or async processing
+        // Push: reload as soon as any node publishes a change
+        listenerContainer.addMessageListener((message, pattern) -> refreshQuietly(),
+            new ChannelTopic(FEATURE_FLAGS_CHANNEL));
+
+        // Pull: pollFlagVersion() covers messages missed while disconnected
+        refreshQuietly();
+    }
+
+    /**
+     * Reload when the version key in Redis differs from the local snapshot
+     */
+    @Scheduled(fixedDelayString = "${app.feature-flags.poll-interval:60}", timeUnit = TimeUnit.SECONDS)
+    public void pollFlagVersion() {
+        try {
+            if (readVersion() != snapshot.version()) {
+                refreshFlags();
+            }
+        } catch (Exception e) {
+            log.warn("Feature flag version poll failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuild the snapshot from Redis, with Redis flags overriding the defaults
+     */
+    public void refreshFlags() {
+        synchronized (refreshLock) {
+            // Read the version first; a concurrent update then only causes one extra reload
+            long version = readVersion();
+            Map<Object, Object> stored = redisTemplate.opsForHash().entries(FEATURE_FLAGS_KEY);
+
+            Map<String, FeatureFlag> merged = new HashMap<>(defaultFlags);
+            for (Map.Entry<Object, Object> entry : stored.entrySet()) {
+                try {
+                    FeatureFlag flag = objectMapper.readValue(String.valueOf(entry.getValue()), FeatureFlag.class);
+                    merged.put(String.valueOf(entry.getKey()), flag.frozen());
+                } catch (JsonProcessingException | IllegalArgumentException e) {
+                    log.error("Ignoring unreadable feature flag {}: {}", entry.getKey(), e.getMessage());
+                }
+            }
+
+            snapshot = new FlagSnapshot(Map.copyOf(merged), version);
+            log.debug("Feature flag snapshot refreshed to version {} with {} flags", version, merged.size());
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refreshFlags();
+        } catch (Exception e) {
+            log.warn("Feature flag refresh failed, keeping version {}: {}", snapshot.version(), e.getMessage());
+        }
+    }
+
+    private long readVersion() {
+        Object version = redisTemplate.opsForValue().get(FEATURE_FLAGS_VERSION_KEY);
+        return version != null ? Long.parseLong(version.toString()) : 0;
     }
 
     /**
      * Update feature flag
      */
     public void updateFlag(FeatureFlag flag) {
-        flags.put(flag.getName(), flag);
-        redisTemplate.opsForValue().set(FEATURE_FLAG_PREFIX + flag.getName(), flag);
-        log.info("Updated feature flag: {}", flag.getName());
+        // Compile first so invalid targeting rules never reach Redis
+        FeatureFlag compiled = flag.frozen();
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(flag);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize feature flag: " + flag.getName(), e);
+        }
+
+        redisTemplate.opsForHash().put(FEATURE_FLAGS_KEY, flag.getName(), json);
+        Long version = redisTemplate.opsForValue().increment(FEATURE_FLAGS_VERSION_KEY);
+        redisTemplate.convertAndSend(FEATURE_FLAGS_CHANNEL, String.valueOf(version));
+
+        // Apply locally right away; the pub/sub echo brings the version up to date
+        synchronized (refreshLock) {
+            Map<String, FeatureFlag> updated = new HashMap<>(snapshot.flags());
+            updated.put(flag.getName(), compiled);
+            snapshot = new FlagSnapshot(Map.copyOf(updated), snapshot.version());
+        }
+        log.info("Updated feature flag: {} (version {})", flag.getName(), version);
     }
 
     /**
      * Get all feature flags
      */
     public Map<String, FeatureFlag> getAllFlags() {
-        return new HashMap<>(flags);
+        return new HashMap<>(snapshot.flags());
+    }
+
+    /**
+     * Flags for offline evaluation by the mobile and desktop clients. Rollout groups are
+     * shipped as rules with each flag's bucket seed; USER_IDS flags are resolved here for
+     * the requesting user so target lists never leave the server.
+     */
+    public ClientFlagSnapshot getClientSnapshot(String userId) {
+        FlagSnapshot current = snapshot;
+        Map<String, ClientFlag> flags = new TreeMap<>();
+        for (FeatureFlag flag : current.flags().values()) {
+            boolean userTargeted = flag.getStrategy() == RolloutStrategy.USER_IDS;
+            flags.put(flag.getName(), ClientFlag.builder()
+                .enabled(flag.isEnabled() && (!userTargeted || (userId != null && flag.getTargetUserIds().contains(userId))))
+                .strategy(userTargeted ? (flag.isEnabled() ? RolloutStrategy.ALL : RolloutStrategy.NONE) : flag.getStrategy())
+                .percentage(flag.getPercentage())
+                .bucketSeed(flag.bucketSeed)
+                .rolloutGroups(flag.getRolloutGroups())
+                .build());
+        }
+
+        return ClientFlagSnapshot.builder()
+            .version(current.version())
+            .bucketing("murmur3_x86_32(utf8(userId), bucketSeed) mod " + FlagTargeting.BUCKETS
+                + " < percentage * 100")
+            .flags(flags)
+            .build();
     }
 
     /**
-     * Record flag metrics
+     * Record an exposure evaluated outside isEnabled, e.g. by a client-side snapshot
      */
     public void recordFlagMetric(String flagName, String userId, boolean enabled) {
-        String metricKey = FLAG_METRICS_PREFIX + flagName;
-        Map<String, Object> metrics = (Map<String, Object>) redisTemplate.opsForValue().get(metricKey);
-        
-        if (metrics == null) {
-            metrics = new HashMap<>();
-            metrics.put("totalUsers", 0);
-            metrics.put("enabledUsers", 0);
+        if (snapshot.flags().containsKey(flagName)) {
+            metricsFor(flagName).record(enabled, -1);
         }
-        
-        metrics.put("totalUsers", ((Integer) metrics.get("totalUsers")) + 1);
-        if (enabled) {
-            metrics.put("enabledUsers", ((Integer) metrics.get("enabledUsers")) + 1);
+    }
+
+    private FlagMetrics metricsFor(String flagName) {
+        FlagMetrics flagMetrics = metrics.get(flagName);
+        return flagMetrics != null ? flagMetrics : metrics.computeIfAbsent(flagName, name -> new FlagMetrics());
+    }
+
+    /**
+     * Ship counts accumulated since the last flush to this node's Redis hashes in one pipeline
+     */
+    @Scheduled(fixedDelayString = "${app.feature-flags.metrics-flush-ms:5000}")
+    public void flushFlagMetrics() {
+        List<MetricsDelta> deltas = new ArrayList<>();
+        metrics.forEach((flagName, flagMetrics) -> {
+            MetricsDelta delta = flagMetrics.drain(flagName);
+            if (!delta.isEmpty()) {
+                deltas.add(delta);
+            }
+        });
+        if (deltas.isEmpty()) {
+            return;
         }
-        
-        redisTemplate.opsForValue().set(metricKey, metrics, 24, TimeUnit.HOURS);
+
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                byte[] nodesKey = bytes(FLAG_METRICS_NODES_KEY);
+                connection.setCommands().sAdd(nodesKey, bytes(nodeId));
+                connection.keyCommands().expire(nodesKey, FLAG_METRICS_TTL_SECONDS);
+
+                for (MetricsDelta delta : deltas) {
+                    byte[] key = bytes(metricsKey(delta.flagName(), nodeId));
+                    if (delta.enabled() != 0) {
+                        connection.hashCommands().hIncrBy(key, bytes(VARIANT_ON), delta.enabled());
+                    }
+                    if (delta.disabled() != 0) {
+                        connection.hashCommands().hIncrBy(key, bytes(VARIANT_OFF), delta.disabled());
+                    }
+                    long[] latency = delta.latency();
+                    for (int i = 0; i < latency.length; i++) {
+                        if (latency[i] != 0) {
+                            connection.hashCommands().hIncrBy(key, bytes(LATENCY_FIELD_PREFIX + i), latency[i]);
+                        }
+                    }
+                    connection.keyCommands().expire(key, FLAG_METRICS_TTL_SECONDS);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            // Keep the counts for the next flush rather than losing them
+            deltas.forEach(delta -> metricsFor(delta.flagName()).restore(delta));
+            log.warn("Feature flag metrics flush failed for {} flags: {}", deltas.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Exposure counts and evaluation latency of a flag, merged across every node
+     */
+    public FlagMetricsReport getFlagMetrics(String flagName) {
+        long enabled = 0;
+        long disabled = 0;
+        long[] latency = new long[LogLinearHistogram.BUCKET_COUNT];
+        Map<String, Long> exposuresByNode = new TreeMap<>();
+
+        Set<Object> nodes = redisTemplate.opsForSet().members(FLAG_METRICS_NODES_KEY);
+        for (Object node : nodes != null ? nodes : Set.of()) {
+            Map<Object, Object> fields = redisTemplate.opsForHash().entries(metricsKey(flagName, node.toString()));
+            if (fields.isEmpty()) {
+                continue;
+            }
+
+            long nodeExposures = 0;
+            for (Map.Entry<Object, Object> field : fields.entrySet()) {
+                String name = field.getKey().toString();
+                long value = Long.parseLong(field.getValue().toString());
+                if (VARIANT_ON.equals(name)) {
+                    enabled += value;
+                    nodeExposures += value;
+                } else if (VARIANT_OFF.equals(name)) {
+                    disabled += value;
+                    nodeExposures += value;
+                } else if (name.startsWith(LATENCY_FIELD_PREFIX)) {
+                    int bucket = Integer.parseInt(name.substring(LATENCY_FIELD_PREFIX.length()));
+                    if (bucket >= 0 && bucket < latency.length) {
+                        latency[bucket] += value;
+                    }
+                }
+            }
+            exposuresByNode.put(node.toString(), nodeExposures);
+        }
+
+        long total = enabled + disabled;
+        return FlagMetricsReport.builder()
+            .flagName(flagName)
+            .exposures(total)
+            .enabledExposures(enabled)
+            .disabledExposures(disabled)
+            .enabledRatio(total > 0 ? (double) enabled / total : 0.0)
+            .latencyP50Nanos(LogLinearHistogram.percentile(latency, 50))
+            .latencyP99Nanos(LogLinearHistogram.percentile(latency, 99))
+            .latencyMaxNanos(LogLinearHistogram.percentile(latency, 100))
+            .exposuresByNode(exposuresByNode)
+            .build();
+    }
+
+    /**
+     * Merged metrics for every known flag
+     */
+    public List<FlagMetricsReport> getAllFlagMetrics() {
+        return snapshot.flags().keySet().stream()
+            .sorted()
+            .map(this::getFlagMetrics)
+            .toList();
+    }
+
+    private static String metricsKey(String flagName, String node) {
+        return FLAG_METRICS_PREFIX + flagName + ":" + node;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final class FlagMetrics {
+        private final LongAdder enabled = new LongAdder();
+        private final LongAdder disabled = new LongAdder();
+        private final LogLinearHistogram latency = new LogLinearHistogram();
+
+        void record(boolean on, long latencyNanos) {
+            (on ? enabled : disabled).increment();
+            if (latencyNanos >= 0) {
+                latency.record(latencyNanos);
+            }
+        }
+
+        MetricsDelta drain(String flagName) {
+            return new MetricsDelta(flagName, enabled.sumThenReset(), disabled.sumThenReset(), latency.drain());
+        }
+
+        void restore(MetricsDelta delta) {
+            enabled.add(delta.enabled());
+            disabled.add(delta.disabled());
+            latency.restore(delta.latency());
+        }
+    }
+
+    private record MetricsDelta(String flagName, long enabled, long disabled, long[] latency) {
+        boolean isEmpty() {
+            return enabled == 0 && disabled == 0 && Arrays.stream(latency).allMatch(count -> count == 0);
+        }
+    }
+
+    @Data
+    @Builder
+    public static class FlagMetricsReport {
+        private String flagName;
+        private long exposures;
+        private long enabledExposures;
+        private long disabledExposures;
+        private double enabledRatio;
+        private long latencyP50Nanos;
+        private long latencyP99Nanos;
+        private long latencyMaxNanos;
+        private Map<String, Long> exposuresByNode;
+    }
+
+    @Data
+    @Builder
+    public static class ClientFlagSnapshot {
+        private long version;
+        private String bucketing;
+        private Map<String, ClientFlag> flags;
+    }
+
+    @Data
+    @Builder
+    public static class ClientFlag {
+        private boolean enabled;
+        private RolloutStrategy strategy;
+        private double percentage;
+        private int bucketSeed;
+        private List<FlagTargeting.RolloutGroup> rolloutGroups;
+    }
+
+    /**
+     * Immutable view of every flag, swapped as a whole on change
+     */
+    private record FlagSnapshot(Map<String, FeatureFlag> flags, long version) {
     }
 
     // Inner classes
+    @JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY,
+                    getterVisibility = JsonAutoDetect.Visibility.NONE,
+                    isGetterVisibility = JsonAutoDetect.Visibility.NONE)
     public static class FeatureFlag {
         private String name;
         private boolean enabled;
@@ -176,9 +486,16 @@ public class FeatureFlagService {
         private double percentage;
         private Set<String> targetUserIds;
         private Map<String, Object> attributes;
+        private List<FlagTargeting.RolloutGroup> rolloutGroups;
         private LocalDateTime createdAt;
         private LocalDateTime updatedAt;
 
+        // Derived by frozen(), never serialized
+        @JsonIgnore
+        private transient FlagTargeting.CompiledGroup[] compiledGroups = new FlagTargeting.CompiledGroup[0];
+        @JsonIgnore
+        private transient int bucketSeed;
+
         public static class Builder {
             private FeatureFlag flag = new FeatureFlag();
 
@@ -212,6 +529,11 @@ public class FeatureFlagService {
                 return this;
             }
 
+            public Builder rolloutGroups(List<FlagTargeting.RolloutGroup> rolloutGroups) {
+                flag.rolloutGroups = rolloutGroups;
+                return this;
+            }
+
             public FeatureFlag build() {
                 flag.createdAt = LocalDateTime.now();
                 flag.updatedAt = LocalDateTime.now();
@@ -223,6 +545,26 @@ public class FeatureFlagService {
             return new Builder();
         }
 
+        /**
+         * Defensive copy with immutable collections and compiled targeting rules, safe to
+         * share through the snapshot
+         */
+        FeatureFlag frozen() {
+            FeatureFlag copy = new FeatureFlag();
+            copy.name = name;
+            copy.enabled = enabled;
+            copy.strategy = strategy != null ? strategy : RolloutStrategy.NONE;
+            copy.percentage = percentage;
+            copy.targetUserIds = targetUserIds != null ? Set.copyOf(targetUserIds) : Set.of();
+            copy.attributes = attributes != null ? Collections.unmodifiableMap(new HashMap<>(attributes)) : Map.of();
+            copy.rolloutGroups = rolloutGroups != null ? List.copyOf(rolloutGroups) : List.of();
+            copy.compiledGroups = FlagTargeting.compile(copy.rolloutGroups);
+            copy.bucketSeed = FlagTargeting.seedFor(name != null ? name : "");
+            copy.createdAt = createdAt;
+            copy.updatedAt = updatedAt;
+            return copy;
+        }
+
         // Getters and setters
         public String getName() { return name; }
         public boolean isEnabled() { return enabled; }
@@ -230,6 +572,7 @@ public class FeatureFlagService {
         public double getPercentage() { return percentage; }
         public Set<String> getTargetUserIds() { return targetUserIds; }
         public Map<String, Object> getAttributes() { return attributes; }
+        public List<FlagTargeting.RolloutGroup> getRolloutGroups() { return rolloutGroups; }
         public LocalDateTime getCreatedAt() { return createdAt; }
         public LocalDateTime getUpdatedAt() { return updatedAt; }
     }
@@ -246,6 +589,7 @@ public class FeatureFlagService {
         private String userId;
         private String deviceType;
         private String location;
+        private String role;
         private Map<String, Object> attributes;
 
         // Constructors, getters, and setters
@@ -255,6 +599,8 @@ public class FeatureFlagService {
         public void setDeviceType(String deviceType) { this.deviceType = deviceType; }
         public String getLocation() { return location; }
         public void setLocation(String location) { this.location = location; }
+        public String getRole() { return role; }
+        public void setRole(String role) { this.role = role; }
         public Map<String, Object> getAttributes() { return attributes; }
         public void setAttributes(Map<String, Object> attributes) { this.attributes = attributes; }
     }
@@ -1,17 +1,35 @@
 package com.gynaid.backend.service;
 
+import com.gynaid.backend.entity.EncryptionDataKey;
+import com.gynaid.backend.repository.EncryptionDataKeyRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.crypto.AEADBadTagException;
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -26,6 +44,25 @@ import java.util.Set;
  * - Secure key management with rotation support
  * - Base64 encoding for database storage
  * - Performance optimized for healthcare applications
+ *
+ * Cipher.getInstance and SecureRandom seeding are too slow to repeat on every PHI
+ * read and write, so each thread keeps its own Cipher, a DRBG for IVs and scratch
+ * buffers that ciphertexts are Base64-decoded and decrypted into. Plaintext left in
+ * the scratch buffers is wiped after each call.
+ *
+ * Envelope encryption: values are encrypted with a data key, and data keys are stored
+ * wrapped by the configured master key. Each ciphertext starts with a versioned header
+ * naming its data key ("gx1$<dataKeyId>$"), authenticated as GCM associated data, so
+ * keys can rotate online: a master key change only rewraps the data key rows, and a
+ * data key rotation is followed by PhiReencryptionService rewriting old values in the
+ * background. Unwrapped data keys are kept in a small LRU cache. Values without a
+ * header were encrypted directly with a master key before envelopes were introduced
+ * and still decrypt.
+ *
+ * The master key must be configured and shared by every node. Only the dev profile,
+ * whose database is thrown away on shutdown, may run on a generated key; anywhere
+ * else a missing key, or an active data key the master key cannot unwrap, stops
+ * startup rather than orphaning the PHI already written.
  */
 @Slf4j
 @Service
@@ -38,6 +75,11 @@ public class FieldLevelEncryptionService {
     private static final int GCM_TAG_LENGTH = 16; // 128 bits
     private static final String KEY_ALGORITHM = "AES";
     private static final int KEY_LENGTH = 256; // 256 bits
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024; // larger fields get one-off buffers
+    private static final String HEADER_PREFIX = "gx1$";
+    private static final char HEADER_END = '$';
+
+    private static final ThreadLocal<CipherContext> CIPHER_CONTEXT = ThreadLocal.withInitial(CipherContext::new);
 
     // Field types that require encryption
     private static final Set<String> ENCRYPTED_FIELD_TYPES = Set.of(
@@ -50,36 +92,180 @@ public class FieldLevelEncryptionService {
         "payment_info"
     );
 
+    private final EncryptionDataKeyRepository dataKeyRepository;
     private final SecretKey encryptionKey;
     private final String keyVersion;
+    // Current master key first, then retired versions still needed for unwrapping
+    private final Map<String, SecretKey> masterKeys = new LinkedHashMap<>();
+    private final Map<Long, DataKey> dataKeyCache;
+    private volatile DataKey activeDataKey;
 
     public FieldLevelEncryptionService(
+            EncryptionDataKeyRepository dataKeyRepository,
+            Environment environment,
             @Value("${gynaid.encryption.key:}") String keyString,
-            @Value("${gynaid.encryption.key.version:v1}") String keyVersion) {
+            @Value("${gynaid.encryption.key.version:v1}") String keyVersion,
+            @Value("${gynaid.encryption.retired-keys:}") String retiredKeys,
+            @Value("${gynaid.encryption.data-key-cache-size:64}") int dataKeyCacheSize) {
+        this.dataKeyRepository = dataKeyRepository;
         this.keyVersion = keyVersion;
-        this.encryptionKey = initializeEncryptionKey(keyString);
+        this.encryptionKey = initializeEncryptionKey(keyString, environment.acceptsProfiles(Profiles.of("dev")));
+        this.masterKeys.put(keyVersion, encryptionKey);
+        parseRetiredKeys(retiredKeys);
+        this.dataKeyCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, DataKey> eldest) {
+                return size() > dataKeyCacheSize;
+            }
+        });
     }
 
     /**
-     * Initialize encryption key from configuration
+     * Retired master keys as "version:base64Key" pairs, comma separated
      */
-    private SecretKey initializeEncryptionKey(String keyString) {
-        try {
-            if (keyString == null || keyString.trim().isEmpty()) {
-                log.warn("No encryption key provided, generating temporary key");
-                return generateNewKey();
+    private void parseRetiredKeys(String retiredKeys) {
+        if (retiredKeys == null || retiredKeys.isBlank()) {
+            return;
+        }
+        for (String entry : retiredKeys.split(",")) {
+            int separator = entry.indexOf(':');
+            if (separator <= 0) {
+                log.error("Ignoring malformed retired encryption key entry");
+                continue;
             }
-
-            byte[] keyBytes = Base64.getDecoder().decode(keyString);
+            String version = entry.substring(0, separator).trim();
+            byte[] keyBytes = Base64.getDecoder().decode(entry.substring(separator + 1).trim());
             if (keyBytes.length != KEY_LENGTH / 8) {
-                throw new IllegalArgumentException("Invalid key length. Expected 256 bits (32 bytes)");
+                log.error("Ignoring retired encryption key {}: expected 256 bits", version);
+                continue;
             }
+            masterKeys.putIfAbsent(version, new SecretKeySpec(keyBytes, KEY_ALGORITHM));
+        }
+    }
 
-            return new SecretKeySpec(keyBytes, KEY_ALGORITHM);
+    /**
+     * Rewrap data keys still wrapped by a retired master key, then load or create the
+     * active data key
+     */
+    @PostConstruct
+    public void initializeDataKeys() {
+        rewrapDataKeys();
+
+        EncryptionDataKey active = dataKeyRepository.findFirstByActiveTrueOrderByIdDesc().orElse(null);
+        if (active == null) {
+            rotateDataKey();
+            return;
+        }
+        try {
+            activeDataKey = loadDataKey(active);
         } catch (Exception e) {
-            log.error("Failed to initialize encryption key, generating new key", e);
+            // Rotating here would leave every value under the old key undecryptable
+            throw new IllegalStateException("Active data key " + active.getId()
+                + " cannot be unwrapped with master key " + active.getMasterKeyVersion()
+                + "; check gynaid.encryption.key and gynaid.encryption.retired-keys", e);
+        }
+        log.info("Using PHI data key {} wrapped by master key {}", active.getId(), keyVersion);
+    }
+
+    private void rewrapDataKeys() {
+        for (EncryptionDataKey dataKey : dataKeyRepository.findByMasterKeyVersionNot(keyVersion)) {
+            SecretKey previous = masterKeys.get(dataKey.getMasterKeyVersion());
+            if (previous == null) {
+                log.error("Data key {} is wrapped by master key {} which is not configured in retired-keys",
+                          dataKey.getId(), dataKey.getMasterKeyVersion());
+                continue;
+            }
+            try {
+                SecretKey key = unwrap(dataKey.getWrappedKey(), previous, dataKey.getMasterKeyVersion());
+                dataKey.setWrappedKey(wrap(key, encryptionKey, keyVersion));
+                dataKey.setMasterKeyVersion(keyVersion);
+                dataKeyRepository.save(dataKey);
+                log.info("Rewrapped data key {} under master key {}", dataKey.getId(), keyVersion);
+            } catch (Exception e) {
+                log.error("Failed to rewrap data key {}", dataKey.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * Create a new active data key; values under older keys are re-encrypted in the background
+     */
+    @Transactional
+    public long rotateDataKey() {
+        LocalDateTime now = LocalDateTime.now();
+        SecretKey key = newDataKey();
+        EncryptionDataKey saved = dataKeyRepository.save(EncryptionDataKey.builder()
+            .wrappedKey(wrap(key, encryptionKey, keyVersion))
+            .masterKeyVersion(keyVersion)
+            .active(true)
+            .createdAt(now)
+            .build());
+        dataKeyRepository.retireAllExcept(saved.getId(), now);
+
+        DataKey dataKey = new DataKey(saved.getId(), key);
+        dataKeyCache.put(dataKey.id(), dataKey);
+        activeDataKey = dataKey;
+        log.info("Rotated PHI data key, active key is now {}", saved.getId());
+        return saved.getId();
+    }
+
+    /**
+     * Pick up a data key rotated on another node
+     */
+    @Scheduled(fixedDelayString = "${gynaid.encryption.data-key-refresh-ms:60000}")
+    public void refreshActiveDataKey() {
+        try {
+            dataKeyRepository.findFirstByActiveTrueOrderByIdDesc()
+                .filter(row -> activeDataKey == null || row.getId() != activeDataKey.id())
+                .ifPresent(row -> {
+                    activeDataKey = dataKey(row.getId());
+                    log.info("Switched to PHI data key {}", row.getId());
+                });
+        } catch (Exception e) {
+            log.warn("Failed to refresh active data key: {}", e.getMessage());
+        }
+    }
+
+    public long getActiveDataKeyId() {
+        return activeDataKey.id();
+    }
+
+    /**
+     * Key derived from the current master key for another purpose, e.g. blind indexes
+     */
+    byte[] deriveSubkey(String purpose) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(encryptionKey);
+            return mac.doFinal(purpose.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to derive key for " + purpose, e);
+        }
+    }
+
+    /**
+     * Initialize encryption key from configuration; a temporary key is only allowed in dev
+     */
+    private SecretKey initializeEncryptionKey(String keyString, boolean devProfile) {
+        if (keyString == null || keyString.trim().isEmpty()) {
+            if (!devProfile) {
+                throw new IllegalStateException(
+                    "gynaid.encryption.key is not configured; PHI cannot be encrypted with a temporary key");
+            }
+            log.warn("No encryption key provided, generating temporary key for the dev profile");
             return generateNewKey();
         }
+
+        byte[] keyBytes;
+        try {
+            keyBytes = Base64.getDecoder().decode(keyString.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("gynaid.encryption.key is not valid Base64", e);
+        }
+        if (keyBytes.length != KEY_LENGTH / 8) {
+            throw new IllegalStateException("Invalid gynaid.encryption.key length. Expected 256 bits (32 bytes)");
+        }
+        return new SecretKeySpec(keyBytes, KEY_ALGORITHM);
     }
 
     /**
@@ -103,6 +289,68 @@ public class FieldLevelEncryptionService {
         }
     }
 
+    private SecretKey newDataKey() {
+        byte[] keyBytes = new byte[KEY_LENGTH / 8];
+        CIPHER_CONTEXT.get().random.nextBytes(keyBytes);
+        return new SecretKeySpec(keyBytes, KEY_ALGORITHM);
+    }
+
+    private DataKey dataKey(long id) {
+        DataKey active = activeDataKey;
+        if (active != null && active.id() == id) {
+            return active;
+        }
+        DataKey cached = dataKeyCache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        EncryptionDataKey row = dataKeyRepository.findById(id)
+            .orElseThrow(() -> new IllegalStateException("Unknown data key: " + id));
+        DataKey loaded = loadDataKey(row);
+        dataKeyCache.put(id, loaded);
+        return loaded;
+    }
+
+    private DataKey loadDataKey(EncryptionDataKey row) {
+        SecretKey master = masterKeys.get(row.getMasterKeyVersion());
+        if (master == null) {
+            throw new IllegalStateException("Master key " + row.getMasterKeyVersion() + " is not configured");
+        }
+        return new DataKey(row.getId(), unwrap(row.getWrappedKey(), master, row.getMasterKeyVersion()));
+    }
+
+    private String wrap(SecretKey dataKey, SecretKey masterKey, String masterVersion) {
+        try {
+            CipherContext context = CIPHER_CONTEXT.get();
+            byte[] combined = new byte[GCM_IV_LENGTH + KEY_LENGTH / 8 + GCM_TAG_LENGTH];
+            context.random.nextBytes(context.iv);
+            System.arraycopy(context.iv, 0, combined, 0, GCM_IV_LENGTH);
+
+            Cipher cipher = context.cipher;
+            cipher.init(Cipher.ENCRYPT_MODE, masterKey, new GCMParameterSpec(GCM_TAG_LENGTH * 8, context.iv));
+            cipher.updateAAD(("dek:" + masterVersion).getBytes(StandardCharsets.UTF_8));
+            byte[] keyBytes = dataKey.getEncoded();
+            cipher.doFinal(keyBytes, 0, keyBytes.length, combined, GCM_IV_LENGTH);
+            return Base64.getEncoder().encodeToString(combined);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to wrap data key", e);
+        }
+    }
+
+    private SecretKey unwrap(String wrappedKey, SecretKey masterKey, String masterVersion) {
+        try {
+            byte[] combined = Base64.getDecoder().decode(wrappedKey);
+            Cipher cipher = CIPHER_CONTEXT.get().cipher;
+            cipher.init(Cipher.DECRYPT_MODE, masterKey,
+                new GCMParameterSpec(GCM_TAG_LENGTH * 8, combined, 0, GCM_IV_LENGTH));
+            cipher.updateAAD(("dek:" + masterVersion).getBytes(StandardCharsets.UTF_8));
+            byte[] keyBytes = cipher.doFinal(combined, GCM_IV_LENGTH, combined.length - GCM_IV_LENGTH);
+            return new SecretKeySpec(keyBytes, KEY_ALGORITHM);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to unwrap data key", e);
+        }
+    }
+
     /**
      * Encrypt sensitive field data
      */
@@ -117,20 +365,7 @@ public class FieldLevelEncryptionService {
         }
 
         try {
-            byte[] iv = generateIV();
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            GCMParameterSpec gcmSpec = new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv);
-            cipher.init(Cipher.ENCRYPT_MODE, encryptionKey, gcmSpec);
-
-            byte[] encryptedData = cipher.doFinal(plainText.getBytes());
-            
-            // Combine IV + encrypted data + tag
-            byte[] combined = new byte[iv.length + encryptedData.length];
-            System.arraycopy(iv, 0, combined, 0, iv.length);
-            System.arraycopy(encryptedData, 0, combined, iv.length, encryptedData.length);
-
-            String base64Encrypted = Base64.getEncoder().encodeToString(combined);
-            
+            String base64Encrypted = encrypt(CIPHER_CONTEXT.get(), plainText);
             log.debug("Successfully encrypted field type: {}", fieldType);
             return base64Encrypted;
 
@@ -154,35 +389,237 @@ public class FieldLevelEncryptionService {
         }
 
         try {
-            byte[] combined = Base64.getDecoder().decode(encryptedData);
-            
-            if (combined.length < GCM_IV_LENGTH) {
-                throw new IllegalArgumentException("Invalid encrypted data format");
+            String plainText = decrypt(CIPHER_CONTEXT.get(), encryptedData);
+            log.debug("Successfully decrypted field type: {}", fieldType);
+            return plainText;
+
+        } catch (Exception e) {
+            log.error("Failed to decrypt field type: {}", fieldType, e);
+            throw new RuntimeException("Decryption failed", e);
+        }
+    }
+
+    /**
+     * Encrypt a batch of values of one field type, e.g. for list endpoints.
+     * Null and blank values are returned unchanged, in the same positions.
+     */
+    public List<String> encryptAll(String fieldType, List<String> plainTexts) {
+        if (plainTexts == null || plainTexts.isEmpty() || !ENCRYPTED_FIELD_TYPES.contains(fieldType)) {
+            return plainTexts;
+        }
+
+        CipherContext context = CIPHER_CONTEXT.get();
+        List<String> encrypted = new ArrayList<>(plainTexts.size());
+        try {
+            for (String plainText : plainTexts) {
+                encrypted.add(plainText == null || plainText.trim().isEmpty() ? plainText : encrypt(context, plainText));
             }
+        } catch (Exception e) {
+            log.error("Failed to encrypt batch of field type: {}", fieldType, e);
+            throw new RuntimeException("Encryption failed", e);
+        }
+        log.debug("Successfully encrypted {} values of field type: {}", encrypted.size(), fieldType);
+        return encrypted;
+    }
 
-            // Extract IV and encrypted data
-            byte[] iv = new byte[GCM_IV_LENGTH];
-            byte[] cipherText = new byte[combined.length - GCM_IV_LENGTH];
-            
-            System.arraycopy(combined, 0, iv, 0, GCM_IV_LENGTH);
-            System.arraycopy(combined, GCM_IV_LENGTH, cipherText, 0, cipherText.length);
+    /**
+     * Decrypt a batch of values of one field type, e.g. for list endpoints.
+     * Null and blank values are returned unchanged, in the same positions.
+     */
+    public List<String> decryptAll(String fieldType, List<String> encryptedValues) {
+        if (encryptedValues == null || encryptedValues.isEmpty() || !ENCRYPTED_FIELD_TYPES.contains(fieldType)) {
+            return encryptedValues;
+        }
 
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            GCMParameterSpec gcmSpec = new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv);
-            cipher.init(Cipher.DECRYPT_MODE, encryptionKey, gcmSpec);
+        CipherContext context = CIPHER_CONTEXT.get();
+        List<String> decrypted = new ArrayList<>(encryptedValues.size());
+        try {
+            for (String encryptedData : encryptedValues) {
+                decrypted.add(encryptedData == null || encryptedData.trim().isEmpty()
+                    ? encryptedData : decrypt(context, encryptedData));
+            }
+        } catch (Exception e) {
+            log.error("Failed to decrypt batch of field type: {}", fieldType, e);
+            throw new RuntimeException("Decryption failed", e);
+        }
+        log.debug("Successfully decrypted {} values of field type: {}", decrypted.size(), fieldType);
+        return decrypted;
+    }
 
-            byte[] decryptedData = cipher.doFinal(cipherText);
-            String plainText = new String(decryptedData);
-            
-            log.debug("Successfully decrypted field type: {}", fieldType);
+    /**
+     * Encrypt a PHI column value regardless of field type; used by PhiStringConverter
+     */
+    public String encryptValue(String plainText) {
+        if (plainText == null || plainText.trim().isEmpty()) {
             return plainText;
+        }
+        try {
+            return encrypt(CIPHER_CONTEXT.get(), plainText);
+        } catch (Exception e) {
+            log.error("Failed to encrypt PHI value", e);
+            throw new RuntimeException("Encryption failed", e);
+        }
+    }
 
+    /**
+     * Decrypt a stored PHI column value. Header-less values that are not shaped like
+     * legacy ciphertexts were stored before the column was encrypted and are returned
+     * as-is; a ciphertext that no configured key can decrypt fails.
+     */
+    public String decryptValue(String storedValue) {
+        if (storedValue == null || storedValue.trim().isEmpty()) {
+            return storedValue;
+        }
+        try {
+            return decryptStored(CIPHER_CONTEXT.get(), storedValue);
         } catch (Exception e) {
-            log.error("Failed to decrypt field type: {}", fieldType, e);
+            log.error("Failed to decrypt PHI value", e);
             throw new RuntimeException("Decryption failed", e);
         }
     }
 
+    /**
+     * True when the value is a ciphertext under the active data key
+     */
+    public boolean isCurrent(String value) {
+        return value != null && value.startsWith(activeDataKey.header());
+    }
+
+    /**
+     * Re-encrypt a stored value under the active data key; current values are returned
+     * as-is and plaintext stored before encryption is encrypted.
+     */
+    public String reencrypt(String storedValue) {
+        if (storedValue == null || storedValue.trim().isEmpty() || isCurrent(storedValue)) {
+            return storedValue;
+        }
+        try {
+            CipherContext context = CIPHER_CONTEXT.get();
+            return encrypt(context, decryptStored(context, storedValue));
+        } catch (Exception e) {
+            throw new RuntimeException("Re-encryption failed", e);
+        }
+    }
+
+    /**
+     * Header + Base64(IV + ciphertext + tag), under the active data key
+     */
+    private String encrypt(CipherContext context, String plainText) throws Exception {
+        DataKey dataKey = activeDataKey;
+        byte[] plainBytes = plainText.getBytes(StandardCharsets.UTF_8);
+        try {
+            byte[] combined = new byte[GCM_IV_LENGTH + plainBytes.length + GCM_TAG_LENGTH];
+            context.random.nextBytes(context.iv);
+            System.arraycopy(context.iv, 0, combined, 0, GCM_IV_LENGTH);
+
+            Cipher cipher = context.cipher;
+            cipher.init(Cipher.ENCRYPT_MODE, dataKey.key(), new GCMParameterSpec(GCM_TAG_LENGTH * 8, context.iv));
+            cipher.updateAAD(dataKey.aad());
+            cipher.doFinal(plainBytes, 0, plainBytes.length, combined, GCM_IV_LENGTH);
+
+            return dataKey.header() + Base64.getEncoder().encodeToString(combined);
+        } finally {
+            Arrays.fill(plainBytes, (byte) 0);
+        }
+    }
+
+    private String decrypt(CipherContext context, String encryptedData) throws Exception {
+        if (!encryptedData.startsWith(HEADER_PREFIX)) {
+            return decryptLegacy(context, encryptedData);
+        }
+
+        int headerEnd = encryptedData.indexOf(HEADER_END, HEADER_PREFIX.length());
+        if (headerEnd < 0) {
+            throw new IllegalArgumentException("Invalid encrypted data header");
+        }
+        DataKey dataKey = dataKey(Long.parseLong(encryptedData, HEADER_PREFIX.length(), headerEnd, 10));
+        return decrypt(context, dataKey.key(), dataKey.aad(), ascii(encryptedData, headerEnd + 1));
+    }
+
+    private String decryptStored(CipherContext context, String storedValue) throws Exception {
+        if (storedValue.startsWith(HEADER_PREFIX)) {
+            return decrypt(context, storedValue);
+        }
+        if (!looksLikeLegacyCiphertext(storedValue)) {
+            // Plaintext stored before the column was encrypted
+            return storedValue;
+        }
+        try {
+            return decryptLegacy(context, storedValue);
+        } catch (AEADBadTagException e) {
+            throw new IllegalStateException(
+                "Stored PHI value is a ciphertext that no configured master key can decrypt", e);
+        }
+    }
+
+    /**
+     * Base64 of at least IV + tag with nothing else in it. Plaintext with whitespace or
+     * punctuation never matches; a single long Base64-alphabet word would, and fails
+     * decryption loudly instead of being returned as plaintext.
+     */
+    private static boolean looksLikeLegacyCiphertext(String value) {
+        if (value.length() < (GCM_IV_LENGTH + GCM_TAG_LENGTH) * 4 / 3 || value.length() % 4 != 0) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            boolean base64 = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                || c == '+' || c == '/' || (c == '=' && i >= value.length() - 2);
+            if (!base64) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Values written before envelope encryption, under a master key directly
+     */
+    private String decryptLegacy(CipherContext context, String encryptedData) throws Exception {
+        byte[] encoded = encryptedData.getBytes(StandardCharsets.ISO_8859_1);
+        AEADBadTagException failure = null;
+        for (SecretKey masterKey : masterKeys.values()) {
+            try {
+                return decrypt(context, masterKey, null, encoded);
+            } catch (AEADBadTagException e) {
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    private String decrypt(CipherContext context, SecretKey key, byte[] aad, byte[] encoded) throws Exception {
+        byte[] combined = context.input(encoded.length * 3 / 4 + 3);
+        int length = Base64.getDecoder().decode(encoded, combined);
+
+        if (length < GCM_IV_LENGTH + GCM_TAG_LENGTH) {
+            throw new IllegalArgumentException("Invalid encrypted data format");
+        }
+
+        Cipher cipher = context.cipher;
+        cipher.init(Cipher.DECRYPT_MODE, key,
+            new GCMParameterSpec(GCM_TAG_LENGTH * 8, combined, 0, GCM_IV_LENGTH));
+        if (aad != null) {
+            cipher.updateAAD(aad);
+        }
+
+        byte[] plain = context.output(cipher.getOutputSize(length - GCM_IV_LENGTH));
+        int plainLength = cipher.doFinal(combined, GCM_IV_LENGTH, length - GCM_IV_LENGTH, plain, 0);
+        try {
+            return new String(plain, 0, plainLength, StandardCharsets.UTF_8);
+        } finally {
+            Arrays.fill(plain, 0, plainLength, (byte) 0);
+        }
+    }
+
+    private static byte[] ascii(String value, int from) {
+        byte[] bytes = new byte[value.length() - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) value.charAt(from + i);
+        }
+        return bytes;
+    }
+
     /**
      * Check if a field type should be encrypted
      */
@@ -197,16 +634,6 @@ public class FieldLevelEncryptionService {
         return new HashSet<>(ENCRYPTED_FIELD_TYPES);
     }
 
-    /**
-     * Generate random initialization vector
-     */
-    private byte[] generateIV() {
-        byte[] iv = new byte[GCM_IV_LENGTH];
-        SecureRandom random = new SecureRandom();
-        random.nextBytes(iv);
-        return iv;
-    }
-
     /**
      * Validate encryption key configuration
      */
@@ -236,30 +663,6 @@ public class FieldLevelEncryptionService {
         }
     }
 
-    /**
-     * Rotate encryption key (for key management)
-     */
-    public void rotateKey(String newKeyString) {
-        try {
-            SecretKey newKey = initializeEncryptionKey(newKeyString);
-            
-            // In production, this would:
-            // 1. Re-encrypt all existing data with new key
-            // 2. Update key version
-            // 3. Archive old key for decryption
-            // 4. Update configuration
-            
-            log.info("Encryption key rotation initiated. New version: {}", keyVersion + 1);
-            
-            // This would require a migration strategy in production
-            throw new UnsupportedOperationException("Key rotation requires migration strategy implementation");
-            
-        } catch (Exception e) {
-            log.error("Failed to rotate encryption key", e);
-            throw new RuntimeException("Key rotation failed", e);
-        }
-    }
-
     /**
      * Get encryption service statistics
      */
@@ -267,6 +670,7 @@ public class FieldLevelEncryptionService {
         return EncryptionStats.builder()
             .encryptedFieldsCount(ENCRYPTED_FIELD_TYPES.size())
             .keyVersion(keyVersion)
+            .activeDataKeyId(activeDataKey != null ? activeDataKey.id() : null)
             .algorithm(ALGORITHM)
             .transformation(TRANSFORMATION)
             .keyLength(KEY_LENGTH)
@@ -274,6 +678,66 @@ public class FieldLevelEncryptionService {
             .build();
     }
 
+    /**
+     * Unwrapped data key with its precomputed ciphertext header
+     */
+    private record DataKey(long id, SecretKey key, String header, byte[] aad) {
+        DataKey(long id, SecretKey key) {
+            this(id, key, HEADER_PREFIX + id + HEADER_END,
+                 (HEADER_PREFIX + id + HEADER_END).getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * Per-thread cipher, IV generator and scratch buffers
+     */
+    private static final class CipherContext {
+        private final Cipher cipher;
+        private final SecureRandom random;
+        private final byte[] iv = new byte[GCM_IV_LENGTH];
+        private byte[] input = new byte[1024];
+        private byte[] output = new byte[1024];
+
+        CipherContext() {
+            try {
+                cipher = Cipher.getInstance(TRANSFORMATION);
+            } catch (Exception e) {
+                throw new IllegalStateException("AES-GCM is not available", e);
+            }
+            random = newDrbg();
+        }
+
+        byte[] input(int size) {
+            if (size <= input.length) {
+                return input;
+            }
+            byte[] buffer = new byte[size];
+            if (size <= MAX_RETAINED_BUFFER) {
+                input = buffer;
+            }
+            return buffer;
+        }
+
+        byte[] output(int size) {
+            if (size <= output.length) {
+                return output;
+            }
+            byte[] buffer = new byte[size];
+            if (size <= MAX_RETAINED_BUFFER) {
+                output = buffer;
+            }
+            return buffer;
+        }
+
+        private static SecureRandom newDrbg() {
+            try {
+                return SecureRandom.getInstance("DRBG");
+            } catch (NoSuchAlgorithmException e) {
+                return new SecureRandom();
+            }
+        }
+    }
+
     // Data transfer objects
 
     /**
@@ -343,6 +807,7 @@ public class FieldLevelEncryptionService {
     public static class EncryptionStats {
         private int encryptedFieldsCount;
         private String keyVersion;
+        private Long activeDataKeyId;
         private String algorithm;
         private String transformation;
         private int keyLength;
@@ -350,6 +815,7 @@ public class FieldLevelEncryptionService {
 
         public int getEncryptedFieldsCount() { return encryptedFieldsCount; }
         public String getKeyVersion() { return keyVersion; }
+        public Long getActiveDataKeyId() { return activeDataKeyId; }
         public String getAlgorithm() { return algorithm; }
         public String getTransformation() { return transformation; }
         public int getKeyLength() { return keyLength; }
@@ -372,6 +838,11 @@ public class FieldLevelEncryptionService {
                 return this;
             }
 
+            public EncryptionStatsBuilder activeDataKeyId(Long activeDataKeyId) {
+                stats.activeDataKeyId = activeDataKeyId;
+                return this;
+            }
+
             public EncryptionStatsBuilder algorithm(String algorithm) {
                 stats.algorithm = algorithm;
                 return this;
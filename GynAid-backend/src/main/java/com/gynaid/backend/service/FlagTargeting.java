@@ -0,0 +1,236 @@
+package com.gynaid.backend.service;
+
+import com.gynaid.backend.util.MurmurHash3;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Targeting rules for ROLLOUT_GROUPS flags.
+ *
+ * A flag holds rollout groups; a group matches when all of its rules match the
+ * FlagContext, and then enables the flag for a percentage of users in the group.
+ * Rules are compiled once, when the flag enters the snapshot, into a tree of
+ * conditions with attribute accessors and operands already resolved, so evaluating
+ * a flag walks arrays only: no reflection, parsing or lookups in the flag definition.
+ *
+ * Users are bucketed with MurmurHash3 of the user id, seeded per flag, into 10,000
+ * buckets; clients evaluating a snapshot offline must use the same scheme.
+ */
+public final class FlagTargeting {
+
+    public static final int BUCKETS = 10_000;
+
+    private static final FeatureFlagService.FlagContext EMPTY_CONTEXT = new FeatureFlagService.FlagContext();
+
+    private FlagTargeting() {
+    }
+
+    @FunctionalInterface
+    public interface Condition {
+        boolean matches(FeatureFlagService.FlagContext context);
+    }
+
+    public record CompiledGroup(String name, Condition condition, int thresholdBuckets) {
+    }
+
+    /**
+     * Compile rollout groups; invalid rules are rejected with IllegalArgumentException
+     */
+    public static CompiledGroup[] compile(List<RolloutGroup> groups) {
+        if (groups == null || groups.isEmpty()) {
+            return new CompiledGroup[0];
+        }
+
+        CompiledGroup[] compiled = new CompiledGroup[groups.size()];
+        for (int i = 0; i < compiled.length; i++) {
+            RolloutGroup group = groups.get(i);
+            List<TargetingRule> rules = group.getRules() != null ? group.getRules() : List.of();
+            Condition[] conditions = new Condition[rules.size()];
+            for (int r = 0; r < conditions.length; r++) {
+                conditions[r] = compileRule(rules.get(r));
+            }
+            double percentage = Math.min(Math.max(group.getPercentage(), 0), 100);
+            compiled[i] = new CompiledGroup(group.getName(), allOf(conditions), (int) Math.round(percentage * 100));
+        }
+        return compiled;
+    }
+
+    /**
+     * True when the user falls into any matching group's rollout
+     */
+    public static boolean matches(CompiledGroup[] groups, FeatureFlagService.FlagContext context,
+                                  String userId, int seed) {
+        FeatureFlagService.FlagContext target = context != null ? context : EMPTY_CONTEXT;
+        int bucket = -1;
+        for (CompiledGroup group : groups) {
+            if (!group.condition().matches(target)) {
+                continue;
+            }
+            if (group.thresholdBuckets() >= BUCKETS) {
+                return true;
+            }
+            if (userId == null) {
+                continue;
+            }
+            if (bucket < 0) {
+                bucket = MurmurHash3.bucket(userId, seed, BUCKETS);
+            }
+            if (bucket < group.thresholdBuckets()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * True when the user's bucket for the flag falls below the rollout percentage
+     */
+    public static boolean inPercentage(String userId, int seed, double percentage) {
+        return MurmurHash3.bucket(userId, seed, BUCKETS) < Math.round(percentage * 100);
+    }
+
+    public static int seedFor(String flagName) {
+        return MurmurHash3.hash32(flagName, 0);
+    }
+
+    private static Condition compileRule(TargetingRule rule) {
+        if (rule == null || rule.getAttribute() == null || rule.getOperator() == null) {
+            throw new IllegalArgumentException("Targeting rule needs an attribute and an operator");
+        }
+
+        Function<FeatureFlagService.FlagContext, Object> attribute = accessor(rule.getAttribute());
+        String[] values = rule.getValues() != null ? rule.getValues().toArray(new String[0]) : new String[0];
+
+        return switch (rule.getOperator()) {
+            case IN -> context -> anyEquals(attribute.apply(context), values);
+            case NOT_IN -> context -> !anyEquals(attribute.apply(context), values);
+            case EXISTS -> context -> attribute.apply(context) != null;
+            case GREATER_OR_EQUAL -> {
+                double threshold = numericOperand(rule, values);
+                yield context -> compare(attribute.apply(context), threshold) >= 0;
+            }
+            case LESS_OR_EQUAL -> {
+                double threshold = numericOperand(rule, values);
+                yield context -> {
+                    int result = compare(attribute.apply(context), threshold);
+                    return result != Integer.MIN_VALUE && result <= 0;
+                };
+            }
+        };
+    }
+
+    private static Function<FeatureFlagService.FlagContext, Object> accessor(String attribute) {
+        return switch (attribute) {
+            case "userId" -> FeatureFlagService.FlagContext::getUserId;
+            case "deviceType" -> FeatureFlagService.FlagContext::getDeviceType;
+            case "location", "district" -> FeatureFlagService.FlagContext::getLocation;
+            case "role" -> FeatureFlagService.FlagContext::getRole;
+            default -> context -> {
+                Map<String, Object> attributes = context.getAttributes();
+                return attributes != null ? attributes.get(attribute) : null;
+            };
+        };
+    }
+
+    private static Condition allOf(Condition[] conditions) {
+        if (conditions.length == 0) {
+            return context -> true;
+        }
+        if (conditions.length == 1) {
+            return conditions[0];
+        }
+        return context -> {
+            for (Condition condition : conditions) {
+                if (!condition.matches(context)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    private static boolean anyEquals(Object value, String[] values) {
+        if (value == null) {
+            return false;
+        }
+        String text = value.toString();
+        for (String candidate : values) {
+            if (candidate.equalsIgnoreCase(text)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compare a numeric attribute to a threshold; Integer.MIN_VALUE when not numeric
+     */
+    private static int compare(Object value, double threshold) {
+        double number;
+        if (value instanceof Number n) {
+            number = n.doubleValue();
+        } else if (value instanceof String s) {
+            try {
+                number = Double.parseDouble(s);
+            } catch (NumberFormatException e) {
+                return Integer.MIN_VALUE;
+            }
+        } else {
+            return Integer.MIN_VALUE;
+        }
+        return Double.compare(number, threshold);
+    }
+
+    private static double numericOperand(TargetingRule rule, String[] values) {
+        if (values.length != 1) {
+            throw new IllegalArgumentException("Operator " + rule.getOperator() + " needs exactly one value");
+        }
+        try {
+            return Double.parseDouble(values[0]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Operator " + rule.getOperator() + " needs a numeric value");
+        }
+    }
+
+    public enum Operator {
+        IN,
+        NOT_IN,
+        EXISTS,
+        GREATER_OR_EQUAL,
+        LESS_OR_EQUAL
+    }
+
+    /**
+     * Single condition on a context attribute: userId, deviceType, location/district,
+     * role, or any custom attribute name
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TargetingRule {
+        private String attribute;
+        private Operator operator;
+        private List<String> values;
+    }
+
+    /**
+     * Users matching every rule are enabled for the given percentage (0-100)
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RolloutGroup {
+        private String name;
+        private List<TargetingRule> rules;
+        @Builder.Default
+        private double percentage = 100.0;
+    }
+}
@@ -3,10 +3,13 @@ package com.gynaid.backend.service;
 import com.gynaid.backend.dto.client.GynecologicalProfileDto;
 import com.gynaid.backend.entity.User;
 import com.gynaid.backend.entity.client.ClientHealthProfile;
+import com.gynaid.backend.entity.client.CycleStatistics;
 import com.gynaid.backend.entity.client.GynecologicalProfile;
 import com.gynaid.backend.entity.client.MenstruationCycle;
 import com.gynaid.backend.repository.UserRepository;
 import com.gynaid.backend.repository.client.ClientHealthProfileRepository;
+import com.gynaid.backend.repository.client.MenstruationCycleRepository;
+import com.gynaid.backend.service.ai.CyclePredictionService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -23,6 +26,9 @@ public class GynecologicalProfileService {
     
     private final ClientHealthProfileRepository healthProfileRepository;
     private final UserRepository userRepository;
+    private final MenstruationCycleRepository cycleRepository;
+    private final CycleStatisticsService cycleStatisticsService;
+    private final CyclePredictionService cyclePredictionService;
     
     public GynecologicalProfileDto getGynecologicalProfile(String email) {
         User user = userRepository.findByEmail(email)
@@ -63,6 +69,9 @@ public class GynecologicalProfileService {
         healthProfile.setProfileCompletionPercentage(calculateCompletionPercentage(healthProfile));
         
         healthProfile = healthProfileRepository.save(healthProfile);
+        if (dto.getLastPeriodDate() != null || dto.getAverageCycleLength() != null) {
+            cyclePredictionService.invalidate(healthProfile.getGynecologicalProfile().getId());
+        }
         return mapToDto(healthProfile.getGynecologicalProfile());
     }
     
@@ -98,15 +107,29 @@ public class GynecologicalProfileService {
         }
         
         gynProfile.getCycles().add(cycle);
-        healthProfileRepository.save(healthProfile);
+        healthProfileRepository.saveAndFlush(healthProfile);
+        gynProfile.setCycleStatistics(cycleStatisticsService.record(gynProfile.getId(), List.of(
+                new CycleStatisticsService.CycleSample(cycle.getStartDate(), cycle.getCycleLength(), cycle.getPainLevel()))));
+        cyclePredictionService.invalidate(gynProfile.getId());
         
         return mapCycleToDto(cycle);
     }
     
     public List<LocalDate> predictNextPeriods(String email, int monthsAhead) {
-        GynecologicalProfileDto profile = getGynecologicalProfile(email);
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
         
-        if (profile.getLastPeriodDate() == null || profile.getAverageCycleLength() == null) {
+        GynecologicalProfile profile = healthProfileRepository.findByUserId(user.getId())
+                .map(ClientHealthProfile::getGynecologicalProfile)
+                .orElse(null);
+        return predictNextPeriods(profile, monthsAhead);
+    }
+    
+    /**
+     * Predictions from the profile's last period date and average cycle length
+     */
+    public List<LocalDate> predictNextPeriods(GynecologicalProfile profile, int monthsAhead) {
+        if (profile == null || profile.getLastPeriodDate() == null || profile.getAverageCycleLength() == null) {
             return List.of();
         }
         
@@ -170,12 +193,12 @@ public class GynecologicalProfileService {
     }
     
     private GynecologicalProfileDto mapToDto(GynecologicalProfile profile) {
-        List<GynecologicalProfileDto.CycleEntryDto> recentCycles = profile.getCycles() != null ?
-                profile.getCycles().stream()
-                        .sorted((c1, c2) -> c2.getStartDate().compareTo(c1.getStartDate()))
-                        .limit(6)
+        List<GynecologicalProfileDto.CycleEntryDto> recentCycles = profile.getId() != null ?
+                cycleRepository.findTop6ByGynecologicalProfileIdOrderByStartDateDesc(profile.getId()).stream()
                         .map(this::mapCycleToDto)
                         .collect(Collectors.toList()) : List.of();
+        CycleStatistics statistics = profile.getId() != null ?
+                cycleStatisticsService.getStatistics(profile) : CycleStatistics.empty();
         
         return GynecologicalProfileDto.builder()
                 .id(profile.getId())
@@ -195,6 +218,9 @@ public class GynecologicalProfileService {
                 .exerciseFrequency(profile.getExerciseFrequency())
                 .stressLevel(profile.getStressLevel())
                 .recentCycles(recentCycles)
+                .trackedCycles(statistics.getEntries())
+                .meanCycleLength(statistics.getLengthCount() > 0 ? statistics.meanLength(0) : null)
+                .cycleLengthStdDev(statistics.getLengthCount() > 0 ? statistics.standardDeviation() : null)
                 .build();
     }
     
@@ -0,0 +1,392 @@
+package com.gynaid.backend.service;
+
+import com.gynaid.backend.dto.client.HealthSyncDto;
+import com.gynaid.backend.dto.client.HealthSyncDto.RecordDto;
+import com.gynaid.backend.dto.client.HealthSyncDto.RecordResult;
+import com.gynaid.backend.dto.client.HealthSyncDto.RecordStatus;
+import com.gynaid.backend.entity.User;
+import com.gynaid.backend.entity.client.MenstruationCycle;
+import com.gynaid.backend.repository.UserRepository;
+import com.gynaid.backend.service.ai.CyclePredictionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.stream.Stream;
+
+/**
+ * Bulk sync of health records collected offline by the mobile app.
+ *
+ * A batch mixes cycles, vitals and symptoms, each with a client-generated id. The user
+ * and profile ids are resolved once, records are validated in parallel, and the valid
+ * ones are written in one transaction with a JDBC batch per table. Accepted client ids
+ * are recorded in health_sync_records, so re-sending a batch reports its records as
+ * duplicates instead of storing them again; rejected records are not recorded and can
+ * be fixed and re-sent under the same id.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HealthDataSyncService {
+
+    public static final int MAX_BATCH_SIZE = 500;
+
+    private static final int PARALLEL_THRESHOLD = 32;
+    private static final int MAX_CLIENT_ID_LENGTH = 64;
+    private static final int MAX_CYCLE_DAYS = 60;
+    private static final Set<String> BLOOD_TYPES = Set.of("A+", "A-", "B+", "B-", "AB+", "AB-", "O+", "O-");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserRepository userRepository;
+    private final InputValidationService inputValidationService;
+    private final CycleStatisticsService cycleStatisticsService;
+    private final CyclePredictionService cyclePredictionService;
+
+    @Transactional
+    public HealthSyncDto.SyncResult sync(String email, HealthSyncDto batch) {
+        List<RecordDto> records = batch != null && batch.getRecords() != null ? batch.getRecords() : List.of();
+        if (records.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " records can be synced at once");
+        }
+
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        ProfileIds profiles = findProfileIds(user.getId());
+        Set<String> synced = findSyncedClientIds(user.getId(), records);
+
+        // Validation only reads the record, so larger batches use the common pool
+        LocalDateTime now = LocalDateTime.now();
+        Stream<RecordDto> stream = records.size() >= PARALLEL_THRESHOLD ? records.parallelStream() : records.stream();
+        List<ValidatedRecord> validated = stream.map(record -> validate(record, profiles, now)).toList();
+
+        List<RecordResult> results = new ArrayList<>(records.size());
+        List<RecordDto> accepted = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        int duplicates = 0;
+        int rejected = 0;
+        for (ValidatedRecord record : validated) {
+            String clientId = record.clientId();
+            RecordStatus status;
+            if (clientId != null && synced.contains(clientId)) {
+                status = RecordStatus.DUPLICATE;
+            } else if (!record.errors().isEmpty()) {
+                status = RecordStatus.REJECTED;
+            } else if (!seen.add(clientId)) {
+                status = RecordStatus.DUPLICATE;
+            } else {
+                status = RecordStatus.ACCEPTED;
+                accepted.add(record.sanitized());
+            }
+
+            if (status == RecordStatus.DUPLICATE) {
+                duplicates++;
+            } else if (status == RecordStatus.REJECTED) {
+                rejected++;
+            }
+            results.add(RecordResult.builder()
+                    .clientId(clientId)
+                    .status(status)
+                    .errors(status == RecordStatus.REJECTED ? record.errors() : List.of())
+                    .build());
+        }
+
+        write(user.getId(), profiles, accepted, now);
+
+        log.info("Health sync for user {}: {} accepted, {} duplicates, {} rejected",
+                 user.getId(), accepted.size(), duplicates, rejected);
+        return HealthSyncDto.SyncResult.builder()
+                .accepted(accepted.size())
+                .duplicates(duplicates)
+                .rejected(rejected)
+                .results(results)
+                .build();
+    }
+
+    private void write(Long userId, ProfileIds profiles, List<RecordDto> records, LocalDateTime now) {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        Timestamp syncedAt = Timestamp.valueOf(now);
+        List<Object[]> syncRows = new ArrayList<>(records.size());
+        List<Object[]> cycleRows = new ArrayList<>();
+        List<CycleStatisticsService.CycleSample> cycleSamples = new ArrayList<>();
+        List<Object[]> symptomRows = new ArrayList<>();
+        List<RecordDto> vitals = new ArrayList<>();
+
+        for (RecordDto record : records) {
+            Timestamp recordedAt = Timestamp.valueOf(recordedAt(record, now));
+            syncRows.add(new Object[] {userId, record.getClientId(), record.getType().name(), recordedAt, syncedAt});
+            switch (record.getType()) {
+                case CYCLE -> {
+                    Integer cycleLength = record.getEndDate() != null
+                            ? (int) ChronoUnit.DAYS.between(record.getStartDate(), record.getEndDate()) + 1 : null;
+                    cycleSamples.add(new CycleStatisticsService.CycleSample(
+                            record.getStartDate(), cycleLength, record.getPainLevel()));
+                    cycleRows.add(new Object[] {
+                            profiles.gynecologicalProfileId(),
+                            Date.valueOf(record.getStartDate()),
+                            record.getEndDate() != null ? Date.valueOf(record.getEndDate()) : null,
+                            cycleLength,
+                            record.getFlowIntensity(),
+                            record.getSymptoms() != null ? String.join(",", record.getSymptoms()) : null,
+                            record.getMoodNotes(),
+                            record.getPainLevel(),
+                            record.getNotes(),
+                            syncedAt,
+                            syncedAt});
+                }
+                case SYMPTOM -> symptomRows.add(new Object[] {userId, record.getDescription(), recordedAt});
+                case VITALS -> vitals.add(record);
+            }
+        }
+
+        // Idempotency keys first: a concurrent sync of the same ids fails here and rolls back
+        jdbcTemplate.batchUpdate("INSERT INTO health_sync_records "
+                + "(user_id, client_record_id, record_type, recorded_at, synced_at) VALUES (?, ?, ?, ?, ?)", syncRows);
+        if (!cycleRows.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO menstruation_cycles (gynecological_profile_id, start_date, end_date, "
+                    + "cycle_length, flow_intensity, symptoms, mood_notes, pain_level, notes, is_predicted, "
+                    + "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, FALSE, ?, ?)", cycleRows);
+            cycleStatisticsService.record(profiles.gynecologicalProfileId(), cycleSamples);
+            cyclePredictionService.invalidate(profiles.gynecologicalProfileId());
+        }
+        if (!symptomRows.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO symptom_analyses (user_id, symptoms, analyzed_at, "
+                    + "requires_provider_attention) VALUES (?, ?, ?, FALSE)", symptomRows);
+        }
+        if (!vitals.isEmpty()) {
+            writeVitals(profiles.healthProfileId(), vitals, now);
+        }
+    }
+
+    /**
+     * Vitals are one row per profile: readings are applied oldest first, so the latest
+     * value of each measurement wins
+     */
+    private void writeVitals(Long healthProfileId, List<RecordDto> readings, LocalDateTime now) {
+        RecordDto merged = new RecordDto();
+        readings.stream()
+                .sorted(Comparator.comparing(record -> recordedAt(record, now)))
+                .forEach(reading -> {
+                    if (reading.getHeightCm() != null) merged.setHeightCm(reading.getHeightCm());
+                    if (reading.getWeightKg() != null) merged.setWeightKg(reading.getWeightKg());
+                    if (reading.getBloodPressureSystolic() != null) merged.setBloodPressureSystolic(reading.getBloodPressureSystolic());
+                    if (reading.getBloodPressureDiastolic() != null) merged.setBloodPressureDiastolic(reading.getBloodPressureDiastolic());
+                    if (reading.getHeartRate() != null) merged.setHeartRate(reading.getHeartRate());
+                    if (reading.getBloodType() != null) merged.setBloodType(reading.getBloodType());
+                });
+
+        Timestamp updatedAt = Timestamp.valueOf(now);
+        int updated = jdbcTemplate.update("UPDATE medical_vitals SET height_cm = COALESCE(?, height_cm), "
+                        + "weight_kg = COALESCE(?, weight_kg), "
+                        + "blood_pressure_systolic = COALESCE(?, blood_pressure_systolic), "
+                        + "blood_pressure_diastolic = COALESCE(?, blood_pressure_diastolic), "
+                        + "heart_rate = COALESCE(?, heart_rate), blood_type = COALESCE(?, blood_type), "
+                        + "updated_at = ? WHERE health_profile_id = ?",
+                merged.getHeightCm(), merged.getWeightKg(), merged.getBloodPressureSystolic(),
+                merged.getBloodPressureDiastolic(), merged.getHeartRate(), merged.getBloodType(),
+                updatedAt, healthProfileId);
+        if (updated == 0) {
+            jdbcTemplate.update("INSERT INTO medical_vitals (health_profile_id, height_cm, weight_kg, "
+                            + "blood_pressure_systolic, blood_pressure_diastolic, heart_rate, blood_type, "
+                            + "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                    healthProfileId, merged.getHeightCm(), merged.getWeightKg(), merged.getBloodPressureSystolic(),
+                    merged.getBloodPressureDiastolic(), merged.getHeartRate(), merged.getBloodType(),
+                    updatedAt, updatedAt);
+        }
+    }
+
+    private ValidatedRecord validate(RecordDto record, ProfileIds profiles, LocalDateTime now) {
+        if (record == null) {
+            return new ValidatedRecord(null, List.of("record: Required"), null);
+        }
+
+        List<String> errors = new ArrayList<>();
+        String clientId = record.getClientId();
+        if (clientId == null || clientId.isBlank() || clientId.length() > MAX_CLIENT_ID_LENGTH) {
+            errors.add("clientId: Required, at most " + MAX_CLIENT_ID_LENGTH + " characters");
+        }
+        if (record.getRecordedAt() != null && record.getRecordedAt().isAfter(now.plusDays(1))) {
+            errors.add("recordedAt: Cannot be in the future");
+        }
+        if (record.getType() == null) {
+            errors.add("type: Required");
+            return new ValidatedRecord(clientId, errors, null);
+        }
+
+        RecordDto sanitized = switch (record.getType()) {
+            case CYCLE -> validateCycle(record, profiles, now.toLocalDate(), errors);
+            case VITALS -> validateVitals(record, profiles, errors);
+            case SYMPTOM -> validateSymptom(record, errors);
+        };
+        return new ValidatedRecord(clientId, errors, sanitized);
+    }
+
+    private RecordDto validateCycle(RecordDto record, ProfileIds profiles, LocalDate today, List<String> errors) {
+        if (profiles.gynecologicalProfileId() == null) {
+            errors.add("cycle: Gynecological profile not found");
+        }
+        LocalDate start = record.getStartDate();
+        LocalDate end = record.getEndDate();
+        if (start == null) {
+            errors.add("startDate: Required");
+        } else if (start.isAfter(today)) {
+            errors.add("startDate: Cannot be in the future");
+        } else if (end != null && (end.isBefore(start) || ChronoUnit.DAYS.between(start, end) >= MAX_CYCLE_DAYS)) {
+            errors.add("endDate: Must be within " + MAX_CYCLE_DAYS + " days after startDate");
+        }
+        if (record.getFlowIntensity() != null) {
+            try {
+                MenstruationCycle.FlowIntensity.valueOf(record.getFlowIntensity());
+            } catch (IllegalArgumentException e) {
+                errors.add("flowIntensity: Unknown value");
+            }
+        }
+        if (record.getPainLevel() != null && (record.getPainLevel() < 0 || record.getPainLevel() > 10)) {
+            errors.add("painLevel: Must be between 0 and 10");
+        }
+
+        List<String> symptoms = null;
+        if (record.getSymptoms() != null) {
+            symptoms = new ArrayList<>(record.getSymptoms().size());
+            for (String symptom : record.getSymptoms()) {
+                if (symptom == null || symptom.isBlank()) {
+                    continue;
+                }
+                addDescriptionError(errors, "symptoms", symptom);
+                symptoms.add(inputValidationService.sanitizeInput(symptom));
+            }
+        }
+        addDescriptionError(errors, "moodNotes", record.getMoodNotes());
+        addDescriptionError(errors, "notes", record.getNotes());
+
+        return RecordDto.builder()
+                .clientId(record.getClientId())
+                .type(record.getType())
+                .recordedAt(record.getRecordedAt())
+                .startDate(start)
+                .endDate(end)
+                .flowIntensity(record.getFlowIntensity())
+                .symptoms(symptoms)
+                .moodNotes(inputValidationService.sanitizeInput(record.getMoodNotes()))
+                .painLevel(record.getPainLevel())
+                .notes(inputValidationService.sanitizeInput(record.getNotes()))
+                .build();
+    }
+
+    private RecordDto validateVitals(RecordDto record, ProfileIds profiles, List<String> errors) {
+        if (profiles.healthProfileId() == null) {
+            errors.add("vitals: Health profile not found");
+        }
+        if (record.getHeightCm() == null && record.getWeightKg() == null && record.getBloodPressureSystolic() == null
+                && record.getBloodPressureDiastolic() == null && record.getHeartRate() == null
+                && record.getBloodType() == null) {
+            errors.add("vitals: At least one measurement is required");
+        }
+
+        // Same ranges as single-record health data validation
+        var validation = inputValidationService.validateHealthData(InputValidationService.HealthDataInput.builder()
+                .height(record.getHeightCm())
+                .weight(record.getWeightKg())
+                .build());
+        errors.addAll(validation.getErrors());
+
+        addRangeError(errors, "bloodPressureSystolic", record.getBloodPressureSystolic(), 50, 250);
+        addRangeError(errors, "bloodPressureDiastolic", record.getBloodPressureDiastolic(), 30, 150);
+        addRangeError(errors, "heartRate", record.getHeartRate(), 30, 220);
+        if (record.getBloodType() != null && !BLOOD_TYPES.contains(record.getBloodType())) {
+            errors.add("bloodType: Unknown value");
+        }
+        return record;
+    }
+
+    private RecordDto validateSymptom(RecordDto record, List<String> errors) {
+        if (record.getDescription() == null || record.getDescription().isBlank()) {
+            errors.add("description: Required");
+        } else {
+            addDescriptionError(errors, "description", record.getDescription());
+        }
+        return RecordDto.builder()
+                .clientId(record.getClientId())
+                .type(record.getType())
+                .recordedAt(record.getRecordedAt())
+                .description(inputValidationService.sanitizeInput(record.getDescription()))
+                .build();
+    }
+
+    private void addDescriptionError(List<String> errors, String field, String value) {
+        String error = inputValidationService.validateDescription(value);
+        if (error != null) {
+            errors.add(field + ": " + error);
+        }
+    }
+
+    private static void addRangeError(List<String> errors, String field, Integer value, int min, int max) {
+        if (value != null && (value < min || value > max)) {
+            errors.add(field + ": Must be between " + min + " and " + max);
+        }
+    }
+
+    private static LocalDateTime recordedAt(RecordDto record, LocalDateTime now) {
+        if (record.getRecordedAt() != null) {
+            return record.getRecordedAt();
+        }
+        return record.getStartDate() != null ? record.getStartDate().atStartOfDay() : now;
+    }
+
+    private ProfileIds findProfileIds(Long userId) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT chp.id AS health_profile_id, gp.id AS gynecological_profile_id FROM client_health_profiles chp "
+                        + "LEFT JOIN gynecological_profiles gp ON gp.health_profile_id = chp.id WHERE chp.user_id = ?",
+                userId);
+        if (rows.isEmpty()) {
+            return new ProfileIds(null, null);
+        }
+        Map<String, Object> row = rows.get(0);
+        return new ProfileIds(toLong(row.get("health_profile_id")), toLong(row.get("gynecological_profile_id")));
+    }
+
+    private Set<String> findSyncedClientIds(Long userId, List<RecordDto> records) {
+        StringJoiner placeholders = new StringJoiner(", ");
+        List<Object> args = new ArrayList<>(records.size() + 1);
+        args.add(userId);
+        for (RecordDto record : records) {
+            if (record != null && record.getClientId() != null) {
+                placeholders.add("?");
+                args.add(record.getClientId());
+            }
+        }
+        if (args.size() == 1) {
+            return Set.of();
+        }
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT client_record_id FROM health_sync_records WHERE user_id = ? AND client_record_id IN ("
+                        + placeholders + ")",
+                String.class, args.toArray()));
+    }
+
+    private static Long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : null;
+    }
+
+    private record ProfileIds(Long healthProfileId, Long gynecologicalProfileId) {
+    }
+
+    private record ValidatedRecord(String clientId, List<String> errors, RecordDto sanitized) {
+    }
+}
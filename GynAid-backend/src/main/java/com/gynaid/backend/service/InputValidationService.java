@@ -1,5 +1,7 @@
 package com.gynaid.backend.service;
 
+import com.gynaid.backend.util.InputSanitizer;
+import com.gynaid.backend.util.UgandaPhoneNumber;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
@@ -26,10 +28,6 @@ public class InputValidationService {
         "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$"
     );
     
-    private static final Pattern PHONE_PATTERN = Pattern.compile(
-        "^\\+256[0-9]{9}$"
-    );
-    
     private static final Pattern SAFE_STRING_PATTERN = Pattern.compile(
         "^[A-Za-z0-9\\s\\-_.,!?()@]+$"
     );
@@ -47,17 +45,12 @@ public class InputValidationService {
         "(?i)javascript:"
     );
     
-    private static final Pattern SQL_INJECTION_PATTERN = Pattern.compile(
-        "(?i)(\\b(union|select|insert|update|delete|drop|create|alter|exec|execute)\\b)"
-    );
-    
     private static final Pattern XSS_PATTERN = Pattern.compile(
         "(?i)(<iframe|<object|<embed|<link|<style|<meta|<img|<svg|<script)"
     );
     
     // Content length limits
     private static final int MAX_EMAIL_LENGTH = 254;
-    private static final int MAX_PHONE_LENGTH = 13;
     private static final int MAX_NAME_LENGTH = 100;
     private static final int MAX_DESCRIPTION_LENGTH = 2000;
     private static final int MAX_PASSWORD_LENGTH = 128;
@@ -269,20 +262,11 @@ public class InputValidationService {
             return "Phone number is required";
         }
         
-        String cleaned = phoneNumber.replaceAll("[\\s-()]", "");
-        
-        if (cleaned.isEmpty()) {
+        if (phoneNumber.isBlank()) {
             return "Phone number is required";
         }
         
-        if (cleaned.length() > MAX_PHONE_LENGTH) {
-            return "Phone number is too long";
-        }
-        
-        // Handle different formats for Uganda numbers
-        String ugandaNumber = normalizeUgandaNumber(cleaned);
-        
-        if (!PHONE_PATTERN.matcher(ugandaNumber).matches()) {
+        if (!UgandaPhoneNumber.isValid(phoneNumber)) {
             return "Invalid Uganda phone number format (use +256XXXXXXXXX)";
         }
         
@@ -291,30 +275,12 @@ public class InputValidationService {
     
     /**
      * Sanitizes user input to prevent XSS and injection attacks
+     *
+     * Removes script elements, javascript: protocols, dangerous tag openers and SQL
+     * keywords, then trims and normalizes whitespace, in one pass (see InputSanitizer).
      */
     public String sanitizeInput(String input) {
-        if (input == null) {
-            return null;
-        }
-        
-        String sanitized = input;
-        
-        // Remove script tags
-        sanitized = SCRIPT_TAG_PATTERN.matcher(sanitized).replaceAll("");
-        
-        // Remove javascript: protocols
-        sanitized = JAVASCRIPT_PATTERN.matcher(sanitized).replaceAll("");
-        
-        // Remove potentially dangerous HTML tags
-        sanitized = XSS_PATTERN.matcher(sanitized).replaceAll("");
-        
-        // Remove SQL injection patterns
-        sanitized = SQL_INJECTION_PATTERN.matcher(sanitized).replaceAll("");
-        
-        // Trim and normalize whitespace
-        sanitized = sanitized.trim().replaceAll("\\s+", " ");
-        
-        return sanitized;
+        return InputSanitizer.sanitize(input);
     }
     
     /**
@@ -345,28 +311,8 @@ public class InputValidationService {
      * Normalizes Uganda phone number to standard format
      */
     private String normalizeUgandaNumber(String phoneNumber) {
-        if (phoneNumber == null) {
-            return null;
-        }
-        
-        String cleaned = phoneNumber.replaceAll("[\\s-()]", "");
-        
-        // Handle 0XXXXXXXXX format
-        if (cleaned.startsWith("0") && cleaned.length() == 10) {
-            return "+256" + cleaned.substring(1);
-        }
-        
-        // Handle 256XXXXXXXXX format
-        if (cleaned.startsWith("256") && cleaned.length() == 12) {
-            return "+" + cleaned;
-        }
-        
-        // Already in correct format
-        if (cleaned.startsWith("+256") && cleaned.length() == 13) {
-            return cleaned;
-        }
-        
-        return phoneNumber; // Return original if can't normalize
+        String normalized = UgandaPhoneNumber.normalize(phoneNumber);
+        return normalized != null ? normalized : phoneNumber; // Return original if can't normalize
     }
     
     /**
@@ -433,7 +379,7 @@ public class InputValidationService {
     /**
      * Validates description fields (medical history, symptoms, etc.)
      */
-    private String validateDescription(String description) {
+    public String validateDescription(String description) {
         if (description == null) {
             return null; // Optional field
         }
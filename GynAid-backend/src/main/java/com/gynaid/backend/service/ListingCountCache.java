@@ -0,0 +1,40 @@
+package com.gynaid.backend.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Short-lived cache for listing totals.
+ *
+ * Keyset pages do not need a COUNT(*), but some screens still show a total. Those
+ * totals are recomputed at most once per TTL per listing key instead of per request.
+ */
+@Component
+public class ListingCountCache {
+
+    private static final long TTL_MILLIS = 60_000;
+    private static final int MAX_ENTRIES = 10_000;
+
+    private final Map<String, CachedCount> counts = new ConcurrentHashMap<>();
+
+    public long get(String key, LongSupplier loader) {
+        long now = System.currentTimeMillis();
+        CachedCount cached = counts.get(key);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.value();
+        }
+
+        long value = loader.getAsLong();
+        if (counts.size() >= MAX_ENTRIES) {
+            counts.clear();
+        }
+        counts.put(key, new CachedCount(value, now + TTL_MILLIS));
+        return value;
+    }
+
+    private record CachedCount(long value, long expiresAt) {
+    }
+}
@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -12,15 +13,18 @@ import com.warrenstrange.googleauth.GoogleAuthenticatorKey;
 import com.warrenstrange.googleauth.GoogleAuthenticatorQRGenerator;
 
 import java.security.SecureRandom;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Enterprise-grade Multi-Factor Authentication (TOTP) service for GynAid
  * Supports Google Authenticator and other TOTP-compatible apps
+ *
+ * A user's setup is a Redis hash (secret, QR code, enabled flag and timestamps) next to
+ * a set of unused backup codes. Each operation is one Lua script, so a login costs a
+ * single round trip and a backup code can only ever be spent once.
  */
 @Slf4j
 @Service
@@ -38,9 +42,50 @@ public class MFAService {
     private int backupCodeLength;
 
     private static final String MFA_SETUP_PREFIX = "mfa_setup:";
+    private static final String MFA_BACKUP_PREFIX = "mfa_backup:";
     private static final String MFA_USED_PREFIX = "mfa_used:";
+    private static final Duration SETUP_WINDOW = Duration.ofHours(24);
+    private static final Duration RETENTION = Duration.ofDays(30);
+    private static final Duration USED_CODE_RETENTION = Duration.ofDays(365);
     private static final SecureRandom secureRandom = new SecureRandom();
 
+    // KEYS: setup, backup codes. ARGV: ttl, number of hash arguments, hash field/value pairs, backup codes.
+    private static final DefaultRedisScript<Long> SAVE_SETUP_SCRIPT = new DefaultRedisScript<>(
+        "redis.call('DEL', KEYS[1], KEYS[2]) " +
+        "local n = tonumber(ARGV[2]) " +
+        "redis.call('HSET', KEYS[1], unpack(ARGV, 3, 2 + n)) " +
+        "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+        "if #ARGV > 2 + n then " +
+        "    redis.call('SADD', KEYS[2], unpack(ARGV, 3 + n)) " +
+        "    redis.call('EXPIRE', KEYS[2], ARGV[1]) " +
+        "end " +
+        "return 1",
+        Long.class);
+
+    // KEYS: setup, backup codes. ARGV: expected secret or '', enabled flag, timestamp field, timestamp, ttl.
+    // Returns -1 when there is no setup, 0 when the secret does not match and 1 when updated.
+    private static final DefaultRedisScript<Long> SET_ENABLED_SCRIPT = new DefaultRedisScript<>(
+        "local secret = redis.call('HGET', KEYS[1], 'secret') " +
+        "if not secret then return -1 end " +
+        "if ARGV[1] ~= '' and secret ~= ARGV[1] then return 0 end " +
+        "redis.call('HSET', KEYS[1], 'enabled', ARGV[2], ARGV[3], ARGV[4]) " +
+        "redis.call('EXPIRE', KEYS[1], ARGV[5]) " +
+        "redis.call('EXPIRE', KEYS[2], ARGV[5]) " +
+        "return 1",
+        Long.class);
+
+    // KEYS: setup, backup codes, used-code marker. ARGV: upper-cased code, marker ttl.
+    // Returns {'MFA_NOT_ENABLED'}, {'BACKUP_CODE'} after spending the code, or {'TOTP', secret}.
+    private static final DefaultRedisScript<List> VERIFY_SCRIPT = new DefaultRedisScript<>(
+        "local state = redis.call('HMGET', KEYS[1], 'enabled', 'secret') " +
+        "if state[1] ~= '1' then return {'MFA_NOT_ENABLED'} end " +
+        "if redis.call('SREM', KEYS[2], ARGV[1]) == 1 then " +
+        "    redis.call('SET', KEYS[3], 'used', 'EX', ARGV[2]) " +
+        "    return {'BACKUP_CODE'} " +
+        "end " +
+        "return {'TOTP', state[2]}",
+        List.class);
+
     /**
      * Generate MFA setup for user with QR code and backup codes
      */
@@ -58,17 +103,15 @@ public class MFAService {
             // Generate backup codes
             List<String> backupCodes = generateBackupCodes();
             
-            // Store MFA setup data
-            MFASetupData mfaSetup = new MFASetupData();
-            mfaSetup.setSecret(secret);
-            mfaSetup.setBackupCodes(backupCodes);
-            mfaSetup.setQrCode(qrCodeDataUrl);
-            mfaSetup.setOtpauthUrl(otpauthUrl);
-            mfaSetup.setEnabled(false);
-            mfaSetup.setCreatedAt(LocalDateTime.now());
-            
-            String setupKey = MFA_SETUP_PREFIX + userId;
-            redisTemplate.opsForValue().set(setupKey, mfaSetup, 24, TimeUnit.HOURS); // 24 hours setup window
+            // Store MFA setup data, replacing any earlier setup, within a 24 hour setup window
+            List<String> fields = List.of("secret", secret, "qrCode", qrCodeDataUrl, "otpauthUrl", otpauthUrl,
+                "enabled", "0", "createdAt", LocalDateTime.now().toString());
+            List<Object> args = new ArrayList<>();
+            args.add(String.valueOf(SETUP_WINDOW.toSeconds()));
+            args.add(String.valueOf(fields.size()));
+            args.addAll(fields);
+            args.addAll(backupCodes);
+            redisTemplate.execute(SAVE_SETUP_SCRIPT, List.of(setupKey(userId), backupKey(userId)), args.toArray());
 
             log.info("MFA setup generated for user: {}", userId);
 
@@ -95,41 +138,37 @@ public class MFAService {
     @Transactional
     public MFAEnableResult enableMFA(String userId, String secret, String verificationCode) {
         try {
-            String setupKey = MFA_SETUP_PREFIX + userId;
-            MFASetupData mfaSetup = (MFASetupData) redisTemplate.opsForValue().get(setupKey);
+            // Verify the TOTP code against the submitted secret; the script checks it is the stored one
+            boolean isValid = googleAuthenticator.authorize(secret, Integer.parseInt(verificationCode));
             
-            if (mfaSetup == null) {
+            if (!isValid) {
                 return MFAEnableResult.builder()
                     .success(false)
-                    .error("MFA setup not found or expired")
-                    .errorCode("SETUP_NOT_FOUND")
+                    .error("Invalid verification code")
+                    .errorCode("INVALID_CODE")
                     .build();
             }
             
-            if (!mfaSetup.getSecret().equals(secret)) {
+            // Enable MFA with 30 days retention
+            Long updated = redisTemplate.execute(SET_ENABLED_SCRIPT, List.of(setupKey(userId), backupKey(userId)),
+                secret, "1", "enabledAt", LocalDateTime.now().toString(), String.valueOf(RETENTION.toSeconds()));
+
+            if (updated == null || updated < 0) {
                 return MFAEnableResult.builder()
                     .success(false)
-                    .error("Invalid secret key")
-                    .errorCode("INVALID_SECRET")
+                    .error("MFA setup not found or expired")
+                    .errorCode("SETUP_NOT_FOUND")
                     .build();
             }
             
-            // Verify the TOTP code
-            boolean isValid = googleAuthenticator.authorize(secret, Integer.parseInt(verificationCode));
-            
-            if (!isValid) {
+            if (updated == 0) {
                 return MFAEnableResult.builder()
                     .success(false)
-                    .error("Invalid verification code")
-                    .errorCode("INVALID_CODE")
+                    .error("Invalid secret key")
+                    .errorCode("INVALID_SECRET")
                     .build();
             }
             
-            // Enable MFA
-            mfaSetup.setEnabled(true);
-            mfaSetup.setEnabledAt(LocalDateTime.now());
-            redisTemplate.opsForValue().set(setupKey, mfaSetup, 30, TimeUnit.DAYS); // 30 days retention
-            
             log.info("MFA enabled for user: {}", userId);
 
             return MFAEnableResult.builder()
@@ -153,10 +192,12 @@ public class MFAService {
     @Transactional
     public MFAVerificationResult verifyTOTP(String userId, String code) {
         try {
-            String setupKey = MFA_SETUP_PREFIX + userId;
-            MFASetupData mfaSetup = (MFASetupData) redisTemplate.opsForValue().get(setupKey);
-            
-            if (mfaSetup == null || !mfaSetup.isEnabled()) {
+            List<Object> reply = redisTemplate.execute(VERIFY_SCRIPT,
+                List.of(setupKey(userId), backupKey(userId), MFA_USED_PREFIX + "{" + userId + "}:" + code.toUpperCase()),
+                code.toUpperCase(), String.valueOf(USED_CODE_RETENTION.toSeconds()));
+            String outcome = reply != null && !reply.isEmpty() ? String.valueOf(reply.get(0)) : "MFA_NOT_ENABLED";
+
+            if ("MFA_NOT_ENABLED".equals(outcome)) {
                 return MFAVerificationResult.builder()
                     .success(false)
                     .error("MFA not enabled for this user")
@@ -164,11 +205,8 @@ public class MFAService {
                     .build();
             }
             
-            // Check backup codes first
-            if (isBackupCode(code, mfaSetup.getBackupCodes())) {
-                // Mark backup code as used
-                markBackupCodeAsUsed(userId, code);
-                
+            // Backup codes are checked and spent by the script
+            if ("BACKUP_CODE".equals(outcome)) {
                 log.info("MFA backup code used for user: {}", userId);
                 
                 return MFAVerificationResult.builder()
@@ -179,7 +217,7 @@ public class MFAService {
             }
             
             // Verify TOTP code
-            boolean isValid = googleAuthenticator.authorize(mfaSetup.getSecret(), Integer.parseInt(code));
+            boolean isValid = googleAuthenticator.authorize(String.valueOf(reply.get(1)), Integer.parseInt(code));
             
             if (isValid) {
                 log.info("MFA TOTP verification successful for user: {}", userId);
@@ -229,15 +267,9 @@ public class MFAService {
                     .build();
             }
             
-            // Disable MFA
-            String setupKey = MFA_SETUP_PREFIX + userId;
-            MFASetupData mfaSetup = (MFASetupData) redisTemplate.opsForValue().get(setupKey);
-            
-            if (mfaSetup != null) {
-                mfaSetup.setEnabled(false);
-                mfaSetup.setDisabledAt(LocalDateTime.now());
-                redisTemplate.opsForValue().set(setupKey, mfaSetup, 30, TimeUnit.DAYS);
-            }
+            // Disable MFA, keeping the setup for 30 days
+            redisTemplate.execute(SET_ENABLED_SCRIPT, List.of(setupKey(userId), backupKey(userId)),
+                "", "0", "disabledAt", LocalDateTime.now().toString(), String.valueOf(RETENTION.toSeconds()));
             
             log.info("MFA disabled for user: {}", userId);
 
@@ -261,9 +293,7 @@ public class MFAService {
      */
     public boolean isMFAEnabled(String userId) {
         try {
-            String setupKey = MFA_SETUP_PREFIX + userId;
-            MFASetupData mfaSetup = (MFASetupData) redisTemplate.opsForValue().get(setupKey);
-            return mfaSetup != null && mfaSetup.isEnabled();
+            return "1".equals(redisTemplate.opsForHash().get(setupKey(userId), "enabled"));
         } catch (Exception e) {
             log.error("Error checking MFA status for user: {}", userId, e);
             return false;
@@ -297,62 +327,15 @@ public class MFAService {
         return codes;
     }
 
-    /**
-     * Check if code is a backup code
-     */
-    private boolean isBackupCode(String code, List<String> backupCodes) {
-        return backupCodes.stream()
-            .map(String::toUpperCase)
-            .anyMatch(bc -> bc.equals(code.toUpperCase()));
-    }
-
-    /**
-     * Mark backup code as used
-     */
-    private void markBackupCodeAsUsed(String userId, String code) {
-        String usedKey = MFA_USED_PREFIX + userId + ":" + code.toUpperCase();
-        redisTemplate.opsForValue().set(usedKey, "used", 365, TimeUnit.DAYS); // Keep for a year
-        
-        // Also update the main MFA setup to remove the used code
-        String setupKey = MFA_SETUP_PREFIX + userId;
-        MFASetupData mfaSetup = (MFASetupData) redisTemplate.opsForValue().get(setupKey);
-        if (mfaSetup != null) {
-            mfaSetup.getBackupCodes().removeIf(bc -> bc.toUpperCase().equals(code.toUpperCase()));
-            redisTemplate.opsForValue().set(setupKey, mfaSetup, 30, TimeUnit.DAYS);
-        }
+    private static String setupKey(String userId) {
+        return MFA_SETUP_PREFIX + "{" + userId + "}";
     }
 
-    // Data classes and result classes
-    public static class MFASetupData {
-        private String secret;
-        private List<String> backupCodes;
-        private String qrCode;
-        private String otpauthUrl;
-        private boolean enabled;
-        private LocalDateTime createdAt;
-        private LocalDateTime enabledAt;
-        private LocalDateTime disabledAt;
-
-        // Getters and setters
-        public String getSecret() { return secret; }
-        public void setSecret(String secret) { this.secret = secret; }
-        public List<String> getBackupCodes() { return backupCodes; }
-        public void setBackupCodes(List<String> backupCodes) { this.backupCodes = backupCodes; }
-        public String getQrCode() { return qrCode; }
-        public void setQrCode(String qrCode) { this.qrCode = qrCode; }
-        public String getOtpauthUrl() { return otpauthUrl; }
-        public void setOtpauthUrl(String otpauthUrl) { this.otpauthUrl = otpauthUrl; }
-        public boolean isEnabled() { return enabled; }
-        public void setEnabled(boolean enabled) { this.enabled = enabled; }
-        public LocalDateTime getCreatedAt() { return createdAt; }
-        public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
-        public LocalDateTime getEnabledAt() { return enabledAt; }
-        public void setEnabledAt(LocalDateTime enabledAt) { this.enabledAt = enabledAt; }
-        public LocalDateTime getDisabledAt() { return disabledAt; }
-        public void setDisabledAt(LocalDateTime disabledAt) { this.disabledAt = disabledAt; }
+    private static String backupKey(String userId) {
+        return MFA_BACKUP_PREFIX + "{" + userId + "}";
     }
 
-    // Result classes with builder pattern
+    // Result classes
     public static class MFASetupResult {
         private boolean success;
         private String secret;
@@ -4,10 +4,13 @@ import com.gynaid.backend.entity.Appointment;
 import com.gynaid.backend.entity.Consultation;
 import com.gynaid.backend.entity.Payment;
 import com.gynaid.backend.entity.User;
+import com.gynaid.backend.event.ProviderEarningsChangedEvent;
+import com.gynaid.backend.event.ProviderStatusChangedEvent;
 import com.gynaid.backend.repository.AppointmentRepository;
 import com.gynaid.backend.repository.PaymentRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
@@ -34,6 +37,7 @@ public class PaymentService {
     private final PaymentRepository paymentRepository;
     private final RestTemplate restTemplate;
     private final AppointmentRepository appointmentRepository; // Added missing repository
+    private final ApplicationEventPublisher eventPublisher;
     
     // Stripe Configuration (these would come from environment variables in production)
     private static final String STRIPE_SECRET_KEY = "sk_test_..."; // Should be from env
@@ -140,11 +144,13 @@ public class PaymentService {
             .orElseThrow(() -> new RuntimeException("Payment not found"));
         
         // Update payment status
+        boolean alreadySucceeded = payment.getStatus() == Payment.PaymentStatus.SUCCEEDED;
         payment.markSucceeded();
         paymentRepository.save(payment);
         
         // Update appointment status to approved and paid
         Appointment appointment = payment.getAppointment();
+        Appointment.AppointmentStatus previousStatus = appointment.getStatus();
         appointment.setPaymentStatus(Appointment.PaymentStatus.PAID);
         
         // Auto-approve appointment when payment is successful
@@ -152,6 +158,12 @@ public class PaymentService {
         
         // Save appointment
         appointmentRepository.save(appointment);
+        publishStatusChange(appointment, previousStatus);
+        
+        // Webhooks can be redelivered; only count the first success
+        if (!alreadySucceeded) {
+            publishEarnings(payment, false);
+        }
         
         log.info("Appointment {} approved and payment completed", appointment.getId());
     }
@@ -192,9 +204,11 @@ public class PaymentService {
         
         // Cancel appointment as well
         Appointment appointment = payment.getAppointment();
+        Appointment.AppointmentStatus previousStatus = appointment.getStatus();
         appointment.setStatus(Appointment.AppointmentStatus.CANCELLED);
         appointment.setPaymentStatus(Appointment.PaymentStatus.UNPAID);
         appointmentRepository.save(appointment);
+        publishStatusChange(appointment, previousStatus);
         
         log.info("Payment and appointment {} canceled", appointment.getId());
     }
@@ -211,14 +225,24 @@ public class PaymentService {
         List<Payment> payments = paymentRepository.findByStripePaymentIntentIdContaining(stripeChargeId);
         
         for (Payment payment : payments) {
-            payment.setStatus(Payment.PaymentStatus.REFUNDED);
+            boolean wasSucceeded = payment.getStatus() == Payment.PaymentStatus.SUCCEEDED;
+            if (wasSucceeded) {
+                payment.refund();
+            } else {
+                payment.setStatus(Payment.PaymentStatus.REFUNDED);
+            }
             paymentRepository.save(payment);
+            if (wasSucceeded) {
+                publishEarnings(payment, true);
+            }
             
             // Update appointment status
             Appointment appointment = payment.getAppointment();
+            Appointment.AppointmentStatus previousStatus = appointment.getStatus();
             appointment.setStatus(Appointment.AppointmentStatus.CANCELLED);
             appointment.setPaymentStatus(Appointment.PaymentStatus.REFUNDED);
             appointmentRepository.save(appointment);
+            publishStatusChange(appointment, previousStatus);
             
             log.info("Refund processed for appointment: {}", appointment.getId());
         }
@@ -247,9 +271,10 @@ public class PaymentService {
             );
             
             // Update payment record
-            payment.refund();
+            payment.refund(amount);
             payment.setReceiptUrl(stripeRefund.receiptUrl);
             paymentRepository.save(payment);
+            publishEarnings(payment, true);
             
             // Update appointment status if needed
             Appointment appointment = payment.getAppointment();
@@ -287,6 +312,39 @@ public class PaymentService {
             .build();
     }
 
+    private void publishStatusChange(Appointment appointment, Appointment.AppointmentStatus previousStatus) {
+        if (appointment.getStatus() != previousStatus) {
+            eventPublisher.publishEvent(ProviderStatusChangedEvent.appointment(
+                appointment.getProvider().getId(), previousStatus, appointment.getStatus()));
+        }
+    }
+
+    /**
+     * Publish a payment success or refund for the provider's earnings rollup; a refund
+     * reverses only the refunded portion of the payment
+     */
+    private void publishEarnings(Payment payment, boolean refund) {
+        BigDecimal platformFee = payment.getPlatformFee() != null ? payment.getPlatformFee() : BigDecimal.ZERO;
+        BigDecimal providerShare = payment.getProviderShare() != null
+            ? payment.getProviderShare()
+            : payment.getAmount().subtract(platformFee);
+        BigDecimal gross = payment.getAmount();
+        if (refund) {
+            BigDecimal refunded = payment.getRefundedAmount() != null ? payment.getRefundedAmount() : gross;
+            providerShare = ProviderEarningsService.refundedPortion(providerShare, refunded, gross);
+            platformFee = ProviderEarningsService.refundedPortion(platformFee, refunded, gross);
+            gross = refunded;
+        }
+        eventPublisher.publishEvent(new ProviderEarningsChangedEvent(
+            payment.getAppointment().getProvider().getId(),
+            payment.getId(),
+            gross,
+            providerShare,
+            platformFee,
+            refund,
+            refund ? payment.getRefundedAt() : payment.getPaidAt()));
+    }
+
     // Helper methods for Stripe integration
     private StripePaymentIntent createStripePaymentIntent(
             BigDecimal amount, 
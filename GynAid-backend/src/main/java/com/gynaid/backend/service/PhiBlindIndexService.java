@@ -0,0 +1,360 @@
+package com.gynaid.backend.service;
+
+import com.gynaid.backend.entity.client.MedicalHistory;
+import com.gynaid.backend.entity.client.MedicationRecord;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Blind index over encrypted PHI fields (medical_history, medications, allergies).
+ *
+ * Field values are normalized (case, accents, punctuation) and split into keyword
+ * tokens; each token and the whole normalized value are stored as a truncated
+ * HMAC-SHA256 under a dedicated key, so the index reveals neither the values nor,
+ * without the key, which tokens they share with a guessed word. Searches compute the
+ * same HMACs and use the (field_type, token) index rather than decrypting rows.
+ *
+ * Maintenance is batched per transaction: the entity listener queues changed rows,
+ * and just before commit their old index rows are deleted and the new ones inserted
+ * with one JDBC batch each. Rows flushed after that batch, still inside the
+ * transaction, are indexed one by one as they are flushed.
+ *
+ * The HMAC key (gynaid.encryption.blind-index-key) must be configured outside the dev
+ * profile; tokens written under one key never match searches under another.
+ */
+@Service
+@Slf4j
+public class PhiBlindIndexService {
+
+    public static final String MEDICAL_HISTORY = "medical_history";
+    public static final String MEDICATIONS = "medications";
+    public static final String ALLERGIES = "allergies";
+
+    private static final String EXACT_PREFIX = "=";
+    private static final int TOKEN_BYTES = 16;
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int MAX_TOKENS_PER_VALUE = 64;
+    private static final int REBUILD_BATCH_SIZE = 200;
+    private static final int MIN_KEY_BYTES = 32;
+    private static final Object BATCH_RESOURCE_KEY = new Object();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ThreadLocal<Mac> macs;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public PhiBlindIndexService(JdbcTemplate jdbcTemplate,
+                                FieldLevelEncryptionService encryptionService,
+                                Environment environment,
+                                @Value("${gynaid.encryption.blind-index-key:}") String blindIndexKey) {
+        this.jdbcTemplate = jdbcTemplate;
+
+        byte[] keyBytes;
+        if (blindIndexKey == null || blindIndexKey.isBlank()) {
+            // Stored tokens are only valid under the key that produced them, so the key must
+            // be configured and persistent; dev runs on a throwaway database and master key
+            if (!environment.acceptsProfiles(Profiles.of("dev"))) {
+                throw new IllegalStateException("gynaid.encryption.blind-index-key is not configured");
+            }
+            log.warn("No blind index key configured, deriving one from the dev master encryption key");
+            keyBytes = encryptionService.deriveSubkey("gynaid-blind-index-v1");
+        } else {
+            try {
+                keyBytes = Base64.getDecoder().decode(blindIndexKey.trim());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("gynaid.encryption.blind-index-key is not valid Base64", e);
+            }
+            if (keyBytes.length < MIN_KEY_BYTES) {
+                throw new IllegalStateException("gynaid.encryption.blind-index-key must be at least 256 bits");
+            }
+        }
+        SecretKeySpec key = new SecretKeySpec(keyBytes, "HmacSHA256");
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(key);
+                return mac;
+            } catch (Exception e) {
+                throw new IllegalStateException("HmacSHA256 is not available", e);
+            }
+        });
+    }
+
+    /**
+     * Health profile ids whose field contains every keyword of the query
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findProfilesByKeywords(String fieldType, String query) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String word : tokenize(query)) {
+            tokens.add(token(fieldType, word));
+        }
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+
+        StringJoiner placeholders = new StringJoiner(", ");
+        List<Object> args = new ArrayList<>(tokens.size() + 2);
+        args.add(fieldType);
+        for (String token : tokens) {
+            placeholders.add("?");
+            args.add(token);
+        }
+        args.add(tokens.size());
+
+        return jdbcTemplate.queryForList(
+            "SELECT health_profile_id FROM phi_blind_index WHERE field_type = ? AND token IN (" + placeholders + ")"
+                + " GROUP BY health_profile_id HAVING COUNT(DISTINCT token) = ?",
+            Long.class, args.toArray());
+    }
+
+    /**
+     * Health profile ids whose field equals the value after normalization
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findProfilesByExactValue(String fieldType, String value) {
+        String normalized = normalize(value);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.queryForList(
+            "SELECT DISTINCT health_profile_id FROM phi_blind_index WHERE field_type = ? AND token = ?",
+            Long.class, fieldType, token(fieldType, EXACT_PREFIX + normalized));
+    }
+
+    /**
+     * Queue an entity for reindexing (or removal) when the current transaction commits
+     */
+    public void enqueue(Object entity, boolean removed) {
+        SourceRef source = sourceOf(entity);
+        if (source == null) {
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(Map.of(source, removed ? SourceRef.REMOVED : entity));
+            return;
+        }
+
+        PendingBatch batch = (PendingBatch) TransactionSynchronizationManager.getResource(BATCH_RESOURCE_KEY);
+        if (batch == null) {
+            PendingBatch pending = new PendingBatch();
+            batch = pending;
+            TransactionSynchronizationManager.bindResource(BATCH_RESOURCE_KEY, pending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    // Flush first so changes still pending in the session are queued too
+                    entityManager.flush();
+                    write(new LinkedHashMap<>(pending.entries));
+                    pending.entries.clear();
+                    // Entities flushed after this point, by later synchronizations or the
+                    // commit-time flush, are written as they arrive
+                    pending.writeThrough = true;
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(BATCH_RESOURCE_KEY);
+                }
+            });
+        }
+        if (batch.writeThrough) {
+            write(Map.of(source, removed ? SourceRef.REMOVED : entity));
+        } else {
+            batch.entries.put(source, removed ? SourceRef.REMOVED : entity);
+        }
+    }
+
+    /**
+     * Reindex every medical history and medication record, e.g. after enabling the
+     * index or changing its key
+     */
+    @Transactional
+    public int rebuild() {
+        jdbcTemplate.update("DELETE FROM phi_blind_index");
+        int indexed = rebuild(MedicalHistory.class) + rebuild(MedicationRecord.class);
+        log.info("Rebuilt PHI blind index for {} records", indexed);
+        return indexed;
+    }
+
+    private int rebuild(Class<?> entityType) {
+        int indexed = 0;
+        long lastId = 0;
+        while (true) {
+            List<?> entities = entityManager
+                .createQuery("SELECT e FROM " + entityType.getSimpleName() + " e WHERE e.id > :lastId ORDER BY e.id",
+                    entityType)
+                .setParameter("lastId", lastId)
+                .setMaxResults(REBUILD_BATCH_SIZE)
+                .getResultList();
+            if (entities.isEmpty()) {
+                return indexed;
+            }
+
+            Map<SourceRef, Object> batch = new LinkedHashMap<>();
+            for (Object entity : entities) {
+                SourceRef source = sourceOf(entity);
+                batch.put(source, entity);
+                lastId = source.sourceId();
+            }
+            write(batch);
+            indexed += entities.size();
+            entityManager.clear();
+        }
+    }
+
+    private void write(Map<SourceRef, Object> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> deletes = new ArrayList<>(batch.size());
+        List<Object[]> inserts = new ArrayList<>();
+        for (Map.Entry<SourceRef, Object> entry : batch.entrySet()) {
+            SourceRef source = entry.getKey();
+            deletes.add(new Object[] {source.table(), source.sourceId()});
+            if (entry.getValue() != SourceRef.REMOVED && source.healthProfileId() != null) {
+                addRows(inserts, source, entry.getValue());
+            }
+        }
+
+        jdbcTemplate.batchUpdate("DELETE FROM phi_blind_index WHERE source_table = ? AND source_id = ?", deletes);
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO phi_blind_index "
+                + "(field_type, token, health_profile_id, source_table, source_id) VALUES (?, ?, ?, ?, ?)", inserts);
+        }
+        log.debug("Blind index updated for {} records ({} tokens)", batch.size(), inserts.size());
+    }
+
+    private void addRows(List<Object[]> rows, SourceRef source, Object entity) {
+        if (entity instanceof MedicalHistory history) {
+            addField(rows, source, MEDICAL_HISTORY, history.getChronicConditions(), history.getFamilyHistory(),
+                history.getPreviousSurgeries(), history.getReproductiveHealthIssues());
+            addField(rows, source, MEDICATIONS, history.getCurrentMedications());
+            addField(rows, source, ALLERGIES, history.getAllergies());
+        } else if (entity instanceof MedicationRecord record) {
+            addField(rows, source, MEDICATIONS, record.getMedicationName());
+        }
+    }
+
+    private void addField(List<Object[]> rows, SourceRef source, String fieldType, String... values) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String value : values) {
+            String normalized = normalize(value);
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            words.add(EXACT_PREFIX + normalized);
+            int added = 0;
+            for (String word : tokenize(normalized)) {
+                if (words.add(word) && ++added >= MAX_TOKENS_PER_VALUE) {
+                    break;
+                }
+            }
+        }
+        for (String word : words) {
+            rows.add(new Object[] {fieldType, token(fieldType, word), source.healthProfileId(), source.table(), source.sourceId()});
+        }
+    }
+
+    private SourceRef sourceOf(Object entity) {
+        if (entity instanceof MedicalHistory history && history.getId() != null) {
+            Long profileId = history.getHealthProfile() != null ? history.getHealthProfile().getId() : null;
+            return new SourceRef("medical_histories", history.getId(), profileId);
+        }
+        if (entity instanceof MedicationRecord record && record.getId() != null) {
+            MedicalHistory history = record.getMedicalHistory();
+            Long profileId = history != null && history.getHealthProfile() != null
+                ? history.getHealthProfile().getId() : null;
+            return new SourceRef("medication_records", record.getId(), profileId);
+        }
+        return null;
+    }
+
+    private String token(String fieldType, String word) {
+        Mac mac = macs.get();
+        mac.update(fieldType.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        byte[] digest = mac.doFinal(word.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, TOKEN_BYTES));
+    }
+
+    /**
+     * Lower case, accents removed, runs of anything but letters and digits collapsed to one space
+     */
+    static String normalize(String value) {
+        if (value == null || value.isBlank()) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFKD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        boolean space = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (space && !normalized.isEmpty()) {
+                    normalized.append(' ');
+                }
+                normalized.append(Character.toLowerCase(c));
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    static List<String> tokenize(String value) {
+        String normalized = normalize(value);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String word : normalized.split(" ")) {
+            if (word.length() >= MIN_TOKEN_LENGTH) {
+                tokens.add(word);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Rows queued in one transaction; write-through once the batch has been written at commit
+     */
+    private static final class PendingBatch {
+        private final Map<SourceRef, Object> entries = new LinkedHashMap<>();
+        private boolean writeThrough;
+    }
+
+    private record SourceRef(String table, long sourceId, Long healthProfileId) {
+        static final Object REMOVED = new Object();
+    }
+}
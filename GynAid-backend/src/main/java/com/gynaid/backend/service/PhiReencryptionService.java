@@ -0,0 +1,196 @@
+package com.gynaid.backend.service;
+
+import com.gynaid.backend.entity.PhiReencryptionCheckpoint;
+import com.gynaid.backend.repository.PhiReencryptionCheckpointRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Online re-encryption of PHI columns to the active data key.
+ *
+ * After a data key rotation, one node (via the scheduler lease) walks each PHI table
+ * in primary key order, in batches of a few hundred rows, and rewrites every value
+ * that is still under an older key. Progress is checkpointed per table after each
+ * batch, so a restart resumes where the last run stopped; a newer rotation restarts
+ * the pass. Batches are throttled to a configured rows-per-second rate, and each
+ * value is updated with a compare-and-set on its old ciphertext so concurrent writes
+ * from the application are never overwritten. Plaintext left from before a column was
+ * encrypted is encrypted by the same pass.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PhiReencryptionService {
+
+    private static final String LEASE_NAME = "phi-reencryption";
+
+    // Encrypted columns per table; names are fixed here, never taken from input
+    private static final List<PhiTable> PHI_TABLES = List.of(
+        new PhiTable("client_health_profiles", List.of(
+            "emergency_contact_name", "emergency_contact_phone", "emergency_contact_relationship")),
+        new PhiTable("medical_histories", List.of(
+            "chronic_conditions", "allergies", "current_medications", "family_history",
+            "previous_surgeries", "reproductive_health_issues", "vaccination_history", "additional_notes")),
+        new PhiTable("medication_records", List.of("medication_name", "dosage", "reason"))
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FieldLevelEncryptionService encryptionService;
+    private final PhiReencryptionCheckpointRepository checkpointRepository;
+    private final SchedulerLeaseService schedulerLeaseService;
+
+    @Value("${app.encryption.reencryption.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.encryption.reencryption.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.encryption.reencryption.rows-per-second:500}")
+    private int rowsPerSecond;
+
+    @Value("${app.encryption.reencryption.max-run-seconds:50}")
+    private int maxRunSeconds;
+
+    @Value("${app.encryption.reencryption.lease-seconds:120}")
+    private int leaseSeconds;
+
+    /**
+     * Continue the current re-encryption pass for up to max-run-seconds
+     */
+    @Scheduled(fixedDelayString = "${app.encryption.reencryption.interval-ms:60000}")
+    public void reencryptPending() {
+        if (!enabled || !schedulerLeaseService.tryAcquire(LEASE_NAME, leaseSeconds)) {
+            return;
+        }
+
+        long targetKeyId = encryptionService.getActiveDataKeyId();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(maxRunSeconds);
+
+        for (PhiTable table : PHI_TABLES) {
+            if (System.nanoTime() >= deadline) {
+                return;
+            }
+            try {
+                processTable(table, targetKeyId, deadline);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Re-encryption of {} failed, will resume from the last checkpoint", table.name(), e);
+            }
+        }
+    }
+
+    /**
+     * Checkpoints of the current pass, one per PHI table
+     */
+    public List<PhiReencryptionCheckpoint> getProgress() {
+        return checkpointRepository.findAll();
+    }
+
+    private void processTable(PhiTable table, long targetKeyId, long deadline) throws InterruptedException {
+        PhiReencryptionCheckpoint checkpoint = checkpointRepository.findById(table.name())
+            .orElseGet(() -> newCheckpoint(table, targetKeyId));
+        if (checkpoint.getTargetKeyId() != targetKeyId) {
+            log.info("Data key rotated to {}, restarting re-encryption of {}", targetKeyId, table.name());
+            checkpoint = newCheckpoint(table, targetKeyId);
+        }
+        if (checkpoint.getCompletedAt() != null) {
+            return;
+        }
+
+        String select = "SELECT id, " + String.join(", ", table.columns()) + " FROM " + table.name()
+            + " WHERE id > ? ORDER BY id LIMIT ?";
+
+        while (System.nanoTime() < deadline) {
+            long batchStart = System.nanoTime();
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(select, checkpoint.getLastId(), batchSize);
+            LocalDateTime now = LocalDateTime.now();
+
+            if (rows.isEmpty()) {
+                checkpoint.setCompletedAt(now);
+                checkpoint.setUpdatedAt(now);
+                checkpointRepository.save(checkpoint);
+                log.info("Re-encryption of {} to data key {} complete: {} rows scanned, {} values rewritten",
+                         table.name(), targetKeyId, checkpoint.getRowsScanned(), checkpoint.getValuesRewritten());
+                return;
+            }
+
+            int rewritten = rewriteBatch(table, rows);
+
+            checkpoint.setLastId(((Number) rows.get(rows.size() - 1).get("id")).longValue());
+            checkpoint.setRowsScanned(checkpoint.getRowsScanned() + rows.size());
+            checkpoint.setValuesRewritten(checkpoint.getValuesRewritten() + rewritten);
+            checkpoint.setUpdatedAt(now);
+            checkpointRepository.save(checkpoint);
+
+            throttle(rows.size(), batchStart);
+        }
+    }
+
+    private int rewriteBatch(PhiTable table, List<Map<String, Object>> rows) {
+        int rewritten = 0;
+        for (String column : table.columns()) {
+            List<Object[]> updates = new ArrayList<>();
+            for (Map<String, Object> row : rows) {
+                Object value = row.get(column);
+                if (!(value instanceof String ciphertext) || ciphertext.isBlank()
+                        || encryptionService.isCurrent(ciphertext)) {
+                    continue;
+                }
+                try {
+                    updates.add(new Object[] {encryptionService.reencrypt(ciphertext), row.get("id"), ciphertext});
+                } catch (Exception e) {
+                    // Value under a data key that is no longer available
+                    log.debug("Skipping unreadable value in {}.{} of row {}", table.name(), column, row.get("id"));
+                }
+            }
+            if (!updates.isEmpty()) {
+                // Compare-and-set: a row changed since it was read keeps the newer value
+                int[] counts = jdbcTemplate.batchUpdate(
+                    "UPDATE " + table.name() + " SET " + column + " = ? WHERE id = ? AND " + column + " = ?", updates);
+                for (int count : counts) {
+                    rewritten += Math.max(count, 0);
+                }
+            }
+        }
+        return rewritten;
+    }
+
+    private void throttle(int rows, long batchStartNanos) throws InterruptedException {
+        if (rowsPerSecond <= 0) {
+            return;
+        }
+        long budgetMillis = TimeUnit.SECONDS.toMillis(rows) / rowsPerSecond;
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - batchStartNanos);
+        if (budgetMillis > elapsedMillis) {
+            Thread.sleep(budgetMillis - elapsedMillis);
+        }
+    }
+
+    private PhiReencryptionCheckpoint newCheckpoint(PhiTable table, long targetKeyId) {
+        LocalDateTime now = LocalDateTime.now();
+        return checkpointRepository.save(PhiReencryptionCheckpoint.builder()
+            .tableName(table.name())
+            .targetKeyId(targetKeyId)
+            .lastId(0L)
+            .rowsScanned(0)
+            .valuesRewritten(0)
+            .startedAt(now)
+            .updatedAt(now)
+            .build());
+    }
+
+    private record PhiTable(String name, List<String> columns) {
+    }
+}
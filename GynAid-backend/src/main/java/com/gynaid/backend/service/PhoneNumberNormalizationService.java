@@ -0,0 +1,89 @@
+package com.gynaid.backend.service;
+
+import com.gynaid.backend.util.UgandaPhoneNumber;
+import lombok.Builder;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rewrites stored user phone numbers to the canonical +256XXXXXXXXX form.
+ *
+ * Users are walked in primary key order in batches; only rows whose number parses
+ * and differs from its canonical form are updated, with a compare-and-set on the old
+ * value so a concurrent profile edit is kept. Numbers that are not valid Uganda
+ * numbers are left as they are and counted.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PhoneNumberNormalizationService {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public NormalizationResult normalizeUserPhoneNumbers() {
+        long lastId = 0;
+        int scanned = 0;
+        int normalized = 0;
+        int invalid = 0;
+
+        while (true) {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT id, phone_number FROM users WHERE id > ? AND phone_number IS NOT NULL ORDER BY id LIMIT ?",
+                lastId, BATCH_SIZE);
+            if (rows.isEmpty()) {
+                break;
+            }
+
+            List<Object[]> updates = new ArrayList<>();
+            for (Map<String, Object> row : rows) {
+                String current = (String) row.get("phone_number");
+                long number = UgandaPhoneNumber.parse(current);
+                if (number == UgandaPhoneNumber.INVALID) {
+                    if (!current.isBlank()) {
+                        invalid++;
+                    }
+                    continue;
+                }
+                String canonical = UgandaPhoneNumber.format(number);
+                if (!canonical.equals(current)) {
+                    updates.add(new Object[] {canonical, row.get("id"), current});
+                }
+            }
+
+            if (!updates.isEmpty()) {
+                int[] counts = jdbcTemplate.batchUpdate(
+                    "UPDATE users SET phone_number = ? WHERE id = ? AND phone_number = ?", updates);
+                for (int count : counts) {
+                    normalized += Math.max(count, 0);
+                }
+            }
+
+            scanned += rows.size();
+            lastId = ((Number) rows.get(rows.size() - 1).get("id")).longValue();
+        }
+
+        log.info("Phone number normalization: {} users scanned, {} normalized, {} invalid", scanned, normalized, invalid);
+        return NormalizationResult.builder()
+            .scanned(scanned)
+            .normalized(normalized)
+            .invalid(invalid)
+            .build();
+    }
+
+    @Data
+    @Builder
+    public static class NormalizationResult {
+        private int scanned;
+        private int normalized;
+        private int invalid;
+    }
+}
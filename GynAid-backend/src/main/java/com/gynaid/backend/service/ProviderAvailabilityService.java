@@ -0,0 +1,205 @@
+package com.gynaid.backend.service;
+
+import com.gynaid.backend.entity.Appointment;
+import com.gynaid.backend.entity.HealthcareProvider;
+import com.gynaid.backend.repository.AppointmentRepository;
+import com.gynaid.backend.repository.HealthcareProviderRepository;
+import lombok.Builder;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Bulk availability search across many providers.
+ *
+ * All busy intervals for the candidate providers are fetched with a single query and
+ * folded into one occupancy bitmap per provider (one bit per slot in the window).
+ * The free slots of every provider are then merged with a k-way heap so only the
+ * earliest N slots are materialised. Memory is bounded by the provider and window caps.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProviderAvailabilityService {
+
+    static final int SLOT_MINUTES = 30;
+    static final LocalTime CLINIC_OPEN = LocalTime.of(8, 0);
+    static final LocalTime CLINIC_CLOSE = LocalTime.of(17, 0);
+    static final int MAX_PROVIDERS = 200;
+    static final int MAX_WINDOW_DAYS = 14;
+    static final int MAX_RESULTS = 100;
+
+    private static final Set<Appointment.AppointmentStatus> BLOCKING_STATUSES =
+        EnumSet.of(Appointment.AppointmentStatus.PENDING, Appointment.AppointmentStatus.APPROVED);
+
+    private final AppointmentRepository appointmentRepository;
+    private final HealthcareProviderRepository providerRepository;
+
+    /**
+     * Earliest free slots for verified providers in a district and/or specialization
+     */
+    @Transactional(readOnly = true)
+    public List<AvailableSlot> findEarliestSlots(String district,
+                                                 HealthcareProvider.Specialization specialization,
+                                                 LocalDateTime from,
+                                                 LocalDateTime to,
+                                                 int limit) {
+        if (district == null && specialization == null) {
+            throw new IllegalArgumentException("Either district or specialization is required");
+        }
+
+        List<HealthcareProvider> candidates;
+        if (district != null) {
+            candidates = providerRepository.findByDistrict(district).stream()
+                .filter(p -> specialization == null
+                    || (p.getSpecializations() != null && p.getSpecializations().contains(specialization)))
+                .limit(MAX_PROVIDERS)
+                .toList();
+        } else {
+            candidates = providerRepository
+                .findBySpecializationWithPriority(specialization, PageRequest.of(0, MAX_PROVIDERS))
+                .getContent();
+        }
+
+        return findEarliestSlots(candidates, from, to, limit);
+    }
+
+    /**
+     * Earliest free slots across the given providers, in provider order for ties
+     */
+    @Transactional(readOnly = true)
+    public List<AvailableSlot> findEarliestSlots(List<HealthcareProvider> providers,
+                                                 LocalDateTime from,
+                                                 LocalDateTime to,
+                                                 int limit) {
+        LocalDateTime windowStart = alignToSlot(from.isBefore(LocalDateTime.now()) ? LocalDateTime.now() : from);
+        LocalDateTime maxEnd = windowStart.plusDays(MAX_WINDOW_DAYS);
+        LocalDateTime windowEnd = to.isAfter(maxEnd) ? maxEnd : to;
+        int slotCount = (int) (Duration.between(windowStart, windowEnd).toMinutes() / SLOT_MINUTES);
+        int wanted = Math.min(Math.max(limit, 1), MAX_RESULTS);
+
+        // Only providers linked to a user account can be booked
+        List<HealthcareProvider> bookable = providers.stream()
+            .filter(p -> p.getUser() != null)
+            .limit(MAX_PROVIDERS)
+            .toList();
+        if (slotCount <= 0 || bookable.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Integer> indexByUserId = new HashMap<>();
+        for (int i = 0; i < bookable.size(); i++) {
+            indexByUserId.putIfAbsent(bookable.get(i).getUser().getId(), i);
+        }
+
+        BitSet closed = closedSlots(windowStart, slotCount);
+        BitSet[] occupancy = new BitSet[bookable.size()];
+        for (int i = 0; i < occupancy.length; i++) {
+            occupancy[i] = (BitSet) closed.clone();
+        }
+
+        List<AppointmentRepository.BusyInterval> busy = appointmentRepository.findBusyIntervalsForProviders(
+            indexByUserId.keySet(), BLOCKING_STATUSES, windowStart, windowEnd);
+        for (AppointmentRepository.BusyInterval interval : busy) {
+            Integer idx = indexByUserId.get(interval.getProviderId());
+            if (idx == null) {
+                continue;
+            }
+            int first = (int) Math.max(0,
+                Duration.between(windowStart, interval.getStartTime()).toMinutes() / SLOT_MINUTES);
+            long endMinutes = Duration.between(windowStart, interval.getEndTime()).toMinutes();
+            int last = (int) Math.min(slotCount, (endMinutes + SLOT_MINUTES - 1) / SLOT_MINUTES);
+            if (first < last) {
+                occupancy[idx].set(first, last);
+            }
+        }
+
+        // k-way merge over each provider's ascending free-slot sequence
+        PriorityQueue<long[]> heap = new PriorityQueue<>(bookable.size(),
+            (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        for (int i = 0; i < occupancy.length; i++) {
+            int slot = occupancy[i].nextClearBit(0);
+            if (slot < slotCount) {
+                heap.add(new long[]{slot, i});
+            }
+        }
+
+        List<AvailableSlot> result = new ArrayList<>(wanted);
+        while (!heap.isEmpty() && result.size() < wanted) {
+            long[] head = heap.poll();
+            int slot = (int) head[0];
+            int idx = (int) head[1];
+            HealthcareProvider provider = bookable.get(idx);
+            LocalDateTime start = windowStart.plusMinutes((long) slot * SLOT_MINUTES);
+
+            result.add(AvailableSlot.builder()
+                .providerId(provider.getId())
+                .providerUserId(provider.getUser().getId())
+                .providerName(provider.getName())
+                .district(provider.getDistrict())
+                .startTime(start)
+                .endTime(start.plusMinutes(SLOT_MINUTES))
+                .build());
+
+            int next = occupancy[idx].nextClearBit(slot + 1);
+            if (next < slotCount) {
+                head[0] = next;
+                heap.add(head);
+            }
+        }
+
+        log.info("Bulk slot search over {} providers and {} slots returned {} slots",
+                 bookable.size(), slotCount, result.size());
+        return result;
+    }
+
+    /**
+     * Slots outside clinic hours, shared as the starting bitmap for every provider
+     */
+    private BitSet closedSlots(LocalDateTime windowStart, int slotCount) {
+        BitSet closed = new BitSet(slotCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            LocalTime start = windowStart.plusMinutes((long) slot * SLOT_MINUTES).toLocalTime();
+            if (start.isBefore(CLINIC_OPEN) || start.isAfter(CLINIC_CLOSE.minusMinutes(SLOT_MINUTES))) {
+                closed.set(slot);
+            }
+        }
+        return closed;
+    }
+
+    private LocalDateTime alignToSlot(LocalDateTime time) {
+        LocalDateTime minute = time.truncatedTo(ChronoUnit.MINUTES);
+        if (minute.isBefore(time)) {
+            minute = minute.plusMinutes(1);
+        }
+        int remainder = minute.getMinute() % SLOT_MINUTES;
+        return remainder == 0 ? minute : minute.plusMinutes(SLOT_MINUTES - remainder);
+    }
+
+    @Data
+    @Builder
+    public static class AvailableSlot {
+        private Long providerId;
+        private Long providerUserId;
+        private String providerName;
+        private String district;
+        private LocalDateTime startTime;
+        private LocalDateTime endTime;
+    }
+}
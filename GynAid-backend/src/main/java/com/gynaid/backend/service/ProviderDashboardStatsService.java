@@ -0,0 +1,202 @@
+package com.gynaid.backend.service;
+
+import com.gynaid.backend.entity.Appointment;
+import com.gynaid.backend.entity.ProviderDashboardCounter;
+import com.gynaid.backend.event.ProviderStatusChangedEvent;
+import com.gynaid.backend.repository.AppointmentRepository;
+import com.gynaid.backend.repository.ConsultationRepository;
+import com.gynaid.backend.repository.ProviderDashboardCounterRepository;
+import lombok.Builder;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Pre-aggregated provider dashboard counters.
+ *
+ * Consultation and appointment status changes are published as events by the owning
+ * services; after the publishing transaction commits, the matching counter rows are
+ * adjusted with atomic UPDATE ... SET value = value + delta statements.
+ * Reading a dashboard is then a single indexed lookup of a handful of rows.
+ *
+ * A periodic reconciliation job (one node, via the scheduler lease) recomputes the
+ * counters from grouped COUNT queries and repairs any drift, e.g. from bulk updates
+ * made by the state sweeper or from an event lost to a crash.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProviderDashboardStatsService {
+
+    private static final String LEASE_NAME = "dashboard-reconciler";
+
+    private final ProviderDashboardCounterRepository counterRepository;
+    private final ConsultationRepository consultationRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final SchedulerLeaseService schedulerLeaseService;
+
+    @Value("${app.dashboard.reconcile-enabled:true}")
+    private boolean reconcileEnabled;
+
+    @Value("${app.dashboard.lease-seconds:600}")
+    private int leaseSeconds;
+
+    /**
+     * Current dashboard counters of a provider (provider user id)
+     */
+    public ProviderDashboardStats getStats(Long providerId) {
+        Map<String, Long> consultations = new TreeMap<>();
+        Map<String, Long> appointments = new TreeMap<>();
+
+        for (ProviderDashboardCounter counter : counterRepository.findByProviderId(providerId)) {
+            String key = counter.getCounterKey();
+            long count = Math.max(0, counter.getCountValue());
+            if (key.startsWith(ProviderStatusChangedEvent.Subject.CONSULTATION.name() + ":")) {
+                consultations.put(key.substring(key.indexOf(':') + 1), count);
+            } else if (key.startsWith(ProviderStatusChangedEvent.Subject.APPOINTMENT.name() + ":")) {
+                appointments.put(key.substring(key.indexOf(':') + 1), count);
+            }
+        }
+
+        return ProviderDashboardStats.builder()
+            .consultationsByStatus(consultations)
+            .appointmentsByStatus(appointments)
+            .totalConsultations(consultations.values().stream().mapToLong(Long::longValue).sum())
+            .pendingRequests(appointments.getOrDefault(Appointment.AppointmentStatus.PENDING.name(), 0L))
+            .build();
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(ProviderStatusChangedEvent event) {
+        if (event.providerId() == null || event.toStatus().equals(event.fromStatus())) {
+            return;
+        }
+        String prefix = event.subject().name() + ":";
+        if (event.fromStatus() != null) {
+            add(event.providerId(), prefix + event.fromStatus(), -1, BigDecimal.ZERO);
+        }
+        add(event.providerId(), prefix + event.toStatus(), 1, BigDecimal.ZERO);
+    }
+
+    /**
+     * Recompute every counter from the source tables and overwrite the ones that drifted
+     */
+    @Scheduled(cron = "${app.dashboard.reconcile-cron:0 */15 * * * *}")
+    public void reconcile() {
+        if (!reconcileEnabled || !schedulerLeaseService.tryAcquire(LEASE_NAME, leaseSeconds)) {
+            return;
+        }
+
+        Map<CounterKey, CounterValue> expected = new HashMap<>();
+
+        for (ConsultationRepository.StatusCountRow row : consultationRepository.countGroupedByProviderAndStatus()) {
+            expected.put(new CounterKey(row.getProviderId(),
+                    ProviderStatusChangedEvent.Subject.CONSULTATION.name() + ":" + row.getStatus().name()),
+                new CounterValue(row.getTotal(), BigDecimal.ZERO));
+        }
+        for (AppointmentRepository.StatusCountRow row : appointmentRepository.countGroupedByProviderAndStatus()) {
+            expected.put(new CounterKey(row.getProviderId(),
+                    ProviderStatusChangedEvent.Subject.APPOINTMENT.name() + ":" + row.getStatus().name()),
+                new CounterValue(row.getTotal(), BigDecimal.ZERO));
+        }
+
+        int repaired = 0;
+        List<ProviderDashboardCounter> stored = counterRepository.findAll();
+        Map<CounterKey, CounterValue> actual = new HashMap<>(stored.size());
+        for (ProviderDashboardCounter counter : stored) {
+            actual.put(new CounterKey(counter.getProviderId(), counter.getCounterKey()),
+                new CounterValue(counter.getCountValue(), counter.getAmountValue()));
+        }
+
+        for (Map.Entry<CounterKey, CounterValue> entry : expected.entrySet()) {
+            if (!entry.getValue().matches(actual.get(entry.getKey()))) {
+                set(entry.getKey(), entry.getValue());
+                repaired++;
+            }
+        }
+        CounterValue zero = new CounterValue(0, BigDecimal.ZERO);
+        for (Map.Entry<CounterKey, CounterValue> entry : actual.entrySet()) {
+            if (!expected.containsKey(entry.getKey()) && !zero.matches(entry.getValue())) {
+                set(entry.getKey(), zero);
+                repaired++;
+            }
+        }
+
+        if (repaired > 0) {
+            log.info("Dashboard reconciliation repaired {} of {} counters", repaired, expected.size());
+        }
+    }
+
+    private void add(Long providerId, String counterKey, long countDelta, BigDecimal amountDelta) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            if (counterRepository.increment(providerId, counterKey, countDelta, amountDelta, now) == 0) {
+                try {
+                    counterRepository.saveAndFlush(ProviderDashboardCounter.builder()
+                        .providerId(providerId)
+                        .counterKey(counterKey)
+                        .countValue(countDelta)
+                        .amountValue(amountDelta)
+                        .updatedAt(now)
+                        .build());
+                } catch (DataIntegrityViolationException e) {
+                    // Created concurrently by another event
+                    counterRepository.increment(providerId, counterKey, countDelta, amountDelta, now);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to update dashboard counter {} for provider {}; reconciliation will repair it: {}",
+                     counterKey, providerId, e.getMessage());
+        }
+    }
+
+    private void set(CounterKey key, CounterValue value) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            if (counterRepository.overwrite(key.providerId(), key.counterKey(), value.count(), value.amount(), now) == 0) {
+                counterRepository.saveAndFlush(ProviderDashboardCounter.builder()
+                    .providerId(key.providerId())
+                    .counterKey(key.counterKey())
+                    .countValue(value.count())
+                    .amountValue(value.amount())
+                    .updatedAt(now)
+                    .build());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to reconcile dashboard counter {} for provider {}: {}",
+                     key.counterKey(), key.providerId(), e.getMessage());
+        }
+    }
+
+    private record CounterKey(Long providerId, String counterKey) {
+    }
+
+    private record CounterValue(long count, BigDecimal amount) {
+        boolean matches(CounterValue other) {
+            return other != null && other.count == count && other.amount.compareTo(amount) == 0;
+        }
+    }
+
+    @Data
+    @Builder
+    public static class ProviderDashboardStats {
+        private Map<String, Long> consultationsByStatus;
+        private Map<String, Long> appointmentsByStatus;
+        private long totalConsultations;
+        private long pendingRequests;
+    }
+}
@@ -0,0 +1,244 @@
+package com.gynaid.backend.service;
+
+import com.gynaid.backend.entity.ProviderEarningsDaily;
+import com.gynaid.backend.event.ProviderEarningsChangedEvent;
+import com.gynaid.backend.repository.PaymentRepository;
+import com.gynaid.backend.repository.ProviderEarningsDailyRepository;
+import lombok.Builder;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-provider earnings rolled up by day.
+ *
+ * Payment successes are booked on the day the payment succeeded and refunds, for the
+ * refunded amount, as reversals on the day of the refund. The rollup is updated after
+ * the payment transaction commits, in its own transaction: a refund has already been
+ * issued at Stripe by then, so a rollup failure must never roll back the payment state.
+ * A missed update is logged and repaired by rebuild(), which applies the same booking
+ * rules to the payments table. Dashboards and payout reports read indexed range sums
+ * over a few hundred small rows instead of joining payments to appointments.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProviderEarningsService {
+
+    static final int MAX_REPORT_DAYS = 366;
+
+    private final ProviderEarningsDailyRepository earningsRepository;
+    private final PaymentRepository paymentRepository;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onEarningsChanged(ProviderEarningsChangedEvent event) {
+        if (event.providerId() == null) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate day = (event.occurredAt() != null ? event.occurredAt() : now).toLocalDate();
+        BigDecimal gross = signed(event.grossAmount(), event.refund());
+        BigDecimal share = signed(event.providerShare(), event.refund());
+        BigDecimal fee = signed(event.platformFee(), event.refund());
+        long payments = event.refund() ? 0 : 1;
+        long refunds = event.refund() ? 1 : 0;
+
+        try {
+            if (earningsRepository.increment(event.providerId(), day, gross, share, fee, payments, refunds, now) == 0) {
+                createBucket(event.providerId(), day, now);
+                if (earningsRepository.increment(event.providerId(), day, gross, share, fee, payments, refunds, now) == 0) {
+                    throw new IllegalStateException("Earnings bucket missing after insert");
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to book {} of payment {} for provider {} on {}; rebuild the rollup for that day",
+                      event.refund() ? "refund" : "success", event.paymentId(), event.providerId(), day, e);
+            throw e;
+        }
+    }
+
+    private void createBucket(Long providerId, LocalDate day, LocalDateTime now) {
+        try {
+            earningsRepository.createBucket(providerId, day, now);
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent update created the bucket first
+            log.debug("Earnings bucket for provider {} on {} created concurrently", providerId, day);
+        }
+    }
+
+    /**
+     * Share of a payment component covered by a (possibly partial) refund
+     */
+    public static BigDecimal refundedPortion(BigDecimal component, BigDecimal refunded, BigDecimal amount) {
+        if (component == null || refunded == null || amount == null || amount.signum() == 0
+                || refunded.compareTo(amount) >= 0) {
+            return component != null ? component : BigDecimal.ZERO;
+        }
+        return component.multiply(refunded).divide(amount, 2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Provider's totals for the current calendar month
+     */
+    @Transactional(readOnly = true)
+    public EarningsSummary getMonthToDate(Long providerId) {
+        LocalDate today = LocalDate.now();
+        return getSummary(providerId, today.withDayOfMonth(1), today.plusDays(1));
+    }
+
+    /**
+     * Provider's totals for [from, to)
+     */
+    @Transactional(readOnly = true)
+    public EarningsSummary getSummary(Long providerId, LocalDate from, LocalDate to) {
+        validateRange(from, to);
+        return earningsRepository.sumForProvider(providerId, from, to).stream()
+            .findFirst()
+            .map(totals -> toSummary(totals, from, to))
+            .orElseGet(() -> EarningsSummary.builder()
+                .providerId(providerId)
+                .from(from)
+                .to(to)
+                .build());
+    }
+
+    /**
+     * Provider payout statement: daily buckets plus totals for [from, to)
+     */
+    @Transactional(readOnly = true)
+    public PayoutStatement getPayoutStatement(Long providerId, LocalDate from, LocalDate to) {
+        return PayoutStatement.builder()
+            .summary(getSummary(providerId, from, to))
+            .days(earningsRepository.findRange(providerId, from, to))
+            .build();
+    }
+
+    /**
+     * Totals of every provider with earnings in [from, to), for the platform payout run
+     */
+    @Transactional(readOnly = true)
+    public List<EarningsSummary> getPayoutRun(LocalDate from, LocalDate to) {
+        validateRange(from, to);
+        return earningsRepository.sumByProvider(from, to).stream()
+            .map(totals -> toSummary(totals, from, to))
+            .toList();
+    }
+
+    /**
+     * Rebuild the rollup for [from, to) from the payments table, e.g. after a backfill or
+     * a failed live update. Uses the live booking rules: payments, including those later
+     * refunded, on the day they succeeded, and refunds as reversals of the refunded
+     * amount on the refund day.
+     */
+    @Transactional
+    public int rebuild(LocalDate from, LocalDate to) {
+        validateRange(from, to);
+        earningsRepository.deleteRange(from, to);
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, ProviderEarningsDaily> buckets = new LinkedHashMap<>();
+        for (PaymentRepository.DailyEarningsRow row : paymentRepository
+                .sumDailyProviderEarnings(from.atStartOfDay(), to.atStartOfDay())) {
+            ProviderEarningsDaily bucket = bucket(buckets, row.getProviderId(), row.getDay(), now);
+            bucket.setGrossAmount(bucket.getGrossAmount().add(row.getGrossAmount()));
+            bucket.setProviderShare(bucket.getProviderShare().add(row.getProviderShare()));
+            bucket.setPlatformFee(bucket.getPlatformFee().add(row.getPlatformFee()));
+            bucket.setPaymentCount(bucket.getPaymentCount() + row.getPayments());
+        }
+        for (PaymentRepository.RefundRow row : paymentRepository
+                .findRefundsForEarnings(from.atStartOfDay(), to.atStartOfDay())) {
+            ProviderEarningsDaily bucket = bucket(buckets, row.getProviderId(), row.getRefundedAt().toLocalDate(), now);
+            bucket.setGrossAmount(bucket.getGrossAmount().subtract(row.getRefundedAmount()));
+            bucket.setProviderShare(bucket.getProviderShare().subtract(
+                refundedPortion(row.getProviderShare(), row.getRefundedAmount(), row.getAmount())));
+            bucket.setPlatformFee(bucket.getPlatformFee().subtract(
+                refundedPortion(row.getPlatformFee(), row.getRefundedAmount(), row.getAmount())));
+            bucket.setRefundCount(bucket.getRefundCount() + 1);
+        }
+        earningsRepository.saveAll(buckets.values());
+
+        log.info("Rebuilt {} provider earnings buckets between {} and {}", buckets.size(), from, to);
+        return buckets.size();
+    }
+
+    private static ProviderEarningsDaily bucket(Map<String, ProviderEarningsDaily> buckets, Long providerId,
+                                                LocalDate day, LocalDateTime now) {
+        return buckets.computeIfAbsent(providerId + ":" + day, key -> ProviderEarningsDaily.builder()
+            .providerId(providerId)
+            .earningsDate(day)
+            .updatedAt(now)
+            .build());
+    }
+
+    private void validateRange(LocalDate from, LocalDate to) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("A non-empty date range is required");
+        }
+        if (ChronoUnit.DAYS.between(from, to) > MAX_REPORT_DAYS) {
+            throw new IllegalArgumentException("Date range cannot exceed " + MAX_REPORT_DAYS + " days");
+        }
+    }
+
+    private static BigDecimal signed(BigDecimal amount, boolean refund) {
+        if (amount == null) {
+            return BigDecimal.ZERO;
+        }
+        return refund ? amount.negate() : amount;
+    }
+
+    private static EarningsSummary toSummary(ProviderEarningsDailyRepository.EarningsTotals totals,
+                                             LocalDate from, LocalDate to) {
+        return EarningsSummary.builder()
+            .providerId(totals.getProviderId())
+            .from(from)
+            .to(to)
+            .grossAmount(totals.getGrossAmount())
+            .providerShare(totals.getProviderShare())
+            .platformFee(totals.getPlatformFee())
+            .paymentCount(totals.getPaymentCount())
+            .refundCount(totals.getRefundCount())
+            .build();
+    }
+
+    @Data
+    @Builder
+    public static class EarningsSummary {
+        private Long providerId;
+        private LocalDate from;
+        private LocalDate to;
+        @Builder.Default
+        private BigDecimal grossAmount = BigDecimal.ZERO;
+        @Builder.Default
+        private BigDecimal providerShare = BigDecimal.ZERO;
+        @Builder.Default
+        private BigDecimal platformFee = BigDecimal.ZERO;
+        @Builder.Default
+        private long paymentCount = 0;
+        @Builder.Default
+        private long refundCount = 0;
+    }
+
+    @Data
+    @Builder
+    public static class PayoutStatement {
+        private EarningsSummary summary;
+        private List<ProviderEarningsDaily> days;
+    }
+}
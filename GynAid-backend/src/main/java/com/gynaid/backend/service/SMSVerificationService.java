@@ -1,20 +1,18 @@
 package com.gynaid.backend.service;
 
+import com.gynaid.backend.service.sms.SmsDispatchService;
+import com.gynaid.backend.service.sms.SmsTemplate;
+import com.gynaid.backend.util.UgandaPhoneNumber;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.twilio.rest.api.v2010.account.Message;
-import com.twilio.type.PhoneNumber;
-
 import java.security.SecureRandom;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
-import java.util.concurrent.TimeUnit;
-import java.util.regex.Pattern;
+import java.util.Map;
 
 /**
  * Enterprise-grade SMS verification service for GynAid
@@ -25,11 +23,8 @@ import java.util.regex.Pattern;
 @RequiredArgsConstructor
 public class SMSVerificationService {
 
-    private final RedisTemplate<String, Object> redisTemplate;
-    private final TwilioClient twilioClient;
-    
-    @Value("${app.sms.twilio.phone-number}")
-    private String twilioPhoneNumber;
+    private final VerificationCodeStore verificationCodeStore;
+    private final SmsDispatchService smsDispatchService;
     
     @Value("${app.verification.sms.expiry-minutes:10}")
     private int smsVerificationExpiryMinutes;
@@ -51,8 +46,8 @@ public class SMSVerificationService {
     public SMSVerificationResult sendSMSVerification(String phoneNumber) {
         try {
             // Normalize and validate Uganda phone number
-            String ugandaNumber = normalizeUgandaNumber(phoneNumber);
-            if (!isValidUgandaNumber(ugandaNumber)) {
+            long number = UgandaPhoneNumber.parse(phoneNumber);
+            if (number == UgandaPhoneNumber.INVALID) {
                 return SMSVerificationResult.builder()
                     .success(false)
                     .error("Invalid Uganda phone number format")
@@ -60,48 +55,42 @@ public class SMSVerificationService {
                     .build();
             }
 
-            // Check rate limiting (3 SMS per 10 minutes)
-            if (isRateLimited(ugandaNumber)) {
+            // Generate secure verification code
+            String verificationCode = generateSecureCode();
+            String sessionId = generateSessionId();
+            LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(smsVerificationExpiryMinutes);
+
+            // Store the code and set the resend block in one atomic call
+            String verificationKey = verificationKey(number);
+            String rateLimitKey = rateLimitKey(number);
+            long retryAfterSeconds = verificationCodeStore.issue(verificationKey, rateLimitKey, verificationCode,
+                Duration.ofMinutes(smsVerificationExpiryMinutes), Duration.ofMinutes(smsResendDelayMinutes),
+                Map.of("sessionId", sessionId));
+            if (retryAfterSeconds > 0) {
                 return SMSVerificationResult.builder()
                     .success(false)
                     .error("Too many SMS sent. Please wait before requesting again.")
-                    .retryAfterMinutes(smsResendDelayMinutes)
+                    .retryAfterMinutes((int) Math.max(1, (retryAfterSeconds + 59) / 60))
                     .errorCode("RATE_LIMITED")
                     .build();
             }
 
-            // Generate secure verification code
-            String verificationCode = generateSecureCode();
-            String sessionId = generateSessionId();
+            // Queue the SMS on the priority lane; the send itself happens off the request thread
+            try {
+                smsDispatchService.send(number, SmsTemplate.VERIFICATION_CODE, expiresAt,
+                        verificationCode, smsVerificationExpiryMinutes)
+                    .whenComplete((sent, error) -> {
+                        if (!Boolean.TRUE.equals(sent) && error == null) {
+                            // Clean up if SMS finally failed so the user can request a new code
+                            verificationCodeStore.discard(verificationKey, rateLimitKey);
+                            log.warn("SMS verification could not be delivered to: {}", UgandaPhoneNumber.mask(number));
+                        }
+                    });
+            } catch (RuntimeException e) {
+                // Clean up if the SMS could not be queued
+                verificationCodeStore.discard(verificationKey, rateLimitKey);
+                log.error("Failed to queue SMS verification for: {}", UgandaPhoneNumber.mask(number), e);
 
-            // Store SMS verification data
-            SMSVerificationData smsData = new SMSVerificationData();
-            smsData.setPhoneNumber(ugandaNumber);
-            smsData.setCode(verificationCode);
-            smsData.setSessionId(sessionId);
-            smsData.setAttempts(0);
-            smsData.setCreatedAt(LocalDateTime.now());
-            smsData.setExpiresAt(LocalDateTime.now().plusMinutes(smsVerificationExpiryMinutes));
-
-            String verificationKey = SMS_VERIFICATION_PREFIX + ugandaNumber;
-            redisTemplate.opsForValue().set(
-                verificationKey,
-                smsData,
-                smsVerificationExpiryMinutes,
-                TimeUnit.MINUTES
-            );
-
-            // Track rate limiting
-            String rateLimitKey = SMS_RATE_LIMIT_PREFIX + ugandaNumber;
-            redisTemplate.opsForValue().set(rateLimitKey, "1", smsResendDelayMinutes, TimeUnit.MINUTES);
-
-            // Send SMS via Twilio
-            boolean smsSent = sendSMS(ugandaNumber, verificationCode);
-            if (!smsSent) {
-                // Clean up if SMS failed
-                redisTemplate.delete(verificationKey);
-                redisTemplate.delete(rateLimitKey);
-                
                 return SMSVerificationResult.builder()
                     .success(false)
                     .error("Failed to send SMS. Please try again later.")
@@ -109,7 +98,7 @@ public class SMSVerificationService {
                     .build();
             }
 
-            log.info("SMS verification sent to Uganda number: {}", ugandaNumber);
+            log.info("SMS verification queued for Uganda number: {}", UgandaPhoneNumber.mask(number));
 
             return SMSVerificationResult.builder()
                 .success(true)
@@ -118,7 +107,7 @@ public class SMSVerificationService {
                 .build();
 
         } catch (Exception e) {
-            log.error("Error sending SMS verification to: {}", phoneNumber, e);
+            log.error("Error sending SMS verification to: {}", UgandaPhoneNumber.mask(UgandaPhoneNumber.parse(phoneNumber)), e);
             return SMSVerificationResult.builder()
                 .success(false)
                 .error("Failed to send verification SMS. Please try again later.")
@@ -133,71 +122,48 @@ public class SMSVerificationService {
     @Transactional
     public SMSVerificationResult verifySMSCode(String phoneNumber, String code) {
         try {
-            String ugandaNumber = normalizeUgandaNumber(phoneNumber);
-            String verificationKey = SMS_VERIFICATION_PREFIX + ugandaNumber;
-            SMSVerificationData smsData = (SMSVerificationData) redisTemplate.opsForValue().get(verificationKey);
-
-            if (smsData == null) {
+            long number = UgandaPhoneNumber.parse(phoneNumber);
+            if (number == UgandaPhoneNumber.INVALID) {
                 return SMSVerificationResult.builder()
                     .success(false)
-                    .error("Verification session not found or expired")
-                    .errorCode("SESSION_NOT_FOUND")
+                    .error("Invalid Uganda phone number format")
+                    .errorCode("INVALID_PHONE_FORMAT")
                     .build();
             }
+            VerificationCodeStore.Outcome outcome = verificationCodeStore.verify(
+                verificationKey(number), code, maxSmsAttempts, rateLimitKey(number));
 
-            // Check expiry
-            if (LocalDateTime.now().isAfter(smsData.getExpiresAt())) {
-                redisTemplate.delete(verificationKey);
-                return SMSVerificationResult.builder()
+            return switch (outcome.status()) {
+                case NOT_FOUND -> SMSVerificationResult.builder()
                     .success(false)
-                    .error("Verification session has expired")
-                    .errorCode("SESSION_EXPIRED")
+                    .error("Verification session not found or expired")
+                    .errorCode("SESSION_NOT_FOUND")
                     .build();
-            }
-
-            // Check attempts
-            if (smsData.getAttempts() >= maxSmsAttempts) {
-                return SMSVerificationResult.builder()
+                case MAX_ATTEMPTS -> SMSVerificationResult.builder()
                     .success(false)
                     .error("Too many verification attempts")
                     .errorCode("MAX_ATTEMPTS_REACHED")
                     .build();
-            }
-
-            // Verify code
-            if (!smsData.getCode().equals(code)) {
-                // Increment attempts
-                smsData.setAttempts(smsData.getAttempts() + 1);
-                redisTemplate.opsForValue().set(verificationKey, smsData,
-                    (int) ChronoUnit.MINUTES.between(LocalDateTime.now(), smsData.getExpiresAt()),
-                    TimeUnit.MINUTES);
-
-                return SMSVerificationResult.builder()
+                case INVALID -> SMSVerificationResult.builder()
                     .success(false)
                     .error("Invalid verification code")
                     .errorCode("INVALID_CODE")
-                    .remainingAttempts(maxSmsAttempts - smsData.getAttempts())
+                    .remainingAttempts(Math.max(0, maxSmsAttempts - outcome.attempts()))
                     .build();
-            } else {
-                // Success - update user phone verification status
-                // This would typically update the user's verification status in the database
-                
-                // Clean up verification data
-                redisTemplate.delete(verificationKey);
-                String rateLimitKey = SMS_RATE_LIMIT_PREFIX + ugandaNumber;
-                redisTemplate.delete(rateLimitKey);
-
-                log.info("SMS verification completed for Uganda number: {}", ugandaNumber);
-
-                return SMSVerificationResult.builder()
-                    .success(true)
-                    .message("Phone number verified successfully")
-                    .sessionId(smsData.getSessionId())
-                    .build();
-            }
+                case VERIFIED -> {
+                    // Success - the code and the resend block were removed by the same call
+                    log.info("SMS verification completed for Uganda number: {}", UgandaPhoneNumber.mask(number));
+
+                    yield SMSVerificationResult.builder()
+                        .success(true)
+                        .message("Phone number verified successfully")
+                        .sessionId(outcome.fields().get("sessionId"))
+                        .build();
+                }
+            };
 
         } catch (Exception e) {
-            log.error("Error verifying SMS code for: {}", phoneNumber, e);
+            log.error("Error verifying SMS code for: {}", UgandaPhoneNumber.mask(UgandaPhoneNumber.parse(phoneNumber)), e);
             return SMSVerificationResult.builder()
                 .success(false)
                 .error("Verification failed. Please try again.")
@@ -206,70 +172,12 @@ public class SMSVerificationService {
         }
     }
 
-    /**
-     * Send SMS using Twilio
-     */
-    private boolean sendSMS(String phoneNumber, String verificationCode) {
-        try {
-            String messageBody = String.format(
-                "Your GynAid verification code is: %s. Valid for %d minutes. Do not share this code with anyone.",
-                verificationCode, smsVerificationExpiryMinutes
-            );
-
-            Message.creator(
-                new PhoneNumber(phoneNumber),
-                new PhoneNumber(twilioPhoneNumber),
-                messageBody
-            ).create();
-
-            log.info("SMS sent successfully via Twilio to: {}", phoneNumber);
-            return true;
-
-        } catch (Exception e) {
-            log.error("Failed to send SMS via Twilio to: {}", phoneNumber, e);
-            return false;
-        }
+    private static String verificationKey(long number) {
+        return SMS_VERIFICATION_PREFIX + "{" + UgandaPhoneNumber.redisKey(number) + "}";
     }
 
-    /**
-     * Normalize Uganda phone number to +256 format
-     */
-    private String normalizeUgandaNumber(String phoneNumber) {
-        if (phoneNumber == null) return null;
-        
-        // Remove spaces, dashes, and parentheses
-        String number = phoneNumber.replaceAll("[\\s\\-()]", "");
-        
-        // Convert 0XXXXXXXXX to +256XXXXXXXXX
-        if (number.startsWith("0") && number.length() == 10) {
-            number = "+256" + number.substring(1);
-        }
-        
-        // Ensure it starts with +256
-        if (!number.startsWith("+256")) {
-            number = "+256" + number;
-        }
-        
-        return number;
-    }
-
-    /**
-     * Validate Uganda phone number format
-     */
-    private boolean isValidUgandaNumber(String phoneNumber) {
-        if (phoneNumber == null) return false;
-        
-        // Uganda numbers should be +256 followed by 9 digits
-        Pattern ugandaPattern = Pattern.compile("^\\+256\\d{9}$");
-        return ugandaPattern.matcher(phoneNumber).matches();
-    }
-
-    /**
-     * Check rate limiting for SMS
-     */
-    private boolean isRateLimited(String phoneNumber) {
-        String rateLimitKey = SMS_RATE_LIMIT_PREFIX + phoneNumber;
-        return Boolean.TRUE.equals(redisTemplate.hasKey(rateLimitKey));
+    private static String rateLimitKey(long number) {
+        return SMS_RATE_LIMIT_PREFIX + "{" + UgandaPhoneNumber.redisKey(number) + "}";
     }
 
     /**
@@ -293,29 +201,6 @@ public class SMSVerificationService {
     }
 
     // Data classes
-    public static class SMSVerificationData {
-        private String phoneNumber;
-        private String code;
-        private String sessionId;
-        private int attempts;
-        private LocalDateTime createdAt;
-        private LocalDateTime expiresAt;
-
-        // Getters and setters
-        public String getPhoneNumber() { return phoneNumber; }
-        public void setPhoneNumber(String phoneNumber) { this.phoneNumber = phoneNumber; }
-        public String getCode() { return code; }
-        public void setCode(String code) { this.code = code; }
-        public String getSessionId() { return sessionId; }
-        public void setSessionId(String sessionId) { this.sessionId = sessionId; }
-        public int getAttempts() { return attempts; }
-        public void setAttempts(int attempts) { this.attempts = attempts; }
-        public LocalDateTime getCreatedAt() { return createdAt; }
-        public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
-        public LocalDateTime getExpiresAt() { return expiresAt; }
-        public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
-    }
-
     public static class SMSVerificationResult {
         private boolean success;
         private String message;
@@ -0,0 +1,51 @@
+package com.gynaid.backend.service;
+
+import com.gynaid.backend.entity.SchedulerLease;
+import com.gynaid.backend.repository.SchedulerLeaseRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Database lease used to run cluster-wide scheduled jobs on a single node at a time
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SchedulerLeaseService {
+
+    private final SchedulerLeaseRepository leaseRepository;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * Take or renew the named lease. Returns true while this node holds it.
+     */
+    public boolean tryAcquire(String name, int leaseSeconds) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            if (leaseRepository.tryAcquire(name, nodeId, now, now.plusSeconds(leaseSeconds)) == 1) {
+                return true;
+            }
+            if (!leaseRepository.existsById(name)) {
+                leaseRepository.saveAndFlush(SchedulerLease.builder()
+                    .name(name)
+                    .owner(nodeId)
+                    .leaseUntil(now.plusSeconds(leaseSeconds))
+                    .build());
+                return true;
+            }
+            return false;
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the lease row first
+            return false;
+        } catch (Exception e) {
+            log.warn("Could not acquire scheduler lease {}: {}", name, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.gynaid.backend.service;
+
+import com.gynaid.backend.entity.Appointment;
+import com.gynaid.backend.entity.Consultation;
+import com.gynaid.backend.repository.AppointmentRepository;
+import com.gynaid.backend.repository.ConsultationRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Expires unpaid consultations, marks consultation no-shows and cancels stale pending
+ * appointments.
+ *
+ * A slow poll loads every deadline falling inside a short lookahead window into a
+ * priority queue (projections only, no entities). A fast tick pops whatever is due and
+ * applies the transitions as batched UPDATE statements grouped by transition type.
+ * Only the node holding the "state-sweeper" lease row loads or fires deadlines, so the
+ * job is safe to run on every node.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StateSweeperService {
+
+    private static final String LEASE_NAME = "state-sweeper";
+    private static final int MAX_LOAD_PER_POLL = 5000;
+
+    private final ConsultationRepository consultationRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.sweeper.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.payment.expiry-hours:24}")
+    private int paymentExpiryHours;
+
+    @Value("${app.sweeper.lookahead-minutes:15}")
+    private int lookaheadMinutes;
+
+    @Value("${app.sweeper.no-show-grace-minutes:30}")
+    private int noShowGraceMinutes;
+
+    @Value("${app.sweeper.lease-seconds:120}")
+    private int leaseSeconds;
+
+    @Value("${app.sweeper.batch-size:500}")
+    private int batchSize;
+
+    private final PriorityQueue<Deadline> deadlines = new PriorityQueue<>(Comparator.comparing(Deadline::dueAt));
+    private final Set<String> queuedKeys = new HashSet<>();
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final Map<Transition, DistributionSummary> batchSizes = new EnumMap<>(Transition.class);
+    private volatile boolean leader;
+
+    public enum Transition {
+        CONSULTATION_PAYMENT_EXPIRED,
+        CONSULTATION_NO_SHOW,
+        APPOINTMENT_STALE_PENDING
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        meterRegistry.gauge("gynaid.sweeper.lag.ms", lagMillis);
+        meterRegistry.gauge("gynaid.sweeper.queue.size", queueSize);
+        for (Transition transition : Transition.values()) {
+            batchSizes.put(transition, DistributionSummary.builder("gynaid.sweeper.batch.size")
+                .tag("transition", transition.name())
+                .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Renew the lease and load deadlines due within the lookahead window
+     */
+    @Scheduled(fixedDelayString = "${app.sweeper.poll-interval-ms:60000}")
+    public void loadUpcomingDeadlines() {
+        if (!enabled) {
+            return;
+        }
+
+        leader = schedulerLeaseService.tryAcquire(LEASE_NAME, leaseSeconds);
+        if (!leader) {
+            synchronized (deadlines) {
+                deadlines.clear();
+                queuedKeys.clear();
+                queueSize.set(0);
+            }
+            return;
+        }
+
+        LocalDateTime horizon = LocalDateTime.now().plusMinutes(lookaheadMinutes);
+        PageRequest limit = PageRequest.of(0, MAX_LOAD_PER_POLL);
+
+        List<Deadline> loaded = new ArrayList<>();
+        for (ConsultationRepository.DeadlineRow row : consultationRepository.findPendingPaymentDeadlines(
+                horizon.minusHours(paymentExpiryHours), horizon, limit)) {
+            LocalDateTime due = row.getCreatedAt() != null
+                ? row.getCreatedAt().plusHours(paymentExpiryHours)
+                : row.getScheduledDateTime();
+            if (row.getScheduledDateTime() != null && row.getScheduledDateTime().isBefore(due)) {
+                due = row.getScheduledDateTime();
+            }
+            loaded.add(new Deadline(Transition.CONSULTATION_PAYMENT_EXPIRED, row.getId(), due));
+        }
+
+        for (ConsultationRepository.DeadlineRow row : consultationRepository.findNoShowDeadlines(
+                horizon.minusMinutes(noShowGraceMinutes), limit)) {
+            loaded.add(new Deadline(Transition.CONSULTATION_NO_SHOW, row.getId(),
+                row.getScheduledDateTime().plusMinutes(noShowGraceMinutes)));
+        }
+
+        for (AppointmentRepository.StaleRow row : appointmentRepository.findStalePendingDeadlines(horizon, limit)) {
+            loaded.add(new Deadline(Transition.APPOINTMENT_STALE_PENDING, row.getId(), row.getStartTime()));
+        }
+
+        synchronized (deadlines) {
+            for (Deadline deadline : loaded) {
+                if (queuedKeys.add(deadline.key())) {
+                    deadlines.add(deadline);
+                }
+            }
+            queueSize.set(deadlines.size());
+        }
+
+        log.debug("State sweeper loaded {} deadlines up to {}", loaded.size(), horizon);
+    }
+
+    /**
+     * Fire every due deadline as batched UPDATEs, one statement per transition and chunk
+     */
+    @Scheduled(fixedDelayString = "${app.sweeper.tick-interval-ms:5000}")
+    public void fireDueTransitions() {
+        if (!enabled || !leader) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<Transition, List<Long>> due = new EnumMap<>(Transition.class);
+        LocalDateTime oldestDue = null;
+
+        synchronized (deadlines) {
+            while (!deadlines.isEmpty() && !deadlines.peek().dueAt().isAfter(now)) {
+                Deadline deadline = deadlines.poll();
+                queuedKeys.remove(deadline.key());
+                if (oldestDue == null) {
+                    oldestDue = deadline.dueAt();
+                }
+                due.computeIfAbsent(deadline.transition(), t -> new ArrayList<>()).add(deadline.id());
+            }
+            queueSize.set(deadlines.size());
+        }
+
+        lagMillis.set(oldestDue != null ? Duration.between(oldestDue, now).toMillis() : 0);
+
+        due.forEach((transition, ids) -> {
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                List<Long> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+                try {
+                    int updated = apply(transition, chunk, now);
+                    batchSizes.get(transition).record(updated);
+                    log.info("State sweeper applied {} to {} of {} rows", transition, updated, chunk.size());
+                } catch (Exception e) {
+                    log.error("State sweeper failed to apply {} to {} rows", transition, chunk.size(), e);
+                }
+            }
+        });
+    }
+
+    private int apply(Transition transition, List<Long> ids, LocalDateTime now) {
+        return switch (transition) {
+            case CONSULTATION_PAYMENT_EXPIRED -> consultationRepository.expirePendingPayments(
+                ids, Consultation.ConsultationStatus.CANCELLED, now.minusHours(paymentExpiryHours), now);
+            case CONSULTATION_NO_SHOW -> consultationRepository.markNoShows(
+                ids, Consultation.ConsultationStatus.NO_SHOW, now.minusMinutes(noShowGraceMinutes), now);
+            case APPOINTMENT_STALE_PENDING -> appointmentRepository.cancelStalePending(
+                ids, Appointment.AppointmentStatus.CANCELLED, now);
+        };
+    }
+
+    private record Deadline(Transition transition, Long id, LocalDateTime dueAt) {
+        String key() {
+            return transition.name() + ":" + id;
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package com.gynaid.backend.service;
 
+import com.gynaid.backend.util.UgandaPhoneNumber;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.Map;
+
 import com.twilio.Twilio;
 import com.twilio.rest.api.v2010.account.Message;
+import com.twilio.rest.api.v2010.account.MessageCreator;
+import com.twilio.security.RequestValidator;
 import com.twilio.type.PhoneNumber;
 
 /**
@@ -24,6 +29,13 @@ public class TwilioClient {
     @Value("${app.sms.twilio.phone-number}")
     private String fromPhoneNumber;
 
+    // Optional per-carrier senders, e.g. local numbers with better delivery on that network
+    @Value("${app.sms.twilio.mtn-phone-number:}")
+    private String mtnPhoneNumber;
+
+    @Value("${app.sms.twilio.airtel-phone-number:}")
+    private String airtelPhoneNumber;
+
     /**
      * Initialize Twilio client
      */
@@ -56,6 +68,26 @@ public class TwilioClient {
         }
     }
 
+    /**
+     * Send SMS from the sender routed to the recipient's carrier
+     */
+    public boolean sendSMS(String to, UgandaPhoneNumber.Carrier carrier, String message) {
+        try {
+            Message.creator(
+                new PhoneNumber(to),
+                new PhoneNumber(senderFor(carrier)),
+                message
+            ).create();
+
+            log.info("SMS sent successfully to {} number", carrier);
+            return true;
+
+        } catch (Exception e) {
+            log.error("Failed to send SMS to {} number", carrier, e);
+            return false;
+        }
+    }
+
     /**
      * Send SMS with delivery status callback
      */
@@ -76,4 +108,43 @@ public class TwilioClient {
             return false;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Send SMS from the carrier's sender, with a delivery status callback when a URL is
+     * given. Returns the Twilio message SID, or null when the message was not accepted.
+     */
+    public String sendSMSWithStatusCallback(String to, UgandaPhoneNumber.Carrier carrier, String message,
+                                            String statusCallbackUrl) {
+        try {
+            MessageCreator creator = Message.creator(
+                new PhoneNumber(to),
+                new PhoneNumber(senderFor(carrier)),
+                message
+            );
+            if (statusCallbackUrl != null) {
+                creator.setStatusCallback(statusCallbackUrl);
+            }
+            return creator.create().getSid();
+
+        } catch (Exception e) {
+            log.error("Failed to send SMS to {} number", carrier, e);
+            return null;
+        }
+    }
+
+    /**
+     * Check the X-Twilio-Signature of a callback against the URL Twilio posted to
+     */
+    public boolean isValidCallback(String url, Map<String, String> params, String signature) {
+        return signature != null && new RequestValidator(authToken).validate(url, params, signature);
+    }
+
+    private String senderFor(UgandaPhoneNumber.Carrier carrier) {
+        String sender = switch (carrier) {
+            case MTN -> mtnPhoneNumber;
+            case AIRTEL -> airtelPhoneNumber;
+            default -> null;
+        };
+        return sender == null || sender.isBlank() ? fromPhoneNumber : sender;
+    }
+}
@@ -0,0 +1,118 @@
+package com.gynaid.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Redis storage for one-time verification codes.
+ *
+ * A pending code is a hash holding the code, the failed attempt count and any extra
+ * fields the caller needs back on success; a separate key blocks resends. Issuing and
+ * checking a code are each one Lua script, so every user action costs a single round
+ * trip and two concurrent requests can neither both pass the resend check nor both
+ * spend the same attempt. Callers should put the identifier in a hash tag ("{...}") so
+ * the code and resend keys land in the same cluster slot.
+ */
+@Service
+@RequiredArgsConstructor
+public class VerificationCodeStore {
+
+    // KEYS: code, resend block. ARGV: code ttl, resend ttl, field/value pairs.
+    // Returns 0 when the code was stored, otherwise the seconds until a resend is allowed.
+    private static final DefaultRedisScript<Long> ISSUE_SCRIPT = new DefaultRedisScript<>(
+        "local wait = redis.call('TTL', KEYS[2]) " +
+        "if wait ~= -2 then " +
+        "    if wait < 1 then wait = 1 end " +
+        "    return wait " +
+        "end " +
+        "redis.call('DEL', KEYS[1]) " +
+        "redis.call('HSET', KEYS[1], 'attempts', '0', unpack(ARGV, 3)) " +
+        "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+        "redis.call('SET', KEYS[2], '1', 'EX', ARGV[2]) " +
+        "return 0",
+        Long.class);
+
+    // KEYS: code, then any keys to delete on success. ARGV: submitted code, max attempts.
+    // Returns {outcome, attempts} followed by the stored fields when the code matched.
+    private static final DefaultRedisScript<List> VERIFY_SCRIPT = new DefaultRedisScript<>(
+        "local stored = redis.call('HMGET', KEYS[1], 'code', 'attempts') " +
+        "if not stored[1] then return {'NOT_FOUND', '0'} end " +
+        "local attempts = tonumber(stored[2]) or 0 " +
+        "if attempts >= tonumber(ARGV[2]) then return {'MAX_ATTEMPTS', tostring(attempts)} end " +
+        "if stored[1] ~= ARGV[1] then " +
+        "    attempts = redis.call('HINCRBY', KEYS[1], 'attempts', 1) " +
+        "    return {'INVALID', tostring(attempts)} " +
+        "end " +
+        "local result = redis.call('HGETALL', KEYS[1]) " +
+        "redis.call('DEL', unpack(KEYS)) " +
+        "table.insert(result, 1, tostring(attempts)) " +
+        "table.insert(result, 1, 'VERIFIED') " +
+        "return result",
+        List.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * Store a new code unless the resend block is still set. Returns 0 when the code was
+     * stored, otherwise the seconds until a new code may be requested.
+     */
+    public long issue(String codeKey, String resendKey, String code, Duration ttl, Duration resendDelay,
+                      Map<String, String> fields) {
+        List<Object> args = new ArrayList<>(4 + fields.size() * 2);
+        args.add(String.valueOf(ttl.toSeconds()));
+        args.add(String.valueOf(resendDelay.toSeconds()));
+        args.add("code");
+        args.add(code);
+        fields.forEach((field, value) -> {
+            args.add(field);
+            args.add(value);
+        });
+        Long wait = redisTemplate.execute(ISSUE_SCRIPT, List.of(codeKey, resendKey), args.toArray());
+        return wait != null ? wait : 0;
+    }
+
+    /**
+     * Check a submitted code, counting a failed attempt on mismatch. On success the code
+     * and the given extra keys are deleted in the same call.
+     */
+    @SuppressWarnings("unchecked")
+    public Outcome verify(String codeKey, String code, int maxAttempts, String... deleteOnSuccess) {
+        List<String> keys = new ArrayList<>(1 + deleteOnSuccess.length);
+        keys.add(codeKey);
+        keys.addAll(Arrays.asList(deleteOnSuccess));
+        List<Object> reply = redisTemplate.execute(VERIFY_SCRIPT, keys, code, String.valueOf(maxAttempts));
+        if (reply == null || reply.size() < 2) {
+            throw new RuntimeException("Unexpected reply from verification script");
+        }
+
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (int i = 2; i + 1 < reply.size(); i += 2) {
+            fields.put(String.valueOf(reply.get(i)), String.valueOf(reply.get(i + 1)));
+        }
+        return new Outcome(Status.valueOf(String.valueOf(reply.get(0))),
+            Integer.parseInt(String.valueOf(reply.get(1))), fields);
+    }
+
+    /**
+     * Drop a pending code and its resend block, e.g. when the code could not be delivered
+     */
+    public void discard(String codeKey, String resendKey) {
+        redisTemplate.delete(List.of(codeKey, resendKey));
+    }
+
+    public enum Status {
+        NOT_FOUND, MAX_ATTEMPTS, INVALID, VERIFIED
+    }
+
+    public record Outcome(Status status, int attempts, Map<String, String> fields) {
+    }
+}
@@ -5,8 +5,6 @@ import com.gynaid.backend.entity.ai.HealthInsight;
 import com.gynaid.backend.entity.ai.SymptomAnalysis;
 import com.gynaid.backend.entity.client.GynecologicalProfile;
 import com.gynaid.backend.repository.UserRepository;
-import com.gynaid.backend.repository.client.ClientHealthProfileRepository;
-import com.gynaid.backend.service.GynecologicalProfileService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -20,8 +18,7 @@ import java.util.List;
 public class AIHealthAssistantService {
     
     private final UserRepository userRepository;
-    private final ClientHealthProfileRepository healthProfileRepository;
-    private final GynecologicalProfileService gynecologicalProfileService;
+    private final HealthContextLoader healthContextLoader;
     private final PredictiveAnalyticsService predictiveAnalyticsService;
     
     public SymptomAnalysis analyzeSymptoms(Long userId, String symptoms) {
@@ -49,14 +46,14 @@ public class AIHealthAssistantService {
     }
     
     public List<HealthInsight> generatePersonalizedInsights(Long userId) {
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new RuntimeException("User not found"));
+        HealthContext context = healthContextLoader.load(userId);
+        User user = context.getUser();
         
         List<HealthInsight> insights = new ArrayList<>();
         
         // Generate cycle prediction insights (enhancing existing predictions)
         try {
-            LocalDate nextPeriod = predictiveAnalyticsService.predictNextPeriod(userId);
+            LocalDate nextPeriod = predictiveAnalyticsService.predictNextPeriod(context);
             if (nextPeriod != null) {
                 insights.add(HealthInsight.builder()
                     .user(user)
@@ -73,7 +70,7 @@ public class AIHealthAssistantService {
         
         // Generate fertility window insights
         try {
-            GynecologicalProfile profile = getGynecologicalProfileByUserId(userId);
+            GynecologicalProfile profile = context.getGynecologicalProfile();
             if (profile != null && profile.getFertilityGoal() == GynecologicalProfile.FertilityGoal.TRYING_TO_CONCEIVE) {
                 insights.add(generateFertilityInsight(user, profile));
             }
@@ -84,18 +81,6 @@ public class AIHealthAssistantService {
         return insights;
     }
     
-    private GynecologicalProfile getGynecologicalProfileByUserId(Long userId) {
-        try {
-            // For AI purposes, we need the entity, so we'll fetch it directly
-            return healthProfileRepository.findByUserId(userId)
-                .map(hp -> (GynecologicalProfile) hp.getGynecologicalProfile())
-                .orElse(null);
-        } catch (Exception e) {
-            log.warn("Could not get gynecological profile for user {}: {}", userId, e.getMessage());
-            return null;
-        }
-    }
-    
     private String generateSymptomAnalysis(String symptoms) {
         // Placeholder for AI integration - preserves existing medical logic
         String lowerSymptoms = symptoms.toLowerCase();
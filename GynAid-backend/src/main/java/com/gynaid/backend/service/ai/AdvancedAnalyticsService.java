@@ -2,10 +2,10 @@ package com.gynaid.backend.service.ai;
 
 import com.gynaid.backend.entity.User;
 import com.gynaid.backend.entity.ai.HealthTrend;
+import com.gynaid.backend.entity.client.CycleStatistics;
 import com.gynaid.backend.entity.client.GynecologicalProfile;
-import com.gynaid.backend.entity.client.MenstruationCycle;
-import com.gynaid.backend.repository.UserRepository;
 import com.gynaid.backend.repository.client.ClientHealthProfileRepository;
+import com.gynaid.backend.service.CycleStatisticsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -20,29 +20,39 @@ import java.util.stream.Collectors;
 @Slf4j
 public class AdvancedAnalyticsService {
     
-    private final UserRepository userRepository;
+    private static final int RECENT_CYCLES = 12;
+    
+    private final HealthContextLoader healthContextLoader;
     private final ClientHealthProfileRepository healthProfileRepository;
+    private final CycleStatisticsService cycleStatisticsService;
     
     public List<HealthTrend> analyzeHealthTrends(Long userId) {
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        GynecologicalProfile profile = getGynecologicalProfile(userId);
-        if (profile == null || profile.getCycles() == null || profile.getCycles().size() < 3) {
+        return analyzeHealthTrends(healthContextLoader.load(userId));
+    }
+    
+    public List<HealthTrend> analyzeHealthTrends(HealthContext context) {
+        GynecologicalProfile profile = context.getGynecologicalProfile();
+        if (profile == null) {
+            return List.of();
+        }
+        return analyzeHealthTrends(context.getUser(), cycleStatisticsService.getStatistics(profile));
+    }
+    
+    private List<HealthTrend> analyzeHealthTrends(User user, CycleStatistics statistics) {
+        if (statistics.getEntries() < 3) {
             return List.of(); // Need at least 3 cycles for trend analysis
         }
         
         List<HealthTrend> trends = new ArrayList<>();
-        List<MenstruationCycle> recentCycles = getRecentCycles(profile, 6);
         
         // Analyze cycle regularity trend
-        trends.add(analyzeCycleRegularityTrend(user, recentCycles));
+        trends.add(analyzeCycleRegularityTrend(user, statistics));
         
         // Analyze pain level trends
-        trends.add(analyzePainTrend(user, recentCycles));
+        trends.add(analyzePainTrend(user, statistics));
         
         // Analyze flow intensity trends
-        trends.add(analyzeFlowTrend(user, recentCycles));
+        trends.add(analyzeFlowTrend(user));
         
         return trends.stream()
             .filter(trend -> trend.getSignificanceScore() > 0.3) // Filter significant trends
@@ -50,29 +60,26 @@ public class AdvancedAnalyticsService {
     }
     
     public Map<String, Object> generateHealthReport(Long userId) {
-        GynecologicalProfile profile = getGynecologicalProfile(userId);
+        HealthContext context = healthContextLoader.load(userId);
+        GynecologicalProfile profile = context.getGynecologicalProfile();
         if (profile == null) {
             return Map.of("error", "Profile not found");
         }
         
-        List<MenstruationCycle> cycles = getRecentCycles(profile, 12);
-        List<HealthTrend> trends = analyzeHealthTrends(userId);
-        
-        // Calculate key metrics enhancing existing logic
-        double avgCycleLength = cycles.stream()
-            .filter(c -> c.getCycleLength() != null)
-            .mapToInt(MenstruationCycle::getCycleLength)
-            .average()
-            .orElse(28.0);
+        CycleStatistics statistics = cycleStatisticsService.getStatistics(profile);
+        List<HealthTrend> trends = analyzeHealthTrends(context.getUser(), statistics);
         
-        double regularityScore = calculateRegularityScore(cycles);
+        // Calculate key metrics from the rolling cycle statistics
+        double avgCycleLength = statistics.meanLength(28.0);
+        double regularityScore = calculateRegularityScore(statistics.recentLengths(0, RECENT_CYCLES));
         String healthStatus = determineHealthStatus(regularityScore, trends);
         
         return Map.of(
             "averageCycleLength", avgCycleLength,
+            "cycleLengthStdDev", statistics.standardDeviation(),
             "regularityScore", regularityScore,
             "healthStatus", healthStatus,
-            "totalCyclesTracked", cycles.size(),
+            "totalCyclesTracked", statistics.getEntries(),
             "trendsIdentified", trends.size(),
             "lastAnalysisDate", LocalDate.now().toString(),
             "recommendations", generateHealthRecommendations(profile, trends)
@@ -102,18 +109,15 @@ public class AdvancedAnalyticsService {
         return riskMap;
     }
     
-    private HealthTrend analyzeCycleRegularityTrend(User user, List<MenstruationCycle> cycles) {
-        if (cycles.size() < 3) {
+    private HealthTrend analyzeCycleRegularityTrend(User user, CycleStatistics statistics) {
+        if (statistics.getEntries() < 3) {
             return createDefaultTrend(user, HealthTrend.TrendType.CYCLE_REGULARITY);
         }
         
         // Calculate regularity for recent vs older cycles
-        List<MenstruationCycle> recent = cycles.subList(0, Math.min(3, cycles.size()));
-        List<MenstruationCycle> older = cycles.size() > 3 ? 
-            cycles.subList(3, Math.min(6, cycles.size())) : List.of();
-        
-        double recentRegularity = calculateRegularityScore(recent);
-        double olderRegularity = older.isEmpty() ? recentRegularity : calculateRegularityScore(older);
+        double recentRegularity = calculateRegularityScore(statistics.recentLengths(0, 3));
+        double olderRegularity = statistics.getEntries() > 3 ?
+            calculateRegularityScore(statistics.recentLengths(3, 6)) : recentRegularity;
         
         HealthTrend.TrendDirection direction = determineTrendDirection(recentRegularity, olderRegularity);
         double significance = Math.abs(recentRegularity - olderRegularity);
@@ -130,21 +134,15 @@ public class AdvancedAnalyticsService {
             .build();
     }
     
-    private HealthTrend analyzePainTrend(User user, List<MenstruationCycle> cycles) {
-        List<Integer> painLevels = cycles.stream()
-            .filter(c -> c.getPainLevel() != null)
-            .map(MenstruationCycle::getPainLevel)
-            .collect(Collectors.toList());
+    private HealthTrend analyzePainTrend(User user, CycleStatistics statistics) {
+        int[] painLevels = statistics.recentPainLevels(0, 6);
         
-        if (painLevels.size() < 2) {
+        if (painLevels.length < 2) {
             return createDefaultTrend(user, HealthTrend.TrendType.PAIN_LEVEL);
         }
         
-        double avgRecent = painLevels.subList(0, Math.min(3, painLevels.size()))
-            .stream().mapToInt(Integer::intValue).average().orElse(0.0);
-        double avgOlder = painLevels.size() > 3 ?
-            painLevels.subList(3, painLevels.size())
-                .stream().mapToInt(Integer::intValue).average().orElse(avgRecent) : avgRecent;
+        double avgRecent = average(painLevels, 0, Math.min(3, painLevels.length));
+        double avgOlder = painLevels.length > 3 ? average(painLevels, 3, painLevels.length) : avgRecent;
         
         return HealthTrend.builder()
             .user(user)
@@ -158,30 +156,33 @@ public class AdvancedAnalyticsService {
             .build();
     }
     
-    private HealthTrend analyzeFlowTrend(User user, List<MenstruationCycle> cycles) {
+    private HealthTrend analyzeFlowTrend(User user) {
         // Simplified flow analysis - would be more sophisticated in production
         return createDefaultTrend(user, HealthTrend.TrendType.FLOW_INTENSITY);
     }
     
-    private double calculateRegularityScore(List<MenstruationCycle> cycles) {
-        if (cycles.size() < 2) return 0.5;
-        
-        List<Integer> lengths = cycles.stream()
-            .filter(c -> c.getCycleLength() != null)
-            .map(MenstruationCycle::getCycleLength)
-            .collect(Collectors.toList());
+    private double calculateRegularityScore(int[] lengths) {
+        if (lengths.length == 0) return 0.5;
         
-        if (lengths.isEmpty()) return 0.5;
-        
-        double avg = lengths.stream().mapToInt(Integer::intValue).average().orElse(28.0);
-        double variance = lengths.stream()
-            .mapToDouble(l -> Math.pow(l - avg, 2))
-            .average().orElse(0.0);
+        double avg = average(lengths, 0, lengths.length);
+        double variance = 0;
+        for (int length : lengths) {
+            variance += (length - avg) * (length - avg);
+        }
+        variance /= lengths.length;
         
         double stdDev = Math.sqrt(variance);
         return Math.max(0, 1 - (stdDev / 10)); // Normalize to 0-1
     }
     
+    private static double average(int[] values, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += values[i];
+        }
+        return sum / (to - from);
+    }
+    
     private HealthTrend.TrendDirection determineTrendDirection(double current, double previous) {
         double diff = current - previous;
         if (Math.abs(diff) < 0.1) return HealthTrend.TrendDirection.STABLE;
@@ -264,13 +265,4 @@ public class AdvancedAnalyticsService {
             .map(hp -> hp.getGynecologicalProfile())
             .orElse(null);
     }
-    
-    private List<MenstruationCycle> getRecentCycles(GynecologicalProfile profile, int limit) {
-        if (profile.getCycles() == null) return List.of();
-        
-        return profile.getCycles().stream()
-            .sorted((c1, c2) -> c2.getStartDate().compareTo(c1.getStartDate()))
-            .limit(limit)
-            .collect(Collectors.toList());
-    }
 }
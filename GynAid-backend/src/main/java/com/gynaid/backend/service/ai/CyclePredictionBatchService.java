@@ -0,0 +1,119 @@
+package com.gynaid.backend.service.ai;
+
+import com.gynaid.backend.entity.client.CycleStatistics;
+import com.gynaid.backend.service.CycleStatisticsService;
+import com.gynaid.backend.service.SchedulerLeaseService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Nightly refresh of every profile's cycle prediction.
+ *
+ * One node (via the scheduler lease) walks gynecological_profiles in primary key order,
+ * one page at a time. Each page is computed in parallel chunks on a dedicated ForkJoin
+ * pool and written back with a batched upsert, so memory stays bounded by the page
+ * size. The upsert is guarded on the profile state each prediction was computed from,
+ * so a cycle logged while the batch runs is never overwritten by a stale prediction. Profiles whose cycle statistics were never built are rebuilt first.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CyclePredictionBatchService {
+
+    private static final String LEASE_NAME = "cycle-predictions";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CyclePredictionService cyclePredictionService;
+    private final CycleStatisticsService cycleStatisticsService;
+    private final SchedulerLeaseService schedulerLeaseService;
+
+    @Value("${app.predictions.batch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.predictions.batch.page-size:1000}")
+    private int pageSize;
+
+    @Value("${app.predictions.batch.parallelism:4}")
+    private int parallelism;
+
+    @Value("${app.predictions.batch.lease-seconds:3600}")
+    private int leaseSeconds;
+
+    @Scheduled(cron = "${app.predictions.batch.cron:0 30 2 * * *}")
+    public void refreshAll() {
+        if (!enabled || !schedulerLeaseService.tryAcquire(LEASE_NAME, leaseSeconds)) {
+            return;
+        }
+
+        long started = System.currentTimeMillis();
+        long lastId = 0;
+        int refreshed = 0;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            while (true) {
+                List<ProfileRow> page = jdbcTemplate.query("SELECT gp.id, chp.user_id, gp.last_period_date, "
+                        + "gp.average_cycle_length, gp.cycle_stats_entries, gp.cycle_stats_length_count, "
+                        + "gp.cycle_stats_mean_length, gp.cycle_stats_m2, gp.cycle_stats_ewma_length, "
+                        + "gp.cycle_stats_last_start_date, gp.cycle_stats_recent FROM gynecological_profiles gp "
+                        + "JOIN client_health_profiles chp ON chp.id = gp.health_profile_id "
+                        + "WHERE gp.id > ? ORDER BY gp.id LIMIT ?",
+                    (rs, rowNum) -> {
+                        Date lastPeriodDate = rs.getDate("last_period_date");
+                        return new ProfileRow(
+                            rs.getLong("id"),
+                            rs.getLong("user_id"),
+                            lastPeriodDate != null ? lastPeriodDate.toLocalDate() : null,
+                            rs.getObject("average_cycle_length", Integer.class),
+                            CycleStatisticsService.readStatistics(rs));
+                    },
+                    lastId, pageSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+
+                LocalDateTime now = LocalDateTime.now();
+                List<CyclePredictionService.Computed> predictions = pool.submit(() -> page.parallelStream()
+                    .map(row -> {
+                        CycleStatistics statistics = statisticsOf(row);
+                        return new CyclePredictionService.Computed(
+                            CyclePredictionService.compute(row.userId(), row.profileId(), row.lastPeriodDate(),
+                                row.averageCycleLength(), statistics, now),
+                            row.lastPeriodDate(), row.averageCycleLength(), statistics);
+                    })
+                    .toList()).get();
+                // Profiles changed since the page was read are skipped; their next read recomputes
+                refreshed += cyclePredictionService.upsertAll(predictions);
+                lastId = page.get(page.size() - 1).profileId();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            log.error("Cycle prediction batch failed after profile {}, the next run starts over", lastId, e.getCause());
+            return;
+        } finally {
+            pool.shutdown();
+        }
+
+        log.info("Cycle prediction batch refreshed {} profiles in {} ms", refreshed, System.currentTimeMillis() - started);
+    }
+
+    private CycleStatistics statisticsOf(ProfileRow row) {
+        return row.statistics().isBuilt() ? row.statistics() : cycleStatisticsService.rebuild(row.profileId());
+    }
+
+    private record ProfileRow(long profileId, long userId, LocalDate lastPeriodDate, Integer averageCycleLength,
+                              CycleStatistics statistics) {
+    }
+}
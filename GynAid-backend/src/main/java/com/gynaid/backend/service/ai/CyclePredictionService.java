@@ -0,0 +1,239 @@
+package com.gynaid.backend.service.ai;
+
+import com.gynaid.backend.entity.ai.CyclePrediction;
+import com.gynaid.backend.entity.client.CycleStatistics;
+import com.gynaid.backend.entity.client.GynecologicalProfile;
+import com.gynaid.backend.repository.CyclePredictionRepository;
+import com.gynaid.backend.service.CycleStatisticsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Period, fertile window and regularity predictions, stored in cycle_predictions.
+ *
+ * The nightly CyclePredictionBatchService refreshes every profile. A new cycle or a
+ * profile edit removes the profile's row, and the next read computes and stores it
+ * again, so online reads are a single indexed lookup.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CyclePredictionService {
+
+    static final int RECENT_CYCLES = 6;
+    static final int DEFAULT_CYCLE_LENGTH = 28;
+
+    // Prediction values plus the profile state they were computed from; nothing is
+    // selected unless the profile still matches that state
+    private static final String GUARDED_SOURCE = "SELECT gp.id AS gynecological_profile_id, "
+        + "CAST(? AS BIGINT) AS user_id, CAST(? AS DATE) AS next_period_date, CAST(? AS DATE) AS ovulation_date, "
+        + "CAST(? AS DATE) AS fertile_window_start, CAST(? AS DATE) AS fertile_window_end, "
+        + "CAST(? AS DOUBLE PRECISION) AS regularity_score, CAST(? AS INTEGER) AS cycles_tracked, "
+        + "CAST(? AS TIMESTAMP) AS computed_at FROM gynecological_profiles gp WHERE gp.id = ? "
+        + "AND gp.cycle_stats_entries IS NOT DISTINCT FROM CAST(? AS INTEGER) "
+        + "AND gp.cycle_stats_last_start_date IS NOT DISTINCT FROM CAST(? AS DATE) "
+        + "AND gp.last_period_date IS NOT DISTINCT FROM CAST(? AS DATE) "
+        + "AND gp.average_cycle_length IS NOT DISTINCT FROM CAST(? AS INTEGER)";
+
+    private static final String COLUMNS = "gynecological_profile_id, user_id, next_period_date, ovulation_date, "
+        + "fertile_window_start, fertile_window_end, regularity_score, cycles_tracked, computed_at";
+
+    // FOR SHARE waits for a cycle being recorded, which holds the profile row lock, and
+    // then re-checks the guard against the committed statistics
+    private static final String POSTGRES_UPSERT = "INSERT INTO cycle_predictions (" + COLUMNS + ") "
+        + GUARDED_SOURCE + " FOR SHARE OF gp "
+        + "ON CONFLICT (gynecological_profile_id) DO UPDATE SET user_id = EXCLUDED.user_id, "
+        + "next_period_date = EXCLUDED.next_period_date, ovulation_date = EXCLUDED.ovulation_date, "
+        + "fertile_window_start = EXCLUDED.fertile_window_start, fertile_window_end = EXCLUDED.fertile_window_end, "
+        + "regularity_score = EXCLUDED.regularity_score, cycles_tracked = EXCLUDED.cycles_tracked, "
+        + "computed_at = EXCLUDED.computed_at";
+
+    // H2 (dev and test)
+    private static final String MERGE_UPSERT = "MERGE INTO cycle_predictions p USING (" + GUARDED_SOURCE + ") s "
+        + "ON p.gynecological_profile_id = s.gynecological_profile_id "
+        + "WHEN MATCHED THEN UPDATE SET user_id = s.user_id, next_period_date = s.next_period_date, "
+        + "ovulation_date = s.ovulation_date, fertile_window_start = s.fertile_window_start, "
+        + "fertile_window_end = s.fertile_window_end, regularity_score = s.regularity_score, "
+        + "cycles_tracked = s.cycles_tracked, computed_at = s.computed_at "
+        + "WHEN NOT MATCHED THEN INSERT (" + COLUMNS + ") VALUES (s.gynecological_profile_id, s.user_id, "
+        + "s.next_period_date, s.ovulation_date, s.fertile_window_start, s.fertile_window_end, "
+        + "s.regularity_score, s.cycles_tracked, s.computed_at)";
+
+    private final CyclePredictionRepository predictionRepository;
+    private final CycleStatisticsService cycleStatisticsService;
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile String upsertSql;
+
+    /**
+     * Stored prediction of the context's profile, computed if missing; null without a profile
+     */
+    public CyclePrediction getPrediction(HealthContext context) {
+        if (context.isPredictionLoaded()) {
+            return context.getPrediction();
+        }
+
+        GynecologicalProfile profile = context.getGynecologicalProfile();
+        CyclePrediction prediction = null;
+        if (profile != null) {
+            prediction = predictionRepository.findByGynecologicalProfileId(profile.getId())
+                .orElseGet(() -> computeAndStore(context.getUserId(), profile));
+        }
+        context.setPrediction(prediction);
+        return prediction;
+    }
+
+    /**
+     * Drop the stored prediction after the profile's cycles or cycle fields changed
+     */
+    public void invalidate(Long gynecologicalProfileId) {
+        if (gynecologicalProfileId != null) {
+            predictionRepository.deleteByProfileId(gynecologicalProfileId);
+        }
+    }
+
+    /**
+     * Batched upsert of computed predictions, each guarded on the profile state it was
+     * computed from: a row whose cycle statistics, last period date or average cycle
+     * length changed since (and whose prediction was therefore invalidated) is skipped
+     * rather than written back stale. The statement never fails on a concurrent insert
+     * of the same profile, so callers' transactions stay usable.
+     *
+     * @return number of predictions written
+     */
+    public int upsertAll(List<Computed> predictions) {
+        if (predictions.isEmpty()) {
+            return 0;
+        }
+
+        List<Object[]> rows = new ArrayList<>(predictions.size());
+        for (Computed computed : predictions) {
+            CyclePrediction prediction = computed.prediction();
+            rows.add(new Object[] {
+                prediction.getUserId(),
+                toDate(prediction.getNextPeriodDate()),
+                toDate(prediction.getOvulationDate()),
+                toDate(prediction.getFertileWindowStart()),
+                toDate(prediction.getFertileWindowEnd()),
+                prediction.getRegularityScore(),
+                prediction.getCyclesTracked(),
+                Timestamp.valueOf(prediction.getComputedAt()),
+                prediction.getGynecologicalProfileId(),
+                computed.statistics().getEntries(),
+                toDate(computed.statistics().getLastStartDate()),
+                toDate(computed.lastPeriodDate()),
+                computed.averageCycleLength()});
+        }
+
+        int written = 0;
+        for (int count : jdbcTemplate.batchUpdate(upsertSql(), rows)) {
+            written += count > 0 || count == Statement.SUCCESS_NO_INFO ? 1 : 0;
+        }
+        if (written < rows.size()) {
+            log.debug("Skipped {} predictions whose profile changed while they were computed", rows.size() - written);
+        }
+        return written;
+    }
+
+    private String upsertSql() {
+        String sql = upsertSql;
+        if (sql == null) {
+            String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            sql = "PostgreSQL".equals(product) ? POSTGRES_UPSERT : MERGE_UPSERT;
+            upsertSql = sql;
+        }
+        return sql;
+    }
+
+    /**
+     * Prediction from the profile's stated cycle fields and its rolling cycle statistics.
+     * With three or more tracked cycles the next period is the latest start plus the
+     * EWMA cycle length (clamped to 21-35 days for irregular cycles); otherwise it comes
+     * from the last period date and average cycle length the user entered.
+     */
+    static CyclePrediction compute(Long userId, Long gynecologicalProfileId, LocalDate lastPeriodDate,
+                                   Integer averageCycleLength, CycleStatistics statistics, LocalDateTime now) {
+        double regularity = statistics.getEntries() < 3
+            ? 0.5 : regularityScore(statistics.recentLengths(0, RECENT_CYCLES));
+
+        LocalDate nextPeriod = null;
+        if (statistics.getEntries() >= 3 && statistics.getLastStartDate() != null) {
+            int predictedLength = (int) Math.round(statistics.ewmaLength(DEFAULT_CYCLE_LENGTH));
+            if (regularity < 0.7) {
+                // For irregular cycles, add some uncertainty buffer
+                predictedLength = Math.max(21, Math.min(35, predictedLength));
+            }
+            nextPeriod = statistics.getLastStartDate().plusDays(predictedLength);
+        } else if (lastPeriodDate != null && averageCycleLength != null) {
+            nextPeriod = lastPeriodDate.plusDays(averageCycleLength);
+        }
+
+        LocalDate ovulation = nextPeriod != null ? nextPeriod.minusDays(14) : null;
+        return CyclePrediction.builder()
+            .gynecologicalProfileId(gynecologicalProfileId)
+            .userId(userId)
+            .nextPeriodDate(nextPeriod)
+            .ovulationDate(ovulation)
+            .fertileWindowStart(ovulation != null ? ovulation.minusDays(5) : null)
+            .fertileWindowEnd(ovulation != null ? ovulation.plusDays(1) : null)
+            .regularityScore(regularity)
+            .cyclesTracked(statistics.getEntries())
+            .computedAt(now)
+            .build();
+    }
+
+    /**
+     * 1 minus a tenth of the standard deviation of the cycle lengths, floored at 0
+     */
+    static double regularityScore(int[] lengths) {
+        if (lengths.length < 2) {
+            return 0.5;
+        }
+
+        double avgLength = 0;
+        for (int length : lengths) {
+            avgLength += length;
+        }
+        avgLength /= lengths.length;
+
+        double variance = 0;
+        for (int length : lengths) {
+            variance += (length - avgLength) * (length - avgLength);
+        }
+        variance /= lengths.length;
+
+        return Math.max(0, 1 - (Math.sqrt(variance) / 10));
+    }
+
+    private CyclePrediction computeAndStore(Long userId, GynecologicalProfile profile) {
+        CycleStatistics statistics = cycleStatisticsService.getStatistics(profile);
+        CyclePrediction prediction = compute(userId, profile.getId(), profile.getLastPeriodDate(),
+            profile.getAverageCycleLength(), statistics, LocalDateTime.now());
+        upsertAll(List.of(new Computed(prediction, profile.getLastPeriodDate(), profile.getAverageCycleLength(),
+            statistics)));
+        return prediction;
+    }
+
+    private static Date toDate(LocalDate date) {
+        return date != null ? Date.valueOf(date) : null;
+    }
+
+    /**
+     * A computed prediction with the profile state it was computed from
+     */
+    public record Computed(CyclePrediction prediction, LocalDate lastPeriodDate, Integer averageCycleLength,
+                           CycleStatistics statistics) {
+    }
+}
@@ -0,0 +1,44 @@
+package com.gynaid.backend.service.ai;
+
+import com.gynaid.backend.entity.User;
+import com.gynaid.backend.entity.ai.CyclePrediction;
+import com.gynaid.backend.entity.client.ClientHealthProfile;
+import com.gynaid.backend.entity.client.GynecologicalProfile;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * The user and health profile behind one AI request, loaded once by HealthContextLoader
+ * and passed through the service.ai chain instead of each service re-reading them.
+ *
+ * The cycle prediction, which several services need, is memoized here so it is read
+ * at most once per request.
+ */
+@Getter
+public class HealthContext {
+
+    private final User user;
+    private final ClientHealthProfile healthProfile;
+    private final GynecologicalProfile gynecologicalProfile;
+
+    @Getter(AccessLevel.PACKAGE)
+    private CyclePrediction prediction;
+
+    @Getter(AccessLevel.PACKAGE)
+    private boolean predictionLoaded;
+
+    HealthContext(User user, ClientHealthProfile healthProfile) {
+        this.user = user;
+        this.healthProfile = healthProfile;
+        this.gynecologicalProfile = healthProfile != null ? healthProfile.getGynecologicalProfile() : null;
+    }
+
+    public Long getUserId() {
+        return user.getId();
+    }
+
+    void setPrediction(CyclePrediction prediction) {
+        this.prediction = prediction;
+        this.predictionLoaded = true;
+    }
+}
@@ -0,0 +1,33 @@
+package com.gynaid.backend.service.ai;
+
+import com.gynaid.backend.entity.User;
+import com.gynaid.backend.entity.client.ClientHealthProfile;
+import com.gynaid.backend.repository.UserRepository;
+import com.gynaid.backend.repository.client.ClientHealthProfileRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+public class HealthContextLoader {
+
+    private final UserRepository userRepository;
+    private final ClientHealthProfileRepository healthProfileRepository;
+
+    /**
+     * Load the user and health profile with one fetch-join query; the user alone is
+     * read only when there is no health profile yet
+     */
+    public HealthContext load(Long userId) {
+        Optional<ClientHealthProfile> healthProfile = healthProfileRepository.findForHealthContextByUserId(userId);
+        if (healthProfile.isPresent()) {
+            return new HealthContext(healthProfile.get().getUser(), healthProfile.get());
+        }
+
+        User user = userRepository.findById(userId)
+            .orElseThrow(() -> new RuntimeException("User not found"));
+        return new HealthContext(user, null);
+    }
+}
@@ -1,17 +1,23 @@
 package com.gynaid.backend.service.ai;
 
 import com.gynaid.backend.entity.User;
+import com.gynaid.backend.entity.ai.CyclePrediction;
 import com.gynaid.backend.entity.ai.SmartNotification;
 import com.gynaid.backend.entity.client.GynecologicalProfile;
+import com.gynaid.backend.repository.SmartNotificationRepository;
 import com.gynaid.backend.repository.UserRepository;
-import com.gynaid.backend.repository.client.ClientHealthProfileRepository;
+import com.gynaid.backend.service.notification.NotificationDispatchService;
+import com.gynaid.backend.util.UgandaPhoneNumber;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -19,52 +25,96 @@ import java.util.List;
 public class SmartNotificationService {
     
     private final UserRepository userRepository;
-    private final ClientHealthProfileRepository healthProfileRepository;
+    private final HealthContextLoader healthContextLoader;
     private final PredictiveAnalyticsService predictiveAnalyticsService;
+    private final CyclePredictionService cyclePredictionService;
+    private final SmartNotificationRepository notificationRepository;
+    private final NotificationDispatchService notificationDispatchService;
     
+    /**
+     * Generate the user's reminders and schedule the ones not already scheduled
+     */
     public List<SmartNotification> generateSmartNotifications(Long userId) {
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new RuntimeException("User not found"));
+        HealthContext context = healthContextLoader.load(userId);
+        User user = context.getUser();
         
         List<SmartNotification> notifications = new ArrayList<>();
-        GynecologicalProfile profile = getGynecologicalProfile(userId);
+        GynecologicalProfile profile = context.getGynecologicalProfile();
         
         // Generate period reminders enhancing existing prediction logic
-        notifications.addAll(generatePeriodReminders(user, profile));
+        notifications.addAll(generatePeriodReminders(context));
         
         // Generate fertility window notifications
-        notifications.addAll(generateFertilityNotifications(user, profile));
+        notifications.addAll(generateFertilityNotifications(context));
         
         // Generate health tips based on user data
         notifications.addAll(generateHealthTips(user, profile));
         
-        return notifications;
+        return schedule(userId, notifications);
     }
     
     public SmartNotification createEmergencyAlert(Long userId, String alertMessage) {
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new RuntimeException("User not found"));
         
-        return SmartNotification.builder()
+        SmartNotification alert = SmartNotification.builder()
             .user(user)
             .notificationType(SmartNotification.NotificationType.EMERGENCY_ALERT)
             .title("Health Emergency Alert")
             .message(alertMessage)
             .priority(SmartNotification.Priority.URGENT)
+            .channel(SmartNotification.DeliveryChannel.SMS)
             .scheduledFor(LocalDateTime.now())
             .build();
+        
+        return notificationDispatchService.schedule(List.of(alert)).get(0);
     }
     
     public List<SmartNotification> getPendingNotifications(Long userId) {
-        // Get notifications scheduled for now or past that haven't been sent
-        return List.of(); // Would implement with actual repository
+        // Notifications scheduled for now or past that haven't been sent
+        return notificationRepository.findDueByUser(userId, SmartNotification.DeliveryStatus.PENDING, LocalDateTime.now());
     }
     
-    private List<SmartNotification> generatePeriodReminders(User user, GynecologicalProfile profile) {
+    private List<SmartNotification> schedule(Long userId, List<SmartNotification> notifications) {
+        if (notifications.isEmpty()) {
+            return notifications;
+        }
+        
+        // Generation is repeatable, so skip reminders of the same type already stored for the same time
+        LocalDateTime earliest = notifications.stream()
+            .map(SmartNotification::getScheduledFor)
+            .min(Comparator.naturalOrder())
+            .orElseThrow();
+        Set<String> scheduled = new HashSet<>();
+        for (SmartNotificationRepository.ScheduledKey key : notificationRepository.findScheduledKeys(userId, earliest)) {
+            scheduled.add(key.getNotificationType() + "@" + key.getScheduledFor());
+        }
+        
+        List<SmartNotification> fresh = new ArrayList<>();
+        for (SmartNotification notification : notifications) {
+            if (scheduled.add(notification.getNotificationType() + "@" + notification.getScheduledFor())) {
+                fresh.add(notification);
+            }
+        }
+        notificationDispatchService.schedule(fresh);
+        return notifications;
+    }
+    
+    /**
+     * SMS to a valid Uganda number, email otherwise. Reminders left on the PUSH default
+     * would never be delivered, as there is no push provider.
+     */
+    private static SmartNotification.DeliveryChannel reminderChannel(User user) {
+        return UgandaPhoneNumber.isValid(user.getPhoneNumber())
+            ? SmartNotification.DeliveryChannel.SMS : SmartNotification.DeliveryChannel.EMAIL;
+    }
+    
+    private List<SmartNotification> generatePeriodReminders(HealthContext context) {
         List<SmartNotification> notifications = new ArrayList<>();
+        User user = context.getUser();
         
         try {
-            LocalDate nextPeriod = predictiveAnalyticsService.predictNextPeriod(user.getId());
+            LocalDate nextPeriod = predictiveAnalyticsService.predictNextPeriod(context);
             if (nextPeriod != null) {
                 // 3-day advance reminder
                 notifications.add(SmartNotification.builder()
@@ -74,6 +124,7 @@ public class SmartNotificationService {
                     .message("Your period is predicted to start in 3 days (" + nextPeriod + "). " +
                            "Consider preparing supplies and tracking any pre-menstrual symptoms.")
                     .priority(SmartNotification.Priority.MEDIUM)
+                    .channel(reminderChannel(user))
                     .scheduledFor(nextPeriod.minusDays(3).atTime(9, 0))
                     .build());
                 
@@ -84,6 +135,7 @@ public class SmartNotificationService {
                     .title("Period Day")
                     .message("Your period is predicted to start today. Don't forget to log when it begins for accurate tracking.")
                     .priority(SmartNotification.Priority.HIGH)
+                    .channel(reminderChannel(user))
                     .scheduledFor(nextPeriod.atTime(8, 0))
                     .build());
             }
@@ -94,14 +146,16 @@ public class SmartNotificationService {
         return notifications;
     }
     
-    private List<SmartNotification> generateFertilityNotifications(User user, GynecologicalProfile profile) {
+    private List<SmartNotification> generateFertilityNotifications(HealthContext context) {
         List<SmartNotification> notifications = new ArrayList<>();
+        User user = context.getUser();
+        GynecologicalProfile profile = context.getGynecologicalProfile();
         
         if (profile != null && profile.getFertilityGoal() == GynecologicalProfile.FertilityGoal.TRYING_TO_CONCEIVE) {
             try {
-                LocalDate nextPeriod = predictiveAnalyticsService.predictNextPeriod(user.getId());
-                if (nextPeriod != null) {
-                    LocalDate fertileStart = nextPeriod.minusDays(16); // Approximate fertile window start
+                CyclePrediction prediction = cyclePredictionService.getPrediction(context);
+                if (prediction != null && prediction.getFertileWindowStart() != null) {
+                    LocalDate fertileStart = prediction.getFertileWindowStart();
                     
                     notifications.add(SmartNotification.builder()
                         .user(user)
@@ -110,6 +164,7 @@ public class SmartNotificationService {
                         .message("Your fertile window is beginning. This is an optimal time for conception. " +
                                "Track ovulation signs and maintain healthy habits.")
                         .priority(SmartNotification.Priority.HIGH)
+                        .channel(reminderChannel(user))
                         .scheduledFor(fertileStart.atTime(7, 0))
                         .build());
                 }
@@ -135,7 +190,8 @@ public class SmartNotificationService {
                     .message("High stress levels can affect your cycle. Try 10 minutes of deep breathing, " +
                            "meditation, or gentle exercise today.")
                     .priority(SmartNotification.Priority.LOW)
-                    .scheduledFor(LocalDateTime.now().plusDays(1).withHour(10).withMinute(0))
+                    .channel(reminderChannel(user))
+                    .scheduledFor(LocalDate.now().plusDays(1).atTime(10, 0))
                     .build());
             }
             
@@ -148,17 +204,12 @@ public class SmartNotificationService {
                     .message("Regular exercise can help regulate your cycle and reduce menstrual symptoms. " +
                            "Start with a 15-minute walk today!")
                     .priority(SmartNotification.Priority.LOW)
-                    .scheduledFor(LocalDateTime.now().plusDays(2).withHour(16).withMinute(0))
+                    .channel(reminderChannel(user))
+                    .scheduledFor(LocalDate.now().plusDays(2).atTime(16, 0))
                     .build());
             }
         }
         
         return notifications;
     }
-    
-    private GynecologicalProfile getGynecologicalProfile(Long userId) {
-        return healthProfileRepository.findByUserId(userId)
-            .map(hp -> hp.getGynecologicalProfile())
-            .orElse(null);
-    }
 }
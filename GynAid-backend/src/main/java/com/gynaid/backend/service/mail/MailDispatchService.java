@@ -0,0 +1,307 @@
+package com.gynaid.backend.service.mail;
+
+import com.gynaid.backend.service.SchedulerLeaseService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.UnsupportedEncodingException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends mail over pooled SMTP connections.
+ *
+ * A batch is sent as one message per recipient over a single borrowed connection, so
+ * recipients never see each other and the SMTP session is opened once per batch rather
+ * than once per message. Bulk jobs are split into batches of recipients-per-connection
+ * and fanned out on a fixed worker pool with a bounded queue; when the queue is full the
+ * submitting thread sends the batch itself. Every recipient of a bulk job has a row in
+ * outbound_emails whose status is updated per batch, and recipients left PENDING are
+ * re-queued by recoverStuck on the node holding the "mail-recovery" lease.
+ *
+ * Local load tests can point spring.mail at an SMTP sink such as MailHog or Mailpit on
+ * localhost:1025, which is the default configuration.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MailDispatchService {
+
+    private static final String RECOVERY_LEASE_NAME = "mail-recovery";
+
+    private final JavaMailSender mailSender;
+    private final SmtpConnectionPool connectionPool;
+    private final OutboundEmailStore outboundEmailStore;
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.email.from-address:${spring.mail.username:}}")
+    private String fromEmail;
+
+    @Value("${app.email.from-name:GynAid}")
+    private String fromName;
+
+    @Value("${app.email.dispatch.workers:4}")
+    private int workers;
+
+    @Value("${app.email.dispatch.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.email.dispatch.recipients-per-connection:50}")
+    private int recipientsPerConnection;
+
+    @Value("${app.email.dispatch.recovery-enabled:true}")
+    private boolean recoveryEnabled;
+
+    @Value("${app.email.dispatch.stuck-minutes:10}")
+    private int stuckMinutes;
+
+    @Value("${app.email.dispatch.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.email.dispatch.recovery-batch-size:500}")
+    private int recoveryBatchSize;
+
+    @Value("${app.email.dispatch.recovery-lease-seconds:120}")
+    private int recoveryLeaseSeconds;
+
+    private ThreadPoolExecutor executor;
+    private Counter sentCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "mail-dispatch-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        sentCounter = meterRegistry.counter("gynaid.mail.sent");
+        failedCounter = meterRegistry.counter("gynaid.mail.failed");
+        meterRegistry.gauge("gynaid.mail.queue.size", executor, pool -> pool.getQueue().size());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Send one HTML mail on the calling thread
+     */
+    public void send(String to, String subject, String html) {
+        String error = sendBatch(List.of(new OutgoingMail(to, subject, html))).get(0);
+        if (error != null) {
+            throw new RuntimeException("Failed to send HTML email: " + error);
+        }
+    }
+
+    /**
+     * Send a batch over one connection on the calling thread. Returns one entry per mail,
+     * null when it was accepted by the server and the error otherwise.
+     */
+    public List<String> sendBatch(List<OutgoingMail> mails) {
+        List<String> errors = new ArrayList<>(mails.size());
+        if (!connectionPool.isPooling()) {
+            for (OutgoingMail mail : mails) {
+                errors.add(sendUnpooled(mail));
+            }
+            return errors;
+        }
+
+        SmtpConnectionPool.PooledConnection connection = null;
+        try {
+            for (OutgoingMail mail : mails) {
+                if (connection == null) {
+                    connection = connectionPool.borrow();
+                }
+                try {
+                    connection.send(buildMessage(mail));
+                    errors.add(null);
+                    sentCounter.increment();
+                } catch (SendFailedException e) {
+                    // Rejected recipient, the session is still fine
+                    errors.add(describe(e));
+                    failedCounter.increment();
+                } catch (MessagingException | UnsupportedEncodingException e) {
+                    errors.add(describe(e));
+                    failedCounter.increment();
+                    if (!connection.isConnected()) {
+                        connectionPool.release(connection, true);
+                        connection = null;
+                    }
+                }
+            }
+        } catch (MessagingException e) {
+            log.error("Could not open SMTP connection", e);
+            fail(errors, mails.size(), "SMTP connection failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(errors, mails.size(), "Interrupted");
+        } finally {
+            if (connection != null) {
+                connectionPool.release(connection, false);
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Queue a bulk send of the same mail to every recipient and return its job id
+     */
+    public String submitBulk(String[] recipients, String subject, String html) {
+        String jobId = UUID.randomUUID().toString();
+        List<String> to = Arrays.stream(recipients).filter(r -> r != null && !r.isBlank()).distinct().toList();
+        if (to.isEmpty()) {
+            return jobId;
+        }
+
+        outboundEmailStore.createJob(jobId, subject, html, to, LocalDateTime.now());
+
+        Runnable fanOut = () -> fanOut(jobId, to, subject, html, 0);
+        // Workers update the status rows, so they must only start once the rows are visible
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    fanOut.run();
+                }
+            });
+        } else {
+            fanOut.run();
+        }
+        log.info("Bulk email job {} queued for {} recipients", jobId, to.size());
+        return jobId;
+    }
+
+    /**
+     * Number of recipients of a bulk job per status
+     */
+    public Map<String, Long> getJobStatus(String jobId) {
+        return outboundEmailStore.countByStatus(jobId);
+    }
+
+    /**
+     * Re-queue bulk recipients left PENDING by a crash, a full restart or a lost status
+     * write. Rows still waiting in a live node's queue are only taken once they count as
+     * stuck, and that node's worker then finds its claim gone and skips them.
+     */
+    @Scheduled(fixedDelayString = "${app.email.dispatch.recovery-interval-ms:60000}")
+    public void recoverStuck() {
+        if (!recoveryEnabled || !schedulerLeaseService.tryAcquire(RECOVERY_LEASE_NAME, recoveryLeaseSeconds)) {
+            return;
+        }
+
+        List<OutboundEmailStore.Reclaimed> reclaimed = outboundEmailStore.reclaimStuck(
+            LocalDateTime.now().minusMinutes(stuckMinutes), maxAttempts, recoveryBatchSize);
+        if (reclaimed.isEmpty()) {
+            return;
+        }
+
+        Map<String, Map<Integer, List<String>>> byJob = new LinkedHashMap<>();
+        for (OutboundEmailStore.Reclaimed row : reclaimed) {
+            byJob.computeIfAbsent(row.jobId(), jobId -> new LinkedHashMap<>())
+                .computeIfAbsent(row.attempt(), attempt -> new ArrayList<>())
+                .add(row.recipient());
+        }
+        byJob.forEach((jobId, byAttempt) -> outboundEmailStore.findJob(jobId).ifPresentOrElse(
+            job -> byAttempt.forEach((attempt, to) -> fanOut(jobId, to, job.subject(), job.html(), attempt)),
+            () -> log.warn("Bulk email job {} has no stored mail, its stuck recipients stay pending", jobId)));
+        log.info("Re-queued {} stuck bulk email recipients", reclaimed.size());
+    }
+
+    private void fanOut(String jobId, List<String> to, String subject, String html, int attempt) {
+        for (int from = 0; from < to.size(); from += recipientsPerConnection) {
+            List<String> chunk = to.subList(from, Math.min(from + recipientsPerConnection, to.size()));
+            executor.execute(() -> sendJobBatch(jobId, chunk, subject, html, attempt));
+        }
+    }
+
+    private void sendJobBatch(String jobId, List<String> recipients, String subject, String html, int attempt) {
+        List<String> claimed;
+        try {
+            claimed = outboundEmailStore.claim(jobId, recipients, attempt);
+        } catch (Exception e) {
+            log.error("Failed to claim {} mails of job {}, leaving them to recovery", recipients.size(), jobId, e);
+            return;
+        }
+        if (claimed.isEmpty()) {
+            return;
+        }
+
+        List<String> errors = sendBatch(claimed.stream().map(to -> new OutgoingMail(to, subject, html)).toList());
+        try {
+            outboundEmailStore.record(jobId, claimed, errors);
+        } catch (Exception e) {
+            log.error("Failed to record status of {} mails of job {}", claimed.size(), jobId, e);
+        }
+    }
+
+    private MimeMessage buildMessage(OutgoingMail mail) throws MessagingException, UnsupportedEncodingException {
+        MimeMessage message = new MimeMessage(connectionPool.getSession());
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom(fromEmail, fromName);
+        helper.setTo(mail.to());
+        helper.setSubject(mail.subject());
+        helper.setText(mail.html(), true);
+        return message;
+    }
+
+    private String sendUnpooled(OutgoingMail mail) {
+        try {
+            MimeMessage message = mailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+            helper.setFrom(fromEmail, fromName);
+            helper.setTo(mail.to());
+            helper.setSubject(mail.subject());
+            helper.setText(mail.html(), true);
+            mailSender.send(message);
+            sentCounter.increment();
+            return null;
+        } catch (Exception e) {
+            failedCounter.increment();
+            return describe(e);
+        }
+    }
+
+    private static void fail(List<String> errors, int total, String error) {
+        while (errors.size() < total) {
+            errors.add(error);
+        }
+    }
+
+    private static String describe(Exception e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    public record OutgoingMail(String to, String subject, String html) {
+    }
+}
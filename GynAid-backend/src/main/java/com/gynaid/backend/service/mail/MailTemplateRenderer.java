@@ -0,0 +1,29 @@
+package com.gynaid.backend.service.mail;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Renders Thymeleaf mail templates.
+ *
+ * Parsing is the expensive part, and the engine's template cache (spring.thymeleaf.cache,
+ * on by default) keeps each template parsed after its first use, whatever the locale.
+ * Rendering then only evaluates expressions and messages against the variables, so the
+ * output itself is never cached: it may carry personal data, and a cache keyed by the
+ * variables would only hit on identical sends.
+ */
+@Component
+@RequiredArgsConstructor
+public class MailTemplateRenderer {
+
+    private final TemplateEngine templateEngine;
+
+    public String render(String template, Locale locale, Map<String, Object> variables) {
+        return templateEngine.process(template, new Context(locale, variables));
+    }
+}
@@ -0,0 +1,152 @@
+package com.gynaid.backend.service.mail;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * JDBC access to outbound_email_jobs and outbound_emails.
+ *
+ * A worker claims its recipients before sending by touching rows that are still PENDING
+ * with the attempt number it was queued for. The recovery poller re-queues a stuck row
+ * by bumping that number, so a batch that waited in the queue past the stuck threshold
+ * loses its claim instead of sending a second time. Claims and status writes run in
+ * their own transaction: fan-out starts from afterCommit, where the committed
+ * transaction's connection is still bound to the thread.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboundEmailStore {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Store a bulk job's mail and one PENDING row per recipient in the caller's transaction
+     */
+    @Transactional
+    public void createJob(String jobId, String subject, String html, List<String> recipients, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        jdbcTemplate.update("INSERT INTO outbound_email_jobs (job_id, subject, html, created_at) VALUES (?, ?, ?, ?)",
+            jobId, subject, html, timestamp);
+        jdbcTemplate.batchUpdate("INSERT INTO outbound_emails (job_id, recipient, subject, status, attempts, "
+                + "created_at, updated_at) VALUES (?, ?, ?, 'PENDING', 0, ?, ?)",
+            recipients.stream()
+                .map(recipient -> new Object[] {jobId, recipient, truncate(subject), timestamp, timestamp})
+                .toList());
+    }
+
+    /**
+     * Claim the recipients still PENDING at the given attempt, returning those claimed
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public List<String> claim(String jobId, List<String> recipients, int attempt) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[] counts = jdbcTemplate.batchUpdate("UPDATE outbound_emails SET updated_at = ? "
+                + "WHERE job_id = ? AND recipient = ? AND status = 'PENDING' AND attempts = ?",
+            recipients.stream().map(recipient -> new Object[] {now, jobId, recipient, attempt}).toList());
+
+        List<String> claimed = new ArrayList<>(recipients.size());
+        for (int i = 0; i < recipients.size(); i++) {
+            if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                claimed.add(recipients.get(i));
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Record the outcome of a sent batch; errors holds null for accepted mails
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void record(String jobId, List<String> recipients, List<String> errors) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> updates = new ArrayList<>(recipients.size());
+        for (int i = 0; i < recipients.size(); i++) {
+            String error = errors.get(i);
+            updates.add(new Object[] {error == null ? "SENT" : "FAILED", truncate(error),
+                error == null ? now : null, now, jobId, recipients.get(i)});
+        }
+        jdbcTemplate.batchUpdate("UPDATE outbound_emails SET status = ?, last_error = ?, sent_at = ?, updated_at = ? "
+            + "WHERE job_id = ? AND recipient = ? AND status = 'PENDING'", updates);
+    }
+
+    /**
+     * Fail rows stuck after maxAttempts recoveries and re-queue up to limit other stuck
+     * rows under their next attempt number
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public List<Reclaimed> reclaimStuck(LocalDateTime stuckBefore, int maxAttempts, int limit) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp cutoff = Timestamp.valueOf(stuckBefore);
+        jdbcTemplate.update("UPDATE outbound_emails SET status = 'FAILED', last_error = ?, updated_at = ? "
+                + "WHERE status = 'PENDING' AND updated_at < ? AND attempts >= ?",
+            "Not sent after " + (maxAttempts + 1) + " attempts", now, cutoff, maxAttempts);
+
+        List<Reclaimed> stuck = jdbcTemplate.query("SELECT job_id, recipient, attempts FROM outbound_emails "
+                + "WHERE status = 'PENDING' AND updated_at < ? ORDER BY updated_at, id LIMIT ?",
+            (rs, rowNum) -> new Reclaimed(rs.getString("job_id"), rs.getString("recipient"),
+                rs.getInt("attempts") + 1),
+            cutoff, limit);
+        if (stuck.isEmpty()) {
+            return stuck;
+        }
+
+        // A worker claiming the row at the same time wins by touching updated_at first
+        int[] counts = jdbcTemplate.batchUpdate("UPDATE outbound_emails SET attempts = ?, updated_at = ? "
+                + "WHERE job_id = ? AND recipient = ? AND status = 'PENDING' AND attempts = ? AND updated_at < ?",
+            stuck.stream()
+                .map(row -> new Object[] {row.attempt(), now, row.jobId(), row.recipient(), row.attempt() - 1, cutoff})
+                .toList());
+
+        List<Reclaimed> reclaimed = new ArrayList<>(stuck.size());
+        for (int i = 0; i < stuck.size(); i++) {
+            if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                reclaimed.add(stuck.get(i));
+            }
+        }
+        return reclaimed;
+    }
+
+    public Optional<Job> findJob(String jobId) {
+        return jdbcTemplate.query("SELECT subject, html FROM outbound_email_jobs WHERE job_id = ?",
+            (rs, rowNum) -> new Job(jobId, rs.getString("subject"), rs.getString("html")),
+            jobId).stream().findFirst();
+    }
+
+    /**
+     * Number of recipients of a bulk job per status
+     */
+    public Map<String, Long> countByStatus(String jobId) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT status, COUNT(*) AS total FROM outbound_emails WHERE job_id = ? GROUP BY status",
+            rs -> {
+                counts.put(rs.getString("status"), rs.getLong("total"));
+            },
+            jobId);
+        return counts;
+    }
+
+    private static String truncate(String value) {
+        return value != null && value.length() > 255 ? value.substring(0, 255) : value;
+    }
+
+    public record Job(String jobId, String subject, String html) {
+    }
+
+    /**
+     * A stuck recipient re-queued under a new attempt number
+     */
+    public record Reclaimed(String jobId, String recipient, int attempt) {
+    }
+}
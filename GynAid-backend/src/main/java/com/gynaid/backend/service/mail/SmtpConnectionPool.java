@@ -0,0 +1,168 @@
+package com.gynaid.backend.service.mail;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of connected SMTP transports built from the JavaMailSenderImpl settings.
+ *
+ * At most max-connections transports exist at a time. Returned transports are reused
+ * most-recently-used first, are checked with a NOOP when they sat idle for a while,
+ * and are closed after max-messages-per-connection messages or idle-timeout-seconds.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SmtpConnectionPool {
+
+    private static final long VALIDATE_AFTER_IDLE_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final JavaMailSender mailSender;
+
+    @Value("${app.email.pool.max-connections:4}")
+    private int maxConnections;
+
+    @Value("${app.email.pool.max-messages-per-connection:500}")
+    private int maxMessagesPerConnection;
+
+    @Value("${app.email.pool.idle-timeout-seconds:60}")
+    private int idleTimeoutSeconds;
+
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private Semaphore permits;
+
+    @PostConstruct
+    void initialize() {
+        permits = new Semaphore(maxConnections, true);
+    }
+
+    /**
+     * False when the mail sender is not a JavaMailSenderImpl, e.g. a mock in tests
+     */
+    public boolean isPooling() {
+        return mailSender instanceof JavaMailSenderImpl;
+    }
+
+    public Session getSession() {
+        return ((JavaMailSenderImpl) mailSender).getSession();
+    }
+
+    /**
+     * Take a connected transport, waiting while max-connections are in use
+     */
+    public PooledConnection borrow() throws MessagingException, InterruptedException {
+        permits.acquire();
+        try {
+            PooledConnection connection;
+            while ((connection = idle.pollFirst()) != null) {
+                if (isUsable(connection)) {
+                    return connection;
+                }
+                close(connection);
+            }
+            return open();
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Give a transport back; broken ones and ones that reached their message limit are closed
+     */
+    public void release(PooledConnection connection, boolean broken) {
+        try {
+            if (broken || connection.messagesSent >= maxMessagesPerConnection) {
+                close(connection);
+            } else {
+                connection.lastUsedNanos = System.nanoTime();
+                idle.offerFirst(connection);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.email.pool.evict-interval-ms:30000}")
+    public void evictIdle() {
+        long cutoff = System.nanoTime() - TimeUnit.SECONDS.toNanos(idleTimeoutSeconds);
+        Iterator<PooledConnection> iterator = idle.descendingIterator();
+        while (iterator.hasNext()) {
+            PooledConnection connection = iterator.next();
+            if (connection.lastUsedNanos < cutoff && idle.removeFirstOccurrence(connection)) {
+                close(connection);
+            }
+        }
+    }
+
+    @PreDestroy
+    void closeAll() {
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            close(connection);
+        }
+    }
+
+    private PooledConnection open() throws MessagingException {
+        JavaMailSenderImpl sender = (JavaMailSenderImpl) mailSender;
+        Transport transport = getSession().getTransport(sender.getProtocol() != null ? sender.getProtocol() : "smtp");
+        transport.connect(sender.getHost(), sender.getPort(), sender.getUsername(), sender.getPassword());
+        log.debug("Opened SMTP connection to {}:{}", sender.getHost(), sender.getPort());
+        return new PooledConnection(transport);
+    }
+
+    private boolean isUsable(PooledConnection connection) {
+        long idleNanos = System.nanoTime() - connection.lastUsedNanos;
+        if (idleNanos > TimeUnit.SECONDS.toNanos(idleTimeoutSeconds)) {
+            return false;
+        }
+        // isConnected() sends a NOOP, so only pay for it after the connection sat idle
+        return idleNanos < VALIDATE_AFTER_IDLE_NANOS || connection.transport.isConnected();
+    }
+
+    private void close(PooledConnection connection) {
+        try {
+            connection.transport.close();
+        } catch (MessagingException e) {
+            log.debug("Error closing SMTP connection: {}", e.getMessage());
+        }
+    }
+
+    public static final class PooledConnection {
+
+        private final Transport transport;
+        private int messagesSent;
+        private long lastUsedNanos = System.nanoTime();
+
+        private PooledConnection(Transport transport) {
+            this.transport = transport;
+        }
+
+        public void send(MimeMessage message) throws MessagingException {
+            message.saveChanges();
+            transport.sendMessage(message, message.getAllRecipients());
+            messagesSent++;
+        }
+
+        public boolean isConnected() {
+            return transport.isConnected();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.gynaid.backend.service.notification;
+
+import com.gynaid.backend.entity.ai.SmartNotification;
+import com.gynaid.backend.service.mail.MailDispatchService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Email delivery with the message as a single HTML paragraph, one SMTP connection per batch
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EmailNotificationChannel implements NotificationChannel {
+
+    private final MailDispatchService mailDispatchService;
+
+    @Value("${app.notifications.channels.email.concurrency:4}")
+    private int concurrency;
+
+    @Override
+    public SmartNotification.DeliveryChannel channel() {
+        return SmartNotification.DeliveryChannel.EMAIL;
+    }
+
+    @Override
+    public int maxConcurrency() {
+        return concurrency;
+    }
+
+    @Override
+    public Set<Long> send(List<OutboundNotification> batch) {
+        Set<Long> failed = new HashSet<>();
+        List<OutboundNotification> sendable = new ArrayList<>(batch.size());
+        List<MailDispatchService.OutgoingMail> mails = new ArrayList<>(batch.size());
+        for (OutboundNotification notification : batch) {
+            if (notification.email() == null || notification.email().isBlank()) {
+                failed.add(notification.id());
+                continue;
+            }
+            sendable.add(notification);
+            mails.add(new MailDispatchService.OutgoingMail(notification.email(), notification.title(),
+                "<p>" + HtmlUtils.htmlEscape(notification.message()) + "</p>"));
+        }
+
+        List<String> errors = mailDispatchService.sendBatch(mails);
+        for (int i = 0; i < sendable.size(); i++) {
+            if (errors.get(i) != null) {
+                log.warn("Failed to email notification {}: {}", sendable.get(i).id(), errors.get(i));
+                failed.add(sendable.get(i).id());
+            }
+        }
+        return failed;
+    }
+}
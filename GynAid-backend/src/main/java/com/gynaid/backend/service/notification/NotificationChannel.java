@@ -0,0 +1,24 @@
+package com.gynaid.backend.service.notification;
+
+import com.gynaid.backend.entity.ai.SmartNotification;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Delivery channel for scheduled smart notifications.
+ *
+ * NotificationDispatchService hands each channel batches of due notifications and runs
+ * at most maxConcurrency() batches of the same channel at a time.
+ */
+public interface NotificationChannel {
+
+    SmartNotification.DeliveryChannel channel();
+
+    int maxConcurrency();
+
+    /**
+     * Deliver a batch, returning the ids of the notifications that could not be delivered
+     */
+    Set<Long> send(List<OutboundNotification> batch);
+}
@@ -0,0 +1,424 @@
+package com.gynaid.backend.service.notification;
+
+import com.gynaid.backend.entity.ai.SmartNotification;
+import com.gynaid.backend.repository.SmartNotificationRepository;
+import com.gynaid.backend.service.SchedulerLeaseService;
+import com.gynaid.backend.util.HierarchicalTimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Stores smart notifications and delivers them when they fall due.
+ *
+ * Notifications are partitioned by dispatch_bucket, the hour of scheduled_for. A slow
+ * poll scans the buckets of the lookahead window (id, channel and time only, keyset
+ * paged) into a hierarchical timing wheel. A one second tick advances the wheel and
+ * hands the due ids to their channel in batches, on virtual threads, with at most
+ * maxConcurrency() batches per channel in flight. Outcomes are written back on the
+ * next tick as batched UPDATEs; failures are rescheduled with exponential backoff until
+ * max-attempts. Only the node holding the "notification-dispatcher" lease loads or
+ * delivers, and delivery is at least once: a crash between sending and recording the
+ * outcome sends that batch again.
+ *
+ * Only notifications of a channel with a NotificationChannel implementation are loaded.
+ * There is no push provider yet, so PUSH notifications, and rows from before channels
+ * existed, stay PENDING and are read by the app through the notifications API.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationDispatchService {
+
+    private static final String LEASE_NAME = "notification-dispatcher";
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_LEVELS = 3;
+    private static final long BUCKET_SECONDS = 3600;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SmartNotificationRepository notificationRepository;
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final List<NotificationChannel> channels;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.notifications.dispatch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.notifications.dispatch.lookahead-minutes:10}")
+    private int lookaheadMinutes;
+
+    @Value("${app.notifications.dispatch.max-lateness-minutes:360}")
+    private int maxLatenessMinutes;
+
+    @Value("${app.notifications.dispatch.lease-seconds:120}")
+    private int leaseSeconds;
+
+    @Value("${app.notifications.dispatch.page-size:5000}")
+    private int pageSize;
+
+    @Value("${app.notifications.dispatch.max-loaded:200000}")
+    private int maxLoaded;
+
+    @Value("${app.notifications.dispatch.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.notifications.dispatch.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.notifications.dispatch.retry-delay-seconds:300}")
+    private int retryDelaySeconds;
+
+    @Value("${app.notifications.dispatch.retention-days:90}")
+    private int retentionDays;
+
+    private final Map<SmartNotification.DeliveryChannel, NotificationChannel> channelsByType =
+        new EnumMap<>(SmartNotification.DeliveryChannel.class);
+    private final Map<SmartNotification.DeliveryChannel, Semaphore> permits =
+        new EnumMap<>(SmartNotification.DeliveryChannel.class);
+    private final Map<SmartNotification.DeliveryChannel, Counter> sentCounters =
+        new EnumMap<>(SmartNotification.DeliveryChannel.class);
+    private final Map<SmartNotification.DeliveryChannel, Counter> failedCounters =
+        new EnumMap<>(SmartNotification.DeliveryChannel.class);
+
+    // Ids in the wheel or in flight, so polls do not load them twice
+    private final Set<Long> loaded = ConcurrentHashMap.newKeySet();
+    private final Queue<Outcome> outcomes = new ConcurrentLinkedQueue<>();
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final AtomicInteger wheelSize = new AtomicInteger();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private HierarchicalTimingWheel<Due> wheel;
+    private String deliverableChannels;
+    private volatile LocalDateTime loadedHorizon;
+    private volatile boolean leader;
+
+    @PostConstruct
+    void initialize() {
+        wheel = new HierarchicalTimingWheel<>(TICK_MILLIS, WHEEL_SIZE, WHEEL_LEVELS, System.currentTimeMillis());
+        for (NotificationChannel channel : channels) {
+            channelsByType.put(channel.channel(), channel);
+            permits.put(channel.channel(), new Semaphore(Math.max(1, channel.maxConcurrency())));
+        }
+        // Channels are enum names, safe to inline; rows of other channels stay PENDING
+        deliverableChannels = channelsByType.keySet().stream()
+            .map(channel -> "'" + channel.name() + "'")
+            .collect(Collectors.joining(", "));
+
+        meterRegistry.gauge("gynaid.notifications.lag.ms", lagMillis);
+        meterRegistry.gauge("gynaid.notifications.wheel.size", wheelSize);
+        for (SmartNotification.DeliveryChannel channel : SmartNotification.DeliveryChannel.values()) {
+            sentCounters.put(channel, Counter.builder("gynaid.notifications.sent")
+                .tag("channel", channel.name())
+                .register(meterRegistry));
+            failedCounters.put(channel, Counter.builder("gynaid.notifications.failed")
+                .tag("channel", channel.name())
+                .register(meterRegistry));
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        applyOutcomes();
+    }
+
+    /**
+     * Store notifications for delivery. Those due inside the window already loaded go
+     * straight into the wheel instead of waiting for the next poll.
+     */
+    public List<SmartNotification> schedule(List<SmartNotification> notifications) {
+        if (notifications.isEmpty()) {
+            return notifications;
+        }
+        for (SmartNotification notification : notifications) {
+            if (notification.getScheduledFor() == null) {
+                notification.setScheduledFor(LocalDateTime.now());
+            }
+            notification.setDispatchBucket(bucketOf(notification.getScheduledFor()));
+        }
+        List<SmartNotification> saved = notificationRepository.saveAll(notifications);
+
+        LocalDateTime horizon = loadedHorizon;
+        if (leader && horizon != null) {
+            synchronized (wheel) {
+                for (SmartNotification notification : saved) {
+                    if (!notification.getScheduledFor().isAfter(horizon) && loaded.add(notification.getId())) {
+                        Due due = new Due(notification.getId(), notification.getChannel(), notification.getScheduledFor());
+                        wheel.add(due.dueAtMillis(), due);
+                    }
+                }
+                wheelSize.set(wheel.size());
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Renew the lease and load pending notifications due within the lookahead window
+     */
+    @Scheduled(fixedDelayString = "${app.notifications.dispatch.poll-interval-ms:30000}")
+    public void loadUpcoming() {
+        if (!enabled) {
+            return;
+        }
+
+        leader = schedulerLeaseService.tryAcquire(LEASE_NAME, leaseSeconds);
+        if (!leader) {
+            synchronized (wheel) {
+                wheel.clear();
+                loaded.clear();
+                wheelSize.set(0);
+            }
+            loadedHorizon = null;
+            return;
+        }
+
+        if (channelsByType.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime notBefore = now.minusMinutes(maxLatenessMinutes);
+        LocalDateTime horizon = now.plusMinutes(lookaheadMinutes);
+        Timestamp horizonTimestamp = Timestamp.valueOf(horizon);
+        LocalDateTime afterTime = notBefore;
+        long afterId = 0;
+        int added = 0;
+
+        while (loaded.size() < maxLoaded) {
+            List<Due> page = jdbcTemplate.query("SELECT id, channel, scheduled_for FROM smart_notifications "
+                    + "WHERE dispatch_bucket BETWEEN ? AND ? AND status = 'PENDING' AND scheduled_for <= ? "
+                    + "AND channel IN (" + deliverableChannels + ") "
+                    + "AND (scheduled_for > ? OR (scheduled_for = ? AND id > ?)) "
+                    + "ORDER BY scheduled_for, id LIMIT ?",
+                (rs, rowNum) -> new Due(
+                    rs.getLong("id"),
+                    SmartNotification.DeliveryChannel.valueOf(rs.getString("channel")),
+                    rs.getTimestamp("scheduled_for").toLocalDateTime()),
+                bucketOf(notBefore), bucketOf(horizon), horizonTimestamp,
+                Timestamp.valueOf(afterTime), Timestamp.valueOf(afterTime), afterId, pageSize);
+            if (page.isEmpty()) {
+                break;
+            }
+
+            synchronized (wheel) {
+                for (Due due : page) {
+                    if (loaded.add(due.id())) {
+                        wheel.add(due.dueAtMillis(), due);
+                        added++;
+                    }
+                }
+                wheelSize.set(wheel.size());
+            }
+
+            Due last = page.get(page.size() - 1);
+            afterTime = last.scheduledFor();
+            afterId = last.id();
+            if (page.size() < pageSize) {
+                break;
+            }
+        }
+        loadedHorizon = horizon;
+
+        log.debug("Notification dispatcher loaded {} notifications up to {}", added, horizon);
+    }
+
+    /**
+     * Record finished deliveries, then hand every due notification to its channel
+     */
+    @Scheduled(fixedDelayString = "${app.notifications.dispatch.tick-interval-ms:1000}")
+    public void dispatchDue() {
+        if (!enabled || !leader) {
+            return;
+        }
+
+        applyOutcomes();
+
+        long now = System.currentTimeMillis();
+        Map<SmartNotification.DeliveryChannel, List<Long>> due = new EnumMap<>(SmartNotification.DeliveryChannel.class);
+        long[] oldestDue = {now};
+        synchronized (wheel) {
+            wheel.advance(now, item -> {
+                oldestDue[0] = Math.min(oldestDue[0], item.dueAtMillis());
+                due.computeIfAbsent(item.channel(), c -> new ArrayList<>()).add(item.id());
+            });
+            wheelSize.set(wheel.size());
+        }
+        lagMillis.set(now - oldestDue[0]);
+
+        due.forEach((channel, ids) -> {
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                List<Long> chunk = List.copyOf(ids.subList(from, Math.min(from + batchSize, ids.size())));
+                executor.execute(() -> deliver(channel, chunk));
+            }
+        });
+    }
+
+    /**
+     * Drop notifications whose bucket is past the retention period
+     */
+    @Scheduled(cron = "${app.notifications.dispatch.purge-cron:0 15 3 * * *}")
+    public void purgeOldBuckets() {
+        if (!enabled || !leader) {
+            return;
+        }
+        int deleted = jdbcTemplate.update("DELETE FROM smart_notifications WHERE dispatch_bucket < ?",
+            bucketOf(LocalDateTime.now().minusDays(retentionDays)));
+        log.info("Purged {} notifications older than {} days", deleted, retentionDays);
+    }
+
+    /**
+     * Partition key of a scheduled time: whole hours since the epoch
+     */
+    public static long bucketOf(LocalDateTime scheduledFor) {
+        return Math.floorDiv(scheduledFor.toEpochSecond(ZoneOffset.UTC), BUCKET_SECONDS);
+    }
+
+    private void deliver(SmartNotification.DeliveryChannel type, List<Long> ids) {
+        NotificationChannel channel = channelsByType.get(type);
+        if (channel == null) {
+            log.error("No notification channel for {}, {} notifications left pending", type, ids.size());
+            ids.forEach(id -> outcomes.add(Outcome.released(id)));
+            return;
+        }
+
+        Semaphore semaphore = permits.get(type);
+        semaphore.acquireUninterruptibly();
+        List<OutboundNotification> batch = List.of();
+        try {
+            batch = loadOutbound(ids);
+            Set<Long> failed = batch.isEmpty() ? Set.of() : channel.send(batch);
+            for (OutboundNotification notification : batch) {
+                outcomes.add(new Outcome(notification.id(), type, !failed.contains(notification.id()),
+                    notification.attempts()));
+            }
+        } catch (Exception e) {
+            log.error("Notification channel {} failed on a batch of {}", type, ids.size(), e);
+            for (OutboundNotification notification : batch) {
+                outcomes.add(new Outcome(notification.id(), type, false, notification.attempts()));
+            }
+        } finally {
+            semaphore.release();
+        }
+
+        // Cancelled, already sent or rolled back since they were loaded
+        Set<Long> delivered = new HashSet<>();
+        batch.forEach(notification -> delivered.add(notification.id()));
+        for (Long id : ids) {
+            if (!delivered.contains(id)) {
+                outcomes.add(Outcome.released(id));
+            }
+        }
+    }
+
+    private List<OutboundNotification> loadOutbound(List<Long> ids) {
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return jdbcTemplate.query("SELECT n.id, n.user_id, n.title, n.message, n.priority, n.attempts, "
+                + "u.email, u.phone_number FROM smart_notifications n JOIN users u ON u.id = n.user_id "
+                + "WHERE n.status = 'PENDING' AND n.id IN (" + placeholders + ")",
+            (rs, rowNum) -> new OutboundNotification(
+                rs.getLong("id"),
+                rs.getLong("user_id"),
+                rs.getString("email"),
+                rs.getString("phone_number"),
+                rs.getString("title"),
+                rs.getString("message"),
+                rs.getString("priority") != null
+                    ? SmartNotification.Priority.valueOf(rs.getString("priority")) : SmartNotification.Priority.MEDIUM,
+                rs.getInt("attempts")),
+            ids.toArray());
+    }
+
+    private void applyOutcomes() {
+        List<Outcome> drained = new ArrayList<>();
+        Outcome outcome;
+        while ((outcome = outcomes.poll()) != null) {
+            drained.add(outcome);
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp sentAt = Timestamp.valueOf(now);
+        List<Object[]> sent = new ArrayList<>();
+        List<Object[]> failed = new ArrayList<>();
+        for (Outcome result : drained) {
+            if (result.channel() == null) {
+                continue;
+            }
+            if (result.delivered()) {
+                sent.add(new Object[] {sentAt, result.id()});
+                sentCounters.get(result.channel()).increment();
+            } else {
+                LocalDateTime retryAt = now.plusSeconds((long) retryDelaySeconds << Math.min(result.attempts(), 10));
+                failed.add(new Object[] {maxAttempts, Timestamp.valueOf(retryAt), bucketOf(retryAt), result.id()});
+                failedCounters.get(result.channel()).increment();
+            }
+        }
+
+        try {
+            if (!sent.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE smart_notifications SET status = 'SENT', is_sent = TRUE, sent_at = ?, "
+                    + "attempts = attempts + 1 WHERE id = ? AND status = 'PENDING'", sent);
+            }
+            if (!failed.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE smart_notifications SET attempts = attempts + 1, "
+                    + "status = CASE WHEN attempts + 1 >= ? THEN 'FAILED' ELSE 'PENDING' END, "
+                    + "scheduled_for = ?, dispatch_bucket = ? WHERE id = ? AND status = 'PENDING'", failed);
+            }
+        } catch (Exception e) {
+            // Rows stay pending and are delivered again after the next poll
+            log.error("Failed to record {} notification outcomes", drained.size(), e);
+        }
+
+        drained.forEach(result -> loaded.remove(result.id()));
+        log.debug("Recorded {} sent and {} failed notifications", sent.size(), failed.size());
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private record Due(Long id, SmartNotification.DeliveryChannel channel, LocalDateTime scheduledFor) {
+        long dueAtMillis() {
+            return toMillis(scheduledFor);
+        }
+    }
+
+    private record Outcome(Long id, SmartNotification.DeliveryChannel channel, boolean delivered, int attempts) {
+        static Outcome released(Long id) {
+            return new Outcome(id, null, false, 0);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.gynaid.backend.service.notification;
+
+import com.gynaid.backend.entity.ai.SmartNotification;
+
+/**
+ * A due notification with the recipient's contact details, as handed to a channel
+ */
+public record OutboundNotification(Long id, Long userId, String email, String phoneNumber, String title,
+                                   String message, SmartNotification.Priority priority, int attempts) {
+}
@@ -0,0 +1,60 @@
+package com.gynaid.backend.service.notification;
+
+import com.gynaid.backend.entity.ai.SmartNotification;
+import com.gynaid.backend.service.sms.SmsDispatchService;
+import com.gynaid.backend.service.sms.SmsTemplate;
+import com.gynaid.backend.util.UgandaPhoneNumber;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * SMS delivery through the outbound SMS queue. Urgent notifications go on the priority
+ * lane; a notification counts as delivered once it is queued.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SmsNotificationChannel implements NotificationChannel {
+
+    private final SmsDispatchService smsDispatchService;
+
+    @Value("${app.notifications.channels.sms.concurrency:8}")
+    private int concurrency;
+
+    @Override
+    public SmartNotification.DeliveryChannel channel() {
+        return SmartNotification.DeliveryChannel.SMS;
+    }
+
+    @Override
+    public int maxConcurrency() {
+        return concurrency;
+    }
+
+    @Override
+    public Set<Long> send(List<OutboundNotification> batch) {
+        Set<Long> failed = new HashSet<>();
+        List<SmsDispatchService.SmsRequest> requests = new ArrayList<>(batch.size());
+        for (OutboundNotification notification : batch) {
+            long number = UgandaPhoneNumber.parse(notification.phoneNumber());
+            if (number == UgandaPhoneNumber.INVALID) {
+                log.warn("Notification {} has no valid phone number for SMS", notification.id());
+                failed.add(notification.id());
+                continue;
+            }
+            SmsTemplate template = notification.priority() == SmartNotification.Priority.URGENT
+                ? SmsTemplate.URGENT_NOTIFICATION : SmsTemplate.NOTIFICATION;
+            requests.add(new SmsDispatchService.SmsRequest(number, template, null,
+                notification.title(), notification.message()));
+        }
+        smsDispatchService.sendAll(requests);
+        return failed;
+    }
+}
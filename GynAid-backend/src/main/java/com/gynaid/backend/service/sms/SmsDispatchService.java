@@ -0,0 +1,552 @@
+package com.gynaid.backend.service.sms;
+
+import com.gynaid.backend.entity.SmsOutboxMessage;
+import com.gynaid.backend.service.SchedulerLeaseService;
+import com.gynaid.backend.util.TokenBucket;
+import com.gynaid.backend.util.UgandaPhoneNumber;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Outbound SMS engine backed by the sms_outbox table.
+ *
+ * Callers only insert a rendered message, so no request thread waits on Twilio. The
+ * node holding the "sms-dispatcher" lease claims due rows lane by lane (PRIORITY,
+ * STANDARD, BULK) into per-carrier queues, roughly one minute of account throughput at
+ * a time. A dispatcher thread picks the highest-lane message whose carrier bucket has
+ * a token, takes a token from the account bucket as well and sends it on a virtual
+ * thread, with at most max-in-flight sends outstanding. Because the buckets only live
+ * on the lease holder they are exact for the whole account.
+ *
+ * Failed sends are retried with exponentially growing, jittered delays until
+ * max-attempts or the message's expiry. Outcomes are written back in batches on the
+ * next poll. Twilio delivery callbacks carry the row's correlation id in their URL.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SmsDispatchService {
+
+    private static final String LEASE_NAME = "sms-dispatcher";
+    private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SmsSender smsSender;
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.sms.dispatch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.sms.dispatch.lease-seconds:30}")
+    private int leaseSeconds;
+
+    @Value("${app.sms.dispatch.max-in-flight:32}")
+    private int maxInFlight;
+
+    @Value("${app.sms.dispatch.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.sms.dispatch.retry-base-seconds:15}")
+    private int retryBaseSeconds;
+
+    @Value("${app.sms.dispatch.stuck-sending-minutes:10}")
+    private int stuckSendingMinutes;
+
+    @Value("${app.sms.dispatch.account-rate:30}")
+    private double accountRate;
+
+    @Value("${app.sms.dispatch.carrier-rates.mtn:15}")
+    private double mtnRate;
+
+    @Value("${app.sms.dispatch.carrier-rates.airtel:15}")
+    private double airtelRate;
+
+    @Value("${app.sms.dispatch.carrier-rates.other:5}")
+    private double otherRate;
+
+    @Value("${app.sms.status-callback-base-url:}")
+    private String statusCallbackBaseUrl;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition ready = lock.newCondition();
+    private final Map<UgandaPhoneNumber.Carrier, PriorityQueue<Outbound>> queues =
+        new EnumMap<>(UgandaPhoneNumber.Carrier.class);
+    private final Map<UgandaPhoneNumber.Carrier, TokenBucket> carrierBuckets =
+        new EnumMap<>(UgandaPhoneNumber.Carrier.class);
+    private final Map<SmsOutboxMessage.Lane, Counter> sentCounters = new EnumMap<>(SmsOutboxMessage.Lane.class);
+    private final Map<SmsOutboxMessage.Lane, Counter> failedCounters = new EnumMap<>(SmsOutboxMessage.Lane.class);
+
+    // Claimed ids in a carrier queue or in flight
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+    private final Map<Long, CompletableFuture<Boolean>> waiters = new ConcurrentHashMap<>();
+    private final Queue<Result> results = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private TokenBucket accountBucket;
+    private Semaphore inFlight;
+    private Thread dispatcher;
+    private volatile boolean running;
+    private volatile boolean leader;
+
+    @PostConstruct
+    void start() {
+        long now = System.nanoTime();
+        accountBucket = new TokenBucket(accountRate, Math.max(1, accountRate), now);
+        for (UgandaPhoneNumber.Carrier carrier : UgandaPhoneNumber.Carrier.values()) {
+            double rate = switch (carrier) {
+                case MTN -> mtnRate;
+                case AIRTEL -> airtelRate;
+                default -> otherRate;
+            };
+            carrierBuckets.put(carrier, new TokenBucket(rate, Math.max(1, rate), now));
+            queues.put(carrier, new PriorityQueue<>(Comparator.comparing(Outbound::lane).thenComparing(Outbound::id)));
+        }
+        inFlight = new Semaphore(maxInFlight);
+
+        meterRegistry.gauge("gynaid.sms.queue.size", queueSize);
+        for (SmsOutboxMessage.Lane lane : SmsOutboxMessage.Lane.values()) {
+            sentCounters.put(lane, Counter.builder("gynaid.sms.sent").tag("lane", lane.name()).register(meterRegistry));
+            failedCounters.put(lane, Counter.builder("gynaid.sms.failed").tag("lane", lane.name()).register(meterRegistry));
+        }
+
+        running = true;
+        dispatcher = Thread.ofVirtual().name("sms-dispatcher").start(this::dispatchLoop);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        dispatcher.interrupt();
+        dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+        inFlight.tryAcquire(maxInFlight, 10, TimeUnit.SECONDS);
+        flushResults();
+    }
+
+    /**
+     * Queue one message. The future completes with true once the provider accepted it and
+     * with false when it finally failed or expired; it is only completed when this node
+     * is the one that dispatches the message.
+     */
+    public CompletableFuture<Boolean> send(long number, SmsTemplate template, LocalDateTime expiresAt, Object... args) {
+        Outbound message = insert(number, template, expiresAt, template.render(args));
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        waiters.put(message.id(), future);
+        long timeoutSeconds = expiresAt != null
+            ? Math.max(1, Duration.between(LocalDateTime.now(), expiresAt).toSeconds())
+            : TimeUnit.HOURS.toSeconds(1);
+        future.orTimeout(timeoutSeconds, TimeUnit.SECONDS)
+            .whenComplete((sent, error) -> waiters.remove(message.id()));
+
+        if (template.lane() == SmsOutboxMessage.Lane.PRIORITY && leader) {
+            // Claim right away instead of waiting for the next poll, once the row is visible
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        claimAndOffer(List.of(message));
+                    }
+                });
+            } else {
+                claimAndOffer(List.of(message));
+            }
+        }
+        return future;
+    }
+
+    /**
+     * Queue a batch of messages with one batched insert
+     */
+    public void sendAll(List<SmsRequest> requests) {
+        if (requests.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(requests.size());
+        for (SmsRequest request : requests) {
+            rows.add(new Object[] {
+                UUID.randomUUID().toString(),
+                request.number(),
+                UgandaPhoneNumber.carrier(request.number()).name(),
+                request.template().lane().name(),
+                request.template().name(),
+                request.template().render(request.args()),
+                now,
+                request.expiresAt() != null ? Timestamp.valueOf(request.expiresAt()) : null,
+                now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO sms_outbox (correlation_id, phone_number, carrier, lane, template, body, "
+            + "status, attempts, next_attempt_at, expires_at, created_at) VALUES (?, ?, ?, ?, ?, ?, 'PENDING', 0, ?, ?, ?)",
+            rows);
+    }
+
+    /**
+     * Record a delivery status reported by the provider's callback. Only final states are
+     * kept, so late "sent" or "queued" callbacks never move a message backwards.
+     */
+    public boolean recordDeliveryStatus(String correlationId, String providerSid, String providerStatus, String errorCode) {
+        SmsOutboxMessage.Status status = switch (providerStatus == null ? "" : providerStatus.toLowerCase()) {
+            case "delivered" -> SmsOutboxMessage.Status.DELIVERED;
+            case "undelivered" -> SmsOutboxMessage.Status.UNDELIVERED;
+            case "failed" -> SmsOutboxMessage.Status.FAILED;
+            default -> null;
+        };
+        if (status == null) {
+            return false;
+        }
+        int updated = jdbcTemplate.update("UPDATE sms_outbox SET status = ?, provider_sid = COALESCE(provider_sid, ?), "
+                + "last_error = COALESCE(?, last_error), updated_at = ? WHERE correlation_id = ? "
+                + "AND status IN ('SENDING', 'SENT')",
+            status.name(), providerSid, errorCode != null ? "Provider error " + errorCode : null,
+            Timestamp.valueOf(LocalDateTime.now()), correlationId);
+        return updated > 0;
+    }
+
+    /**
+     * Delivery callback URL of a message, or null when callbacks are not configured
+     */
+    public String statusCallbackUrl(String correlationId) {
+        if (statusCallbackBaseUrl == null || statusCallbackBaseUrl.isBlank()) {
+            return null;
+        }
+        return statusCallbackBaseUrl.endsWith("/")
+            ? statusCallbackBaseUrl + correlationId
+            : statusCallbackBaseUrl + "/" + correlationId;
+    }
+
+    /**
+     * Renew the lease, record finished sends and claim due messages
+     */
+    @Scheduled(fixedDelayString = "${app.sms.dispatch.poll-interval-ms:1000}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+
+        flushResults();
+        leader = schedulerLeaseService.tryAcquire(LEASE_NAME, leaseSeconds);
+        if (!leader) {
+            lock.lock();
+            try {
+                queues.values().forEach(PriorityQueue::clear);
+                queued.clear();
+                queueSize.set(0);
+            } finally {
+                lock.unlock();
+            }
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp nowTimestamp = Timestamp.valueOf(now);
+        // Sends interrupted by a crash or a lost lease. Outcomes of rows still queued here
+        // are recorded from PENDING as well, so a reset row is not sent twice by this node.
+        jdbcTemplate.update("UPDATE sms_outbox SET status = 'PENDING', updated_at = ? "
+                + "WHERE status = 'SENDING' AND updated_at < ?",
+            nowTimestamp, Timestamp.valueOf(now.minusMinutes(stuckSendingMinutes)));
+        int expired = jdbcTemplate.update("UPDATE sms_outbox SET status = 'EXPIRED', updated_at = ? "
+                + "WHERE status = 'PENDING' AND expires_at < ?", nowTimestamp, nowTimestamp);
+        if (expired > 0) {
+            log.info("Expired {} queued SMS", expired);
+        }
+
+        int capacity = (int) Math.ceil(accountRate * 60) - queued.size();
+        for (SmsOutboxMessage.Lane lane : SmsOutboxMessage.Lane.values()) {
+            if (capacity <= 0) {
+                break;
+            }
+            List<Outbound> due = jdbcTemplate.query("SELECT id, correlation_id, phone_number, carrier, lane, body, "
+                    + "attempts, expires_at FROM sms_outbox WHERE lane = ? AND status = 'PENDING' "
+                    + "AND next_attempt_at <= ? ORDER BY next_attempt_at, id LIMIT ?",
+                (rs, rowNum) -> {
+                    Timestamp expiresAt = rs.getTimestamp("expires_at");
+                    return new Outbound(
+                        rs.getLong("id"),
+                        rs.getString("correlation_id"),
+                        rs.getLong("phone_number"),
+                        UgandaPhoneNumber.Carrier.valueOf(rs.getString("carrier")),
+                        SmsOutboxMessage.Lane.valueOf(rs.getString("lane")),
+                        rs.getString("body"),
+                        rs.getInt("attempts"),
+                        expiresAt != null ? expiresAt.toLocalDateTime() : null);
+                },
+                lane.name(), nowTimestamp, capacity);
+            capacity -= claimAndOffer(due);
+        }
+    }
+
+    private Outbound insert(long number, SmsTemplate template, LocalDateTime expiresAt, String body) {
+        if (number == UgandaPhoneNumber.INVALID) {
+            throw new IllegalArgumentException("Invalid Uganda phone number");
+        }
+        String correlationId = UUID.randomUUID().toString();
+        UgandaPhoneNumber.Carrier carrier = UgandaPhoneNumber.carrier(number);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement("INSERT INTO sms_outbox (correlation_id, "
+                + "phone_number, carrier, lane, template, body, status, attempts, next_attempt_at, expires_at, "
+                + "created_at) VALUES (?, ?, ?, ?, ?, ?, 'PENDING', 0, ?, ?, ?)", new String[] {"id"});
+            statement.setString(1, correlationId);
+            statement.setLong(2, number);
+            statement.setString(3, carrier.name());
+            statement.setString(4, template.lane().name());
+            statement.setString(5, template.name());
+            statement.setString(6, body);
+            statement.setTimestamp(7, now);
+            statement.setTimestamp(8, expiresAt != null ? Timestamp.valueOf(expiresAt) : null);
+            statement.setTimestamp(9, now);
+            return statement;
+        }, keyHolder);
+        return new Outbound(keyHolder.getKey().longValue(), correlationId, number, carrier, template.lane(), body,
+            0, expiresAt);
+    }
+
+    /**
+     * Mark rows as SENDING and queue the ones this call claimed; returns how many were queued
+     */
+    private int claimAndOffer(List<Outbound> candidates) {
+        List<Outbound> fresh = candidates.stream().filter(message -> !queued.contains(message.id())).toList();
+        if (fresh.isEmpty()) {
+            return 0;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> claims = fresh.stream().map(message -> new Object[] {now, message.id()}).toList();
+        int[] counts = jdbcTemplate.batchUpdate("UPDATE sms_outbox SET status = 'SENDING', updated_at = ? "
+            + "WHERE id = ? AND status = 'PENDING'", claims);
+
+        int claimed = 0;
+        lock.lock();
+        try {
+            for (int i = 0; i < counts.length; i++) {
+                Outbound message = fresh.get(i);
+                if (counts[i] != 0 && queued.add(message.id())) {
+                    queues.get(message.carrier()).add(message);
+                    claimed++;
+                }
+            }
+            queueSize.addAndGet(claimed);
+            ready.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return claimed;
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                Outbound next = takeNext();
+                if (next != null) {
+                    inFlight.acquire();
+                    Thread.ofVirtual().start(() -> deliver(next));
+                }
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return;
+                }
+            } catch (Exception e) {
+                log.error("SMS dispatcher loop error", e);
+            }
+        }
+    }
+
+    /**
+     * Highest-lane message whose carrier and the account both have a token, waiting for
+     * the earliest refill when none has
+     */
+    private Outbound takeNext() throws InterruptedException {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            long waitNanos = accountBucket.nanosUntilAvailable(now);
+            if (waitNanos == 0) {
+                waitNanos = IDLE_WAIT_NANOS;
+                Outbound best = null;
+                for (Map.Entry<UgandaPhoneNumber.Carrier, PriorityQueue<Outbound>> entry : queues.entrySet()) {
+                    Outbound head = entry.getValue().peek();
+                    if (head == null) {
+                        continue;
+                    }
+                    long carrierWait = carrierBuckets.get(entry.getKey()).nanosUntilAvailable(now);
+                    if (carrierWait > 0) {
+                        waitNanos = Math.min(waitNanos, carrierWait);
+                    } else if (best == null || head.lane().compareTo(best.lane()) < 0
+                               || (head.lane() == best.lane() && head.id() < best.id())) {
+                        best = head;
+                    }
+                }
+                if (best != null && accountBucket.tryTake(now) && carrierBuckets.get(best.carrier()).tryTake(now)) {
+                    queues.get(best.carrier()).poll();
+                    queueSize.decrementAndGet();
+                    return best;
+                }
+            }
+            ready.awaitNanos(Math.max(waitNanos, 1));
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void deliver(Outbound message) {
+        try {
+            if (message.expiresAt() != null && LocalDateTime.now().isAfter(message.expiresAt())) {
+                complete(message, new Result(message, SmsOutboxMessage.Status.EXPIRED, null, "Expired before sending", null));
+                return;
+            }
+
+            String sid = null;
+            String error = null;
+            try {
+                sid = smsSender.send(UgandaPhoneNumber.format(message.number()), message.carrier(), message.body(),
+                    statusCallbackUrl(message.correlationId()));
+            } catch (Exception e) {
+                error = e.getMessage();
+            }
+
+            if (sid != null) {
+                complete(message, new Result(message, SmsOutboxMessage.Status.SENT, sid, null, null));
+            } else if (message.attempts() + 1 < maxAttempts) {
+                complete(message, new Result(message, SmsOutboxMessage.Status.PENDING, null,
+                    error != null ? error : "Not accepted by provider", retryAt(message.attempts())));
+            } else {
+                complete(message, new Result(message, SmsOutboxMessage.Status.FAILED, null,
+                    error != null ? error : "Not accepted by provider", null));
+            }
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    private void complete(Outbound message, Result result) {
+        results.add(result);
+        if (result.status() == SmsOutboxMessage.Status.SENT) {
+            sentCounters.get(message.lane()).increment();
+        } else {
+            failedCounters.get(message.lane()).increment();
+        }
+
+        CompletableFuture<Boolean> waiter = result.status() != SmsOutboxMessage.Status.PENDING
+            ? waiters.remove(message.id()) : null;
+        if (waiter != null) {
+            waiter.complete(result.status() == SmsOutboxMessage.Status.SENT);
+        }
+    }
+
+    /**
+     * Exponential backoff with equal jitter: half the delay fixed, half random
+     */
+    private LocalDateTime retryAt(int attempts) {
+        long delayMillis = TimeUnit.SECONDS.toMillis(retryBaseSeconds) << Math.min(attempts, 10);
+        long jittered = delayMillis / 2 + ThreadLocalRandom.current().nextLong(delayMillis / 2 + 1);
+        return LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(jittered));
+    }
+
+    private void flushResults() {
+        List<Result> drained = new ArrayList<>();
+        Result result;
+        while ((result = results.poll()) != null) {
+            drained.add(result);
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Result> sent = new ArrayList<>();
+        List<Result> retries = new ArrayList<>();
+        List<Result> finished = new ArrayList<>();
+        for (Result outcome : drained) {
+            switch (outcome.status()) {
+                case SENT -> sent.add(outcome);
+                case PENDING -> retries.add(outcome);
+                default -> finished.add(outcome);
+            }
+        }
+
+        int recorded = record("UPDATE sms_outbox SET status = 'SENT', provider_sid = ?, attempts = attempts + 1, "
+                + "sent_at = ?, updated_at = ? WHERE id = ? AND status IN ('SENDING', 'PENDING')", sent,
+            outcome -> new Object[] {outcome.providerSid(), now, now, outcome.message().id()});
+        recorded += record("UPDATE sms_outbox SET status = 'PENDING', attempts = attempts + 1, "
+                + "next_attempt_at = ?, last_error = ?, updated_at = ? WHERE id = ? AND status IN ('SENDING', 'PENDING')",
+            retries,
+            outcome -> new Object[] {Timestamp.valueOf(outcome.retryAt()), truncate(outcome.error()), now,
+                outcome.message().id()});
+        recorded += record("UPDATE sms_outbox SET status = ?, attempts = attempts + 1, last_error = ?, "
+                + "updated_at = ? WHERE id = ? AND status IN ('SENDING', 'PENDING')", finished,
+            outcome -> new Object[] {outcome.status().name(), truncate(outcome.error()), now, outcome.message().id()});
+        log.debug("Recorded {} of {} SMS outcomes", recorded, drained.size());
+    }
+
+    /**
+     * Write one kind of outcome, returning how many were recorded. When the write fails
+     * the outcomes go back on the results queue and their ids stay queued, so the rows
+     * are neither claimed again nor reset as stuck and sent twice; the next poll retries.
+     */
+    private int record(String sql, List<Result> outcomes, Function<Result, Object[]> row) {
+        if (outcomes.isEmpty()) {
+            return 0;
+        }
+        try {
+            jdbcTemplate.batchUpdate(sql, outcomes.stream().map(row).toList());
+        } catch (Exception e) {
+            log.error("Failed to record {} SMS outcomes, retrying on the next poll", outcomes.size(), e);
+            results.addAll(outcomes);
+            return 0;
+        }
+        outcomes.forEach(outcome -> queued.remove(outcome.message().id()));
+        return outcomes.size();
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > 255 ? error.substring(0, 255) : error;
+    }
+
+    public record SmsRequest(long number, SmsTemplate template, LocalDateTime expiresAt, Object... args) {
+    }
+
+    private record Outbound(Long id, String correlationId, long number, UgandaPhoneNumber.Carrier carrier,
+                            SmsOutboxMessage.Lane lane, String body, int attempts, LocalDateTime expiresAt) {
+    }
+
+    private record Result(Outbound message, SmsOutboxMessage.Status status, String providerSid, String error,
+                          LocalDateTime retryAt) {
+    }
+}
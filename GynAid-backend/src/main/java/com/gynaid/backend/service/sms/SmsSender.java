@@ -0,0 +1,22 @@
+package com.gynaid.backend.service.sms;
+
+import com.gynaid.backend.util.UgandaPhoneNumber;
+
+import java.util.Map;
+
+/**
+ * Provider that SmsDispatchService hands messages to. Twilio by default; the stub is
+ * selected with app.sms.provider=stub.
+ */
+public interface SmsSender {
+
+    /**
+     * Submit one message, returning the provider's message id, or null when it was not accepted
+     */
+    String send(String to, UgandaPhoneNumber.Carrier carrier, String body, String statusCallbackUrl);
+
+    /**
+     * Whether a delivery status callback really came from the provider
+     */
+    boolean isValidCallback(String url, Map<String, String> params, String signature);
+}
@@ -0,0 +1,31 @@
+package com.gynaid.backend.service.sms;
+
+import com.gynaid.backend.entity.SmsOutboxMessage;
+
+/**
+ * Outbound SMS texts and the lane each one is dispatched on
+ */
+public enum SmsTemplate {
+
+    VERIFICATION_CODE(SmsOutboxMessage.Lane.PRIORITY,
+        "Your GynAid verification code is: %s. Valid for %d minutes. Do not share this code with anyone."),
+    URGENT_NOTIFICATION(SmsOutboxMessage.Lane.PRIORITY, "%s\n%s"),
+    NOTIFICATION(SmsOutboxMessage.Lane.STANDARD, "%s\n%s"),
+    ANNOUNCEMENT(SmsOutboxMessage.Lane.BULK, "%s");
+
+    private final SmsOutboxMessage.Lane lane;
+    private final String format;
+
+    SmsTemplate(SmsOutboxMessage.Lane lane, String format) {
+        this.lane = lane;
+        this.format = format;
+    }
+
+    public SmsOutboxMessage.Lane lane() {
+        return lane;
+    }
+
+    public String render(Object... args) {
+        return String.format(format, args);
+    }
+}
@@ -0,0 +1,53 @@
+package com.gynaid.backend.service.sms;
+
+import com.gynaid.backend.util.UgandaPhoneNumber;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Local stand-in for Twilio used in tests and development. Accepts every message and
+ * keeps the most recent ones in memory instead of sending them.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.sms.provider", havingValue = "stub")
+public class StubSmsSender implements SmsSender {
+
+    private static final int MAX_KEPT = 1000;
+
+    private final List<SentMessage> sent = new ArrayList<>();
+
+    @Override
+    public synchronized String send(String to, UgandaPhoneNumber.Carrier carrier, String body, String statusCallbackUrl) {
+        if (sent.size() == MAX_KEPT) {
+            sent.remove(0);
+        }
+        String sid = "stub-" + UUID.randomUUID();
+        sent.add(new SentMessage(sid, to, carrier, body, statusCallbackUrl));
+        log.info("Stub SMS {} to {} number", sid, carrier);
+        return sid;
+    }
+
+    @Override
+    public boolean isValidCallback(String url, Map<String, String> params, String signature) {
+        return true;
+    }
+
+    public synchronized List<SentMessage> sentMessages() {
+        return List.copyOf(sent);
+    }
+
+    public synchronized void clear() {
+        sent.clear();
+    }
+
+    public record SentMessage(String sid, String to, UgandaPhoneNumber.Carrier carrier, String body,
+                              String statusCallbackUrl) {
+    }
+}
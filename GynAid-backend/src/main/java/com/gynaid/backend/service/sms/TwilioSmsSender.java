@@ -0,0 +1,33 @@
+package com.gynaid.backend.service.sms;
+
+import com.gynaid.backend.service.TwilioClient;
+import com.gynaid.backend.util.UgandaPhoneNumber;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+@Component
+@ConditionalOnProperty(name = "app.sms.provider", havingValue = "twilio", matchIfMissing = true)
+@RequiredArgsConstructor
+public class TwilioSmsSender implements SmsSender {
+
+    private final TwilioClient twilioClient;
+
+    @PostConstruct
+    void initialize() {
+        twilioClient.initialize();
+    }
+
+    @Override
+    public String send(String to, UgandaPhoneNumber.Carrier carrier, String body, String statusCallbackUrl) {
+        return twilioClient.sendSMSWithStatusCallback(to, carrier, body, statusCallbackUrl);
+    }
+
+    @Override
+    public boolean isValidCallback(String url, Map<String, String> params, String signature) {
+        return twilioClient.isValidCallback(url, params, signature);
+    }
+}
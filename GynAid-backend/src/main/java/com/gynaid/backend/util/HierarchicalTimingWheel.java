@@ -0,0 +1,157 @@
+package com.gynaid.backend.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel for a large number of deadlines.
+ *
+ * Level 0 has one slot per tick; each higher level has slots that span a full rotation
+ * of the level below. A deadline is placed in the lowest level whose range covers it
+ * and cascades down one level each time the wheel below completes a rotation, so adding
+ * is O(1) and each entry is moved at most once per level. Deadlines beyond
+ * wheelSize^levels ticks are rejected; callers only load a bounded window.
+ *
+ * Not thread safe.
+ */
+public final class HierarchicalTimingWheel<T> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final long[] levelSpans;
+    private final List<Entry<T>>[][] slots;
+    private List<Entry<T>> overdue = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, int levels, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2 || levels < 1) {
+            throw new IllegalArgumentException("Invalid timing wheel dimensions");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.levelSpans = new long[levels + 1];
+        this.slots = new List[levels][wheelSize];
+        levelSpans[0] = 1;
+        for (int level = 1; level <= levels; level++) {
+            levelSpans[level] = Math.multiplyExact(levelSpans[level - 1], wheelSize);
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Longest delay, in milliseconds from the current tick, the wheel accepts
+     */
+    public long horizonMillis() {
+        return (levelSpans[levelSpans.length - 1] - 1) * tickMillis;
+    }
+
+    /**
+     * Add an item; deadlines at or before the current tick fire on the next advance.
+     * Returns false when the deadline is beyond the horizon.
+     */
+    public boolean add(long deadlineMillis, T item) {
+        if (!place(new Entry<>(deadlineMillis / tickMillis, deadlineMillis, item))) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Move the wheel to the given time, passing every item that fell due to the consumer
+     * in deadline order within each tick
+     */
+    public void advance(long nowMillis, Consumer<T> expired) {
+        long targetTick = nowMillis / tickMillis;
+        drainOverdue(expired);
+        while (currentTick < targetTick) {
+            currentTick++;
+            for (int level = slots.length - 1; level > 0; level--) {
+                if (currentTick % levelSpans[level] == 0) {
+                    cascade(level);
+                }
+            }
+            List<Entry<T>> slot = takeSlot(0, (int) (currentTick % wheelSize));
+            if (slot != null) {
+                slot.sort((a, b) -> Long.compare(a.deadlineMillis(), b.deadlineMillis()));
+                for (Entry<T> entry : slot) {
+                    size--;
+                    expired.accept(entry.item());
+                }
+            }
+            drainOverdue(expired);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        for (List<Entry<T>>[] level : slots) {
+            Arrays.fill(level, null);
+        }
+        overdue = new ArrayList<>();
+        size = 0;
+    }
+
+    private boolean place(Entry<T> entry) {
+        long delta = entry.deadlineTick() - currentTick;
+        if (delta <= 0) {
+            overdue.add(entry);
+            return true;
+        }
+        for (int level = 0; level < slots.length; level++) {
+            if (delta < levelSpans[level + 1]) {
+                int index = (int) ((entry.deadlineTick() / levelSpans[level]) % wheelSize);
+                List<Entry<T>> slot = slots[level][index];
+                if (slot == null) {
+                    slot = new ArrayList<>();
+                    slots[level][index] = slot;
+                }
+                slot.add(entry);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void cascade(int level) {
+        List<Entry<T>> slot = takeSlot(level, (int) ((currentTick / levelSpans[level]) % wheelSize));
+        if (slot != null) {
+            for (Entry<T> entry : slot) {
+                place(entry);
+            }
+        }
+    }
+
+    private List<Entry<T>> takeSlot(int level, int index) {
+        List<Entry<T>> slot = slots[level][index];
+        slots[level][index] = null;
+        return slot;
+    }
+
+    private void drainOverdue(Consumer<T> expired) {
+        if (overdue.isEmpty()) {
+            return;
+        }
+        List<Entry<T>> due = overdue;
+        overdue = new ArrayList<>();
+        due.sort((a, b) -> Long.compare(a.deadlineMillis(), b.deadlineMillis()));
+        for (Entry<T> entry : due) {
+            size--;
+            expired.accept(entry.item());
+        }
+    }
+
+    private record Entry<T>(long deadlineTick, long deadlineMillis, T item) {
+    }
+}
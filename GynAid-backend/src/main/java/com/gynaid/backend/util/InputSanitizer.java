@@ -0,0 +1,346 @@
+package com.gynaid.backend.util;
+
+/**
+ * Single-pass input sanitizer.
+ *
+ * Equivalent to the former chain of regex replacements in InputValidationService:
+ * script elements (on one line), "javascript:", the opening of dangerous tags
+ * (&lt;iframe, &lt;img, &lt;svg, ...) and the SQL keywords are removed, the result is
+ * trimmed and whitespace runs collapse to one space. All matching is ASCII
+ * case-insensitive and keywords are whole words, as with the regexes.
+ *
+ * The input is scanned once into a per-thread buffer. Input that needs no change is
+ * returned as is without touching the buffer.
+ *
+ * Output differs from the regex chain only where the chain's own removals produced or
+ * hid a match, and is then always shorter (see InputSanitizerTest):
+ * - patterns are matched against the tail of the output, so text joined by a removal
+ *   is checked again: "javajavascript:script:" becomes "" where the chain left
+ *   "javascript:", and "&lt;scr&lt;scriptipt&gt;" becomes "&gt;" instead of "&lt;script&gt;"
+ * - a keyword is judged when the word ends, so one ended by a tag opener or protocol
+ *   that is removed afterwards is still dropped: "insert&lt;JavaScript:scriptect"
+ *   becomes "ect" where the chain saw the word "insertect"
+ */
+public final class InputSanitizer {
+
+    private static final String PROTOCOL = "javascript:";
+    private static final String SCRIPT_CLOSE = "</script>";
+    private static final String[] TAG_OPENERS = {
+        "<iframe", "<object", "<embed", "<link", "<style", "<meta", "<img", "<svg", "<script"
+    };
+    private static final int SCRIPT_OPENER = TAG_OPENERS.length - 1;
+    private static final int MIN_OPENER_LENGTH = 4;
+    private static final int MAX_OPENER_LENGTH = 7;
+    private static final String[] SQL_KEYWORDS = {
+        "union", "select", "insert", "update", "delete", "drop", "create", "alter", "exec", "execute"
+    };
+    private static final int MIN_KEYWORD_LENGTH = 4;
+    private static final int MAX_KEYWORD_LENGTH = 7;
+    private static final int MAX_RETAINED_CAPACITY = 8 * 1024;
+    private static final int NOT_SEARCHED = Integer.MIN_VALUE;
+
+    private static final ThreadLocal<Scanner> SCANNERS = ThreadLocal.withInitial(Scanner::new);
+
+    private InputSanitizer() {
+    }
+
+    public static String sanitize(String input) {
+        if (input == null) {
+            return null;
+        }
+        if (isClean(input)) {
+            return input;
+        }
+        Scanner scanner = SCANNERS.get();
+        try {
+            return scanner.sanitize(input);
+        } finally {
+            scanner.release();
+        }
+    }
+
+    /**
+     * True when sanitizing would return the input unchanged
+     */
+    static boolean isClean(String input) {
+        int length = input.length();
+        if (length == 0) {
+            return true;
+        }
+        if (input.charAt(0) <= ' ' || input.charAt(length - 1) <= ' ') {
+            return false;
+        }
+
+        int wordStart = -1;
+        boolean space = false;
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+            if (isWordChar(c)) {
+                if (wordStart < 0) {
+                    wordStart = i;
+                }
+                space = false;
+                continue;
+            }
+            if (wordStart >= 0) {
+                if (isKeyword(input, wordStart, i)) {
+                    return false;
+                }
+                wordStart = -1;
+            }
+            if (isWhitespace(c)) {
+                if (c != ' ' || space) {
+                    return false;
+                }
+                space = true;
+                continue;
+            }
+            space = false;
+            if (c == '<' && openerAt(input, i, length) >= 0) {
+                return false;
+            }
+            if (c == ':' && i + 1 >= PROTOCOL.length()
+                    && matchesAt(input, i + 1 - PROTOCOL.length(), PROTOCOL, 0, PROTOCOL.length())) {
+                return false;
+            }
+        }
+        return wordStart < 0 || !isKeyword(input, wordStart, length);
+    }
+
+    /**
+     * Per-thread scan state and output buffer
+     */
+    private static final class Scanner {
+
+        private StringBuilder out = new StringBuilder(256);
+
+        // Output index of a '<' that may still start a tag opener; the keyword check for
+        // the word before it waits until that is decided
+        private int pendingTag;
+
+        // Output index where the last removal joined text
+        private int join;
+
+        // Cached lookahead for script elements
+        private int tagEnd;
+        private int noCloseUntil;
+
+        String sanitize(String input) {
+            out.setLength(0);
+            pendingTag = -1;
+            join = 0;
+            tagEnd = NOT_SEARCHED;
+            noCloseUntil = -1;
+
+            int length = input.length();
+            for (int i = 0; i < length; i++) {
+                char c = input.charAt(i);
+                if (isWhitespace(c)) {
+                    if (!out.isEmpty() && out.charAt(out.length() - 1) == ' ') {
+                        continue;
+                    }
+                    c = ' ';
+                }
+                out.append(c);
+
+                if (c == ':' && endsWithProtocol()) {
+                    removeTail(PROTOCOL.length());
+                    continue;
+                }
+                if (isAsciiLetter(c)) {
+                    int opener = openerEndingAt(out.length());
+                    if (opener >= 0) {
+                        int start = out.length() - TAG_OPENERS[opener].length();
+                        // A whole script element is dropped when "<script" came straight from the input
+                        if (opener == SCRIPT_OPENER && start >= join) {
+                            int end = scriptElementEnd(input, i + 1);
+                            if (end > 0) {
+                                i = end - 1;
+                            }
+                        }
+                        removeTail(TAG_OPENERS[opener].length());
+                        continue;
+                    }
+                }
+
+                if (pendingTag >= 0 && !isOpenerPrefix(pendingTag)) {
+                    int tag = pendingTag;
+                    pendingTag = -1;
+                    removeKeywordEndingAt(tag);
+                }
+                if (c == '<') {
+                    pendingTag = out.length() - 1;
+                } else if (!isWordChar(c)) {
+                    removeKeywordEndingAt(out.length() - 1);
+                    int last = out.length() - 1;
+                    if (c == ' ' && last > 0 && out.charAt(last - 1) == ' ') {
+                        out.setLength(last);
+                    }
+                }
+            }
+
+            if (pendingTag >= 0) {
+                int tag = pendingTag;
+                pendingTag = -1;
+                removeKeywordEndingAt(tag);
+            }
+            removeKeywordEndingAt(out.length());
+
+            int start = 0;
+            int end = out.length();
+            while (start < end && out.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && out.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            return out.substring(start, end);
+        }
+
+        void release() {
+            if (out.capacity() > MAX_RETAINED_CAPACITY) {
+                out = new StringBuilder(256);
+            }
+        }
+
+        private boolean endsWithProtocol() {
+            int start = out.length() - PROTOCOL.length();
+            return start >= 0 && matchesAt(out, start, PROTOCOL, 0, PROTOCOL.length());
+        }
+
+        private int openerEndingAt(int end) {
+            for (int length = MIN_OPENER_LENGTH; length <= MAX_OPENER_LENGTH && length <= end; length++) {
+                if (out.charAt(end - length) == '<') {
+                    int opener = openerAt(out, end - length, end);
+                    return opener >= 0 && TAG_OPENERS[opener].length() == length ? opener : -1;
+                }
+            }
+            return -1;
+        }
+
+        private boolean isOpenerPrefix(int from) {
+            int length = out.length() - from;
+            for (String opener : TAG_OPENERS) {
+                if (length <= opener.length() && matchesAt(out, from, opener, 0, length)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void removeTail(int length) {
+            out.setLength(out.length() - length);
+            join = out.length();
+            if (pendingTag >= join) {
+                pendingTag = -1;
+            }
+        }
+
+        /**
+         * Remove the word ending at the given output index if it is a SQL keyword
+         */
+        private void removeKeywordEndingAt(int end) {
+            int start = end;
+            while (start > 0 && end - start <= MAX_KEYWORD_LENGTH && isWordChar(out.charAt(start - 1))) {
+                start--;
+            }
+            if ((start > 0 && isWordChar(out.charAt(start - 1))) || !isKeyword(out, start, end)) {
+                return;
+            }
+            out.delete(start, end);
+            join = Math.max(start, join >= end ? join - (end - start) : join);
+            if (pendingTag >= end) {
+                pendingTag -= end - start;
+            }
+        }
+
+        /**
+         * Input index just past the "</script>" closing an element whose opening tag
+         * starts before from, or -1 when the element does not close on the same line
+         */
+        private int scriptElementEnd(String input, int from) {
+            if (tagEnd == NOT_SEARCHED || (tagEnd >= 0 && tagEnd < from)) {
+                tagEnd = input.indexOf('>', from);
+            }
+            if (tagEnd < 0) {
+                return -1;
+            }
+
+            int bodyStart = tagEnd + 1;
+            if (bodyStart <= noCloseUntil) {
+                return -1;
+            }
+            for (int k = bodyStart; k < input.length(); k++) {
+                char c = input.charAt(k);
+                if (isLineTerminator(c)) {
+                    noCloseUntil = k;
+                    return -1;
+                }
+                if (c == '<' && k + SCRIPT_CLOSE.length() <= input.length()
+                        && matchesAt(input, k, SCRIPT_CLOSE, 0, SCRIPT_CLOSE.length())) {
+                    return k + SCRIPT_CLOSE.length();
+                }
+            }
+            noCloseUntil = input.length();
+            return -1;
+        }
+    }
+
+    /**
+     * Index of the tag opener starting at the given '<', or -1
+     */
+    private static int openerAt(CharSequence text, int from, int limit) {
+        for (int i = 0; i < TAG_OPENERS.length; i++) {
+            String opener = TAG_OPENERS[i];
+            if (from + opener.length() <= limit && matchesAt(text, from, opener, 0, opener.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isKeyword(CharSequence text, int start, int end) {
+        int length = end - start;
+        if (length < MIN_KEYWORD_LENGTH || length > MAX_KEYWORD_LENGTH) {
+            return false;
+        }
+        for (String keyword : SQL_KEYWORDS) {
+            if (keyword.length() == length && matchesAt(text, start, keyword, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * ASCII case-insensitive comparison against a lower case pattern
+     */
+    private static boolean matchesAt(CharSequence text, int start, String pattern, int patternStart, int length) {
+        for (int k = 0; k < length; k++) {
+            char c = text.charAt(start + k);
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            if (c != pattern.charAt(patternStart + k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isWordChar(char c) {
+        return isAsciiLetter(c) || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
@@ -0,0 +1,89 @@
+package com.gynaid.backend.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free HDR-style histogram of non-negative long values.
+ *
+ * Values are bucketed log-linearly: each power of two is split into four sub-buckets,
+ * which bounds the relative error to 25% while covering 0 to 2^36 in 144 buckets.
+ * Counts can be drained for shipping elsewhere and merged back as plain long arrays.
+ */
+public final class LogLinearHistogram {
+
+    public static final int BUCKET_COUNT = 144;
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    public void record(long value) {
+        counts.incrementAndGet(bucketIndex(value));
+    }
+
+    /**
+     * Current counts, resetting every bucket to zero
+     */
+    public long[] drain() {
+        long[] drained = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (counts.get(i) != 0) {
+                drained[i] = counts.getAndSet(i, 0);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Add previously drained counts back, e.g. after a failed flush
+     */
+    public void restore(long[] drained) {
+        for (int i = 0; i < Math.min(drained.length, BUCKET_COUNT); i++) {
+            if (drained[i] != 0) {
+                counts.addAndGet(i, drained[i]);
+            }
+        }
+    }
+
+    public static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) Math.max(value, 0);
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (msb - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return Math.min(SUB_BUCKETS + (msb - SUB_BUCKET_BITS) * SUB_BUCKETS + sub, BUCKET_COUNT - 1);
+    }
+
+    public static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int msb = (index - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        int sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (msb - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * Value at the given percentile (0-100) of bucket counts, as the bucket's lower bound
+     */
+    public static long percentile(long[] buckets, double percentile) {
+        long total = 0;
+        for (long count : buckets) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(total * Math.min(Math.max(percentile, 0), 100) / 100.0);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= Math.max(rank, 1)) {
+                return bucketLowerBound(i);
+            }
+        }
+        return bucketLowerBound(buckets.length - 1);
+    }
+}
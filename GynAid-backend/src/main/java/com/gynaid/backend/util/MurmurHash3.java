@@ -0,0 +1,95 @@
+package com.gynaid.backend.util;
+
+/**
+ * MurmurHash3 x86 32-bit over the UTF-8 bytes of a string.
+ *
+ * The UTF-8 encoding is streamed char by char, so hashing allocates nothing and gives
+ * the same result as the reference implementation (and the mmh3/murmurhash3 libraries
+ * used by the clients) applied to the UTF-8 bytes. Unpaired surrogates hash as '?',
+ * matching String.getBytes(UTF_8).
+ */
+public final class MurmurHash3 {
+
+    private static final int C1 = 0xcc9e2d51;
+    private static final int C2 = 0x1b873593;
+
+    private MurmurHash3() {
+    }
+
+    public static int hash32(CharSequence input, int seed) {
+        int h1 = seed;
+        int k1 = 0;
+        int shift = 0;
+        int length = 0;
+
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            int encoded;
+            int bytes;
+            if (c < 0x80) {
+                encoded = c;
+                bytes = 1;
+            } else if (c < 0x800) {
+                encoded = (0xC0 | (c >> 6)) | ((0x80 | (c & 0x3F)) << 8);
+                bytes = 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < input.length()
+                    && Character.isLowSurrogate(input.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, input.charAt(++i));
+                encoded = (0xF0 | (cp >> 18))
+                    | ((0x80 | ((cp >> 12) & 0x3F)) << 8)
+                    | ((0x80 | ((cp >> 6) & 0x3F)) << 16)
+                    | ((0x80 | (cp & 0x3F)) << 24);
+                bytes = 4;
+            } else if (Character.isSurrogate(c)) {
+                encoded = '?';
+                bytes = 1;
+            } else {
+                encoded = (0xE0 | (c >> 12))
+                    | ((0x80 | ((c >> 6) & 0x3F)) << 8)
+                    | ((0x80 | (c & 0x3F)) << 16);
+                bytes = 3;
+            }
+
+            for (int b = 0; b < bytes; b++) {
+                k1 |= ((encoded >>> (8 * b)) & 0xFF) << shift;
+                shift += 8;
+                length++;
+                if (shift == 32) {
+                    h1 ^= mixK1(k1);
+                    h1 = Integer.rotateLeft(h1, 13);
+                    h1 = h1 * 5 + 0xe6546b64;
+                    k1 = 0;
+                    shift = 0;
+                }
+            }
+        }
+
+        if (shift > 0) {
+            h1 ^= mixK1(k1);
+        }
+        h1 ^= length;
+        return fmix32(h1);
+    }
+
+    /**
+     * Stable bucket in [0, buckets) for a key, e.g. a user id hashed with a per-flag seed
+     */
+    public static int bucket(CharSequence key, int seed, int buckets) {
+        return (int) ((hash32(key, seed) & 0xFFFFFFFFL) % buckets);
+    }
+
+    private static int mixK1(int k1) {
+        k1 *= C1;
+        k1 = Integer.rotateLeft(k1, 15);
+        return k1 * C2;
+    }
+
+    private static int fmix32(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
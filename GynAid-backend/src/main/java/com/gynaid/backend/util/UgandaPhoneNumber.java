@@ -0,0 +1,148 @@
+package com.gynaid.backend.util;
+
+import java.util.Arrays;
+
+/**
+ * Uganda phone number parsing and formatting.
+ *
+ * Numbers are parsed in one scan, without allocating, into their E.164 digits as a
+ * long (e.g. 256772123456), which is what services compare, use in Redis keys and
+ * route on. Accepted input: +256XXXXXXXXX, 256XXXXXXXXX, 00256XXXXXXXXX,
+ * 0XXXXXXXXX or the bare 9-digit national number, with spaces, dashes, dots and
+ * parentheses ignored. The national number must start with 2-9.
+ *
+ * The carrier is looked up in a table indexed by the first three national digits.
+ */
+public final class UgandaPhoneNumber {
+
+    public static final long INVALID = -1L;
+
+    private static final long COUNTRY_CODE = 256;
+    private static final long NATIONAL_RANGE = 1_000_000_000L;
+    private static final int NATIONAL_DIGITS = 9;
+    private static final int MAX_DIGITS = 14;
+
+    public enum Carrier {
+        MTN,
+        AIRTEL,
+        UTL,
+        LYCAMOBILE,
+        OTHER
+    }
+
+    private static final Carrier[] CARRIERS = Carrier.values();
+    private static final byte[] CARRIER_BY_PREFIX = new byte[1000];
+
+    static {
+        Arrays.fill(CARRIER_BY_PREFIX, (byte) Carrier.OTHER.ordinal());
+        // Mobile ranges 07x and fixed lines 03x/04x/020, by first three national digits
+        assignRange(Carrier.MTN, 760, 789);
+        assignRange(Carrier.MTN, 310, 319);
+        assignRange(Carrier.MTN, 390, 399);
+        assignRange(Carrier.AIRTEL, 700, 709);
+        assignRange(Carrier.AIRTEL, 740, 759);
+        assignRange(Carrier.AIRTEL, 200, 209);
+        assignRange(Carrier.UTL, 710, 719);
+        assignRange(Carrier.UTL, 410, 419);
+        assignRange(Carrier.LYCAMOBILE, 726, 728);
+    }
+
+    private UgandaPhoneNumber() {
+    }
+
+    /**
+     * E.164 digits of a Uganda number, or INVALID
+     */
+    public static long parse(CharSequence input) {
+        if (input == null) {
+            return INVALID;
+        }
+
+        long digits = 0;
+        int count = 0;
+        boolean plus = false;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++count > MAX_DIGITS) {
+                    return INVALID;
+                }
+                digits = digits * 10 + (c - '0');
+            } else if (c == '+' && count == 0 && !plus) {
+                plus = true;
+            } else if (c != ' ' && c != '-' && c != '(' && c != ')' && c != '.' && c != '\t') {
+                return INVALID;
+            }
+        }
+
+        long national;
+        if (count == NATIONAL_DIGITS + 3 && digits / NATIONAL_RANGE == COUNTRY_CODE) {
+            national = digits % NATIONAL_RANGE;
+        } else if (plus) {
+            return INVALID;
+        } else if (count == NATIONAL_DIGITS + 5 && digits / NATIONAL_RANGE == COUNTRY_CODE) {
+            // 00 international prefix; the leading zeros do not change the value
+            national = digits % NATIONAL_RANGE;
+        } else if (count == NATIONAL_DIGITS + 1 && digits < NATIONAL_RANGE) {
+            national = digits;
+        } else if (count == NATIONAL_DIGITS) {
+            national = digits;
+        } else {
+            return INVALID;
+        }
+
+        if (national < 2 * NATIONAL_RANGE / 10) {
+            return INVALID;
+        }
+        return COUNTRY_CODE * NATIONAL_RANGE + national;
+    }
+
+    public static boolean isValid(CharSequence input) {
+        return parse(input) != INVALID;
+    }
+
+    /**
+     * +256XXXXXXXXX, or null for INVALID
+     */
+    public static String format(long number) {
+        return number == INVALID ? null : "+" + number;
+    }
+
+    /**
+     * Canonical +256 form of the input, or null when it is not a Uganda number
+     */
+    public static String normalize(CharSequence input) {
+        return format(parse(input));
+    }
+
+    public static Carrier carrier(long number) {
+        if (number == INVALID) {
+            return Carrier.OTHER;
+        }
+        int prefix = (int) (number % NATIONAL_RANGE / 1_000_000);
+        return CARRIERS[CARRIER_BY_PREFIX[prefix]];
+    }
+
+    /**
+     * Compact Redis key suffix for a parsed number (base 36, 8 characters)
+     */
+    public static String redisKey(long number) {
+        return Long.toString(number, Character.MAX_RADIX);
+    }
+
+    /**
+     * Number with all but the last three digits masked, for logs
+     */
+    public static String mask(long number) {
+        if (number == INVALID) {
+            return "invalid";
+        }
+        return "+256******" + String.format("%03d", number % 1000);
+    }
+
+    private static void assignRange(Carrier carrier, int from, int to) {
+        for (int prefix = from; prefix <= to; prefix++) {
+            CARRIER_BY_PREFIX[prefix] = (byte) carrier.ordinal();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+-- Migration V11: Appointment scheduling indexes
+-- Supports half-open start_time range scans and keyset pagination
+
+-- Create appointments table if it doesn't exist (previously managed by Hibernate only)
+CREATE TABLE IF NOT EXISTS appointments (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    client_id BIGINT NOT NULL,
+    provider_id BIGINT NOT NULL,
+    start_time TIMESTAMP NOT NULL,
+    end_time TIMESTAMP NOT NULL,
+    status VARCHAR(50),
+    payment_status VARCHAR(50),
+    notes TEXT,
+    provider_notes TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (client_id) REFERENCES users(id) ON DELETE CASCADE,
+    FOREIGN KEY (provider_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+-- Provider dashboards and status filtered lists: WHERE provider_id = ? AND status = ? ORDER BY start_time
+CREATE INDEX IF NOT EXISTS idx_appointments_provider_status_start ON appointments(provider_id, status, start_time);
+
+-- Client history: WHERE client_id = ? ORDER BY start_time
+CREATE INDEX IF NOT EXISTS idx_appointments_client_start ON appointments(client_id, start_time);
+
+-- Admin listing and daily schedule range scans: WHERE status = ? AND start_time >= ? AND start_time < ?
+CREATE INDEX IF NOT EXISTS idx_appointments_status_start ON appointments(status, start_time);
+CREATE INDEX IF NOT EXISTS idx_appointments_start_time ON appointments(start_time);
@@ -0,0 +1,14 @@
+-- Migration V12: Scheduler leases and sweeper indexes
+-- A single lease row per cluster-wide job; the node holding an unexpired lease runs it
+
+CREATE TABLE IF NOT EXISTS scheduler_leases (
+    name VARCHAR(100) PRIMARY KEY,
+    owner VARCHAR(100),
+    lease_until TIMESTAMP
+);
+
+INSERT INTO scheduler_leases (name, owner, lease_until) VALUES ('state-sweeper', NULL, CURRENT_TIMESTAMP);
+
+-- Deadline scans by the state sweeper
+CREATE INDEX IF NOT EXISTS idx_consultation_status_scheduled ON consultations(status, scheduled_date_time);
+CREATE INDEX IF NOT EXISTS idx_consultation_status_created ON consultations(status, created_at);
@@ -0,0 +1,15 @@
+-- Migration V13: Pre-aggregated provider dashboard counters
+-- One row per provider and counter key (CONSULTATION:<status>, APPOINTMENT:<status>, EARNINGS:<yyyy-MM>),
+-- maintained incrementally from state-change events and periodically reconciled
+
+CREATE TABLE IF NOT EXISTS provider_dashboard_counters (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    provider_id BIGINT NOT NULL,
+    counter_key VARCHAR(64) NOT NULL,
+    count_value BIGINT NOT NULL DEFAULT 0,
+    amount_value DECIMAL(14,2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP,
+    CONSTRAINT uk_dashboard_counter_provider_key UNIQUE (provider_id, counter_key)
+);
+
+INSERT INTO scheduler_leases (name, owner, lease_until) VALUES ('dashboard-reconciler', NULL, CURRENT_TIMESTAMP);
@@ -0,0 +1,23 @@
+-- Migration V14: Per-provider daily earnings rollup
+-- Maintained by ProviderEarningsService after a payment succeeds or is refunded: the
+-- listener runs once the payment transaction has committed, in its own transaction, so
+-- the rollup lags the payment briefly and a failed update is repaired with rebuild().
+-- Payouts and dashboards read range sums from it instead of joining payments to appointments
+
+CREATE TABLE IF NOT EXISTS provider_earnings_daily (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    provider_id BIGINT NOT NULL,
+    earnings_date DATE NOT NULL,
+    gross_amount DECIMAL(14,2) NOT NULL DEFAULT 0,
+    provider_share DECIMAL(14,2) NOT NULL DEFAULT 0,
+    platform_fee DECIMAL(14,2) NOT NULL DEFAULT 0,
+    payment_count BIGINT NOT NULL DEFAULT 0,
+    refund_count BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP,
+    CONSTRAINT uk_earnings_daily_provider_date UNIQUE (provider_id, earnings_date)
+);
+
+CREATE INDEX IF NOT EXISTS idx_earnings_daily_date_provider ON provider_earnings_daily(earnings_date, provider_id);
+
+-- Monthly earnings now come from the rollup rather than dashboard counters
+DELETE FROM provider_dashboard_counters WHERE counter_key LIKE 'EARNINGS:%';
@@ -0,0 +1,28 @@
+-- Migration V15: Envelope encryption for PHI columns
+-- Data keys are stored wrapped by a master key version; ciphertexts carry the id of
+-- their data key so keys can be rotated online and old values re-encrypted in the background
+
+CREATE TABLE IF NOT EXISTS encryption_data_keys (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    wrapped_key VARCHAR(255) NOT NULL,
+    master_key_version VARCHAR(50) NOT NULL,
+    active BOOLEAN NOT NULL DEFAULT FALSE,
+    created_at TIMESTAMP NOT NULL,
+    retired_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_encryption_data_keys_active ON encryption_data_keys(active);
+
+-- Keyset progress of the re-encryption job, one row per PHI table
+CREATE TABLE IF NOT EXISTS phi_reencryption_checkpoints (
+    table_name VARCHAR(100) PRIMARY KEY,
+    target_key_id BIGINT NOT NULL,
+    last_id BIGINT NOT NULL DEFAULT 0,
+    rows_scanned BIGINT NOT NULL DEFAULT 0,
+    values_rewritten BIGINT NOT NULL DEFAULT 0,
+    started_at TIMESTAMP,
+    updated_at TIMESTAMP,
+    completed_at TIMESTAMP
+);
+
+INSERT INTO scheduler_leases (name, owner, lease_until) VALUES ('phi-reencryption', NULL, CURRENT_TIMESTAMP);
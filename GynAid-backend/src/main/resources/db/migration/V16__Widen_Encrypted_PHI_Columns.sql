@@ -0,0 +1,11 @@
+-- Migration V16: Room for ciphertext in encrypted PHI columns
+-- Envelope ciphertext (header + Base64 of IV, data and tag) is about 1.4x the plaintext size plus ~40 characters
+
+ALTER TABLE client_health_profiles ALTER COLUMN emergency_contact_name SET DATA TYPE VARCHAR(1024);
+ALTER TABLE client_health_profiles ALTER COLUMN emergency_contact_phone SET DATA TYPE VARCHAR(1024);
+ALTER TABLE client_health_profiles ALTER COLUMN emergency_contact_relationship SET DATA TYPE VARCHAR(1024);
+
+-- medication_records is created by Hibernate, so it may not exist yet
+ALTER TABLE IF EXISTS medication_records ALTER COLUMN medication_name SET DATA TYPE VARCHAR(1024);
+ALTER TABLE IF EXISTS medication_records ALTER COLUMN dosage SET DATA TYPE VARCHAR(1024);
+ALTER TABLE IF EXISTS medication_records ALTER COLUMN reason SET DATA TYPE VARCHAR(1024);
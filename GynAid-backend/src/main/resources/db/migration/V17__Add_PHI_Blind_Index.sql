@@ -0,0 +1,16 @@
+-- Migration V17: Blind index over encrypted PHI fields
+-- One row per keyed-HMAC token of a searchable field, so keyword and equality searches
+-- use an index instead of decrypting every row
+
+CREATE TABLE IF NOT EXISTS phi_blind_index (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    field_type VARCHAR(50) NOT NULL,
+    token VARCHAR(32) NOT NULL,
+    health_profile_id BIGINT NOT NULL,
+    source_table VARCHAR(50) NOT NULL,
+    source_id BIGINT NOT NULL,
+    CONSTRAINT fk_phi_blind_index_profile FOREIGN KEY (health_profile_id) REFERENCES client_health_profiles(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_phi_blind_index_lookup ON phi_blind_index(field_type, token, health_profile_id);
+CREATE INDEX IF NOT EXISTS idx_phi_blind_index_source ON phi_blind_index(source_table, source_id);
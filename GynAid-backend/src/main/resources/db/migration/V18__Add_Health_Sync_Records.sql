@@ -0,0 +1,14 @@
+-- Migration V18: Idempotency keys for offline health data sync
+-- One row per record accepted from a device, keyed by the client-generated id, so a
+-- re-sent batch is recognised instead of stored twice
+
+CREATE TABLE IF NOT EXISTS health_sync_records (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    client_record_id VARCHAR(64) NOT NULL,
+    record_type VARCHAR(20) NOT NULL,
+    recorded_at TIMESTAMP,
+    synced_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_health_sync_records_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT uk_health_sync_records_client_id UNIQUE (user_id, client_record_id)
+);
@@ -0,0 +1,11 @@
+-- Migration V19: Rolling cycle statistics on gynecological profiles
+-- Maintained as cycles are recorded (count, Welford mean/M2, EWMA length, last 12 cycles newest first).
+-- NULL cycle_stats_entries means not built yet; existing profiles are built from their cycles on first use.
+
+ALTER TABLE gynecological_profiles ADD COLUMN IF NOT EXISTS cycle_stats_entries INTEGER;
+ALTER TABLE gynecological_profiles ADD COLUMN IF NOT EXISTS cycle_stats_length_count INTEGER;
+ALTER TABLE gynecological_profiles ADD COLUMN IF NOT EXISTS cycle_stats_mean_length DOUBLE PRECISION;
+ALTER TABLE gynecological_profiles ADD COLUMN IF NOT EXISTS cycle_stats_m2 DOUBLE PRECISION;
+ALTER TABLE gynecological_profiles ADD COLUMN IF NOT EXISTS cycle_stats_ewma_length DOUBLE PRECISION;
+ALTER TABLE gynecological_profiles ADD COLUMN IF NOT EXISTS cycle_stats_last_start_date DATE;
+ALTER TABLE gynecological_profiles ADD COLUMN IF NOT EXISTS cycle_stats_recent VARCHAR(255);
@@ -0,0 +1,20 @@
+-- Migration V20: Precomputed period and fertility predictions
+-- One row per gynecological profile, refreshed by the nightly batch and removed when a cycle
+-- or the profile changes; online reads recompute and store a missing row
+
+CREATE TABLE IF NOT EXISTS cycle_predictions (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    gynecological_profile_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    next_period_date DATE,
+    ovulation_date DATE,
+    fertile_window_start DATE,
+    fertile_window_end DATE,
+    regularity_score DOUBLE PRECISION NOT NULL,
+    cycles_tracked INTEGER NOT NULL DEFAULT 0,
+    computed_at TIMESTAMP NOT NULL,
+    CONSTRAINT uk_cycle_predictions_profile UNIQUE (gynecological_profile_id),
+    CONSTRAINT fk_cycle_predictions_profile FOREIGN KEY (gynecological_profile_id) REFERENCES gynecological_profiles(id) ON DELETE CASCADE
+);
+
+INSERT INTO scheduler_leases (name, owner, lease_until) VALUES ('cycle-predictions', NULL, CURRENT_TIMESTAMP);
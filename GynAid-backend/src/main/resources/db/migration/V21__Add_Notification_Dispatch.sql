@@ -0,0 +1,24 @@
+-- Migration V21: Persistent smart notification dispatch
+-- Notifications are partitioned by dispatch_bucket (hours since the epoch of scheduled_for) so the
+-- dispatcher only scans the few buckets of its lookahead window and old buckets can be purged in bulk
+
+-- Existing rows keep a NULL channel: they were in-app only and are never dispatched
+ALTER TABLE smart_notifications ADD COLUMN channel VARCHAR(20);
+ALTER TABLE smart_notifications ADD COLUMN status VARCHAR(20) NOT NULL DEFAULT 'PENDING';
+ALTER TABLE smart_notifications ADD COLUMN dispatch_bucket BIGINT;
+ALTER TABLE smart_notifications ADD COLUMN attempts INTEGER NOT NULL DEFAULT 0;
+
+UPDATE smart_notifications SET status = CASE WHEN is_sent THEN 'SENT' ELSE 'PENDING' END;
+UPDATE smart_notifications SET dispatch_bucket = CAST(EXTRACT(EPOCH FROM scheduled_for) AS BIGINT) / 3600
+    WHERE scheduled_for IS NOT NULL;
+
+ALTER TABLE smart_notifications ADD CONSTRAINT chk_smart_notification_channel
+    CHECK (channel IN ('SMS', 'EMAIL', 'PUSH'));
+
+ALTER TABLE smart_notifications ADD CONSTRAINT chk_smart_notification_status
+    CHECK (status IN ('PENDING', 'SENT', 'FAILED'));
+
+CREATE INDEX idx_smart_notifications_dispatch ON smart_notifications(dispatch_bucket, status, scheduled_for);
+CREATE INDEX idx_smart_notifications_user_status ON smart_notifications(user_id, status);
+
+INSERT INTO scheduler_leases (name, owner, lease_until) VALUES ('notification-dispatcher', NULL, CURRENT_TIMESTAMP);
@@ -0,0 +1,30 @@
+-- Migration V22: Persistent outbound SMS queue
+-- Rows are claimed lane by lane (PRIORITY, STANDARD, BULK) by the node holding the 'sms-dispatcher'
+-- lease; correlation_id is part of the delivery status callback URL
+
+CREATE TABLE IF NOT EXISTS sms_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    correlation_id VARCHAR(36) NOT NULL,
+    phone_number BIGINT NOT NULL,
+    carrier VARCHAR(20) NOT NULL,
+    lane VARCHAR(20) NOT NULL,
+    template VARCHAR(40) NOT NULL,
+    body TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP,
+    provider_sid VARCHAR(64),
+    last_error VARCHAR(255),
+    created_at TIMESTAMP NOT NULL,
+    sent_at TIMESTAMP,
+    updated_at TIMESTAMP,
+    CONSTRAINT uk_sms_outbox_correlation UNIQUE (correlation_id),
+    CONSTRAINT chk_sms_outbox_lane CHECK (lane IN ('PRIORITY', 'STANDARD', 'BULK')),
+    CONSTRAINT chk_sms_outbox_status CHECK (status IN ('PENDING', 'SENDING', 'SENT', 'DELIVERED', 'UNDELIVERED', 'FAILED', 'EXPIRED'))
+);
+
+CREATE INDEX idx_sms_outbox_due ON sms_outbox(lane, status, next_attempt_at);
+CREATE INDEX idx_sms_outbox_status_updated ON sms_outbox(status, updated_at);
+
+INSERT INTO scheduler_leases (name, owner, lease_until) VALUES ('sms-dispatcher', NULL, CURRENT_TIMESTAMP);
@@ -0,0 +1,28 @@
+-- Migration V23: Per-message status of bulk emails
+-- One row per recipient of a bulk send, grouped by job_id
+
+-- The rendered mail of a bulk job, kept so stuck recipients can be re-sent
+CREATE TABLE IF NOT EXISTS outbound_email_jobs (
+    job_id VARCHAR(36) PRIMARY KEY,
+    subject TEXT NOT NULL,
+    html TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS outbound_emails (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    job_id VARCHAR(36) NOT NULL,
+    recipient VARCHAR(255) NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    last_error VARCHAR(255),
+    -- Times the row was re-queued by the recovery poller; a send claims the row for its attempt
+    attempts INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    sent_at TIMESTAMP,
+    CONSTRAINT chk_outbound_email_status CHECK (status IN ('PENDING', 'SENT', 'FAILED'))
+);
+
+CREATE INDEX idx_outbound_emails_job ON outbound_emails(job_id, status);
+CREATE INDEX idx_outbound_emails_status_updated ON outbound_emails(status, updated_at);
@@ -0,0 +1,103 @@
+package com.gynaid.backend.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gynaid.backend.service.FeatureFlagService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * JMH evaluations per second of FeatureFlagService.isEnabled against the built-in flags,
+ * from several request threads at once. Redis is a stub holding no flags, so the numbers
+ * are the snapshot lookup, bucketing and exposure counting only. Not run by the test
+ * suite; after mvn test-compile, run main with the test classpath, e.g. from the IDE.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class FeatureFlagBenchmark {
+
+    private static final int USERS = 1024;
+
+    @State(Scope.Benchmark)
+    public static class Flags {
+
+        FeatureFlagService service;
+
+        @Setup
+        @SuppressWarnings("unchecked")
+        public void setUp() {
+            RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+            HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+            ValueOperations<String, Object> valueOperations = mock(ValueOperations.class);
+            when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+            when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+            when(hashOperations.entries(anyString())).thenReturn(Map.of());
+
+            service = new FeatureFlagService(redisTemplate, mock(RedisMessageListenerContainer.class),
+                new ObjectMapper());
+            service.initializeFlags();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Users {
+
+        final String[] ids = new String[USERS];
+        int next;
+
+        @Setup
+        public void setUp() {
+            for (int i = 0; i < USERS; i++) {
+                ids[i] = "user-" + i;
+            }
+        }
+
+        String nextId() {
+            next = (next + 1) & (USERS - 1);
+            return ids[next];
+        }
+    }
+
+    @Benchmark
+    public boolean percentageRollout(Flags flags, Users users) {
+        return flags.service.isEnabled("advanced_analytics", users.nextId(), null);
+    }
+
+    @Benchmark
+    public boolean userIdTargeting(Flags flags, Users users) {
+        return flags.service.isEnabled("ai_health_assistant", users.nextId(), null);
+    }
+
+    @Benchmark
+    public boolean disabledFlag(Flags flags, Users users) {
+        return flags.service.isEnabled("voice_integration", users.nextId(), null);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FeatureFlagBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,90 @@
+package com.gynaid.backend.benchmark;
+
+import com.gynaid.backend.entity.EncryptionDataKey;
+import com.gynaid.backend.repository.EncryptionDataKeyRepository;
+import com.gynaid.backend.service.FieldLevelEncryptionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * JMH measurement of FieldLevelEncryptionService encrypting and decrypting a 1 KB
+ * medical_history value with the per-thread cipher and buffers. Not run by the test
+ * suite; after mvn test-compile, run main with the test classpath, e.g. from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldLevelEncryptionBenchmark {
+
+    private static final String FIELD_TYPE = "medical_history";
+    private static final String MASTER_KEY = Base64.getEncoder().encodeToString(new byte[32]);
+
+    private FieldLevelEncryptionService service;
+    private String plainText;
+    private String encrypted;
+
+    @Setup
+    public void setUp() {
+        // Data keys live in memory; the benchmark never reaches the database
+        AtomicReference<EncryptionDataKey> storedKey = new AtomicReference<>();
+        EncryptionDataKeyRepository dataKeyRepository = mock(EncryptionDataKeyRepository.class);
+        when(dataKeyRepository.findByMasterKeyVersionNot(anyString())).thenReturn(List.of());
+        when(dataKeyRepository.findFirstByActiveTrueOrderByIdDesc())
+            .thenAnswer(invocation -> Optional.ofNullable(storedKey.get()));
+        when(dataKeyRepository.findById(anyLong())).thenAnswer(invocation -> Optional.ofNullable(storedKey.get()));
+        when(dataKeyRepository.save(any(EncryptionDataKey.class))).thenAnswer(invocation -> {
+            EncryptionDataKey row = invocation.getArgument(0);
+            row.setId(1L);
+            storedKey.set(row);
+            return row;
+        });
+
+        service = new FieldLevelEncryptionService(dataKeyRepository, new MockEnvironment(), MASTER_KEY, "v1", "", 64);
+        service.initializeDataKeys();
+
+        StringBuilder history = new StringBuilder(1024);
+        while (history.length() < 1024) {
+            history.append("Dysmenorrhoea since menarche, laparoscopy 2024 confirmed stage II endometriosis. ");
+        }
+        plainText = history.substring(0, 1024);
+        encrypted = service.encryptField(FIELD_TYPE, plainText);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return service.encryptField(FIELD_TYPE, plainText);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return service.decryptField(FIELD_TYPE, encrypted);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FieldLevelEncryptionBenchmark.class.getSimpleName()).build()).run();
+    }
+}
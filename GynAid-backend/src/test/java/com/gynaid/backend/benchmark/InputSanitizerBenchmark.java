@@ -0,0 +1,65 @@
+package com.gynaid.backend.benchmark;
+
+import com.gynaid.backend.util.InputSanitizer;
+import com.gynaid.backend.util.LegacyRegexSanitizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of InputSanitizer with the regex chain it replaced, on the kinds of
+ * field InputValidationService sees. Not run by the test suite; after
+ * mvn test-compile, run main with the test classpath, e.g. from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputSanitizerBenchmark {
+
+    private static final Map<String, String> INPUTS = Map.of(
+        "name", "Amina Nakato",
+        "email", "amina.nakato@example.org",
+        "notes", "Cycle was 31 days,  cramps on day 2 and 3.\nTaking ibuprofen as prescribed by Dr. Okello.",
+        "hostile", "<script>alert(1)</script> Robert'); DROP TABLE users;-- <img src=x onerror=javascript:alert(1)>");
+
+    @Param({"name", "email", "notes", "hostile"})
+    public String field;
+
+    private String input;
+
+    @Setup
+    public void setUp() {
+        input = INPUTS.get(field);
+    }
+
+    @Benchmark
+    public String singlePass() {
+        return InputSanitizer.sanitize(input);
+    }
+
+    @Benchmark
+    public String regexChain() {
+        return LegacyRegexSanitizer.sanitize(input);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(InputSanitizerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
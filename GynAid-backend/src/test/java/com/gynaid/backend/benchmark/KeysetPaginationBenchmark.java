@@ -0,0 +1,113 @@
+package com.gynaid.backend.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of a deep page of a client's appointments read with OFFSET + COUNT(*)
+ * against the keyset query behind AppointmentRepository.findByClientBefore, on H2 with
+ * the appointments indexes. Page correctness is covered by AppointmentRepositoryTest.
+ * Not run by the test suite; after mvn test-compile, run main with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeysetPaginationBenchmark {
+
+    private static final int ROWS = 25_000;
+    private static final int PAGE_SIZE = 20;
+    private static final long CLIENT_ID = 1L;
+    private static final LocalDateTime FIRST_START = LocalDateTime.of(2020, 1, 1, 8, 0);
+
+    private static final String OFFSET_PAGE = "SELECT id FROM appointments WHERE client_id = ? "
+        + "ORDER BY start_time DESC, id DESC LIMIT ? OFFSET ?";
+    private static final String COUNT = "SELECT COUNT(*) FROM appointments WHERE client_id = ?";
+    private static final String KEYSET_PAGE = "SELECT id FROM appointments WHERE client_id = ? "
+        + "AND (start_time < ? OR (start_time = ? AND id < ?)) ORDER BY start_time DESC, id DESC LIMIT ?";
+
+    @Param({"1", "100", "1000"})
+    public int page;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private int offset;
+    private Object cursorTime;
+    private Object cursorId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:keyset_benchmark_" + page, "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE appointments (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+            + "client_id BIGINT NOT NULL, provider_id BIGINT NOT NULL, start_time TIMESTAMP NOT NULL, "
+            + "status VARCHAR(50))");
+        jdbcTemplate.execute("CREATE INDEX idx_appointments_client_start ON appointments(client_id, start_time)");
+
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new Object[] {CLIENT_ID, 2L + i % 50, Timestamp.valueOf(FIRST_START.plusHours(i)), "COMPLETED"});
+        }
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO appointments (client_id, provider_id, start_time, status) VALUES (?, ?, ?, ?)", rows);
+
+        // The cursor a client holds after reading the previous page
+        offset = (page - 1) * PAGE_SIZE;
+        if (offset == 0) {
+            cursorTime = Timestamp.valueOf(LocalDateTime.of(9999, 12, 31, 23, 59));
+            cursorId = Long.MAX_VALUE;
+        } else {
+            Map<String, Object> previousLast = jdbcTemplate.queryForMap("SELECT id, start_time FROM appointments "
+                + "WHERE client_id = ? ORDER BY start_time DESC, id DESC LIMIT 1 OFFSET ?", CLIENT_ID, offset - 1);
+            cursorTime = previousLast.get("START_TIME");
+            cursorId = previousLast.get("ID");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public List<Long> offsetPage() {
+        jdbcTemplate.queryForObject(COUNT, Long.class, CLIENT_ID);
+        return jdbcTemplate.queryForList(OFFSET_PAGE, Long.class, CLIENT_ID, PAGE_SIZE, offset);
+    }
+
+    @Benchmark
+    public List<Long> keysetPage() {
+        return jdbcTemplate.queryForList(KEYSET_PAGE, Long.class, CLIENT_ID, cursorTime, cursorTime, cursorId,
+            PAGE_SIZE + 1);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(KeysetPaginationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
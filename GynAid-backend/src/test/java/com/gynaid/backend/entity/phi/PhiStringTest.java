@@ -0,0 +1,81 @@
+package com.gynaid.backend.entity.phi;
+
+import com.gynaid.backend.entity.client.MedicationRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PhiString must never decrypt unless its plaintext is actually read
+ */
+class PhiStringTest {
+
+    private final AtomicInteger decryptions = new AtomicInteger();
+    private final UnaryOperator<String> decryptor = ciphertext -> {
+        decryptions.incrementAndGet();
+        return "plain:" + ciphertext;
+    };
+
+    @Test
+    void hashingAndComparingDoNotDecrypt() {
+        PhiString first = PhiString.fromColumn("gx1$1$AAAA", decryptor);
+        PhiString second = PhiString.fromColumn("gx1$1$AAAA", decryptor);
+
+        Set<PhiString> values = new HashSet<>();
+        values.add(first);
+        values.add(second);
+        first.hashCode();
+        assertNotEquals(first, second);
+        assertEquals(first, first);
+        assertEquals("[PHI]", first.toString());
+
+        assertEquals(0, decryptions.get());
+    }
+
+    @Test
+    void entityEqualityIgnoresPhiFields() {
+        MedicationRecord loaded = MedicationRecord.builder()
+            .id(1L)
+            .medicationName(PhiString.fromColumn("gx1$1$BBBB", decryptor))
+            .dosage(PhiString.fromColumn("gx1$1$CCCC", decryptor))
+            .build();
+        MedicationRecord copy = MedicationRecord.builder()
+            .id(1L)
+            .medicationName(PhiString.fromColumn("gx1$1$DDDD", decryptor))
+            .build();
+
+        Set<MedicationRecord> records = new HashSet<>();
+        records.add(loaded);
+        records.add(copy);
+
+        assertEquals(1, records.size());
+        assertEquals(0, decryptions.get());
+    }
+
+    @Test
+    void revealDecryptsOnceAndMemoizes() {
+        PhiString value = PhiString.fromColumn("gx1$1$EEEE", decryptor);
+
+        assertEquals("plain:gx1$1$EEEE", value.reveal());
+        assertEquals("plain:gx1$1$EEEE", value.reveal());
+
+        assertEquals(1, decryptions.get());
+    }
+
+    @Test
+    void newValuesEncryptOnceAtFlush() {
+        AtomicInteger encryptions = new AtomicInteger();
+        PhiString value = PhiString.of("folic acid");
+
+        String column = value.toColumn(plaintext -> "enc" + encryptions.incrementAndGet());
+        assertEquals(column, value.toColumn(plaintext -> "enc" + encryptions.incrementAndGet()));
+
+        assertEquals(1, encryptions.get());
+        assertEquals("folic acid", value.reveal());
+    }
+}
@@ -0,0 +1,153 @@
+package com.gynaid.backend.repository;
+
+import com.gynaid.backend.entity.Appointment;
+import com.gynaid.backend.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Keyset finders of AppointmentRepository, walked page by page to the end and checked
+ * against the full listing in (startTime DESC, id DESC) order
+ */
+@DataJpaTest(properties = {
+    "spring.flyway.enabled=false",
+    "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class AppointmentRepositoryTest {
+
+    private static final LocalDateTime FIRST_START = LocalDateTime.of(2026, 1, 5, 8, 0);
+    private static final int APPOINTMENTS = 157;
+    private static final int PAGE_SIZE = 10;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private User client;
+    private User provider;
+    private User otherClient;
+
+    @BeforeEach
+    void setUp() {
+        client = entityManager.persist(user("client@example.com", User.UserRole.CLIENT));
+        otherClient = entityManager.persist(user("other@example.com", User.UserRole.CLIENT));
+        provider = entityManager.persist(user("provider@example.com", User.UserRole.PROVIDER_INDIVIDUAL));
+        Appointment.AppointmentStatus[] statuses = {Appointment.AppointmentStatus.PENDING,
+            Appointment.AppointmentStatus.APPROVED, Appointment.AppointmentStatus.DECLINED};
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            // Three appointments share each start time, so page boundaries fall inside ties
+            LocalDateTime start = FIRST_START.plusHours(i / 3);
+            entityManager.persist(appointment(client, start, statuses[i % statuses.length]));
+            if (i % 4 == 0) {
+                entityManager.persist(appointment(otherClient, start, statuses[i % statuses.length]));
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void clientPagesCoverEveryAppointmentOnce() {
+        List<Long> walked = walk(key -> appointmentRepository.findByClientBefore(client,
+            key.startTime(), key.id(), PageRequest.of(0, PAGE_SIZE)));
+
+        assertEquals(expected(appointmentRepository.findByClient(client, PageRequest.of(0, 1_000)).getContent()),
+            walked);
+    }
+
+    @Test
+    void clientStatusPagesCoverEveryMatchingAppointmentOnce() {
+        Appointment.AppointmentStatus status = Appointment.AppointmentStatus.APPROVED;
+
+        List<Long> walked = walk(key -> appointmentRepository.findByClientAndStatusBefore(client, status,
+            key.startTime(), key.id(), PageRequest.of(0, PAGE_SIZE)));
+
+        assertEquals(expected(appointmentRepository.findByClientAndStatus(client, status,
+            PageRequest.of(0, 1_000)).getContent()), walked);
+        assertEquals(APPOINTMENTS / 3, walked.size());
+    }
+
+    @Test
+    void providerPagesCoverEveryAppointmentOnce() {
+        List<Long> walked = walk(key -> appointmentRepository.findByProviderBefore(provider,
+            key.startTime(), key.id(), PageRequest.of(0, PAGE_SIZE)));
+
+        assertEquals(expected(appointmentRepository.findByProvider(provider, PageRequest.of(0, 1_000)).getContent()),
+            walked);
+    }
+
+    @Test
+    void rangePagesStayInsideTheRange() {
+        LocalDateTime from = FIRST_START.plusHours(10);
+        LocalDateTime to = FIRST_START.plusHours(30);
+
+        List<Long> walked = walk(key -> appointmentRepository.findAllBefore(null, from, to,
+            key.startTime(), key.id(), PageRequest.of(0, PAGE_SIZE)));
+
+        List<Appointment> inRange = appointmentRepository.findByStartTimeInRange(from, to,
+            PageRequest.of(0, 1_000, Sort.by(Sort.Direction.DESC, "startTime", "id"))).getContent();
+        assertEquals(expected(inRange), walked);
+        assertEquals(20 * 3 + 20 * 3 / 4, walked.size());
+    }
+
+    /**
+     * Follow the keyset from the first page until a short page, as the listing endpoints do
+     */
+    private static List<Long> walk(PageQuery query) {
+        List<Long> ids = new ArrayList<>();
+        Key key = new Key(LocalDateTime.of(9999, 12, 31, 23, 59), Long.MAX_VALUE);
+        while (true) {
+            List<Appointment> page = query.fetch(key);
+            assertTrue(page.size() <= PAGE_SIZE);
+            page.forEach(appointment -> ids.add(appointment.getId()));
+            if (page.size() < PAGE_SIZE) {
+                return ids;
+            }
+            Appointment last = page.get(page.size() - 1);
+            key = new Key(last.getStartTime(), last.getId());
+        }
+    }
+
+    private static List<Long> expected(List<Appointment> appointments) {
+        return appointments.stream()
+            .sorted(Comparator.comparing(Appointment::getStartTime).thenComparing(Appointment::getId).reversed())
+            .map(Appointment::getId)
+            .toList();
+    }
+
+    private Appointment appointment(User owner, LocalDateTime start, Appointment.AppointmentStatus status) {
+        return Appointment.builder()
+            .client(owner)
+            .provider(provider)
+            .startTime(start)
+            .endTime(start.plusMinutes(30))
+            .status(status)
+            .build();
+    }
+
+    private static User user(String email, User.UserRole role) {
+        return User.builder().email(email).password("hash").role(role).build();
+    }
+
+    private record Key(LocalDateTime startTime, Long id) {
+    }
+
+    @FunctionalInterface
+    private interface PageQuery {
+        List<Appointment> fetch(Key key);
+    }
+}
@@ -0,0 +1,99 @@
+package com.gynaid.backend.service;
+
+import com.gynaid.backend.dto.CursorPage;
+import com.gynaid.backend.entity.HealthcareProvider;
+import com.gynaid.backend.repository.HealthcareProviderRepository;
+import com.gynaid.backend.repository.ProviderSubscriptionRepository;
+import com.gynaid.backend.util.PageCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the keyset provider listing
+ */
+@ExtendWith(MockitoExtension.class)
+class AdminProviderServiceTest {
+
+    @Mock
+    private HealthcareProviderRepository providerRepository;
+
+    @Mock
+    private ProviderSubscriptionRepository subscriptionRepository;
+
+    private AdminProviderService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new AdminProviderService(providerRepository, subscriptionRepository, new ListingCountCache());
+    }
+
+    @Test
+    void nonPositiveSizeReturnsOneRowInsteadOfFailing() {
+        when(providerRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+            .thenReturn(providers(1, 2));
+
+        for (int size : new int[] {0, -5}) {
+            CursorPage<HealthcareProvider> page = service.getProvidersPage(null, size, null, false);
+
+            assertEquals(1, page.getItems().size());
+            assertTrue(page.isHasNext());
+            assertEquals(1L, PageCursor.decode(page.getNextCursor()).getId());
+        }
+    }
+
+    @Test
+    void oversizedPageIsCapped() {
+        when(providerRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class))).thenReturn(List.of());
+
+        service.getProvidersPage(null, 1_000_000, null, false);
+
+        ArgumentCaptor<Pageable> limit = ArgumentCaptor.forClass(Pageable.class);
+        verify(providerRepository).findByIdGreaterThanOrderByIdAsc(eq(0L), limit.capture());
+        assertEquals(CursorPage.MAX_PAGE_SIZE + 1, limit.getValue().getPageSize());
+    }
+
+    @Test
+    void cursorContinuesAfterTheLastReturnedRow() {
+        when(providerRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+            .thenReturn(providers(1, 4));
+        CursorPage<HealthcareProvider> first = service.getProvidersPage(null, 3, null, false);
+        assertEquals(List.of(1L, 2L, 3L), first.getItems().stream().map(HealthcareProvider::getId).toList());
+
+        when(providerRepository.findByIdGreaterThanOrderByIdAsc(eq(3L), any(Pageable.class)))
+            .thenReturn(providers(4, 4));
+        CursorPage<HealthcareProvider> second = service.getProvidersPage(first.getNextCursor(), 3, null, false);
+
+        assertEquals(List.of(4L), second.getItems().stream().map(HealthcareProvider::getId).toList());
+        assertFalse(second.isHasNext());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void totalIsCountedOnlyWhenRequestedAndThenCached() {
+        when(providerRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class))).thenReturn(List.of());
+        when(providerRepository.count()).thenReturn(42L);
+
+        assertNull(service.getProvidersPage(null, 20, null, false).getTotalElements());
+        assertEquals(42L, service.getProvidersPage(null, 20, null, true).getTotalElements());
+        assertEquals(42L, service.getProvidersPage(null, 20, null, true).getTotalElements());
+        verify(providerRepository, times(1)).count();
+    }
+
+    private static List<HealthcareProvider> providers(long fromId, long toId) {
+        return LongStream.rangeClosed(fromId, toId)
+            .mapToObj(id -> HealthcareProvider.builder().id(id).name("Provider " + id).build())
+            .toList();
+    }
+}
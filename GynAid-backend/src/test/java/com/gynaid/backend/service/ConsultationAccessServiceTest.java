@@ -0,0 +1,86 @@
+package com.gynaid.backend.service;
+
+import com.gynaid.backend.entity.Consultation;
+import com.gynaid.backend.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ownership is decided on the participant ids of the projection, matched against the
+ * authenticated user's id, with no entity loaded
+ */
+@DataJpaTest(properties = {
+    "spring.flyway.enabled=false",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import(ConsultationAccessService.class)
+class ConsultationAccessServiceTest {
+
+    @Autowired
+    private ConsultationAccessService accessService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User client;
+    private User provider;
+    private User stranger;
+    private Long consultationId;
+
+    @BeforeEach
+    void setUp() {
+        client = entityManager.persist(user("client@example.com", User.UserRole.CLIENT));
+        provider = entityManager.persist(user("provider@example.com", User.UserRole.PROVIDER_INDIVIDUAL));
+        stranger = entityManager.persist(user("stranger@example.com", User.UserRole.CLIENT));
+        consultationId = entityManager.persist(Consultation.builder().client(client).provider(provider).build()).getId();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void participantsAreMatchedById() {
+        ConsultationAccessService.ConsultationParticipants participants = accessService.getParticipants(consultationId);
+
+        assertTrue(participants.isClient(client.getId()));
+        assertFalse(participants.isProvider(client.getId()));
+        assertTrue(participants.isProvider(provider.getId()));
+        assertFalse(participants.isClient(provider.getId()));
+        assertFalse(participants.isParticipant(stranger.getId()));
+        assertFalse(participants.isParticipant(null));
+    }
+
+    @Test
+    void participantsAreReadWithOneQueryAndCached() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        accessService.getParticipants(consultationId);
+        accessService.getParticipants(consultationId);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void unknownConsultationIsRejected() {
+        assertThrows(RuntimeException.class, () -> accessService.getParticipants(consultationId + 1));
+    }
+
+    private static User user(String email, User.UserRole role) {
+        return User.builder().email(email).password("hash").role(role).build();
+    }
+}
@@ -0,0 +1,168 @@
+package com.gynaid.backend.service;
+
+import com.gynaid.backend.event.ConsultationSessionChangedEvent;
+import com.gynaid.backend.repository.ConsultationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Concurrency and load tests for ConsultationSessionHub
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ConsultationSessionHubTest {
+
+    private static final String CLIENT = "client@example.com";
+    private static final String PROVIDER = "provider@example.com";
+
+    @Mock
+    private ConsultationRepository consultationRepository;
+
+    @Mock
+    private ConsultationRepository.ParticipantsRow participants;
+
+    private ConsultationSessionHub hub;
+
+    @BeforeEach
+    void setUp() {
+        when(participants.getClientEmail()).thenReturn(CLIENT);
+        when(participants.getProviderEmail()).thenReturn(PROVIDER);
+        when(consultationRepository.findParticipantsByRoomId(anyString())).thenReturn(Optional.of(participants));
+        hub = new ConsultationSessionHub(consultationRepository);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hub.shutdown();
+    }
+
+    @Test
+    void concurrentJoinsNeverExceedRoomCapacity() throws Exception {
+        int joiners = 64;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger joined = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < joiners; i++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                awaitQuietly(start);
+                try {
+                    hub.join("room-full", CLIENT);
+                    joined.incrementAndGet();
+                } catch (RuntimeException e) {
+                    rejected.incrementAndGet();
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(8, joined.get());
+        assertEquals(joiners - 8, rejected.get());
+        assertEquals(8, hub.getRoomConnectionCount());
+    }
+
+    @Test
+    void joinRacingWithTheLastLeaveNeverOrphansAConnection() throws Exception {
+        for (int i = 0; i < 500; i++) {
+            String roomId = "room-" + i;
+            hub.join(roomId, CLIENT);
+
+            CountDownLatch start = new CountDownLatch(1);
+            Thread closer = Thread.ofVirtual().start(() -> {
+                awaitQuietly(start);
+                hub.closeRoom(roomId, ConsultationSessionHub.SessionEvent.builder().type("SESSION_ENDED").build());
+            });
+            Thread joiner = Thread.ofVirtual().start(() -> {
+                awaitQuietly(start);
+                hub.join(roomId, PROVIDER);
+            });
+            start.countDown();
+            closer.join();
+            joiner.join();
+        }
+
+        // Closed rooms drain and disconnect asynchronously; every open connection must
+        // still be reachable through its room
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (hub.getOpenConnectionCount() != hub.getRoomConnectionCount() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(hub.getOpenConnectionCount(), hub.getRoomConnectionCount());
+    }
+
+    @Test
+    void committedTerminalEventClosesTheRoom() throws Exception {
+        hub.join("room-terminal", CLIENT);
+        hub.join("room-terminal", PROVIDER);
+
+        hub.onSessionChanged(new ConsultationSessionChangedEvent("room-terminal", "SESSION_ENDED", PROVIDER, null, true));
+
+        // Well under the 20s heartbeat poll: the terminal event itself wakes the senders
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!hub.getParticipants("room-terminal").isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(hub.getParticipants("room-terminal").isEmpty());
+        assertEquals(0, hub.getOpenConnectionCount());
+    }
+
+    /**
+     * Fan-out load: 10,000 sessions (20,000 connections) receiving 20 events each. The
+     * publisher only enqueues, so the whole run must stay fast and nobody is evicted.
+     */
+    @Test
+    void broadcastFanOutUnderLoad() {
+        int roomCount = 10_000;
+        int eventsPerRoom = 20;
+        for (int i = 0; i < roomCount; i++) {
+            hub.join("load-" + i, CLIENT);
+            hub.join("load-" + i, PROVIDER);
+        }
+
+        long started = System.nanoTime();
+        for (int e = 0; e < eventsPerRoom; e++) {
+            ConsultationSessionHub.SessionEvent event = ConsultationSessionHub.SessionEvent.builder()
+                .type("SIGNAL_ice")
+                .payload(e)
+                .build();
+            for (int i = 0; i < roomCount; i++) {
+                hub.broadcast("load-" + i, event);
+            }
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertEquals(roomCount * 2, hub.getOpenConnectionCount());
+        assertEquals(roomCount * 2, hub.getRoomConnectionCount());
+        assertTrue(elapsedMillis < 20_000,
+            "Enqueueing " + roomCount * 2 * eventsPerRoom + " deliveries took " + elapsedMillis + " ms");
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.gynaid.backend.service;
+
+import com.gynaid.backend.entity.EncryptionDataKey;
+import com.gynaid.backend.repository.EncryptionDataKeyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for FieldLevelEncryptionService key handling, envelope encryption and the
+ * per-thread cipher and buffer reuse
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class FieldLevelEncryptionServiceTest {
+
+    private static final String MASTER_KEY = Base64.getEncoder().encodeToString(new byte[32]);
+    private static final String OTHER_MASTER_KEY = Base64.getEncoder().encodeToString(filled(32, (byte) 7));
+
+    @Mock
+    private EncryptionDataKeyRepository dataKeyRepository;
+
+    private final AtomicReference<EncryptionDataKey> storedKey = new AtomicReference<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        when(dataKeyRepository.findByMasterKeyVersionNot(anyString())).thenReturn(List.of());
+        when(dataKeyRepository.findFirstByActiveTrueOrderByIdDesc())
+            .thenAnswer(invocation -> Optional.ofNullable(storedKey.get()));
+        when(dataKeyRepository.findById(anyLong()))
+            .thenAnswer(invocation -> Optional.ofNullable(storedKey.get()));
+        when(dataKeyRepository.save(any(EncryptionDataKey.class))).thenAnswer(invocation -> {
+            EncryptionDataKey row = invocation.getArgument(0);
+            if (row.getId() == null) {
+                row.setId(ids.incrementAndGet());
+            }
+            storedKey.set(row);
+            return row;
+        });
+    }
+
+    @Test
+    void missingMasterKeyFailsStartupOutsideDev() {
+        MockEnvironment prod = new MockEnvironment();
+        prod.setActiveProfiles("prod");
+
+        assertThrows(IllegalStateException.class, () -> newService(prod, ""));
+    }
+
+    @Test
+    void missingMasterKeyIsGeneratedInDev() {
+        MockEnvironment dev = new MockEnvironment();
+        dev.setActiveProfiles("dev");
+
+        FieldLevelEncryptionService service = newService(dev, "");
+        service.initializeDataKeys();
+
+        String encrypted = service.encryptValue("pelvic pain");
+        assertEquals("pelvic pain", service.decryptValue(encrypted));
+    }
+
+    @Test
+    void invalidMasterKeyFailsStartup() {
+        assertThrows(IllegalStateException.class,
+            () -> newService(new MockEnvironment(), Base64.getEncoder().encodeToString(new byte[16])));
+    }
+
+    @Test
+    void valuesSurviveRestartWithTheSameMasterKey() {
+        FieldLevelEncryptionService first = newService(new MockEnvironment(), MASTER_KEY);
+        first.initializeDataKeys();
+        String encrypted = first.encryptValue("endometriosis");
+        // The first start creates the data key and retires any others
+        clearInvocations(dataKeyRepository);
+
+        FieldLevelEncryptionService restarted = newService(new MockEnvironment(), MASTER_KEY);
+        restarted.initializeDataKeys();
+
+        assertEquals("endometriosis", restarted.decryptValue(encrypted));
+        verify(dataKeyRepository, never()).retireAllExcept(anyLong(), any());
+        assertEquals(first.getActiveDataKeyId(), restarted.getActiveDataKeyId());
+    }
+
+    @Test
+    void unwrappableActiveDataKeyRefusesToStartInsteadOfRotating() {
+        newService(new MockEnvironment(), OTHER_MASTER_KEY).initializeDataKeys();
+        clearInvocations(dataKeyRepository);
+
+        FieldLevelEncryptionService wrongKey = newService(new MockEnvironment(), MASTER_KEY);
+
+        assertThrows(IllegalStateException.class, wrongKey::initializeDataKeys);
+        verify(dataKeyRepository, never()).save(any());
+        verify(dataKeyRepository, never()).retireAllExcept(anyLong(), any());
+    }
+
+    @Test
+    void plaintextStoredBeforeEncryptionIsReturnedAsIs() {
+        FieldLevelEncryptionService service = newService(new MockEnvironment(), MASTER_KEY);
+        service.initializeDataKeys();
+
+        assertEquals("Jane Doe", service.decryptValue("Jane Doe"));
+        assertEquals("+256700123456", service.decryptValue("+256700123456"));
+    }
+
+    @Test
+    void undecryptableHeaderlessCiphertextFails() {
+        FieldLevelEncryptionService other = newService(new MockEnvironment(), OTHER_MASTER_KEY);
+        other.initializeDataKeys();
+        String foreign = Base64.getEncoder().encodeToString(filled(48, (byte) 3));
+
+        assertThrows(RuntimeException.class, () -> other.decryptValue(foreign));
+    }
+
+    @Test
+    void valuesAroundBufferSizesRoundTrip() {
+        FieldLevelEncryptionService service = newService(new MockEnvironment(), MASTER_KEY);
+        service.initializeDataKeys();
+
+        // Around the initial 1 KB buffers, the 64 KB retention limit and well past it
+        int[] lengths = {1, 15, 16, 17, 700, 767, 768, 769, 1023, 1024, 1025, 4096,
+            48 * 1024, 64 * 1024 - 1, 64 * 1024, 64 * 1024 + 1, 1024 * 1024};
+        for (int length : lengths) {
+            String value = text(length, new Random(length));
+            assertEquals(value, service.decryptValue(service.encryptValue(value)), "length " + length);
+        }
+        // Back down after the buffers grew: a shorter value must not pick up stale bytes
+        for (int i = lengths.length - 1; i >= 0; i--) {
+            String value = text(lengths[i], new Random(-lengths[i]));
+            assertEquals(value, service.decryptValue(service.encryptValue(value)), "length " + lengths[i]);
+        }
+    }
+
+    @Test
+    void multiByteValuesRoundTripThroughReusedBuffers() {
+        FieldLevelEncryptionService service = newService(new MockEnvironment(), MASTER_KEY);
+        service.initializeDataKeys();
+
+        String large = "Ekyenda kirumya \u00e9\u00e8 \u2013 \uD83E\uDE7A ".repeat(4_000);
+        String small = "\u00e9t\u00e9";
+
+        assertEquals(large, service.decryptValue(service.encryptValue(large)));
+        assertEquals(small, service.decryptValue(service.encryptValue(small)));
+        assertEquals(large, service.decryptValue(service.encryptValue(large)));
+    }
+
+    @Test
+    void reusedCipherNeverRepeatsAnIv() {
+        FieldLevelEncryptionService service = newService(new MockEnvironment(), MASTER_KEY);
+        service.initializeDataKeys();
+
+        Set<String> ivs = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            String encrypted = service.encryptValue("same value");
+            byte[] combined = Base64.getDecoder().decode(encrypted.substring(encrypted.lastIndexOf('$') + 1));
+            assertTrue(ivs.add(Base64.getEncoder().encodeToString(Arrays.copyOf(combined, 12))));
+        }
+    }
+
+    @Test
+    void failedDecryptLeavesThreadCipherUsable() {
+        FieldLevelEncryptionService service = newService(new MockEnvironment(), MASTER_KEY);
+        service.initializeDataKeys();
+        String encrypted = service.encryptValue(text(2_000, new Random(1)));
+        String tampered = encrypted.substring(0, encrypted.length() - 6)
+            + (encrypted.charAt(encrypted.length() - 6) == 'A' ? 'B' : 'A') + encrypted.substring(encrypted.length() - 5);
+
+        assertThrows(RuntimeException.class, () -> service.decryptValue(tampered));
+
+        assertEquals("after failure", service.decryptValue(service.encryptValue("after failure")));
+        assertEquals(text(2_000, new Random(1)), service.decryptValue(encrypted));
+    }
+
+    @Test
+    void batchRoundTripKeepsNullAndBlankPositions() {
+        FieldLevelEncryptionService service = newService(new MockEnvironment(), MASTER_KEY);
+        service.initializeDataKeys();
+        List<String> values = Arrays.asList("cramps", null, " ", text(70_000, new Random(2)), "", "spotting");
+
+        List<String> encrypted = service.encryptAll("medical_history", values);
+
+        assertNull(encrypted.get(1));
+        assertEquals(" ", encrypted.get(2));
+        assertEquals("", encrypted.get(4));
+        assertEquals(values, service.decryptAll("medical_history", encrypted));
+    }
+
+    @Test
+    void concurrentRoundTripsDoNotShareState() throws Exception {
+        FieldLevelEncryptionService service = newService(new MockEnvironment(), MASTER_KEY);
+        service.initializeDataKeys();
+        int threads = 8;
+        int perThread = 400;
+        ConcurrentHashMap<String, String> written = new ConcurrentHashMap<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    Random random = new Random(seed);
+                    for (int i = 0; i < perThread; i++) {
+                        // Mostly short fields with the odd value past the retained buffer size
+                        int length = i % 50 == 0 ? 70_000 + random.nextInt(1_000) : 1 + random.nextInt(3_000);
+                        String value = seed + ":" + i + ":" + text(length, random);
+                        String encrypted = service.encryptValue(value);
+                        assertEquals(value, service.decryptValue(encrypted));
+                        written.put(encrypted, value);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+
+            // Every thread reads back values written by the others
+            List<String> ciphertexts = new ArrayList<>(written.keySet());
+            futures.clear();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = offset; i < ciphertexts.size(); i += threads) {
+                        String encrypted = ciphertexts.get((i + ciphertexts.size() / 2) % ciphertexts.size());
+                        assertEquals(written.get(encrypted), service.decryptValue(encrypted));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads * perThread, written.size());
+    }
+
+    private static String text(int length, Random random) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append((char) (' ' + random.nextInt(95)));
+        }
+        return text.toString();
+    }
+
+    private FieldLevelEncryptionService newService(MockEnvironment environment, String key) {
+        return new FieldLevelEncryptionService(dataKeyRepository, environment, key, "v1", "", 64);
+    }
+
+    private static byte[] filled(int length, byte value) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, value);
+        return bytes;
+    }
+}
@@ -0,0 +1,184 @@
+package com.gynaid.backend.service;
+
+import com.gynaid.backend.config.RedisConfig;
+import com.warrenstrange.googleauth.GoogleAuthenticator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for MFAService's Lua scripts against a real Redis, including the login latency
+ * of the one-call verify next to the same checks issued one command at a time
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class MFAServiceTest {
+
+    private static final Logger log = LoggerFactory.getLogger(MFAServiceTest.class);
+
+    private static final String USER_ID = "42";
+    private static final int THREADS = 8;
+    private static final int RUNS = 200;
+
+    @Container
+    private static final GenericContainer<?> redis = new GenericContainer<>(DockerImageName.parse("redis:7-alpine"))
+        .withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, Object> redisTemplate;
+
+    private final GoogleAuthenticator googleAuthenticator = new GoogleAuthenticator();
+
+    private MFAService service;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(redis.getHost(), redis.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+
+        QRCodeGenerator qrCodeGenerator = mock(QRCodeGenerator.class);
+        when(qrCodeGenerator.generateQRCode(anyString())).thenReturn("data:image/png;base64,");
+        service = new MFAService(redisTemplate, qrCodeGenerator);
+        ReflectionTestUtils.setField(service, "backupCodesCount", 10);
+        ReflectionTestUtils.setField(service, "backupCodeLength", 8);
+    }
+
+    @Test
+    void enablesAndVerifiesTotp() {
+        String secret = setUpAndEnable();
+
+        assertTrue(service.isMFAEnabled(USER_ID));
+        assertTrue(service.verifyTOTP(USER_ID, totp(secret)).getSuccess());
+        String wrongCode = String.format("%06d", (Integer.parseInt(totp(secret)) + 500_000) % 1_000_000);
+        assertFalse(service.verifyTOTP(USER_ID, wrongCode).getSuccess());
+    }
+
+    @Test
+    void rejectsVerifyBeforeEnable() {
+        service.generateMFASetup(USER_ID);
+        String secret = (String) redisTemplate.opsForHash().get("mfa_setup:{" + USER_ID + "}", "secret");
+
+        assertFalse(service.isMFAEnabled(USER_ID));
+        assertFalse(service.verifyTOTP(USER_ID, totp(secret)).getSuccess());
+    }
+
+    @Test
+    void concurrentLoginsSpendBackupCodeOnce() throws Exception {
+        setUpAndEnable();
+        String backupCode = String.valueOf(backupCodes().iterator().next());
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Boolean>> futures = new ArrayList<>(THREADS);
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return service.verifyTOTP(USER_ID, backupCode).getSuccess();
+                }));
+            }
+            start.countDown();
+            int accepted = 0;
+            for (Future<Boolean> future : futures) {
+                accepted += future.get(10, TimeUnit.SECONDS) ? 1 : 0;
+            }
+            assertEquals(1, accepted);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertFalse(backupCodes().contains(backupCode));
+        assertEquals(Boolean.TRUE, redisTemplate.hasKey("mfa_used:{" + USER_ID + "}:" + backupCode));
+    }
+
+    @Test
+    void scriptedLoginIsNotSlowerThanSeparateCommands() {
+        String secret = setUpAndEnable();
+        String setupKey = "mfa_setup:{" + USER_ID + "}";
+        String backupKey = "mfa_backup:{" + USER_ID + "}";
+
+        long scriptNanos = medianNanos(() -> service.verifyTOTP(USER_ID, totp(secret)).getSuccess());
+        long commandsNanos = medianNanos(() -> {
+            // Enabled flag and secret, backup code lookup, then the TOTP check
+            List<Object> state = redisTemplate.opsForHash().multiGet(setupKey, List.<Object>of("enabled", "secret"));
+            String code = totp(secret);
+            redisTemplate.opsForSet().isMember(backupKey, code);
+            return "1".equals(state.get(0))
+                && googleAuthenticator.authorize(String.valueOf(state.get(1)), Integer.parseInt(code));
+        });
+        log.info("MFA login: script {} us, separate commands {} us", scriptNanos / 1_000, commandsNanos / 1_000);
+
+        assertTrue(scriptNanos <= commandsNanos,
+            "script took " + scriptNanos + " ns, separate commands " + commandsNanos + " ns");
+    }
+
+    private String setUpAndEnable() {
+        assertTrue((Boolean) ReflectionTestUtils.getField(service.generateMFASetup(USER_ID), "success"));
+        String secret = (String) redisTemplate.opsForHash().get("mfa_setup:{" + USER_ID + "}", "secret");
+        assertNotNull(secret);
+        MFAService.MFAEnableResult enabled = service.enableMFA(USER_ID, secret, totp(secret));
+        assertTrue((Boolean) ReflectionTestUtils.getField(enabled, "success"));
+        return secret;
+    }
+
+    private Set<Object> backupCodes() {
+        return redisTemplate.opsForSet().members("mfa_backup:{" + USER_ID + "}");
+    }
+
+    private String totp(String secret) {
+        return String.format("%06d", googleAuthenticator.getTotpPassword(secret));
+    }
+
+    private static long medianNanos(Supplier<Boolean> login) {
+        for (int i = 0; i < RUNS; i++) {
+            assertTrue(login.get());
+        }
+        long[] timings = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long started = System.nanoTime();
+            login.get();
+            timings[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(timings);
+        return timings[RUNS / 2];
+    }
+}
@@ -0,0 +1,108 @@
+package com.gynaid.backend.service;
+
+import com.gynaid.backend.entity.client.ClientHealthProfile;
+import com.gynaid.backend.entity.client.MedicalHistory;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for PhiBlindIndexService key handling and per-transaction batching
+ */
+@ExtendWith(MockitoExtension.class)
+class PhiBlindIndexServiceTest {
+
+    private static final String INDEX_KEY = Base64.getEncoder().encodeToString(new byte[32]);
+    private static final String DELETE_SQL = "DELETE FROM phi_blind_index WHERE source_table = ? AND source_id = ?";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private FieldLevelEncryptionService encryptionService;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void missingIndexKeyFailsStartupOutsideDev() {
+        MockEnvironment prod = new MockEnvironment();
+        prod.setActiveProfiles("prod");
+
+        assertThrows(IllegalStateException.class,
+            () -> new PhiBlindIndexService(jdbcTemplate, encryptionService, prod, ""));
+        verifyNoInteractions(encryptionService);
+    }
+
+    @Test
+    void shortIndexKeyFailsStartup() {
+        String shortKey = Base64.getEncoder().encodeToString(new byte[16]);
+
+        assertThrows(IllegalStateException.class,
+            () -> new PhiBlindIndexService(jdbcTemplate, encryptionService, new MockEnvironment(), shortKey));
+    }
+
+    @Test
+    void entitiesFlushedAfterTheCommitBatchAreStillIndexed() {
+        PhiBlindIndexService service = new PhiBlindIndexService(jdbcTemplate, encryptionService, new MockEnvironment(), INDEX_KEY);
+        ReflectionTestUtils.setField(service, "entityManager", entityManager);
+        TransactionSynchronizationManager.initSynchronization();
+
+        service.enqueue(history(1L, "Endometriosis"), false);
+        verifyNoInteractions(jdbcTemplate);
+
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        verify(entityManager).flush();
+        verify(jdbcTemplate, times(1)).batchUpdate(eq(DELETE_SQL), anyList());
+
+        // e.g. flushed by a later before-commit synchronization
+        service.enqueue(history(2L, "Fibroids"), false);
+        verify(jdbcTemplate, times(2)).batchUpdate(eq(DELETE_SQL), anyList());
+        verify(jdbcTemplate, times(2)).batchUpdate(startsWith("INSERT INTO phi_blind_index"), anyList());
+    }
+
+    @Test
+    void sameKeyProducesStableTokensAcrossInstances() {
+        PhiBlindIndexService first = new PhiBlindIndexService(jdbcTemplate, encryptionService, new MockEnvironment(), INDEX_KEY);
+        PhiBlindIndexService restarted = new PhiBlindIndexService(jdbcTemplate, encryptionService, new MockEnvironment(), INDEX_KEY);
+
+        first.findProfilesByExactValue(PhiBlindIndexService.ALLERGIES, "Penicillin");
+        restarted.findProfilesByExactValue(PhiBlindIndexService.ALLERGIES, "penicillin ");
+
+        ArgumentCaptor<Object> tokens = ArgumentCaptor.forClass(Object.class);
+        verify(jdbcTemplate, times(2)).queryForList(anyString(), eq(Long.class),
+            eq(PhiBlindIndexService.ALLERGIES), tokens.capture());
+        assertEquals(tokens.getAllValues().get(0), tokens.getAllValues().get(1));
+    }
+
+    private static MedicalHistory history(Long id, String chronicConditions) {
+        MedicalHistory history = MedicalHistory.builder()
+            .id(id)
+            .healthProfile(ClientHealthProfile.builder().id(10L + id).build())
+            .build();
+        history.setChronicConditions(chronicConditions);
+        return history;
+    }
+}
@@ -0,0 +1,110 @@
+package com.gynaid.backend.service;
+
+import com.gynaid.backend.entity.ProviderEarningsDaily;
+import com.gynaid.backend.event.ProviderEarningsChangedEvent;
+import com.gynaid.backend.repository.PaymentRepository;
+import com.gynaid.backend.repository.ProviderEarningsDailyRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the provider earnings rollup booking rules
+ */
+@ExtendWith(MockitoExtension.class)
+class ProviderEarningsServiceTest {
+
+    private static final LocalDate PAID_DAY = LocalDate.of(2026, 3, 2);
+    private static final LocalDate REFUND_DAY = LocalDate.of(2026, 3, 5);
+
+    @Mock
+    private ProviderEarningsDailyRepository earningsRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @InjectMocks
+    private ProviderEarningsService earningsService;
+
+    @Test
+    void partialRefundReversesOnlyTheRefundedPortion() {
+        assertEquals(new BigDecimal("25.50"),
+            ProviderEarningsService.refundedPortion(new BigDecimal("85.00"), new BigDecimal("30.00"), new BigDecimal("100.00")));
+        assertEquals(new BigDecimal("85.00"),
+            ProviderEarningsService.refundedPortion(new BigDecimal("85.00"), new BigDecimal("100.00"), new BigDecimal("100.00")));
+    }
+
+    @Test
+    void firstBookingOfTheDayCreatesTheBucketAndIncrementsIt() {
+        when(earningsRepository.increment(eq(7L), eq(PAID_DAY), any(), any(), any(), anyLong(), anyLong(), any()))
+            .thenReturn(0, 1);
+        when(earningsRepository.createBucket(eq(7L), eq(PAID_DAY), any()))
+            .thenThrow(new DataIntegrityViolationException("uk_earnings_daily_provider_date"));
+
+        earningsService.onEarningsChanged(new ProviderEarningsChangedEvent(7L, 1L, new BigDecimal("100.00"),
+            new BigDecimal("85.00"), new BigDecimal("15.00"), false, PAID_DAY.atTime(10, 0)));
+
+        verify(earningsRepository, times(2)).increment(eq(7L), eq(PAID_DAY), eq(new BigDecimal("100.00")),
+            eq(new BigDecimal("85.00")), eq(new BigDecimal("15.00")), eq(1L), eq(0L), any());
+        verify(earningsRepository, never()).save(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rebuildBooksRefundsOnTheRefundDayLikeTheLivePath() {
+        PaymentRepository.DailyEarningsRow paid = mock(PaymentRepository.DailyEarningsRow.class);
+        when(paid.getProviderId()).thenReturn(7L);
+        when(paid.getDay()).thenReturn(PAID_DAY);
+        when(paid.getGrossAmount()).thenReturn(new BigDecimal("100.00"));
+        when(paid.getProviderShare()).thenReturn(new BigDecimal("85.00"));
+        when(paid.getPlatformFee()).thenReturn(new BigDecimal("15.00"));
+        when(paid.getPayments()).thenReturn(1L);
+
+        PaymentRepository.RefundRow refund = mock(PaymentRepository.RefundRow.class);
+        when(refund.getProviderId()).thenReturn(7L);
+        when(refund.getRefundedAt()).thenReturn(REFUND_DAY.atTime(9, 0));
+        when(refund.getAmount()).thenReturn(new BigDecimal("100.00"));
+        when(refund.getRefundedAmount()).thenReturn(new BigDecimal("40.00"));
+        when(refund.getProviderShare()).thenReturn(new BigDecimal("85.00"));
+        when(refund.getPlatformFee()).thenReturn(new BigDecimal("15.00"));
+
+        when(paymentRepository.sumDailyProviderEarnings(any(LocalDateTime.class), any(LocalDateTime.class)))
+            .thenReturn(List.of(paid));
+        when(paymentRepository.findRefundsForEarnings(any(LocalDateTime.class), any(LocalDateTime.class)))
+            .thenReturn(List.of(refund));
+
+        assertEquals(2, earningsService.rebuild(PAID_DAY.withDayOfMonth(1), PAID_DAY.plusMonths(1)));
+
+        ArgumentCaptor<Iterable<ProviderEarningsDaily>> saved = ArgumentCaptor.forClass(Iterable.class);
+        verify(earningsRepository).saveAll(saved.capture());
+        List<ProviderEarningsDaily> rows = new ArrayList<>();
+        saved.getValue().forEach(rows::add);
+
+        ProviderEarningsDaily paidDay = rows.get(0);
+        assertEquals(PAID_DAY, paidDay.getEarningsDate());
+        assertEquals(new BigDecimal("100.00"), paidDay.getGrossAmount());
+        assertEquals(1L, paidDay.getPaymentCount());
+        assertEquals(0L, paidDay.getRefundCount());
+
+        ProviderEarningsDaily refundDay = rows.get(1);
+        assertEquals(REFUND_DAY, refundDay.getEarningsDate());
+        assertEquals(new BigDecimal("-40.00"), refundDay.getGrossAmount());
+        assertEquals(new BigDecimal("-34.00"), refundDay.getProviderShare());
+        assertEquals(new BigDecimal("-6.00"), refundDay.getPlatformFee());
+        assertEquals(1L, refundDay.getRefundCount());
+    }
+}
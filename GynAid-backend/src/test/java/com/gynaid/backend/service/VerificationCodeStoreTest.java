@@ -0,0 +1,190 @@
+package com.gynaid.backend.service;
+
+import com.gynaid.backend.config.RedisConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for VerificationCodeStore's Lua scripts against a real Redis. The latency test
+ * compares the single-call verify with the same reads and deletes issued one command at
+ * a time, the shape of the flow before the scripts; it logs both medians and only
+ * asserts the script is not slower.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class VerificationCodeStoreTest {
+
+    private static final Logger log = LoggerFactory.getLogger(VerificationCodeStoreTest.class);
+
+    private static final String CODE_KEY = "verification:{+256772123456}";
+    private static final String RESEND_KEY = "verification_resend:{+256772123456}";
+    private static final Duration TTL = Duration.ofMinutes(10);
+    private static final Duration RESEND_DELAY = Duration.ofMinutes(1);
+    private static final int THREADS = 8;
+    private static final int RUNS = 200;
+
+    @Container
+    private static final GenericContainer<?> redis = new GenericContainer<>(DockerImageName.parse("redis:7-alpine"))
+        .withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, Object> redisTemplate;
+
+    private VerificationCodeStore store;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(redis.getHost(), redis.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+        store = new VerificationCodeStore(redisTemplate);
+    }
+
+    @Test
+    void verifiesCodeAndReturnsStoredFields() {
+        assertEquals(0, store.issue(CODE_KEY, RESEND_KEY, "123456", TTL, RESEND_DELAY, Map.of("userId", "42")));
+
+        VerificationCodeStore.Outcome outcome = store.verify(CODE_KEY, "123456", 3, RESEND_KEY);
+
+        assertEquals(VerificationCodeStore.Status.VERIFIED, outcome.status());
+        assertEquals("123456", outcome.fields().get("code"));
+        assertEquals("42", outcome.fields().get("userId"));
+        assertEquals(Boolean.FALSE, redisTemplate.hasKey(CODE_KEY));
+        assertEquals(Boolean.FALSE, redisTemplate.hasKey(RESEND_KEY));
+        assertEquals(VerificationCodeStore.Status.NOT_FOUND, store.verify(CODE_KEY, "123456", 3).status());
+    }
+
+    @Test
+    void blocksResendUntilDelayPasses() {
+        assertEquals(0, store.issue(CODE_KEY, RESEND_KEY, "111111", TTL, RESEND_DELAY, Map.of()));
+
+        long wait = store.issue(CODE_KEY, RESEND_KEY, "222222", TTL, RESEND_DELAY, Map.of());
+
+        assertTrue(wait > 0 && wait <= RESEND_DELAY.toSeconds());
+        assertEquals(VerificationCodeStore.Status.VERIFIED, store.verify(CODE_KEY, "111111", 3).status());
+    }
+
+    @Test
+    void concurrentIssuesStoreOneCode() throws Exception {
+        List<Long> waits = runConcurrently(i -> store.issue(CODE_KEY, RESEND_KEY, String.format("%06d", i),
+            TTL, RESEND_DELAY, Map.of()));
+
+        assertEquals(1, waits.stream().filter(wait -> wait == 0).count());
+    }
+
+    @Test
+    void concurrentWrongCodesSpendEachAttemptOnce() throws Exception {
+        store.issue(CODE_KEY, RESEND_KEY, "123456", TTL, RESEND_DELAY, Map.of());
+
+        List<VerificationCodeStore.Outcome> outcomes = runConcurrently(i -> store.verify(CODE_KEY, "000000", 3));
+
+        List<Integer> invalidAttempts = outcomes.stream()
+            .filter(outcome -> outcome.status() == VerificationCodeStore.Status.INVALID)
+            .map(VerificationCodeStore.Outcome::attempts)
+            .sorted()
+            .toList();
+        assertEquals(List.of(1, 2, 3), invalidAttempts);
+        assertEquals(THREADS - 3, outcomes.stream()
+            .filter(outcome -> outcome.status() == VerificationCodeStore.Status.MAX_ATTEMPTS)
+            .count());
+        assertEquals(VerificationCodeStore.Status.MAX_ATTEMPTS, store.verify(CODE_KEY, "123456", 3).status());
+    }
+
+    @Test
+    void scriptedVerifyIsNotSlowerThanSeparateCommands() {
+        long scriptNanos = medianVerifyNanos(() -> store.verify(CODE_KEY, "123456", 3, RESEND_KEY));
+        long commandsNanos = medianVerifyNanos(() -> {
+            // HMGET to compare, HGETALL for the fields, DEL of both keys
+            redisTemplate.opsForHash().multiGet(CODE_KEY, List.<Object>of("code", "attempts"));
+            redisTemplate.opsForHash().entries(CODE_KEY);
+            redisTemplate.delete(List.of(CODE_KEY, RESEND_KEY));
+        });
+        log.info("Verify a code: script {} us, separate commands {} us", scriptNanos / 1_000, commandsNanos / 1_000);
+
+        assertTrue(scriptNanos <= commandsNanos,
+            "script took " + scriptNanos + " ns, separate commands " + commandsNanos + " ns");
+    }
+
+    private long medianVerifyNanos(Runnable verify) {
+        for (int i = 0; i < RUNS; i++) {
+            store.issue(CODE_KEY, RESEND_KEY, "123456", TTL, RESEND_DELAY, Map.of("userId", "42"));
+            verify.run();
+        }
+        long[] timings = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            store.issue(CODE_KEY, RESEND_KEY, "123456", TTL, RESEND_DELAY, Map.of("userId", "42"));
+            long started = System.nanoTime();
+            verify.run();
+            timings[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(timings);
+        return timings[RUNS / 2];
+    }
+
+    private static <T> List<T> runConcurrently(IndexedCall<T> call) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>(THREADS);
+            for (int i = 0; i < THREADS; i++) {
+                int index = i;
+                Callable<T> task = () -> {
+                    start.await();
+                    return call.call(index);
+                };
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>(THREADS);
+            for (Future<T> future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface IndexedCall<T> {
+        T call(int index) throws Exception;
+    }
+}
@@ -0,0 +1,135 @@
+package com.gynaid.backend.service.ai;
+
+import com.gynaid.backend.entity.client.CycleStatistics;
+import com.gynaid.backend.repository.CyclePredictionRepository;
+import com.gynaid.backend.service.CycleStatisticsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the guarded prediction upsert
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CyclePredictionServiceTest {
+
+    private static final LocalDate LAST_PERIOD = LocalDate.of(2026, 9, 1);
+
+    @Mock
+    private CyclePredictionRepository predictionRepository;
+
+    @Mock
+    private CycleStatisticsService cycleStatisticsService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private DatabaseMetaData metaData;
+
+    private CyclePredictionService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+            .thenAnswer(invocation -> invocation.<ConnectionCallback<?>>getArgument(0).doInConnection(connection));
+        when(connection.getMetaData()).thenReturn(metaData);
+        service = new CyclePredictionService(predictionRepository, cycleStatisticsService, jdbcTemplate);
+    }
+
+    @Test
+    void postgresUpsertsOnConflictInsteadOfFailing() throws Exception {
+        when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[] {1});
+
+        assertEquals(1, service.upsertAll(List.of(computed(1L))));
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).batchUpdate(sql.capture(), anyList());
+        assertTrue(sql.getValue().contains("ON CONFLICT (gynecological_profile_id) DO UPDATE"));
+        assertTrue(sql.getValue().contains("FOR SHARE OF gp"));
+    }
+
+    @Test
+    void otherDatabasesMerge() throws Exception {
+        when(metaData.getDatabaseProductName()).thenReturn("H2");
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[] {1});
+
+        service.upsertAll(List.of(computed(1L)));
+        service.upsertAll(List.of(computed(2L)));
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(sql.capture(), anyList());
+        assertTrue(sql.getValue().startsWith("MERGE INTO cycle_predictions"));
+        // The product is looked up once
+        verify(connection, times(1)).getMetaData();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void upsertIsGuardedOnTheStateThePredictionWasComputedFrom() throws Exception {
+        when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[] {1});
+
+        service.upsertAll(List.of(computed(7L)));
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), rows.capture());
+        Object[] row = rows.getValue().get(0);
+        assertEquals(13, row.length);
+        assertEquals(7L, row[8]);
+        assertEquals(4, row[9]);
+        assertEquals(Date.valueOf(LAST_PERIOD), row[10]);
+        assertEquals(Date.valueOf(LAST_PERIOD), row[11]);
+        assertEquals(28, row[12]);
+    }
+
+    @Test
+    void stalePredictionsAreNotCounted() throws Exception {
+        when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        // The second profile logged a cycle after its statistics were read
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[] {1, 0, 1});
+
+        assertEquals(2, service.upsertAll(List.of(computed(1L), computed(2L), computed(3L))));
+    }
+
+    @Test
+    void emptyBatchDoesNotTouchTheDatabase() {
+        assertEquals(0, service.upsertAll(List.of()));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        verifyNoInteractions(connection);
+    }
+
+    private static CyclePredictionService.Computed computed(Long profileId) {
+        CycleStatistics statistics = CycleStatistics.empty();
+        for (int i = 0; i < 4; i++) {
+            statistics.add(LAST_PERIOD.minusDays(28L * (3 - i)), 28, 2);
+        }
+        return new CyclePredictionService.Computed(
+            CyclePredictionService.compute(profileId + 100, profileId, LAST_PERIOD, 28, statistics,
+                LocalDateTime.of(2026, 10, 1, 2, 30)),
+            LAST_PERIOD, 28, statistics);
+    }
+}
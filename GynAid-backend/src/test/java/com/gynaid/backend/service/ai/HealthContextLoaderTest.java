@@ -0,0 +1,105 @@
+package com.gynaid.backend.service.ai;
+
+import com.gynaid.backend.entity.User;
+import com.gynaid.backend.entity.client.ClientHealthProfile;
+import com.gynaid.backend.entity.client.GynecologicalProfile;
+import com.gynaid.backend.entity.client.MedicalVitals;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Statement counts of the health context load, read from Hibernate statistics. The
+ * profile path must stay one query however many of the one-to-ones the AI services read.
+ */
+@DataJpaTest(properties = {
+    "spring.flyway.enabled=false",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import(HealthContextLoader.class)
+class HealthContextLoaderTest {
+
+    @Autowired
+    private HealthContextLoader loader;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @Test
+    void loadsUserAndProfilesInOneStatement() {
+        User user = entityManager.persist(user("client@example.com"));
+        ClientHealthProfile profile = entityManager.persist(ClientHealthProfile.builder().user(user).build());
+        entityManager.persist(GynecologicalProfile.builder()
+            .healthProfile(profile)
+            .averageCycleLength(29)
+            .lastPeriodDate(LocalDate.of(2026, 9, 20))
+            .build());
+        entityManager.persist(MedicalVitals.builder().healthProfile(profile).heightCm(165.0).weightKg(60.0).build());
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        HealthContext context = loader.load(user.getId());
+
+        // Everything the AI services read off the context, none of it may hit the database
+        assertEquals("client@example.com", context.getUser().getEmail());
+        assertEquals(29, context.getGynecologicalProfile().getAverageCycleLength());
+        assertEquals(165.0, context.getHealthProfile().getMedicalVitals().getHeightCm());
+        assertNull(context.getHealthProfile().getMedicalHistory());
+        assertNull(context.getUser().getProviderVerification());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityFetchCount());
+    }
+
+    @Test
+    void fallsBackToUserWithoutHealthProfile() {
+        User user = entityManager.persist(user("new@example.com"));
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        HealthContext context = loader.load(user.getId());
+
+        assertEquals("new@example.com", context.getUser().getEmail());
+        assertNull(context.getHealthProfile());
+        assertTrue(statistics.getPrepareStatementCount() >= 2);
+    }
+
+    @Test
+    void rejectsUnknownUser() {
+        assertThrows(RuntimeException.class, () -> loader.load(Long.MAX_VALUE));
+    }
+
+    private static User user(String email) {
+        return User.builder()
+            .email(email)
+            .password("hash")
+            .firstName("Test")
+            .lastName("Client")
+            .role(User.UserRole.CLIENT)
+            .build();
+    }
+}
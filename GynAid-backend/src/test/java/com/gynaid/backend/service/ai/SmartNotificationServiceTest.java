@@ -0,0 +1,200 @@
+package com.gynaid.backend.service.ai;
+
+import com.gynaid.backend.entity.User;
+import com.gynaid.backend.entity.ai.SmartNotification;
+import com.gynaid.backend.repository.SmartNotificationRepository;
+import com.gynaid.backend.repository.UserRepository;
+import com.gynaid.backend.service.SchedulerLeaseService;
+import com.gynaid.backend.service.notification.NotificationChannel;
+import com.gynaid.backend.service.notification.NotificationDispatchService;
+import com.gynaid.backend.service.notification.OutboundNotification;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Generated reminders go through the real dispatcher: scheduled into the timing wheel,
+ * handed to the channel for the user's contact details on the next tick and marked SENT.
+ *
+ * Not transactional, as the dispatcher reads and updates the rows on its own threads.
+ */
+@DataJpaTest(properties = {
+    "spring.flyway.enabled=false",
+    "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SmartNotificationServiceTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SmartNotificationRepository notificationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final HealthContextLoader healthContextLoader = mock(HealthContextLoader.class);
+    private final PredictiveAnalyticsService predictiveAnalyticsService = mock(PredictiveAnalyticsService.class);
+    private final RecordingChannel smsChannel = new RecordingChannel(SmartNotification.DeliveryChannel.SMS);
+    private final RecordingChannel emailChannel = new RecordingChannel(SmartNotification.DeliveryChannel.EMAIL);
+
+    private NotificationDispatchService dispatchService;
+    private SmartNotificationService service;
+
+    @BeforeEach
+    void setUp() {
+        SchedulerLeaseService schedulerLeaseService = mock(SchedulerLeaseService.class);
+        when(schedulerLeaseService.tryAcquire(anyString(), anyInt())).thenReturn(true);
+
+        dispatchService = new NotificationDispatchService(jdbcTemplate, notificationRepository, schedulerLeaseService,
+            List.of(smsChannel, emailChannel), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(dispatchService, "enabled", true);
+        ReflectionTestUtils.setField(dispatchService, "lookaheadMinutes", 10);
+        ReflectionTestUtils.setField(dispatchService, "maxLatenessMinutes", 360);
+        ReflectionTestUtils.setField(dispatchService, "leaseSeconds", 120);
+        ReflectionTestUtils.setField(dispatchService, "pageSize", 5000);
+        ReflectionTestUtils.setField(dispatchService, "maxLoaded", 200000);
+        ReflectionTestUtils.setField(dispatchService, "batchSize", 100);
+        ReflectionTestUtils.setField(dispatchService, "maxAttempts", 3);
+        ReflectionTestUtils.setField(dispatchService, "retryDelaySeconds", 300);
+        ReflectionTestUtils.invokeMethod(dispatchService, "initialize");
+
+        service = new SmartNotificationService(userRepository, healthContextLoader, predictiveAnalyticsService,
+            mock(CyclePredictionService.class), notificationRepository, dispatchService);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        ReflectionTestUtils.invokeMethod(dispatchService, "shutdown");
+        notificationRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void remindersForUserWithPhoneAreSentBySms() throws InterruptedException {
+        User user = userRepository.save(user("amina@example.com", "0772 123456"));
+
+        List<Long> ids = generatePeriodReminders(user);
+        dispatchUntilSent(ids);
+
+        assertEquals(Set.copyOf(ids), Set.copyOf(smsChannel.ids()));
+        assertTrue(emailChannel.ids().isEmpty());
+        smsChannel.delivered.forEach(notification -> assertEquals("0772 123456", notification.phoneNumber()));
+    }
+
+    @Test
+    void remindersForUserWithoutPhoneAreSentByEmail() throws InterruptedException {
+        User user = userRepository.save(user("grace@example.com", null));
+
+        List<Long> ids = generatePeriodReminders(user);
+        dispatchUntilSent(ids);
+
+        assertEquals(Set.copyOf(ids), Set.copyOf(emailChannel.ids()));
+        assertTrue(smsChannel.ids().isEmpty());
+        emailChannel.delivered.forEach(notification -> assertEquals("grace@example.com", notification.email()));
+    }
+
+    /**
+     * Period reminders for a period predicted yesterday, so both are already due when
+     * they reach the wheel
+     */
+    private List<Long> generatePeriodReminders(User user) {
+        HealthContext context = new HealthContext(user, null);
+        when(healthContextLoader.load(user.getId())).thenReturn(context);
+        when(predictiveAnalyticsService.predictNextPeriod(context)).thenReturn(LocalDate.now().minusDays(1));
+
+        // Take the lease and open the lookahead window, so scheduling goes straight into the wheel
+        dispatchService.loadUpcoming();
+        service.generateSmartNotifications(user.getId());
+
+        List<SmartNotification> stored = notificationRepository.findAll();
+        assertEquals(2, stored.size());
+        List<Long> ids = new ArrayList<>();
+        for (SmartNotification notification : stored) {
+            assertNotEquals(SmartNotification.DeliveryChannel.PUSH, notification.getChannel());
+            assertEquals(SmartNotification.DeliveryStatus.PENDING, notification.getStatus());
+            ids.add(notification.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Advance the wheel tick by tick until every outcome is recorded
+     */
+    private void dispatchUntilSent(List<Long> ids) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            dispatchService.dispatchDue();
+            if (notificationRepository.findAllById(ids).stream()
+                    .allMatch(n -> n.getStatus() == SmartNotification.DeliveryStatus.SENT)) {
+                break;
+            }
+            Thread.sleep(20);
+        }
+
+        for (SmartNotification notification : notificationRepository.findAllById(ids)) {
+            assertEquals(SmartNotification.DeliveryStatus.SENT, notification.getStatus());
+            assertTrue(notification.getIsSent());
+            assertNotNull(notification.getSentAt());
+            assertEquals(1, notification.getAttempts());
+        }
+    }
+
+    private static User user(String email, String phoneNumber) {
+        return User.builder()
+            .email(email)
+            .password("hash")
+            .phoneNumber(phoneNumber)
+            .role(User.UserRole.CLIENT)
+            .build();
+    }
+
+    private static final class RecordingChannel implements NotificationChannel {
+
+        private final SmartNotification.DeliveryChannel channel;
+        private final List<OutboundNotification> delivered = Collections.synchronizedList(new ArrayList<>());
+
+        RecordingChannel(SmartNotification.DeliveryChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public SmartNotification.DeliveryChannel channel() {
+            return channel;
+        }
+
+        @Override
+        public int maxConcurrency() {
+            return 1;
+        }
+
+        @Override
+        public Set<Long> send(List<OutboundNotification> batch) {
+            delivered.addAll(batch);
+            return Set.of();
+        }
+
+        List<Long> ids() {
+            return delivered.stream().map(OutboundNotification::id).toList();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.gynaid.backend.service.mail;
+
+import com.gynaid.backend.service.SchedulerLeaseService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for bulk fan-out, claims and recovery of stuck recipients
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class MailDispatchServiceTest {
+
+    private static final String JOB_ID = "6f1c2d3e-0000-4000-8000-000000000001";
+
+    @Mock
+    private JavaMailSender mailSender;
+
+    @Mock
+    private SmtpConnectionPool connectionPool;
+
+    @Mock
+    private OutboundEmailStore outboundEmailStore;
+
+    @Mock
+    private SchedulerLeaseService schedulerLeaseService;
+
+    private MailDispatchService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new MailDispatchService(mailSender, connectionPool, outboundEmailStore, schedulerLeaseService,
+            new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "fromEmail", "noreply@gyna-id.com");
+        ReflectionTestUtils.setField(service, "fromName", "GynAid");
+        ReflectionTestUtils.setField(service, "workers", 2);
+        ReflectionTestUtils.setField(service, "queueCapacity", 10);
+        ReflectionTestUtils.setField(service, "recipientsPerConnection", 2);
+        ReflectionTestUtils.setField(service, "recoveryEnabled", true);
+        ReflectionTestUtils.setField(service, "stuckMinutes", 10);
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "recoveryBatchSize", 500);
+        ReflectionTestUtils.setField(service, "recoveryLeaseSeconds", 120);
+        service.start();
+
+        when(mailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage((Session) null));
+        when(outboundEmailStore.claim(anyString(), anyList(), anyInt()))
+            .thenAnswer(invocation -> invocation.getArgument(1));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        service.stop();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void bulkSendStartsAfterCommitAndRecordsEveryBatch() throws InterruptedException {
+        TransactionSynchronizationManager.initSynchronization();
+
+        String jobId = service.submitBulk(
+            new String[] {"a@example.org", "b@example.org", "c@example.org", "a@example.org"},
+            "Clinic update", "<p>Hi</p>");
+
+        verify(outboundEmailStore).createJob(eq(jobId), eq("Clinic update"), eq("<p>Hi</p>"),
+            eq(List.of("a@example.org", "b@example.org", "c@example.org")), any());
+        verify(outboundEmailStore, never()).claim(anyString(), anyList(), anyInt());
+
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        service.stop();
+
+        verify(outboundEmailStore).claim(jobId, List.of("a@example.org", "b@example.org"), 0);
+        verify(outboundEmailStore).claim(jobId, List.of("c@example.org"), 0);
+        verify(mailSender, times(3)).send(any(MimeMessage.class));
+        verify(outboundEmailStore).record(jobId, List.of("a@example.org", "b@example.org"), Arrays.asList(null, null));
+        verify(outboundEmailStore).record(jobId, List.of("c@example.org"), Arrays.asList((String) null));
+    }
+
+    @Test
+    void batchThatLostItsClaimSendsNothing() throws InterruptedException {
+        when(outboundEmailStore.claim(anyString(), anyList(), anyInt())).thenReturn(List.of());
+
+        service.submitBulk(new String[] {"a@example.org"}, "Clinic update", "<p>Hi</p>");
+        service.stop();
+
+        verify(mailSender, never()).send(any(MimeMessage.class));
+        verify(outboundEmailStore, never()).record(anyString(), anyList(), anyList());
+    }
+
+    @Test
+    void failedSendIsRecordedAsFailed() throws InterruptedException {
+        doThrow(new MailSendException("mailbox unavailable"))
+            .when(mailSender).send(any(MimeMessage.class));
+
+        String jobId = service.submitBulk(new String[] {"a@example.org"}, "Clinic update", "<p>Hi</p>");
+        service.stop();
+
+        verify(outboundEmailStore).record(jobId, List.of("a@example.org"), List.of("mailbox unavailable"));
+    }
+
+    @Test
+    void recoveryResendsStuckRecipientsUnderTheirNewAttempt() throws InterruptedException {
+        when(schedulerLeaseService.tryAcquire(eq("mail-recovery"), anyInt())).thenReturn(true);
+        when(outboundEmailStore.reclaimStuck(any(), eq(3), eq(500))).thenReturn(List.of(
+            new OutboundEmailStore.Reclaimed(JOB_ID, "a@example.org", 1),
+            new OutboundEmailStore.Reclaimed(JOB_ID, "b@example.org", 2),
+            new OutboundEmailStore.Reclaimed(JOB_ID, "c@example.org", 1)));
+        when(outboundEmailStore.findJob(JOB_ID))
+            .thenReturn(Optional.of(new OutboundEmailStore.Job(JOB_ID, "Clinic update", "<p>Hi</p>")));
+
+        service.recoverStuck();
+        service.stop();
+
+        verify(outboundEmailStore).claim(JOB_ID, List.of("a@example.org", "c@example.org"), 1);
+        verify(outboundEmailStore).claim(JOB_ID, List.of("b@example.org"), 2);
+        verify(mailSender, times(3)).send(any(MimeMessage.class));
+    }
+
+    @Test
+    void recoveryRunsOnlyOnTheLeaseHolder() {
+        when(schedulerLeaseService.tryAcquire(eq("mail-recovery"), anyInt())).thenReturn(false);
+
+        service.recoverStuck();
+
+        verifyNoInteractions(outboundEmailStore);
+    }
+
+    @Test
+    void recipientsOfAJobWithoutStoredMailStayPending() throws InterruptedException {
+        when(schedulerLeaseService.tryAcquire(eq("mail-recovery"), anyInt())).thenReturn(true);
+        when(outboundEmailStore.reclaimStuck(any(), anyInt(), anyInt()))
+            .thenReturn(List.of(new OutboundEmailStore.Reclaimed(JOB_ID, "a@example.org", 1)));
+        when(outboundEmailStore.findJob(JOB_ID)).thenReturn(Optional.empty());
+
+        service.recoverStuck();
+        service.stop();
+
+        verify(outboundEmailStore, never()).claim(anyString(), anyList(), anyInt());
+        verifyNoInteractions(mailSender);
+    }
+}
@@ -0,0 +1,89 @@
+package com.gynaid.backend.service.mail;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.spring6.templateresolver.SpringResourceTemplateResolver;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresource.ITemplateResource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that mail templates are parsed once and rendered per call, with the engine and
+ * resolver set up as Spring Boot's Thymeleaf auto-configuration does
+ */
+class MailTemplateRendererTest {
+
+    private static final String TEMPLATE = "email/verification";
+
+    private CountingResolver resolver;
+    private MailTemplateRenderer renderer;
+
+    @BeforeEach
+    void setUp() {
+        resolver = new CountingResolver();
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+        renderer = new MailTemplateRenderer(templateEngine);
+    }
+
+    @Test
+    void everyCallRendersItsOwnVariables() {
+        String amina = renderer.render(TEMPLATE, Locale.ENGLISH, variables("Amina", "482913"));
+        String grace = renderer.render(TEMPLATE, Locale.ENGLISH, variables("Grace", "105577"));
+
+        assertTrue(amina.contains("Amina") && amina.contains("482913"));
+        assertFalse(amina.contains("Grace") || amina.contains("105577"));
+        assertTrue(grace.contains("Grace") && grace.contains("105577"));
+        assertFalse(grace.contains("Amina") || grace.contains("482913"));
+    }
+
+    @Test
+    void templateIsParsedOnceAcrossVariablesAndLocales() {
+        renderer.render(TEMPLATE, Locale.ENGLISH, variables("Amina", "482913"));
+        renderer.render(TEMPLATE, Locale.ENGLISH, variables("Grace", "105577"));
+        renderer.render(TEMPLATE, Locale.FRENCH, variables("Amina", "482913"));
+
+        assertEquals(1, resolver.resolved.get());
+    }
+
+    private static Map<String, Object> variables(String userName, String code) {
+        return Map.of("userName", userName, "verificationCode", code, "expiryMinutes", 30);
+    }
+
+    /**
+     * Spring Boot's defaults: classpath:/templates/*.html, HTML mode, UTF-8, cached
+     */
+    private static final class CountingResolver extends SpringResourceTemplateResolver {
+
+        private final AtomicInteger resolved = new AtomicInteger();
+
+        CountingResolver() {
+            setApplicationContext(new StaticApplicationContext());
+            setPrefix("classpath:/templates/");
+            setSuffix(".html");
+            setTemplateMode(TemplateMode.HTML);
+            setCharacterEncoding(StandardCharsets.UTF_8.name());
+            setCheckExistence(true);
+            setCacheable(true);
+        }
+
+        @Override
+        protected ITemplateResource computeTemplateResource(IEngineConfiguration configuration, String ownerTemplate,
+                                                            String template, String resourceName,
+                                                            String characterEncoding,
+                                                            Map<String, Object> templateResolutionAttributes) {
+            resolved.incrementAndGet();
+            return super.computeTemplateResource(configuration, ownerTemplate, template, resourceName,
+                characterEncoding, templateResolutionAttributes);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.gynaid.backend.service.sms;
+
+import com.gynaid.backend.service.SchedulerLeaseService;
+import com.gynaid.backend.util.UgandaPhoneNumber;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for SmsDispatchService against the V22 sms_outbox table on H2, sending
+ * through StubSmsSender
+ */
+class SmsDispatchServiceTest {
+
+    private static final long NUMBER = UgandaPhoneNumber.parse("+256772123456");
+
+    private final AtomicInteger failingSentUpdates = new AtomicInteger();
+
+    private JdbcTemplate jdbcTemplate;
+    private StubSmsSender smsSender;
+    private SmsDispatchService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:sms_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource) {
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                if (sql.startsWith("UPDATE sms_outbox SET status = 'SENT'")
+                    && failingSentUpdates.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                    throw new QueryTimeoutException("Simulated outage");
+                }
+                return super.batchUpdate(sql, batchArgs);
+            }
+        };
+        jdbcTemplate.execute("CREATE TABLE scheduler_leases (name VARCHAR(100) PRIMARY KEY, owner VARCHAR(100), "
+            + "lease_until TIMESTAMP)");
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V22__Add_Sms_Outbox.sql"))
+            .execute(dataSource);
+
+        SchedulerLeaseService leaseService = mock(SchedulerLeaseService.class);
+        when(leaseService.tryAcquire(anyString(), anyInt())).thenReturn(true);
+
+        smsSender = new StubSmsSender();
+        service = new SmsDispatchService(jdbcTemplate, smsSender, leaseService, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "leaseSeconds", 30);
+        ReflectionTestUtils.setField(service, "maxInFlight", 4);
+        ReflectionTestUtils.setField(service, "maxAttempts", 5);
+        ReflectionTestUtils.setField(service, "retryBaseSeconds", 15);
+        ReflectionTestUtils.setField(service, "stuckSendingMinutes", 10);
+        ReflectionTestUtils.setField(service, "accountRate", 30.0);
+        ReflectionTestUtils.setField(service, "mtnRate", 15.0);
+        ReflectionTestUtils.setField(service, "airtelRate", 15.0);
+        ReflectionTestUtils.setField(service, "otherRate", 5.0);
+        ReflectionTestUtils.setField(service, "statusCallbackBaseUrl", "");
+        service.start();
+        // Become the dispatcher
+        service.poll();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        service.stop();
+    }
+
+    @Test
+    void priorityMessageIsSentAndRecorded() throws Exception {
+        assertTrue(sendVerificationCode());
+
+        service.poll();
+
+        Map<String, Object> row = outboxRow();
+        assertEquals("SENT", row.get("status"));
+        assertEquals(1, ((Number) row.get("attempts")).intValue());
+        assertEquals(smsSender.sentMessages().get(0).sid(), row.get("provider_sid"));
+        assertEquals("+256772123456", smsSender.sentMessages().get(0).to());
+    }
+
+    @Test
+    void outcomeIsRecordedOnTheNextPollAfterAFailedWrite() throws Exception {
+        failingSentUpdates.set(1);
+        assertTrue(sendVerificationCode());
+
+        service.poll();
+        assertEquals("SENDING", outboxRow().get("status"));
+
+        service.poll();
+        assertEquals("SENT", outboxRow().get("status"));
+        assertEquals(1, smsSender.sentMessages().size());
+    }
+
+    @Test
+    void messageWhoseOutcomeIsUnrecordedIsNotSentAgainWhenStuck() throws Exception {
+        failingSentUpdates.set(2);
+        assertTrue(sendVerificationCode());
+        service.poll();
+
+        // Past stuck-sending-minutes the next poll resets the row to PENDING and reads it again
+        jdbcTemplate.update("UPDATE sms_outbox SET updated_at = ?", LocalDateTime.now().minusHours(1));
+        service.poll();
+        TimeUnit.MILLISECONDS.sleep(300);
+        assertEquals(1, smsSender.sentMessages().size());
+
+        service.poll();
+        Map<String, Object> row = outboxRow();
+        assertEquals("SENT", row.get("status"));
+        assertEquals(1, ((Number) row.get("attempts")).intValue());
+        assertEquals(1, smsSender.sentMessages().size());
+    }
+
+    private boolean sendVerificationCode() throws Exception {
+        return service.send(NUMBER, SmsTemplate.VERIFICATION_CODE, LocalDateTime.now().plusMinutes(10), "482913", 10)
+            .get(5, TimeUnit.SECONDS);
+    }
+
+    private Map<String, Object> outboxRow() {
+        return jdbcTemplate.queryForMap("SELECT status, attempts, provider_sid FROM sms_outbox");
+    }
+}
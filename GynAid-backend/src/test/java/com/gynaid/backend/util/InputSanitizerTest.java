@@ -0,0 +1,118 @@
+package com.gynaid.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Property tests of InputSanitizer against the regex chain it replaced
+ * (LegacyRegexSanitizer), over inputs built from random tag, protocol, keyword,
+ * whitespace and text fragments with fixed seeds.
+ *
+ * Intended divergences, all where the regex chain's own removals produced or hid a match:
+ * - text joined by a removal is checked again, so "javajavascript:script:" becomes ""
+ *   (regex chain: "javascript:") and "&lt;scr&lt;scriptipt&gt;" becomes "&gt;" (regex chain: "&lt;script&gt;")
+ * - a SQL keyword ended by a tag opener or protocol is removed even when removing that
+ *   opener joins it to the next word: "insert&lt;JavaScript:scriptect" becomes "ect"
+ *   (regex chain: "insertect")
+ */
+class InputSanitizerTest {
+
+    private static final String[] FRAGMENTS = {
+        "<script>", "</script>", "<script src=x>", "alert(1)", "<", ">", "script", "java", "javascript:",
+        "JavaScript:", ":", "<img", "<IMG src=x>", "<svg", "<iframe", "<ifr", "ame", "<obj", "ect", "<style",
+        "<meta", "<link", "<embed", "select", "SELECT", "union", "drop", "exec", "execute", "delete", "update",
+        "insert", "create", "alter", "sel", " ", "  ", "\t", "\n", "\r\n", "\u000B", "\f", "\u00A0", "\u0085",
+        "\u2028", "a", "Amina", "Nakato", "_", "1", "-", ".", "@", "'", ";", "--", "x"
+    };
+    private static final String[] SEPARATORS = {" ", "\t", "\n", "  ", "\r\n"};
+    private static final int RUNS = 200_000;
+
+    @Test
+    void examples() {
+        assertNull(InputSanitizer.sanitize(null));
+        assertEquals("", InputSanitizer.sanitize("   "));
+        assertEquals("a b", InputSanitizer.sanitize("  a \t\n  b  "));
+        assertEquals("Hi", InputSanitizer.sanitize("<script>alert(1)</script>Hi"));
+        assertEquals("* FROM users", InputSanitizer.sanitize("SELECT * FROM users"));
+        assertEquals("src=x>", InputSanitizer.sanitize("<IMG src=x>"));
+        assertEquals("alert(1)", InputSanitizer.sanitize("JavaScript:alert(1)"));
+        assertEquals("selection updated", InputSanitizer.sanitize("selection updated"));
+        assertEquals("Hello <b>Amina</b>", InputSanitizer.sanitize("Hello <b>Amina</b>"));
+    }
+
+    @Test
+    void cleanInputIsReturnedAsIs() {
+        for (String clean : new String[] {"", "Amina Nakato", "amina.nakato@example.org", "+256 772 123456"}) {
+            assertSame(clean, InputSanitizer.sanitize(clean));
+        }
+    }
+
+    @Test
+    void matchesRegexChainWhenFragmentsAreSeparatedByWhitespace() {
+        Random random = new Random(41);
+        for (int run = 0; run < RUNS; run++) {
+            String input = randomInput(random, true);
+            String expected = LegacyRegexSanitizer.sanitize(input);
+            assertEquals(expected, InputSanitizer.sanitize(input), () -> "input " + escape(input));
+        }
+    }
+
+    @Test
+    void leavesNothingTheRegexChainWouldRemove() {
+        Random random = new Random(42);
+        for (int run = 0; run < RUNS; run++) {
+            String input = randomInput(random, false);
+            String sanitized = InputSanitizer.sanitize(input);
+
+            assertEquals(sanitized, LegacyRegexSanitizer.sanitize(sanitized), () -> "input " + escape(input));
+            assertEquals(sanitized, InputSanitizer.sanitize(sanitized), () -> "input " + escape(input));
+            // Divergences only ever remove more
+            assertTrue(sanitized.length() <= LegacyRegexSanitizer.sanitize(input).length(),
+                () -> "input " + escape(input));
+        }
+    }
+
+    @Test
+    void intendedDivergences() {
+        assertEquals("", InputSanitizer.sanitize("javajavascript:script:"));
+        assertEquals("javascript:", LegacyRegexSanitizer.sanitize("javajavascript:script:"));
+
+        assertEquals(">", InputSanitizer.sanitize("<scr<scriptipt>"));
+        assertEquals("<script>", LegacyRegexSanitizer.sanitize("<scr<scriptipt>"));
+
+        assertEquals("ect", InputSanitizer.sanitize("insert<JavaScript:scriptect"));
+        assertEquals("insertect", LegacyRegexSanitizer.sanitize("insert<JavaScript:scriptect"));
+    }
+
+    @Test
+    void largeInputMatchesRegexChainAndLeavesScannerUsable() {
+        String large = "Amina  <img src=x> select ".repeat(2_000);
+        String sanitized = InputSanitizer.sanitize(large);
+
+        assertEquals(LegacyRegexSanitizer.sanitize(large), sanitized);
+        assertEquals("Amina src=x>", InputSanitizer.sanitize("Amina  <img src=x>"));
+    }
+
+    private static String randomInput(Random random, boolean separated) {
+        StringBuilder input = new StringBuilder();
+        int fragments = random.nextInt(12);
+        for (int i = 0; i < fragments; i++) {
+            if (separated && i > 0) {
+                input.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+            }
+            input.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+        }
+        return input.toString();
+    }
+
+    private static String escape(String text) {
+        StringBuilder escaped = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            escaped.append(c < ' ' || c > '~' ? String.format("\\u%04X", (int) c) : String.valueOf(c));
+        }
+        return escaped.append('"').toString();
+    }
+}
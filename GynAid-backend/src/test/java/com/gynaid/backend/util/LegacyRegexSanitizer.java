@@ -0,0 +1,33 @@
+package com.gynaid.backend.util;
+
+import java.util.regex.Pattern;
+
+/**
+ * The regex chain InputValidationService.sanitizeInput ran before InputSanitizer,
+ * kept as the reference for equivalence tests and benchmarks
+ */
+public final class LegacyRegexSanitizer {
+
+    private static final Pattern SCRIPT_TAG_PATTERN = Pattern.compile("(?i)<script[^>]*>.*?</script>");
+    private static final Pattern JAVASCRIPT_PATTERN = Pattern.compile("(?i)javascript:");
+    private static final Pattern XSS_PATTERN = Pattern.compile(
+        "(?i)(<iframe|<object|<embed|<link|<style|<meta|<img|<svg|<script)");
+    private static final Pattern SQL_INJECTION_PATTERN = Pattern.compile(
+        "(?i)(\\b(union|select|insert|update|delete|drop|create|alter|exec|execute)\\b)");
+
+    private LegacyRegexSanitizer() {
+    }
+
+    public static String sanitize(String input) {
+        if (input == null) {
+            return null;
+        }
+
+        String sanitized = input;
+        sanitized = SCRIPT_TAG_PATTERN.matcher(sanitized).replaceAll("");
+        sanitized = JAVASCRIPT_PATTERN.matcher(sanitized).replaceAll("");
+        sanitized = XSS_PATTERN.matcher(sanitized).replaceAll("");
+        sanitized = SQL_INJECTION_PATTERN.matcher(sanitized).replaceAll("");
+        return sanitized.trim().replaceAll("\\s+", " ");
+    }
+}